@@ -1,41 +1,124 @@
 package model;
 
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
 // Represents a specific date, which can be used as an ID for the Day object.
-public class DateCode {
+//  A DateCode is stored as the number of days since the epoch (1970-01-01), so comparing, hashing and stepping
+//  through dates is integer arithmetic. The DateCodes of the decades around today are canonical instances
+//  (see fromEpochDay), so moving around the timeline and parsing saved dates does not allocate.
+public class DateCode implements Comparable<DateCode> {
+
+    public static final int SUNDAY = 1;         // The dayOfWeek of a Sunday (numbered as in java.util.Calendar).
+    public static final int SATURDAY = 7;       // The dayOfWeek of a Saturday.
+    public static final int MIN_YEAR = -999999; // The earliest year a DateCode can represent.
+    public static final int MAX_YEAR = 999999;  // The latest year a DateCode can represent.
 
-    private final int date;     // The date of the month that the DateCode represents.
-    private final int month;    // The month of the year that the DateCode represents.
-    private final int year;     // The year that the DateCode represents.
+    private static final int DAYS_0000_TO_1970 = 719468;    // Days from 0000-03-01 to the epoch.
+    private static final int DAYS_PER_ERA = 146097;         // Days in each 400 year cycle of the calendar.
+    private static final int CACHE_SIZE = 1 << 15;          // The number of canonical DateCodes (about 90 years).
+    private static final int CACHE_START = (int) LocalDate.now().toEpochDay() - CACHE_SIZE / 2; // First cached.
+    private static final DateCode[] CACHE = new DateCode[CACHE_SIZE];  // The canonical DateCodes, made as needed.
 
+    private final int epochDay;     // The number of days between the epoch (1970-01-01) and this date.
 
     // MODIFIES: this
     // EFFECTS: creates a new DateCode instance with a specified year, month and date.
+    //          Throws DateTimeException if there is no such date (eg. 2021-02-30).
     public DateCode(int year, int month, int date) {
-        this.date = date;
-        this.month = month;
-        this.year = year;
+        this(epochDayOf(year, month, date));
     }
 
     // MODIFIES: this
     // EFFECTS: creates a new DateCode instance by parsing a DateCode string (yyyy-mm-dd).
+    //          Throws NumberFormatException if it is not of that form, or DateTimeException if there is no such date.
     public DateCode(String dateCodeString) {
-        String[] dateCodeParts = dateCodeString.split("-");
+        this(parseEpochDay(dateCodeString));
+    }
+
+    // EFFECTS: creates a DateCode for a day counted from the epoch.
+    private DateCode(int epochDay) {
+        this.epochDay = epochDay;
+    }
+
+    // EFFECTS: returns the DateCode of the specified year, month and date (canonical if it is cached).
+    //          Throws DateTimeException if there is no such date.
+    public static DateCode of(int year, int month, int date) {
+        return fromEpochDay(epochDayOf(year, month, date));
+    }
+
+    // EFFECTS: returns the DateCode of a DateCode string (yyyy-mm-dd), parsed without allocating, which is
+    //          canonical if it is cached. Throws NumberFormatException if it is not of that form,
+    //          or DateTimeException if there is no such date.
+    public static DateCode parse(CharSequence dateCodeString) {
+        return fromEpochDay(parseEpochDay(dateCodeString));
+    }
+
+    // EFFECTS: returns the DateCode for a day counted from the epoch (1970-01-01 is day 0). Days in the decades
+    //          around today return the same canonical instance every time, others a new DateCode.
+    //          Throws DateTimeException if the day is outside MIN_YEAR to MAX_YEAR.
+    public static DateCode fromEpochDay(long epochDay) {
+        long slot = epochDay - CACHE_START;
+        if (slot < 0 || slot >= CACHE_SIZE) {
+            checkEpochDay(epochDay);
+            return new DateCode((int) epochDay);
+        }
+        DateCode dc = CACHE[(int) slot];
+        if (dc == null) {   // Racing threads may each make one, but any of them is equal and immutable.
+            dc = new DateCode((int) epochDay);
+            CACHE[(int) slot] = dc;
+        }
+        return dc;
+    }
+
+    // EFFECTS: returns the number of days between the epoch of a DateCode string (yyyy-mm-dd) without allocating.
+    //          Throws NumberFormatException if it is not of that form, or DateTimeException if there is no such date.
+    public static int parseEpochDay(CharSequence s) {
+        int first = s.length() > 0 && s.charAt(0) == '-' ? 1 : 0;  // A year before 0 starts with a minus.
+        int dash1 = indexOfDash(s, first);
+        int dash2 = indexOfDash(s, dash1 + 1);
+        if (dash1 < 0 || dash2 < 0 || indexOfDash(s, dash2 + 1) >= 0) {
+            throw new NumberFormatException("Not a date (yyyy-mm-dd): " + s);
+        }
+        int year = parseDigits(s, first, dash1);
+        return epochDayOf(first == 1 ? -year : year, parseDigits(s, dash1 + 1, dash2),
+                parseDigits(s, dash2 + 1, s.length()));
+    }
+
+    // EFFECTS: returns the number of days between the epoch (1970-01-01) and this date.
+    public int toEpochDay() {
+        return epochDay;
+    }
+
+    // EFFECTS: returns the date days after this one (before it, if days is negative).
+    public DateCode plusDays(long days) {
+        return fromEpochDay(epochDay + days);
+    }
+
+    // EFFECTS: returns the date weeks after this one (before it, if weeks is negative).
+    public DateCode plusWeeks(long weeks) {
+        return plusDays(weeks * 7);
+    }
+
+    // EFFECTS: returns the day of the week of this date, from SUNDAY (1) to SATURDAY (7).
+    public int dayOfWeek() {
+        return Math.floorMod(epochDay + 4, 7) + 1;     // The epoch was a Thursday.
+    }
 
-        year = Integer.parseInt(dateCodeParts[0]);
-        month = Integer.parseInt(dateCodeParts[1]);
-        date = Integer.parseInt(dateCodeParts[2]);
+    // EFFECTS: returns the Sunday that starts the week of this date (this date, if it is a Sunday).
+    public DateCode weekStart() {
+        return plusDays(SUNDAY - dayOfWeek());
     }
 
     @Override
-    // EFFECTS: returns the hashCode of this object, calculated to be an integer but look like yyyymmdd.
+    // EFFECTS: returns the hashCode of this object, its epoch day.
     public int hashCode() {
-        return (10000 * year) + (100 * month) + date;
+        return epochDay;
     }
 
     @Override
     // EFFECTS: returns the true if obj is equal to this object.
-    //          true if obj is the same object or all id variables (date, month, year)
-    //          are the the same for both this and obj.
+    //          true if obj is the same object or both represent the same date.
     public boolean equals(Object obj) {
         if (this == obj) {
             return true;
@@ -45,23 +128,28 @@ public class DateCode {
             return false;
         }
 
-        DateCode dc = (DateCode) obj;
+        return ((DateCode) obj).epochDay == epochDay;
+    }
 
-        return dc.date == date && dc.month == month && dc.year == year;
+    @Override
+    // EFFECTS: returns a negative number, zero or a positive number if this date is before, the same as
+    //          or after dc.
+    public int compareTo(DateCode dc) {
+        return Integer.compare(epochDay, dc.epochDay);
     }
 
     // EFFECTS: returns the full DateCode converted to a string,
     //          using the following pattern: yyyy-mm-dd
     public String toString() {
-        return year
-                + "-" + formatMonthAndDate(month)
-                + "-" + formatMonthAndDate(date);
+        return getYear()
+                + "-" + formatMonthAndDate(getMonth())
+                + "-" + formatMonthAndDate(getDate());
     }
 
     // EFFECTS: returns a partial DateCode string,
     //          using the following pattern: dd/mm
     public String getDateAndMonth() {
-        return formatMonthAndDate(date) + "/" + formatMonthAndDate(month);
+        return formatMonthAndDate(getDate()) + "/" + formatMonthAndDate(getMonth());
     }
 
     // REQUIRES: i is a valid date (32 > i > 0)
@@ -78,17 +166,100 @@ public class DateCode {
 
     // EFFECTS: returns the date as an integer.
     public int getDate() {
-        return date;
+        int dayOfYear = dayOfMarchYear();
+        return dayOfYear - (153 * marchMonth(dayOfYear) + 2) / 5 + 1;
     }
 
     // EFFECTS: returns the month as an integer.
     public int getMonth() {
-        return month;
+        int month = marchMonth(dayOfMarchYear());
+        return month < 10 ? month + 3 : month - 9;
     }
 
     // EFFECTS: returns the year as an integer.
     public int getYear() {
-        return year;
+        int era = Math.floorDiv(epochDay + DAYS_0000_TO_1970, DAYS_PER_ERA);
+        int yearOfEra = yearOfEra(epochDay + DAYS_0000_TO_1970 - era * DAYS_PER_ERA);
+        boolean januaryOrFebruary = marchMonth(dayOfMarchYear()) >= 10;   // Counted in the year before
+        return yearOfEra + era * 400 + (januaryOrFebruary ? 1 : 0);
+    }
+
+    /*
+        Calendar arithmetic (counting years from March, so the leap day is the last day of a year)
+     */
+
+    // EFFECTS: returns the day of this date in its year counted from March 1st (0 to 365).
+    private int dayOfMarchYear() {
+        int dayOfEra = Math.floorMod(epochDay + DAYS_0000_TO_1970, DAYS_PER_ERA);
+        int yearOfEra = yearOfEra(dayOfEra);
+        return dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    }
+
+    // EFFECTS: returns the year in its 400 year cycle of the day dayOfEra of that cycle.
+    private static int yearOfEra(int dayOfEra) {
+        return (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / (DAYS_PER_ERA - 1)) / 365;
+    }
+
+    // EFFECTS: returns the month (0 for March to 11 for February) of the day dayOfYear counted from March 1st.
+    private static int marchMonth(int dayOfYear) {
+        return (5 * dayOfYear + 2) / 153;
+    }
+
+    // EFFECTS: returns the number of days between the epoch and the specified date.
+    //          Throws DateTimeException if there is no such date.
+    private static int epochDayOf(int year, int month, int date) {
+        if (year < MIN_YEAR || year > MAX_YEAR || month < 1 || month > 12 || date < 1
+                || date > lengthOfMonth(year, month)) {
+            throw new DateTimeException("Invalid date: " + year + "-" + month + "-" + date);
+        }
+        int marchYear = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(marchYear, 400);
+        int yearOfEra = marchYear - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + date - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_ERA + dayOfEra - DAYS_0000_TO_1970;
     }
 
+    // EFFECTS: returns the number of days in month of year.
+    private static int lengthOfMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    // EFFECTS: throws DateTimeException if epochDay is outside MIN_YEAR to MAX_YEAR.
+    private static void checkEpochDay(long epochDay) {
+        if (epochDay < epochDayOf(MIN_YEAR, 1, 1) || epochDay > epochDayOf(MAX_YEAR, 12, 31)) {
+            throw new DateTimeException("Invalid epoch day: " + epochDay);
+        }
+    }
+
+    // EFFECTS: returns the position of the first '-' in s at or after from, or -1 if there is none.
+    private static int indexOfDash(CharSequence s, int from) {
+        for (int i = from; i < s.length(); i++) {
+            if (s.charAt(i) == '-') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // EFFECTS: returns the number written in decimal digits from up to to in s.
+    //          Throws NumberFormatException if there are none, too many or something else.
+    private static int parseDigits(CharSequence s, int from, int to) {
+        if (from >= to || to - from > 9) {
+            throw new NumberFormatException("Not a date (yyyy-mm-dd): " + s);
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Not a date (yyyy-mm-dd): " + s);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
 }
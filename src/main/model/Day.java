@@ -1,21 +1,28 @@
 package model;
 
+import model.activities.Activity;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import persistence.Writable;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 // Represents a day that contains moods and sleep value. It has a unique ID (DateCode) which identifies it.
+//  A Day either holds its values itself, or is a view of a row of a DayStore (see attach), in which case
+//  its values are read from and written to the columns of the store.
 public class Day implements Writable {
 
     public static final int MAXMOODS = 2;   // Number of moods per day.
     public static final int MAXSLEEP = 16;  // Max number user can enter for sleep value.
 
     private final DateCode dateCode;        // The unique ID for this day.
-    private List<Mood> moodList;            // The list containing the moods. Should contain 2
+    private List<Mood> moodList;            // The list containing the moods. Should contain 2 (null in a view
+                                            //  whose moods have not been used yet, see moods)
     private int sleepHours;                 // The number of hours slept. Initialized to -1
+    private TimelineListener listener;      // Notified when this day changes, null if not in a Timeline.
+    private DayStore store;                 // The store holding the values of this day, null if held here.
 
 
     // MODIFIES: this
@@ -30,6 +37,7 @@ public class Day implements Writable {
         for (int i = 0; i < MAXMOODS; i++) {
             moodList.add(new Mood());
         }
+        setMoodOwners();
     }
 
     // MODIFIES: this
@@ -39,13 +47,64 @@ public class Day implements Writable {
         dateCode = id;
         sleepHours = sleep;
         moodList = moods;
+        setMoodOwners();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: creates a view of the Day dated id in store, notifying listener of its changes.
+    //          Its moods are made once they are used, so finding or scanning Days only makes the Day itself.
+    Day(DayStore store, DateCode id, TimelineListener listener) {
+        dateCode = id;
+        this.store = store;
+        this.listener = listener;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: returns moodList, first making the views of the moods of this view if they are not made yet.
+    private List<Mood> moods() {
+        if (moodList == null) {
+            moodList = new ArrayList<>(MAXMOODS);
+            for (int i = 0; i < MAXMOODS; i++) {
+                moodList.add(new Mood(store, dateCode.toEpochDay(), i));
+            }
+            setMoodOwners();
+        }
+        return moodList;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: makes every mood in moodList report its changes to this day.
+    private void setMoodOwners() {
+        for (int i = 0; i < moodList.size(); i++) {
+            moodList.get(i).setOwner(this, i);
+        }
     }
 
     // REQUIRES: 0 <= pos < moodList.size()
     // EFFECTS: returns a *reference* to a mood at position pos.
     //          The reference can be updated directly.
     public Mood getMood(int pos) {
-        return moodList.get(pos);
+        return moods().get(pos);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: sets the sleep hours and moods of this day to those of other (eg. the same day read again
+    //          from a file), reporting each change to the listener. Returns true if anything changed.
+    public boolean copyFrom(Day other) {
+        boolean changed = getSleepHours() != other.getSleepHours();
+        setSleepHours(other.getSleepHours());
+        for (int i = 0; i < Math.min(getMoodListLength(), other.getMoodListLength()); i++) {
+            changed = getMood(i).copyFrom(other.getMood(i)) || changed;
+        }
+        return changed;
+    }
+
+    // EFFECTS: returns a new Day with the date, sleep hours and moods of this day, that is not in any
+    //          timeline (eg. to be written on another thread while this day can still change).
+    public Day copy() {
+        Day copy = new Day(dateCode);
+        copy.copyFrom(this);
+        return copy;
     }
 
     /*
@@ -56,11 +115,11 @@ public class Day implements Writable {
     public JSONObject toJson() {
         JSONObject jsonDay = new JSONObject();
         jsonDay.put("id", dateCode.toString());
-        jsonDay.put("sleep", sleepHours);
+        jsonDay.put("sleep", getSleepHours());
 
         JSONArray jsonMoods = new JSONArray();
 
-        for (Mood m : moodList) {
+        for (Mood m : moods()) {
             jsonMoods.put(m.toJson());
         }
 
@@ -76,26 +135,65 @@ public class Day implements Writable {
     // EFFECTS: returns sleepHours as a string if initialized,
     //          else returns an "x".
     public String getUISleepHours() {
-        if (sleepHours == -1) {
+        if (getSleepHours() == -1) {
             return "x";
         }
-        return Integer.toString(sleepHours);
+        return Integer.toString(getSleepHours());
     }
 
     // EFFECTS: returns sleepHours if sleepHours is initialized, else -1
     public int getSleepHours() {
-        return sleepHours;
+        return store == null ? sleepHours : store.getSleepHours(dateCode.toEpochDay());
     }
 
     // REQUIRES: sh <= MAXSLEEP
     // EFFECTS: updates sleepHours value with sh.
     public void setSleepHours(int sh) {
-        sleepHours = sh;
+        boolean changed = sh != getSleepHours();
+        if (store == null) {
+            sleepHours = sh;
+        } else {
+            store.setSleepHours(dateCode.toEpochDay(), sh);
+        }
+        if (changed && listener != null) {
+            listener.sleepHoursChanged(this);
+        }
+    }
+
+    // EFFECTS: returns a read-only view of the moods in moodList.
+    public List<Mood> getMoods() {
+        return Collections.unmodifiableList(moods());
+    }
+
+    // EFFECTS: returns the activities done in any mood of this day, as a bitmask (see Mood.getActivityMask).
+    public long getActivityUnion() {
+        long union = 0;
+        for (int i = 0; i < getMoodListLength(); i++) {
+            union |= activityMaskOf(i);
+        }
+        return union;
+    }
+
+    // EFFECTS: returns the activities done in every mood of this day, as a bitmask (0 if it has no moods).
+    public long getActivityIntersection() {
+        long intersection = getMoodListLength() == 0 ? 0 : -1L;
+        for (int i = 0; i < getMoodListLength(); i++) {
+            intersection &= activityMaskOf(i);
+        }
+        return intersection;
+    }
+
+    // EFFECTS: returns the activities of the mood at pos as a bitmask, read straight from the store
+    //          if the moods of this view have not been made.
+    private long activityMaskOf(int pos) {
+        return moodList == null
+                ? store.getActivityMask(dateCode.toEpochDay(), pos)
+                : moodList.get(pos).getActivityMask();
     }
 
     // EFFECTS: returns the number of items (moods) in moodList.
     public int getMoodListLength() {
-        return moodList.size();
+        return moodList == null ? MAXMOODS : moodList.size();
     }
 
     // EFFECTS: returns the DateCode associated with this day.
@@ -103,4 +201,57 @@ public class Day implements Writable {
         return dateCode;
     }
 
+    /*
+        Columnar storage
+     */
+
+    // REQUIRES: store holds the values of this day (see DayStore.put)
+    // MODIFIES: this
+    // EFFECTS: makes this day (and its moods) a view of its row in store, so its values are read from and
+    //          written to the store from now on. Moods are added up to MAXMOODS, as the store holds that many.
+    void attach(DayStore store) {
+        moods();
+        this.store = store;
+        int epochDay = dateCode.toEpochDay();
+        for (int i = 0; i < MAXMOODS; i++) {
+            if (i < moodList.size()) {
+                moodList.get(i).attach(store, epochDay);
+            } else {
+                moodList.add(new Mood(store, epochDay, i));
+            }
+        }
+        setMoodOwners();
+    }
+
+    /*
+        Change notification
+     */
+
+    // MODIFIES: this
+    // EFFECTS: sets the listener notified when this day or one of its moods changes.
+    void setListener(TimelineListener listener) {
+        this.listener = listener;
+    }
+
+    // EFFECTS: notifies the listener that the score of the mood at moodIndex has been set.
+    void moodScoreChanged(int moodIndex) {
+        if (listener != null) {
+            listener.moodScoreChanged(this, moodIndex);
+        }
+    }
+
+    // EFFECTS: notifies the listener that activity has been added to the mood at moodIndex.
+    void activityAdded(int moodIndex, Activity activity) {
+        if (listener != null) {
+            listener.activityAdded(this, moodIndex, activity);
+        }
+    }
+
+    // EFFECTS: notifies the listener that activityName has been removed from the mood at moodIndex.
+    void activityRemoved(int moodIndex, String activityName) {
+        if (listener != null) {
+            listener.activityRemoved(this, moodIndex, activityName);
+        }
+    }
+
 }
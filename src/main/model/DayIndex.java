@@ -0,0 +1,44 @@
+package model;
+
+import java.util.AbstractCollection;
+
+// Represents the Days of a timeline sorted by date, keyed by the epoch day of each DateCode. The Days are laid out
+//  in numbered slots in date order, so a DayRange can walk the slots between two dates without copying them.
+//  Iterating visits the Days in date order.
+abstract class DayIndex extends AbstractCollection<Day> {
+
+    // EFFECTS: returns the Day of epochDay, or null if there is none.
+    abstract Day get(int epochDay);
+
+    // MODIFIES: this
+    // EFFECTS: puts d in the index, replacing the Day with its date, and returns the replaced Day (or null).
+    abstract Day put(Day d);
+
+    // EFFECTS: returns the Day with the latest date on or before epochDay, or null if there is none.
+    abstract Day floor(int epochDay);
+
+    // EFFECTS: returns the Day with the earliest date on or after epochDay, or null if there is none.
+    abstract Day ceiling(int epochDay);
+
+    // EFFECTS: returns the Days dated from fromDay to toDay (both included, as epoch days), in date order.
+    abstract Day[] between(int fromDay, int toDay);
+
+    // MODIFIES: this
+    // EFFECTS: removes the Days dated from fromDay to toDay (both included, as epoch days).
+    abstract void removeBetween(int fromDay, int toDay);
+
+    // EFFECTS: returns the first slot that could hold a Day on or after epochDay (the slot after the last one,
+    //          if there is none).
+    abstract int slotOf(long epochDay);
+
+    // EFFECTS: returns true if slot holds a Day.
+    abstract boolean hasDayAt(int slot);
+
+    // REQUIRES: hasDayAt(slot)
+    // EFFECTS: returns the Day in slot.
+    abstract Day dayAt(int slot);
+
+    // EFFECTS: returns the number of times Days have been added, removed or moved between slots, so a view
+    //          holding slots can tell they are no longer valid.
+    abstract int modCount();
+}
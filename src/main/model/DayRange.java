@@ -0,0 +1,154 @@
+package model;
+
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+// Represents a view of the Days of a timeline dated from one date to another (both included), in date order.
+//  The view copies nothing: iterating walks the timeline's own sorted index between the two dates, and so always
+//  sees the Days the timeline has at that moment (kept in a DayStore, the Days are views made as they are
+//  reached). Dates without a Day are skipped by iteration, and given as null by forEachDate and getDay.
+//  With a DaySource, each month is loaded as iteration reaches it.
+public class DayRange implements Iterable<Day> {
+
+    private final Timeline timeline;    // The timeline the Days are in.
+    private final DateCode from;        // The first date of the range.
+    private final DateCode to;          // The last date of the range.
+
+    // REQUIRES: from and to are not null
+    // EFFECTS: creates a view of the Days of timeline from from to to (empty if from is after to).
+    DayRange(Timeline timeline, DateCode from, DateCode to) {
+        this.timeline = timeline;
+        this.from = from;
+        this.to = to;
+    }
+
+    // EFFECTS: returns the first date of the range.
+    public DateCode getFrom() {
+        return from;
+    }
+
+    // EFFECTS: returns the last date of the range.
+    public DateCode getTo() {
+        return to;
+    }
+
+    // EFFECTS: returns the number of dates in the range (whether they have a Day or not).
+    public int getLength() {
+        return Math.max(0, to.toEpochDay() - from.toEpochDay() + 1);
+    }
+
+    // EFFECTS: returns true if dc is a date in the range.
+    public boolean contains(DateCode dc) {
+        return dc.compareTo(from) >= 0 && dc.compareTo(to) <= 0;
+    }
+
+    // EFFECTS: returns the Day of dc, or null if dc has no Day or is not in the range.
+    public Day getDay(DateCode dc) {
+        return contains(dc) ? timeline.getDay(dc) : null;
+    }
+
+    // EFFECTS: returns the activities done on any Day of the range, as a bitmask (see Mood.getActivityMask).
+    public long getActivityUnion() {
+        long union = 0;
+        for (Day d : this) {
+            union |= d.getActivityUnion();
+        }
+        return union;
+    }
+
+    // EFFECTS: returns the activities done on every Day of the range (in any of its moods), as a bitmask
+    //          (0 if the range has no Days).
+    public long getActivityIntersection() {
+        Iterator<Day> days = iterator();
+        long intersection = days.hasNext() ? -1L : 0;
+        while (days.hasNext() && intersection != 0) {
+            intersection &= days.next().getActivityUnion();
+        }
+        return intersection;
+    }
+
+    // EFFECTS: calls action with every date of the range in order, and its Day (null if it has none).
+    public void forEachDate(BiConsumer<DateCode, Day> action) {
+        Iterator<Day> days = iterator();
+        Day next = days.hasNext() ? days.next() : null;
+        for (int epochDay = from.toEpochDay(); epochDay <= to.toEpochDay(); epochDay++) {
+            DateCode dc = DateCode.fromEpochDay(epochDay);
+            if (next != null && next.getDateCode().toEpochDay() == epochDay) {
+                action.accept(dc, next);
+                next = days.hasNext() ? days.next() : null;
+            } else {
+                action.accept(dc, null);
+            }
+        }
+    }
+
+    @Override
+    // EFFECTS: returns an iterator over the Days of the range in date order, skipping dates without a Day.
+    //          The iterator throws ConcurrentModificationException if Days are added to or dropped from the
+    //          timeline while it is in use (other than by the months it loads itself).
+    public Iterator<Day> iterator() {
+        if (from.compareTo(to) > 0) {
+            return Collections.emptyIterator();
+        }
+        return new Cursor();
+    }
+
+    // Represents a position in the range: a run of slots of the timeline's index, one month long with a
+    //  DaySource (as each month is loaded in turn) or the whole range without.
+    private class Cursor implements Iterator<Day> {
+
+        private final Iterator<Integer> months;     // The months left to load, or null without a DaySource.
+        private DayIndex index;                     // The index of the timeline, once loaded.
+        private int slot;                           // The slot of the next Day.
+        private int end;                            // The slot after the last Day of the run.
+        private int expectedModCount;               // The modCount of index when the slots were found.
+
+        // EFFECTS: creates a cursor before the first Day of the range.
+        Cursor() {
+            months = timeline.getDaySource() == null ? null
+                    : timeline.partitionKeys(DaySource.partitionOf(from), DaySource.partitionOf(to)).iterator();
+            if (months == null) {
+                startRun(timeline.loadedIndex(), from.toEpochDay(), to.toEpochDay());
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (index != null && index.modCount() != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            while (true) {
+                while (slot < end && !index.hasDayAt(slot)) {   // Only a DayStore has slots without a Day
+                    slot++;
+                }
+                if (slot < end || months == null || !months.hasNext()) {
+                    return slot < end;
+                }
+                int key = months.next();
+                int monthStart = Math.max(from.toEpochDay(), Timeline.firstEpochDayOf(key));
+                int monthEnd = Math.min(to.toEpochDay(), Timeline.firstEpochDayOf(key + 1) - 1);
+                startRun(timeline.loadMonth(key), monthStart, monthEnd);
+            }
+        }
+
+        @Override
+        public Day next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return index.dayAt(slot++);
+        }
+
+        // MODIFIES: this
+        // EFFECTS: moves the cursor to the slots of index holding the Days from fromDay to toDay.
+        private void startRun(DayIndex index, int fromDay, int toDay) {
+            this.index = index;
+            slot = index.slotOf(fromDay);
+            end = Math.max(slot, index.slotOf(toDay + 1L));
+            expectedModCount = index.modCount();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package model;
+
+import java.io.UncheckedIOException;
+import java.util.Collection;
+
+// Represents storage that a Timeline loads its Days from one partition (calendar month) at a time,
+//  so only the months that are actually visited have to be read.
+public interface DaySource {
+
+    // EFFECTS: returns the key of the partition dc belongs to, which reads as yyyymm (eg. 202103).
+    static int partitionOf(DateCode dc) {
+        return dc.getYear() * 100 + dc.getMonth();
+    }
+
+    // EFFECTS: returns the keys of every partition that has stored Days.
+    Collection<Integer> partitions();
+
+    // EFFECTS: returns the stored Days of the partition with key (none if it has no stored Days).
+    //          Throws UncheckedIOException if the partition cannot be read.
+    Collection<Day> loadPartition(int key) throws UncheckedIOException;
+}
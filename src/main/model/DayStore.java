@@ -0,0 +1,450 @@
+package model;
+
+import model.activities.Activity;
+import model.activities.ActivityRegistry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+// Represents the Days of a timeline stored as columns: parallel primitive arrays of the sleep hours, the score
+//  of each mood and the activities of each mood (as a bitmask of activity ids, see Mood), indexed by the
+//  number of days since the first date of the store. Each row takes 19 bytes of columns (and about a bit of
+//  bitmaps), whether or not it has a Day, and scanning a column (eg. the sleep of a year) reads consecutive memory.
+//  A bitmap of the rows with a Day, and a summary bitmap of its words that are not 0, let floor, ceiling and
+//  iteration skip 4096 empty rows at a time instead of testing every row of a sparse span.
+//  The Days given out are views (see Day.attach): they hold no values themselves, are made when asked for and
+//  read and write the columns (their moods are only made once they are used). A view of a Day that has since
+//  been removed from the store reads as an empty Day, and changes to it are dropped.
+public class DayStore extends DayIndex {
+
+    public static final int MAX_SPAN = 1 << 20;     // The most days (about 2870 years) from first to last date.
+
+    private static final byte ABSENT = Byte.MIN_VALUE;  // The sleep of a row without a Day.
+    private static final int MIN_CAPACITY = 64;         // The number of rows of a store's first Day.
+
+    private int base;                   // The epoch day of row 0.
+    private byte[] sleep;               // The sleep hours of each row, ABSENT if the row has no Day.
+    private final byte[][] scores;      // scores[m]: the score of mood m of each row.
+    private final long[][] activities;  // activities[m]: the bitmask of the activities of mood m of each row.
+    private long[] present;             // Bit r (of word r / 64) is set if row r has a Day.
+    private long[] summary;             // Bit w (of word w / 64) is set if present[w] is not 0.
+    private int size;                   // The number of rows with a Day.
+    private int modCount;               // The number of times Days have been added, removed or moved.
+    private TimelineListener listener;  // Given to the views, notified when they change.
+
+    // MODIFIES: this
+    // EFFECTS: creates an empty store.
+    public DayStore() {
+        sleep = new byte[0];
+        scores = new byte[Day.MAXMOODS][0];
+        activities = new long[Day.MAXMOODS][0];
+        present = new long[0];
+        summary = new long[0];
+    }
+
+    // MODIFIES: this, days
+    // EFFECTS: creates a store holding days, each of which becomes a view of its row in the store.
+    //          Throws IllegalArgumentException if a Day cannot be stored (see put).
+    public DayStore(Collection<Day> days) {
+        this();
+        for (Day d : days) {
+            put(d);
+        }
+    }
+
+    /*
+        Reading the columns (for analytics, without making views)
+     */
+
+    // EFFECTS: returns true if the store has a Day dated epochDay.
+    public boolean hasDay(int epochDay) {
+        long row = (long) epochDay - base;
+        return row >= 0 && row < sleep.length && sleep[(int) row] != ABSENT;
+    }
+
+    // EFFECTS: returns the sleep hours of the Day dated epochDay, -1 if it has none or there is no such Day.
+    public int getSleepHours(int epochDay) {
+        return hasDay(epochDay) ? sleep[epochDay - base] : -1;
+    }
+
+    // REQUIRES: 0 <= mood < Day.MAXMOODS
+    // EFFECTS: returns the score of mood of the Day dated epochDay, -1 if it has none or there is no such Day.
+    public int getMoodScore(int epochDay, int mood) {
+        return hasDay(epochDay) ? scores[mood][epochDay - base] : -1;
+    }
+
+    // REQUIRES: 0 <= mood < Day.MAXMOODS
+    // EFFECTS: returns the activities of mood of the Day dated epochDay as a bitmask, where bit i stands for the
+    //          activity with id i (0 if there is no such Day).
+    public long getActivityMask(int epochDay, int mood) {
+        return hasDay(epochDay) ? activities[mood][epochDay - base] : 0;
+    }
+
+    /*
+        Writing through views
+     */
+
+    // MODIFIES: this
+    // EFFECTS: sets the sleep hours of the Day dated epochDay, if there is one.
+    //          Throws IllegalArgumentException if hours does not fit in the column.
+    void setSleepHours(int epochDay, int hours) {
+        if (hasDay(epochDay)) {
+            sleep[epochDay - base] = toByte(hours, "sleep");
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: sets the score of mood of the Day dated epochDay, if there is one.
+    //          Throws IllegalArgumentException if score does not fit in the column.
+    void setMoodScore(int epochDay, int mood, int score) {
+        if (hasDay(epochDay)) {
+            scores[mood][epochDay - base] = toByte(score, "mood score");
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: sets the activities of mood of the Day dated epochDay to mask (see getActivityMask),
+    //          if there is such a Day.
+    void setActivityMask(int epochDay, int mood, long mask) {
+        if (hasDay(epochDay)) {
+            activities[mood][epochDay - base] = mask;
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: sets the listener given to the views made from now on.
+    void setListener(TimelineListener listener) {
+        this.listener = listener;
+    }
+
+    /*
+        DayIndex
+     */
+
+    @Override
+    // EFFECTS: returns the number of Days in the store.
+    public int size() {
+        return size;
+    }
+
+    @Override
+    // EFFECTS: returns a view of the Day dated epochDay, or null if there is none.
+    Day get(int epochDay) {
+        return hasDay(epochDay) ? view(epochDay - base) : null;
+    }
+
+    @Override
+    // MODIFIES: this, d
+    // EFFECTS: copies the values of d into its row, replacing the Day with its date, and makes d a view of the
+    //          row (see Day.attach). Returns a copy of the replaced Day (or null). Throws IllegalArgumentException,
+    //          storing nothing, if d has more than Day.MAXMOODS moods, a value that does not fit in its column,
+    //          or a date more than MAX_SPAN days from the others.
+    Day put(Day d) {
+        int epochDay = d.getDateCode().toEpochDay();
+        long[] masks = masksOf(d);
+        byte sleepHours = toByte(d.getSleepHours(), "sleep");
+        byte[] moodScores = new byte[Day.MAXMOODS];
+        for (int m = 0; m < Day.MAXMOODS; m++) {
+            moodScores[m] = m < d.getMoodListLength() ? toByte(d.getMood(m).getMoodScore(), "mood score") : -1;
+        }
+        ensureRow(epochDay);
+        int row = epochDay - base;
+        Day replaced = sleep[row] == ABSENT ? null : copyOf(row);
+        if (replaced == null) {
+            size++;
+            modCount++;
+            markPresent(row);
+        }
+        sleep[row] = sleepHours;
+        for (int m = 0; m < Day.MAXMOODS; m++) {
+            scores[m][row] = moodScores[m];
+            activities[m][row] = masks[m];
+        }
+        d.attach(this);
+        return replaced;
+    }
+
+    @Override
+    // EFFECTS: returns a view of the Day with the latest date on or before epochDay, or null if there is none.
+    Day floor(int epochDay) {
+        long row = Math.min((long) epochDay - base, sleep.length - 1);
+        int found = row < 0 ? -1 : previousRow((int) row);
+        return found < 0 ? null : view(found);
+    }
+
+    @Override
+    // EFFECTS: returns a view of the Day with the earliest date on or after epochDay, or null if there is none.
+    Day ceiling(int epochDay) {
+        long row = Math.max((long) epochDay - base, 0);
+        int found = row >= sleep.length ? -1 : nextRow((int) row);
+        return found < 0 ? null : view(found);
+    }
+
+    @Override
+    // EFFECTS: returns views of the Days dated from fromDay to toDay (both included, as epoch days), in date order.
+    Day[] between(int fromDay, int toDay) {
+        List<Day> days = new ArrayList<>();
+        int to = slotOf(toDay + 1L);
+        for (int row = nextRow(slotOf(fromDay)); row >= 0 && row < to; row = nextRow(row + 1)) {
+            days.add(view(row));
+        }
+        return days.toArray(new Day[0]);
+    }
+
+    @Override
+    // MODIFIES: this
+    // EFFECTS: removes the Days dated from fromDay to toDay (both included, as epoch days).
+    void removeBetween(int fromDay, int toDay) {
+        int to = slotOf(toDay + 1L);
+        for (int row = nextRow(slotOf(fromDay)); row >= 0 && row < to; row = nextRow(row + 1)) {
+            clear(row);
+        }
+        modCount++;
+    }
+
+    @Override
+    // MODIFIES: this
+    // EFFECTS: removes the Days that filter accepts (given as views). Returns true if any were removed.
+    public boolean removeIf(Predicate<? super Day> filter) {
+        boolean removed = false;
+        for (int row = nextRow(0); row >= 0; row = nextRow(row + 1)) {
+            if (filter.test(view(row))) {
+                clear(row);
+                removed = true;
+            }
+        }
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    // EFFECTS: returns an iterator over views of the Days in date order.
+    public Iterator<Day> iterator() {
+        return new Iterator<Day>() {
+            private int next = 0;   // The row of the next Day, or of a row without a Day before it (-1 at the end).
+
+            @Override
+            public boolean hasNext() {
+                if (next >= 0) {
+                    next = nextRow(next);
+                }
+                return next >= 0;
+            }
+
+            @Override
+            public Day next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return view(next++);
+            }
+        };
+    }
+
+    @Override
+    // EFFECTS: returns the row of epochDay, or the nearest row if it is outside the rows.
+    int slotOf(long epochDay) {
+        return (int) Math.max(0, Math.min(epochDay - base, sleep.length));
+    }
+
+    @Override
+    // EFFECTS: returns true if row slot holds a Day.
+    boolean hasDayAt(int slot) {
+        return sleep[slot] != ABSENT;
+    }
+
+    @Override
+    // EFFECTS: returns a view of the Day in row slot.
+    Day dayAt(int slot) {
+        return view(slot);
+    }
+
+    @Override
+    // EFFECTS: returns the number of times Days have been added, removed or moved between rows.
+    int modCount() {
+        return modCount;
+    }
+
+    /*
+        Rows
+     */
+
+    // EFFECTS: returns a new view of the Day in row.
+    private Day view(int row) {
+        return new Day(this, DateCode.fromEpochDay((long) base + row), listener);
+    }
+
+    // EFFECTS: returns a new Day holding the values of the Day in row itself.
+    private Day copyOf(int row) {
+        ArrayList<Mood> moods = new ArrayList<>();
+        for (int m = 0; m < Day.MAXMOODS; m++) {
+            Mood mood = new Mood();
+            mood.setMoodScore(scores[m][row]);
+            for (Activity a : ActivityRegistry.getInstance().getActivities(activities[m][row])) {
+                mood.addActivity(a);
+            }
+            moods.add(mood);
+        }
+        return new Day(DateCode.fromEpochDay((long) base + row), sleep[row], moods);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: removes the Day in row, if there is one.
+    private void clear(int row) {
+        if (sleep[row] != ABSENT) {
+            size--;
+            markAbsent(row);
+        }
+        sleep[row] = ABSENT;
+        for (int m = 0; m < Day.MAXMOODS; m++) {
+            scores[m][row] = -1;
+            activities[m][row] = 0;
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: grows the columns, if needed, so there is a row for epochDay. The new rows go on the side of
+    //          epochDay, twice as many as before (so adding Days one after another takes amortised constant time).
+    //          Throws IllegalArgumentException if the rows would span more than MAX_SPAN days.
+    private void ensureRow(int epochDay) {
+        long row = (long) epochDay - base;
+        if (row >= 0 && row < sleep.length) {
+            return;
+        }
+        long first = sleep.length == 0 ? epochDay : Math.min(base, epochDay);
+        long last = sleep.length == 0 ? epochDay : Math.max((long) base + sleep.length - 1, epochDay);
+        if (last - first + 1 > MAX_SPAN) {
+            throw new IllegalArgumentException("A DayStore cannot span more than " + MAX_SPAN + " days");
+        }
+        int capacity = (int) Math.min(MAX_SPAN, Math.max(last - first + 1, Math.max(MIN_CAPACITY, 2L * sleep.length)));
+        int newBase = (int) (sleep.length == 0 ? epochDay - capacity / 2 : row < 0 ? last - capacity + 1 : first);
+        resize(newBase, capacity);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: moves the rows into columns of capacity rows starting at epoch day newBase.
+    private void resize(int newBase, int capacity) {
+        int offset = sleep.length == 0 ? 0 : base - newBase;   // Where the old rows go in the new columns
+        byte[] newSleep = new byte[capacity];
+        Arrays.fill(newSleep, ABSENT);
+        System.arraycopy(sleep, 0, newSleep, offset, sleep.length);
+        sleep = newSleep;
+        for (int m = 0; m < Day.MAXMOODS; m++) {
+            byte[] newScores = new byte[capacity];
+            Arrays.fill(newScores, (byte) -1);
+            System.arraycopy(scores[m], 0, newScores, offset, scores[m].length);
+            scores[m] = newScores;
+            long[] newActivities = new long[capacity];
+            System.arraycopy(activities[m], 0, newActivities, offset, activities[m].length);
+            activities[m] = newActivities;
+        }
+        base = newBase;
+        modCount++;
+        present = new long[(capacity + Long.SIZE - 1) / Long.SIZE];
+        summary = new long[(present.length + Long.SIZE - 1) / Long.SIZE];
+        for (int row = 0; row < capacity; row++) {
+            if (sleep[row] != ABSENT) {
+                markPresent(row);
+            }
+        }
+    }
+
+    /*
+        Bitmaps of the rows with a Day
+     */
+
+    // MODIFIES: this
+    // EFFECTS: records that row has a Day.
+    private void markPresent(int row) {
+        int word = row >>> 6;
+        present[word] |= 1L << row;
+        summary[word >>> 6] |= 1L << word;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: records that row has no Day.
+    private void markAbsent(int row) {
+        int word = row >>> 6;
+        present[word] &= ~(1L << row);
+        if (present[word] == 0) {
+            summary[word >>> 6] &= ~(1L << word);
+        }
+    }
+
+    // REQUIRES: row >= 0
+    // EFFECTS: returns the first row at or after row with a Day, or -1 if there is none.
+    private int nextRow(int row) {
+        if (row >= sleep.length) {
+            return -1;
+        }
+        int word = row >>> 6;
+        long bits = present[word] & (-1L << row);
+        if (bits != 0) {
+            return (word << 6) + Long.numberOfTrailingZeros(bits);
+        }
+        int next = word + 1;        // Find the first word after word that is not 0 in the summary
+        int s = next >>> 6;
+        if (s >= summary.length) {
+            return -1;
+        }
+        long words = summary[s] & (-1L << next);
+        while (words == 0) {
+            if (++s >= summary.length) {
+                return -1;
+            }
+            words = summary[s];
+        }
+        word = (s << 6) + Long.numberOfTrailingZeros(words);
+        return (word << 6) + Long.numberOfTrailingZeros(present[word]);
+    }
+
+    // REQUIRES: 0 <= row < sleep.length
+    // EFFECTS: returns the last row at or before row with a Day, or -1 if there is none.
+    private int previousRow(int row) {
+        int word = row >>> 6;
+        long bits = present[word] & (-1L >>> (63 - (row & 63)));
+        if (bits != 0) {
+            return (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+        }
+        if (word == 0) {
+            return -1;
+        }
+        int previous = word - 1;    // Find the last word before word that is not 0 in the summary
+        int s = previous >>> 6;
+        long words = summary[s] & (-1L >>> (63 - (previous & 63)));
+        while (words == 0) {
+            if (--s < 0) {
+                return -1;
+            }
+            words = summary[s];
+        }
+        word = (s << 6) + 63 - Long.numberOfLeadingZeros(words);
+        return (word << 6) + 63 - Long.numberOfLeadingZeros(present[word]);
+    }
+
+    // EFFECTS: returns the bitmask of the activities of each mood of d.
+    //          Throws IllegalArgumentException if d has too many moods.
+    private static long[] masksOf(Day d) {
+        if (d.getMoodListLength() > Day.MAXMOODS) {
+            throw new IllegalArgumentException("A DayStore holds at most " + Day.MAXMOODS + " moods per Day");
+        }
+        long[] masks = new long[Day.MAXMOODS];
+        for (int m = 0; m < d.getMoodListLength(); m++) {
+            masks[m] = d.getMood(m).getActivityMask();
+        }
+        return masks;
+    }
+
+    // EFFECTS: returns value as a byte. Throws IllegalArgumentException if it is not -1 to Byte.MAX_VALUE.
+    private static byte toByte(int value, String column) {
+        if (value < -1 || value > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid " + column + " for a DayStore: " + value);
+        }
+        return (byte) value;
+    }
+}
@@ -1,58 +1,99 @@
 package model;
 
 import model.activities.Activity;
+import model.activities.ActivityRegistry;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import persistence.Writable;
 
 import java.util.ArrayList;
 
-// Represents a mood, which has a happiness score and a list of activities.
+// Represents a mood, which has a happiness score and a set of activities.
+//  The set is a bitmask where bit i stands for the activity with id i (see Activity.getId), so adding,
+//  removing and finding an activity, and combining the activities of many moods, are single bit operations.
+//  A Mood either holds its values itself, or is a view of a mood of a row of a DayStore (see attach).
 public class Mood implements Writable {
 
     public static final int MAXMOODSCORE = 5;   // The max value that the moodScore can be
     public static final int MINMOODSCORE = 1;   // The min value that the moodScore can be
 
     private int moodScore;                      // The current mood score for this Mood.
-    private ArrayList<Activity> activityList;   // The list of activities for this Mood.
+    private long activityMask;                  // The activities of this Mood, as a bitmask of activity ids.
+    private Day day;                            // The Day this Mood belongs to, null if it has none yet.
+    private int moodIndex;                      // The position of this Mood in its Day.
+    private DayStore store;                     // The store holding the values of this Mood, null if held here.
+    private int epochDay;                       // The epoch day of the Day of this Mood in store.
 
     // MODIFIES: this
-    // EFFECTS: creates a new Mood instance with its own activityList,
+    // EFFECTS: creates a new Mood instance with no activities,
     //          sets the moodScore to -1 as a default.
     public Mood() {
         moodScore = -1;
-        activityList = new ArrayList<>();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: creates a view of the mood at moodIndex of the Day of epochDay in store.
+    Mood(DayStore store, int epochDay, int moodIndex) {
+        this.store = store;
+        this.epochDay = epochDay;
+        this.moodIndex = moodIndex;
     }
 
 
-    // REQUIRES: activity with same name not already in activityList.
     // MODIFIES: this
-    // EFFECTS: adds an activity to this mood.
+    // EFFECTS: adds an activity to this mood, unless an activity with the same name is already in it.
     public void addActivity(Activity activity) {
-        activityList.add(activity);
+        long mask = getActivityMask();
+        if ((mask & activity.getMask()) != 0) {
+            return;
+        }
+        setActivityMask(mask | activity.getMask());
+        if (day != null) {
+            day.activityAdded(moodIndex, activity);
+        }
     }
 
     // MODIFIES: this
-    // EFFECTS: removes an activity with name matching activityName
-    //          from activityList.
+    // EFFECTS: removes the activity with name matching activityName (ignoring case) from this mood.
     public void removeActivity(String activityName) {
-        for (Activity a : activityList) {
-            if (a.getActivityName().equals(activityName)) {
-                activityList.remove(a);
-                return;
-            }
+        long bit = maskOf(activityName);
+        long mask = getActivityMask();
+        if ((mask & bit) == 0) {
+            return;
+        }
+        setActivityMask(mask & ~bit);
+        if (day != null) {
+            day.activityRemoved(moodIndex, activityName);
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: sets the score and activities of this mood to those of other, reporting each change
+    //          to the Day it belongs to. Returns true if anything changed.
+    public boolean copyFrom(Mood other) {
+        boolean changed = getMoodScore() != other.getMoodScore()
+                || getActivityMask() != other.getActivityMask();
+        setMoodScore(other.getMoodScore());
+        ActivityRegistry activities = ActivityRegistry.getInstance();
+        for (Activity a : activities.getActivities(getActivityMask() & ~other.getActivityMask())) {
+            removeActivity(a.getActivityName());
+        }
+        for (Activity a : activities.getActivities(other.getActivityMask() & ~getActivityMask())) {
+            addActivity(a);
         }
+        return changed;
     }
 
     // EFFECTS: returns true if an activity with name
-    //          matching activityName is in activityList.
+    //          matching activityName (ignoring case) is in this mood.
     public boolean containsActivity(String activityName) {
-        for (Activity a : activityList) {
-            if (a.getActivityName().equals(activityName)) {
-                return true;
-            }
-        }
-        return false;
+        return (getActivityMask() & maskOf(activityName)) != 0;
+    }
+
+    // EFFECTS: returns the bit of the activity named activityName, or 0 if no activity has its name.
+    private static long maskOf(String activityName) {
+        int id = ActivityRegistry.getInstance().findId(activityName);
+        return id < 0 ? 0 : 1L << id;
     }
 
     /*
@@ -62,11 +103,11 @@ public class Mood implements Writable {
     // EFFECTS: returns the Mood represented as a JSON object.
     public JSONObject toJson() {
         JSONObject jsonMood = new JSONObject();
-        jsonMood.put("score", moodScore);
+        jsonMood.put("score", getMoodScore());
 
         JSONArray jsonActivities = new JSONArray();
 
-        for (Activity a : activityList) {
+        for (Activity a : getActivityList()) {
             jsonActivities.put(a.toJson());
         }
 
@@ -79,34 +120,73 @@ public class Mood implements Writable {
         Getters & Setters
      */
 
-    // EFFECTS: returns the activityList
+    // EFFECTS: returns a new list of the activities of this mood, in order of their ids.
     public ArrayList<Activity> getActivityList() {
-        return activityList;
+        return ActivityRegistry.getInstance().getActivities(getActivityMask());
+    }
+
+    // EFFECTS: returns the activities of this mood as a bitmask, where bit i stands for the activity with id i.
+    public long getActivityMask() {
+        return store == null ? activityMask : store.getActivityMask(epochDay, moodIndex);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: sets the activities of this mood to those in mask, without reporting it to its Day.
+    private void setActivityMask(long mask) {
+        if (store == null) {
+            activityMask = mask;
+        } else {
+            store.setActivityMask(epochDay, moodIndex, mask);
+        }
     }
 
     // EFFECTS: converts moodScore to a String, unless it is -1
     //          where it returns "x".
     public String getUIMoodString() {
-        if (moodScore == -1) {
+        if (getMoodScore() == -1) {
             return "x";
         }
-        return Integer.toString(moodScore);
+        return Integer.toString(getMoodScore());
     }
 
     // EFFECTS: returns moodScore value.
     public int getMoodScore() {
-        return moodScore;
+        return store == null ? moodScore : store.getMoodScore(epochDay, moodIndex);
     }
 
-    // EFFECTS: returns the length of activityList
+    // EFFECTS: returns the number of activities in this mood.
     public int getActivityListLength() {
-        return activityList.size();
+        return Long.bitCount(getActivityMask());
     }
 
     // REQUIRES: ms <= MAXMOODSCORE && ms >= MINMOODSCORE
     // MODIFIES: this
     // EFFECTS: returns moodScore value.
     public void setMoodScore(int ms) {
-        moodScore = ms;
+        boolean changed = ms != getMoodScore();
+        if (store == null) {
+            moodScore = ms;
+        } else {
+            store.setMoodScore(epochDay, moodIndex, ms);
+        }
+        if (changed && day != null) {
+            day.moodScoreChanged(moodIndex);
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: sets the Day this Mood belongs to and its position in that Day,
+    //          so that changes to this Mood are reported to the Day's listener.
+    void setOwner(Day day, int moodIndex) {
+        this.day = day;
+        this.moodIndex = moodIndex;
+    }
+
+    // REQUIRES: store holds the values of this Mood at its moodIndex of the Day of epochDay
+    // MODIFIES: this
+    // EFFECTS: makes this Mood a view of its values in store, which are read and written there from now on.
+    void attach(DayStore store, int epochDay) {
+        this.store = store;
+        this.epochDay = epochDay;
     }
 }
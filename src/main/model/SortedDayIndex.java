@@ -0,0 +1,219 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+// Represents the Days of a timeline sorted by date, each held as its own Day object.
+//  The keys are a primitive int array searched by binary search, with free room kept at both ends of it,
+//  so adding a Day before the first or after the last one (as moving around the timeline does) does not
+//  shift the others. Slots without a Day only exist outside the Days, so every slot between two Days holds one.
+class SortedDayIndex extends DayIndex {
+
+    private static final int INITIAL_CAPACITY = 16;     // The number of slots of a new index.
+
+    private int[] epochDays;    // The epoch day of each Day, sorted, in the slots from start up to end.
+    private Day[] days;         // The Day of each key, in the same slots.
+    private int start;          // The slot of the first Day.
+    private int end;            // The slot after the last Day.
+    private int modCount;       // The number of times Days have been added, removed or moved between slots.
+
+    // EFFECTS: creates an empty index.
+    SortedDayIndex() {
+        epochDays = new int[INITIAL_CAPACITY];
+        days = new Day[INITIAL_CAPACITY];
+        start = INITIAL_CAPACITY / 2;
+        end = start;
+    }
+
+    @Override
+    // EFFECTS: returns the number of Days in the index.
+    public int size() {
+        return end - start;
+    }
+
+    @Override
+    // EFFECTS: returns the Day of epochDay, or null if there is none.
+    Day get(int epochDay) {
+        int i = search(epochDay);
+        return i >= 0 ? days[i] : null;
+    }
+
+    @Override
+    // MODIFIES: this
+    // EFFECTS: puts d in the index, replacing the Day with its date, and returns the replaced Day (or null).
+    Day put(Day d) {
+        int epochDay = d.getDateCode().toEpochDay();
+        if (end == start || epochDay > epochDays[end - 1]) {
+            insert(end, epochDay, d);
+            return null;
+        }
+        int i = search(epochDay);
+        if (i >= 0) {
+            Day replaced = days[i];
+            days[i] = d;
+            return replaced;
+        }
+        insert(-i - 1, epochDay, d);
+        return null;
+    }
+
+    @Override
+    // EFFECTS: returns the Day with the latest date on or before epochDay, or null if there is none.
+    Day floor(int epochDay) {
+        int i = search(epochDay);
+        if (i >= 0) {
+            return days[i];
+        }
+        return -i - 2 >= start ? days[-i - 2] : null;
+    }
+
+    @Override
+    // EFFECTS: returns the Day with the earliest date on or after epochDay, or null if there is none.
+    Day ceiling(int epochDay) {
+        int i = search(epochDay);
+        if (i >= 0) {
+            return days[i];
+        }
+        return -i - 1 < end ? days[-i - 1] : null;
+    }
+
+    @Override
+    // EFFECTS: returns the Days dated from fromDay to toDay (both included, as epoch days), in date order.
+    Day[] between(int fromDay, int toDay) {
+        int from = slotOf(fromDay);
+        int to = Math.max(from, slotOf(toDay + 1L));
+        return Arrays.copyOfRange(days, from, to);
+    }
+
+    @Override
+    // MODIFIES: this
+    // EFFECTS: removes the Days dated from fromDay to toDay (both included, as epoch days).
+    void removeBetween(int fromDay, int toDay) {
+        int from = slotOf(fromDay);
+        int to = Math.max(from, slotOf(toDay + 1L));
+        System.arraycopy(epochDays, to, epochDays, from, end - to);
+        System.arraycopy(days, to, days, from, end - to);
+        Arrays.fill(days, end - (to - from), end, null);
+        end -= to - from;
+        modCount++;
+    }
+
+    @Override
+    // MODIFIES: this
+    // EFFECTS: removes the Days that filter accepts, keeping the others in date order.
+    //          Returns true if any were removed.
+    public boolean removeIf(Predicate<? super Day> filter) {
+        int kept = start;
+        for (int i = start; i < end; i++) {
+            if (!filter.test(days[i])) {
+                epochDays[kept] = epochDays[i];
+                days[kept++] = days[i];
+            }
+        }
+        Arrays.fill(days, kept, end, null);
+        boolean removed = kept < end;
+        end = kept;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    // EFFECTS: returns an iterator over the Days in date order.
+    public Iterator<Day> iterator() {
+        return new Iterator<Day>() {
+            private int next = start;   // The slot of the next Day.
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            public Day next() {
+                if (next >= end) {
+                    throw new NoSuchElementException();
+                }
+                return days[next++];
+            }
+        };
+    }
+
+    @Override
+    // EFFECTS: returns true if slot holds a Day.
+    boolean hasDayAt(int slot) {
+        return slot >= start && slot < end;
+    }
+
+    @Override
+    // EFFECTS: returns the Day in slot.
+    Day dayAt(int slot) {
+        return days[slot];
+    }
+
+    @Override
+    // EFFECTS: returns the number of times Days have been added, removed or moved between slots, so a view
+    //          holding slots can tell they are no longer valid.
+    int modCount() {
+        return modCount;
+    }
+
+    @Override
+    // EFFECTS: returns the slot of the first Day on or after epochDay (the slot after the last Day, if there
+    //          is none).
+    int slotOf(long epochDay) {
+        if (epochDay > Integer.MAX_VALUE) {
+            return end;
+        }
+        int i = search((int) epochDay);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    // EFFECTS: returns the slot of epochDay, or (-(the slot it would be inserted at) - 1) if it has no Day.
+    private int search(int epochDay) {
+        return Arrays.binarySearch(epochDays, start, end, epochDay);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: inserts d with key epochDay at slot, shifting whichever side of it is shorter into the free room.
+    private void insert(int slot, int epochDay, Day d) {
+        boolean roomBefore = start > 0;
+        boolean roomAfter = end < days.length;
+        if (roomBefore && (!roomAfter || slot - start < end - slot)) {
+            System.arraycopy(epochDays, start, epochDays, start - 1, slot - start);
+            System.arraycopy(days, start, days, start - 1, slot - start);
+            start--;
+            slot--;
+        } else if (roomAfter) {
+            System.arraycopy(epochDays, slot, epochDays, slot + 1, end - slot);
+            System.arraycopy(days, slot, days, slot + 1, end - slot);
+            end++;
+        } else {
+            slot += grow();
+            insert(slot, epochDay, d);
+            return;
+        }
+        epochDays[slot] = epochDay;
+        days[slot] = d;
+        modCount++;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: doubles the slots, centring the Days in them, and returns how far the Days moved.
+    private int grow() {
+        int size = size();
+        int capacity = Math.max(INITIAL_CAPACITY, days.length * 2);
+        int newStart = (capacity - size) / 2;
+        int[] newEpochDays = new int[capacity];
+        Day[] newDays = new Day[capacity];
+        System.arraycopy(epochDays, start, newEpochDays, newStart, size);
+        System.arraycopy(days, start, newDays, newStart, size);
+        int moved = newStart - start;
+        epochDays = newEpochDays;
+        days = newDays;
+        start = newStart;
+        end = newStart + size;
+        return moved;
+    }
+}
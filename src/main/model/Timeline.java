@@ -1,21 +1,41 @@
 package model;
 
+import model.activities.Activity;
 import org.json.JSONArray;
 import persistence.CsvWriter;
+import persistence.JsonMigrations;
 import persistence.Writable;
 import org.json.JSONObject;
 
-import java.text.SimpleDateFormat;
+import java.text.DateFormatSymbols;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 // Represents a timeline that associates a list of days with a human calendar.
+//  A timeline may be backed by a DaySource, in which case each month of Days is only loaded
+//  when it is first reached, and months that have not changed are dropped again when
+//  more than the partition budget are loaded.
 public class Timeline implements Writable {
 
-    private Map<DateCode, Day> dayMap;  // A map associating a DateCodes to days the user has created.
-    private Calendar calendar;          // A Java Calendar for associating a Day with a date.
+    public static final int DEFAULT_PARTITION_BUDGET = 12;  // The months a DaySource timeline keeps loaded.
+
+    private static final String[] DAY_NAMES = new DateFormatSymbols().getWeekdays(); // Indexed by dayOfWeek.
+
+    private DayIndex dayIndex;          // The days the user has created, sorted by date (or a DayStore).
     private DateCode today;             // The DateCode representing today. Starting place for timeline.
     private DateCode selectedDate;      // The DateCode for the selected date when moving around the timeline.
 
+    private List<TimelineListener> listeners;   // The listeners notified when a Day is created or changed.
+    private TimelineListener dayListener;       // Forwards changes from each Day to all listeners.
+
+    private DaySource daySource;                // Where unloaded months are loaded from, or null if all are loaded.
+    private Map<Integer, Boolean> loadedPartitions; // The loaded months, least recently used first.
+    private Set<Integer> dirtyPartitions;       // The months with Days created or changed since last saved.
+                                                //  Concurrent, as a failed save marks its months again.
+    private int partitionBudget;                // The number of months to keep loaded, if a daySource is set.
+
 
     // MODIFIES: this
     // EFFECTS: creates a new timeline, creates a Day object for today and tomorrow and
@@ -35,7 +55,7 @@ public class Timeline implements Writable {
         setupTimeline();
 
         for (Day d : dayList) {
-            dayMap.put(d.getDateCode(), d);
+            putDay(d);
         }
 
         // Create today if user loads an old timeline json
@@ -44,34 +64,55 @@ public class Timeline implements Writable {
         }
     }
 
+    // MODIFIES: this
+    // EFFECTS: creates a new timeline that loads its Days from daySource a month at a time,
+    //          starting with the month of today. Creates today if it is not stored yet.
+    public Timeline(DaySource daySource) {
+        setupTimeline();
+        this.daySource = daySource;
+
+        if (getDay() == null) {
+            addDay(new Day(today));
+        }
+    }
+
+    // MODIFIES: this, store
+    // EFFECTS: creates a new timeline that keeps its Days in the columns of store, so each Day it gives out is
+    //          a view of the store made when asked for (see DayStore). Creates today if it is not stored yet.
+    //          Adding a Day that the store cannot hold throws IllegalArgumentException.
+    public Timeline(DayStore store) {
+        setupTimeline();
+        dayIndex = store;
+        store.setListener(dayListener);
+
+        if (getDay() == null) {
+            addDay(new Day(today));
+        }
+    }
+
     // MODIFIES: this
     // EFFECTS: sets the necessary fields for timeline to keep track of the user's
     //          currently selected date.
     //          Uses the JavaVM's default timezone (user's timezone if available otherwise GMT).
     private void setupTimeline() {
-        calendar = Calendar.getInstance(TimeZone.getDefault());
-        today = generateDateCodeOfSelectedDate();
+        today = DateCode.fromEpochDay(LocalDate.now().toEpochDay());
         selectedDate = today;
-        dayMap = new LinkedHashMap<>();
+        dayIndex = new SortedDayIndex();
+        listeners = new CopyOnWriteArrayList<>();
+        dayListener = new DayChangeForwarder();
+        loadedPartitions = new LinkedHashMap<>(16, 0.75f, true);
+        dirtyPartitions = ConcurrentHashMap.newKeySet();
+        partitionBudget = DEFAULT_PARTITION_BUDGET;
     }
 
     /*
         DayCodes and moving around the timeline
      */
 
-    // MODIFIES: this
-    // EFFECTS: changes the current date on the Java Calendar by
-    //          an int amount (either positive or negative)
+    // EFFECTS: returns the DateCode an int amount of days (either positive or negative)
+    //          from the selected date. Timeline position remains the same.
     private DateCode dateDelta(int amount) {
-        calendar.add(Calendar.DAY_OF_YEAR, amount);
-        return generateDateCodeOfSelectedDate();
-    }
-
-    // EFFECTS: calculate and create a DateCode of the currently selected date.
-    private DateCode generateDateCodeOfSelectedDate() {
-        return new DateCode(calendar.get(Calendar.YEAR),
-                calendar.get(Calendar.MONTH) + 1,
-                calendar.get(Calendar.DATE));
+        return selectedDate.plusDays(amount);
     }
 
     // Checking if movement is possible
@@ -93,49 +134,55 @@ public class Timeline implements Writable {
     // MODIFIES: this
     // EFFECTS: creates a new day and adds it to the front of dayList
     public void createDayOneDayBack() {
-        DateCode dateCodeOneDayBack = getDateCodeOneDayBack();
-        dayMap.put(dateCodeOneDayBack, new Day(dateCodeOneDayBack));
+        addDay(new Day(getDateCodeOneDayBack()));
     }
 
     // REQUIRES: !canGoForwardOneDay
     // MODIFIES: this
     // EFFECTS: creates a new day and adds it to the end of dayList
     public void createDayOneDayForward() {
-        DateCode dateCodeOneDayForward = getDateCodeOneDayForward();
-        dayMap.put(dateCodeOneDayForward, new Day(dateCodeOneDayForward));
+        addDay(new Day(getDateCodeOneDayForward()));
     }
 
     // Moving around
 
     // MODIFIES: this
-    // EFFECTS: moves the Java Calendar and the timeline back by one day.
+    // EFFECTS: moves the timeline back by one day.
     public void goBackOneDay() {
         selectedDate = dateDelta(-1);
     }
 
     // MODIFIES: this
-    // EFFECTS: moves the Java Calendar and the timeline forward by one day.
+    // EFFECTS: moves the timeline forward by one day.
     public void goForwardOneDay() {
         selectedDate = dateDelta(1);
     }
 
+    // MODIFIES: this
+    // EFFECTS: moves the timeline straight to the date dc (which may not have a Day yet).
+    public void goTo(DateCode dc) {
+        selectedDate = dc;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: moves the timeline by an int amount of weeks (either positive or negative).
+    public void goForwardWeeks(int weeks) {
+        selectedDate = selectedDate.plusWeeks(weeks);
+    }
+
 
     // Getting DateCodes
 
     // EFFECTS: returns the DateCode of one day forward of currently selected date.
-    //          Java Calendar + Timeline position remains the same.
+    //          Timeline position remains the same.
     public DateCode getDateCodeOneDayForward() {
-        DateCode dc = dateDelta(1);
-        calendar.add(Calendar.DAY_OF_YEAR, -1);
-        return dc;
+        return dateDelta(1);
     }
 
     // EFFECTS: returns the DateCode of one day back of currently selected date.
-    //          Java Calendar + Timeline position remains the same.
+    //          Timeline position remains the same.
     public DateCode getDateCodeOneDayBack() {
-        DateCode dc = dateDelta(-1);
-        calendar.add(Calendar.DAY_OF_YEAR, 1);
-        return dc;
+        return dateDelta(-1);
     }
 
     // EFFECTS: returns the DateCode of currently selected date.
@@ -150,78 +197,328 @@ public class Timeline implements Writable {
 
     // REQUIRES: newDay dateID is unique (not already in dayList).
     // MODIFIES: this
-    // EFFECTS: add a new day to the dayList.
+    // EFFECTS: add a new day to the dayList and notifies the listeners.
     public void addDay(Day newDay) {
-        dayMap.put(newDay.getDateCode(), newDay);
+        loadPartition(newDay.getDateCode());
+        putDay(newDay);
+        dayListener.dayCreated(newDay);
+    }
+
+    // MODIFIES: this, d
+    // EFFECTS: puts d in the dayIndex and reports its changes to the listeners.
+    private void putDay(Day d) {
+        d.setListener(dayListener);
+        dayIndex.put(d);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: merges days (eg. read again from a file another program changed) into the timeline in place:
+    //          the values of each Day already in the timeline are set to those of the Day with its DateCode
+    //          in days, and the other Days are added. Listeners are told of every change.
+    //          Returns the DateCodes of the Days that were added or changed.
+    public Set<DateCode> mergeDays(Collection<Day> days) {
+        Set<DateCode> changed = new HashSet<>();
+        for (Day d : days) {
+            Day current = getDay(d.getDateCode());
+            if (current == null) {
+                addDay(d);
+                changed.add(d.getDateCode());
+            } else if (current != d && current.copyFrom(d)) {
+                changed.add(d.getDateCode());
+            }
+        }
+        return changed;
     }
 
     // EFFECTS: returns a *reference* to a day, which can then be changed.
     //          returns null if there is no date with such a DayCode.
+    //          Loads the month of dc first, if needed.
     public Day getDay(DateCode dc) {
-        return dayMap.get(dc);
+        loadPartition(dc);
+        return dayIndex.get(dc.toEpochDay());
+    }
+
+    // EFFECTS: returns the Day with the latest date on or before dc, or null if there is none.
+    //          With a daySource, months are loaded from the month of dc backwards until it is found.
+    public Day getDayOnOrBefore(DateCode dc) {
+        if (daySource == null) {
+            return dayIndex.floor(dc.toEpochDay());
+        }
+        TreeSet<Integer> keys = new TreeSet<>(daySource.partitions());
+        keys.addAll(loadedPartitions.keySet());
+        for (int key : keys.headSet(DaySource.partitionOf(dc), true).descendingSet()) {
+            loadPartition(key);
+            Day d = dayIndex.floor(dc.toEpochDay());
+            if (d != null && DaySource.partitionOf(d.getDateCode()) >= key) {
+                return d;
+            }
+        }
+        return null;
+    }
+
+    // EFFECTS: returns the Day with the earliest date on or after dc, or null if there is none.
+    //          With a daySource, months are loaded from the month of dc forwards until it is found.
+    public Day getDayOnOrAfter(DateCode dc) {
+        if (daySource == null) {
+            return dayIndex.ceiling(dc.toEpochDay());
+        }
+        TreeSet<Integer> keys = new TreeSet<>(daySource.partitions());
+        keys.addAll(loadedPartitions.keySet());
+        for (int key : keys.tailSet(DaySource.partitionOf(dc), true)) {
+            loadPartition(key);
+            Day d = dayIndex.ceiling(dc.toEpochDay());
+            if (d != null && DaySource.partitionOf(d.getDateCode()) <= key) {
+                return d;
+            }
+        }
+        return null;
     }
 
     // REQUIRES: contains(selectedDate) is true
     // EFFECTS: returns a *reference* to the currently selected date.
     //          returns null if there is no date with such a DayCode.
     public Day getDay() {
-        return dayMap.get(selectedDate);
+        return getDay(selectedDate);
     }
 
     // EFFECTS: returns a list containing all Day instances in the current week.
     //          if Day instance does not exist, inserts null into list.
     public ArrayList<Day> getAllDaysInCurrentWeek() {
-        ArrayList<DateCode> dateCodeWeekList = findAllDateCodeInWeek();
-        ArrayList<Day> dayWeekList = new ArrayList<>();
-
-        for (DateCode dc : dateCodeWeekList) {
-            dayWeekList.add(getDay(dc));
-        }
+        ArrayList<Day> dayWeekList = new ArrayList<>(DateCode.SATURDAY);
+        range(findDateCodeEndOfWeek(true), findDateCodeEndOfWeek(false)).forEachDate((dc, d) -> dayWeekList.add(d));
         return dayWeekList;
     }
 
-    // EFFECTS: returns a list containing all DayCodes in the current week.
-    private ArrayList<DateCode> findAllDateCodeInWeek() {
-        int dow = calendar.get(Calendar.DAY_OF_WEEK);
-        ArrayList<DateCode> dateCodeWeekList = new ArrayList<>();
-        for (int i = Calendar.SUNDAY; i <= Calendar.SATURDAY; i++) {
-            int diff = i - dow;
-            DateCode dc = dateDelta(diff);
-            calendar.add(Calendar.DAY_OF_YEAR, -1 * diff);
-            dateCodeWeekList.add(dc);
-        }
-        return dateCodeWeekList;
+    // EFFECTS: returns a view of the Days dated from from to to (both included), in date order, which copies
+    //          nothing and follows later changes to the timeline (see DayRange).
+    public DayRange range(DateCode from, DateCode to) {
+        return new DayRange(this, from, to);
     }
 
     // EFFECTS: returns DateCode for either beginning or end of the week.
-    //          Java Calendar and Timeline position remains the same.
+    //          Timeline position remains the same.
     public DateCode findDateCodeEndOfWeek(boolean beginning) {
-        int dow = calendar.get(Calendar.DAY_OF_WEEK);
-        int diff;
+        DateCode weekStart = selectedDate.weekStart();
+        return beginning ? weekStart : weekStart.plusDays(DateCode.SATURDAY - DateCode.SUNDAY);
+    }
+
+    /*
+        Partitions (months loaded from a DaySource)
+     */
+
+    // MODIFIES: this
+    // EFFECTS: loads the month of dc from the daySource if it is not loaded yet,
+    //          then drops cold months if more than the partition budget are loaded.
+    private void loadPartition(DateCode dc) {
+        if (daySource != null) {
+            loadPartition(DaySource.partitionOf(dc));
+        }
+    }
+
+    // REQUIRES: daySource is not null
+    // MODIFIES: this
+    // EFFECTS: loads the month with key from the daySource if it is not loaded yet,
+    //          then drops cold months if more than the partition budget are loaded.
+    private void loadPartition(int key) {
+        if (loadedPartitions.get(key) != null) { // Marks the month as recently used
+            return;
+        }
+        for (Day d : daySource.loadPartition(key)) {
+            putDay(d);
+        }
+        loadedPartitions.put(key, true);
+        evictColdPartitions(key);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: drops the least recently used months until no more than partitionBudget are loaded.
+    //          The month with key inUse, months with unsaved changes and months in the selected week
+    //          are never dropped. The Days dropped are no longer listened to, so a change made through a
+    //          reference kept to one of them does not mark a month that is not loaded as unsaved.
+    private void evictColdPartitions(int inUse) {
+        Set<Integer> kept = new HashSet<>(dirtyPartitions);
+        kept.add(inUse);
+        kept.add(DaySource.partitionOf(findDateCodeEndOfWeek(true)));
+        kept.add(DaySource.partitionOf(findDateCodeEndOfWeek(false)));
+
+        Iterator<Integer> it = loadedPartitions.keySet().iterator();
+        while (loadedPartitions.size() > partitionBudget && it.hasNext()) {
+            int key = it.next();
+            if (!kept.contains(key)) {
+                it.remove();
+                for (Day d : getPartitionDays(key)) {
+                    d.setListener(null);
+                }
+                dayIndex.removeBetween(firstEpochDayOf(key), firstEpochDayOf(key + 1) - 1);
+            }
+        }
+    }
+
+    // EFFECTS: returns the Days in the loaded month with key.
+    public List<Day> getPartitionDays(int key) {
+        return new ArrayList<>(Arrays.asList(dayIndex.between(firstEpochDayOf(key), firstEpochDayOf(key + 1) - 1)));
+    }
+
+    // EFFECTS: returns the index of the loaded Days.
+    DayIndex loadedIndex() {
+        return dayIndex;
+    }
+
+    // REQUIRES: daySource is not null
+    // MODIFIES: this
+    // EFFECTS: loads the month with key if it is not loaded yet, and returns the index of the loaded Days.
+    DayIndex loadMonth(int key) {
+        loadPartition(key);
+        return dayIndex;
+    }
+
+    // REQUIRES: daySource is not null
+    // EFFECTS: returns the keys of the months from fromKey to toKey (both included) that are stored or loaded.
+    NavigableSet<Integer> partitionKeys(int fromKey, int toKey) {
+        TreeSet<Integer> keys = new TreeSet<>(daySource.partitions());
+        keys.addAll(loadedPartitions.keySet());
+        return fromKey > toKey ? Collections.emptyNavigableSet() : keys.subSet(fromKey, true, toKey, true);
+    }
+
+    // EFFECTS: returns the epoch day of the first day of the month with key, where a key past December
+    //          (eg. 202113) stands for January of the next year.
+    static int firstEpochDayOf(int key) {
+        int month = key % 100;
+        return month > 12
+                ? DateCode.of(key / 100 + 1, month - 12, 1).toEpochDay()
+                : DateCode.of(key / 100, month, 1).toEpochDay();
+    }
+
+    // EFFECTS: returns the keys of the months with Days created or changed since they were last saved.
+    public Set<Integer> getDirtyPartitions() {
+        return new TreeSet<>(dirtyPartitions);
+    }
+
+    // EFFECTS: returns true if the month with key is loaded.
+    public boolean isPartitionLoaded(int key) {
+        return loadedPartitions.containsKey(key);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: records that the month with key has been saved.
+    public void markPartitionClean(int key) {
+        dirtyPartitions.remove(key);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: records that the month with key has unsaved changes (eg. its save failed). Unlike the other
+    //          partition methods, it can be called from any thread.
+    public void markPartitionDirty(int key) {
+        dirtyPartitions.add(key);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: loads months that are not loaded yet from daySource from now on, and records every
+    //          loaded month as saved. Used once every Day has been saved to daySource.
+    public void setDaySource(DaySource daySource) {
+        this.daySource = daySource;
+        for (Day d : dayIndex) {
+            loadedPartitions.put(DaySource.partitionOf(d.getDateCode()), true);
+        }
+        dirtyPartitions.clear();
+    }
+
+    // EFFECTS: returns the DaySource months are loaded from, or null if every Day is loaded.
+    public DaySource getDaySource() {
+        return daySource;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: sets the number of months kept loaded (at least 1).
+    public void setPartitionBudget(int partitionBudget) {
+        this.partitionBudget = Math.max(1, partitionBudget);
+        evictColdPartitions(DaySource.partitionOf(selectedDate));
+    }
+
+    /*
+        Listeners
+     */
+
+    // MODIFIES: this
+    // EFFECTS: registers listener to be notified whenever a Day is created or changed.
+    public void addListener(TimelineListener listener) {
+        listeners.add(listener);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: stops notifying listener of changes.
+    public void removeListener(TimelineListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Represents the listener set on every Day in the timeline, which records the month of each change
+    //  as unsaved and forwards the change to all listeners.
+    private class DayChangeForwarder implements TimelineListener {
+
+        @Override
+        public void dayCreated(Day day) {
+            markDirty(day);
+            for (TimelineListener l : listeners) {
+                l.dayCreated(day);
+            }
+        }
+
+        @Override
+        public void sleepHoursChanged(Day day) {
+            markDirty(day);
+            for (TimelineListener l : listeners) {
+                l.sleepHoursChanged(day);
+            }
+        }
+
+        @Override
+        public void moodScoreChanged(Day day, int moodIndex) {
+            markDirty(day);
+            for (TimelineListener l : listeners) {
+                l.moodScoreChanged(day, moodIndex);
+            }
+        }
 
-        if (beginning) {
-            diff = Calendar.SUNDAY - dow;
-        } else {
-            diff = Calendar.SATURDAY - dow;
+        @Override
+        public void activityAdded(Day day, int moodIndex, Activity activity) {
+            markDirty(day);
+            for (TimelineListener l : listeners) {
+                l.activityAdded(day, moodIndex, activity);
+            }
         }
 
-        DateCode dc = dateDelta(diff);
-        calendar.add(Calendar.DAY_OF_YEAR, -1 * diff);
+        @Override
+        public void activityRemoved(Day day, int moodIndex, String activityName) {
+            markDirty(day);
+            for (TimelineListener l : listeners) {
+                l.activityRemoved(day, moodIndex, activityName);
+            }
+        }
 
-        return dc;
+        // MODIFIES: Timeline.this
+        // EFFECTS: records the month of day as having unsaved changes, unless it is a month of the daySource
+        //          that is not loaded (its file would be written without the Days dropped from it).
+        private void markDirty(Day day) {
+            int key = DaySource.partitionOf(day.getDateCode());
+            if (daySource == null || loadedPartitions.containsKey(key)) {
+                dirtyPartitions.add(key);
+            }
+        }
     }
 
     /*
         Persistence
      */
 
-    // EFFECTS: returns the timeline represented as a JSON object.
+    // EFFECTS: returns the timeline represented as a JSON object, in the current version of the format
+    //          (the same document JsonWriter writes).
     public JSONObject toJson() {
         JSONObject jsonTimeline = new JSONObject();
+        jsonTimeline.put("version", JsonMigrations.CURRENT_VERSION);
 
         JSONArray jsonDays = new JSONArray();
 
-        for (Day d : dayMap.values()) {
+        for (Day d : getDays()) {
             jsonDays.put(d.toJson());
         }
 
@@ -237,22 +534,60 @@ public class Timeline implements Writable {
 
     // EFFECTS: returns an exported CSV object
     public CsvWriter getCsvWriter() {
-        return new CsvWriter(dayMap.values());
+        return new CsvWriter(getDays());
+    }
+
+    // EFFECTS: returns a read-only view of every Day in the timeline, in date order.
+    //          With a daySource, months that are not loaded are read from it (without being kept loaded).
+    public Collection<Day> getDays() {
+        if (daySource == null) {
+            return Collections.unmodifiableCollection(dayIndex);
+        }
+
+        Set<Integer> keys = new TreeSet<>(daySource.partitions());
+        keys.addAll(loadedPartitions.keySet());
+        List<Day> days = new ArrayList<>();
+        for (int key : keys) {
+            days.addAll(loadedPartitions.containsKey(key) ? getPartitionDays(key) : daySource.loadPartition(key));
+        }
+        days.sort(Comparator.comparingInt(d -> d.getDateCode().toEpochDay())); // Only stored months may be unsorted
+        return Collections.unmodifiableList(days);
+    }
+
+    // REQUIRES: from is not after to
+    // EFFECTS: returns the Days dated from from to to (both included), sorted by date.
+    //          With a daySource, only the months in the range that are not loaded are read from it.
+    public List<Day> getDays(DateCode from, DateCode to) {
+        if (daySource == null) {
+            return new ArrayList<>(Arrays.asList(dayIndex.between(from.toEpochDay(), to.toEpochDay())));
+        }
+        TreeSet<Integer> keys = new TreeSet<>(daySource.partitions());
+        keys.addAll(loadedPartitions.keySet());
+        List<Day> days = new ArrayList<>();
+        for (int key : keys.subSet(DaySource.partitionOf(from), true, DaySource.partitionOf(to), true)) {
+            days.addAll(loadedPartitions.containsKey(key) ? getPartitionDays(key) : daySource.loadPartition(key));
+        }
+
+        int fromDay = from.toEpochDay();
+        int toDay = to.toEpochDay();
+        days.removeIf(d -> d.getDateCode().toEpochDay() < fromDay || d.getDateCode().toEpochDay() > toDay);
+        days.sort(Comparator.comparingInt(d -> d.getDateCode().toEpochDay()));
+        return days;
     }
 
-    // EFFECTS: returns the size of the dayList.
+    // EFFECTS: returns the size of the dayList (only the loaded months, with a daySource).
     public int getDayListLength() {
-        return dayMap.size();
+        return dayIndex.size();
     }
 
     // EFFECTS: searches for Day with specified DateCode, returns true if found,
     //          else otherwise.
     public boolean contains(DateCode dc) {
-        return dayMap.containsKey(dc);
+        return getDay(dc) != null;
     }
 
     // EFFECTS: returns the name (eg. Monday) of the selected day.
     public String getDayOfWeek() {
-        return new SimpleDateFormat("EEEE").format(calendar.getTime());
+        return DAY_NAMES[selectedDate.dayOfWeek()];
     }
 }
@@ -0,0 +1,23 @@
+package model;
+
+import model.activities.Activity;
+
+// Represents an object that is notified whenever a Day in a Timeline is created or changed.
+public interface TimelineListener {
+
+    // EFFECTS: called after day has been created and added to the timeline.
+    void dayCreated(Day day);
+
+    // EFFECTS: called after the sleep hours of day have been set.
+    void sleepHoursChanged(Day day);
+
+    // EFFECTS: called after the score of the mood at moodIndex in day has been set.
+    void moodScoreChanged(Day day, int moodIndex);
+
+    // EFFECTS: called after activity has been added to the mood at moodIndex in day.
+    void activityAdded(Day day, int moodIndex, Activity activity);
+
+    // EFFECTS: called after the activity named activityName has been removed
+    //          from the mood at moodIndex in day.
+    void activityRemoved(Day day, int moodIndex, String activityName);
+}
@@ -3,15 +3,26 @@ package model.activities;
 import org.json.JSONObject;
 import persistence.Writable;
 
-// Represents an activity the user can add to a Mood.
+import java.util.Locale;
+
+// Represents an activity the user can add to a Mood. Activities are equal if their names are, ignoring case.
+//  The one instance of each name is kept by the ActivityRegistry, which gives it its id.
 public class Activity implements Writable {
 
     private final String activityName;      // The name of this Activity.
+    private int id;                         // The id of this Activity, -1 until it is first needed.
 
     // MODIFIES: this
     // EFFECTS: create an activity and set the final name
     public Activity(String activityName) {
+        this(activityName, -1);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: creates the activity the ActivityRegistry interns for activityName, with id.
+    Activity(String activityName, int id) {
         this.activityName = activityName;
+        this.id = id;
     }
 
     // EFFECTS: returns the Activity represented as a JSON object.
@@ -26,4 +37,37 @@ public class Activity implements Writable {
     public String getActivityName() {
         return activityName;
     }
+
+    // EFFECTS: returns the id of this activity, the same for every activity with its name,
+    //          registering it as a user-defined activity if its name is new (see ActivityRegistry.intern,
+    //          which throws if it cannot be).
+    public int getId() {
+        if (id < 0) {   // Racing threads get the same id, as the registry never gives a name two
+            id = ActivityRegistry.getInstance().intern(activityName).getId();
+        }
+        return id;
+    }
+
+    // EFFECTS: returns the bit of this activity in a bitmask of activities.
+    public long getMask() {
+        return 1L << getId();
+    }
+
+    @Override
+    // EFFECTS: returns true if obj is an activity with the same name, ignoring case.
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        return activityName.equalsIgnoreCase(((Activity) obj).activityName);
+    }
+
+    @Override
+    // EFFECTS: returns the hashCode of this activity, that of its name in lower case.
+    public int hashCode() {
+        return activityName.toLowerCase(Locale.ROOT).hashCode();
+    }
 }
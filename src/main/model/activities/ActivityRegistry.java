@@ -0,0 +1,142 @@
+package model.activities;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Represents the registry of every activity in use: the default activities, and those the user defines.
+//  Each name (ignoring case) is interned to a single Activity with a stable id, given in order of registration
+//  with the default activities first, so a set of activities can be a bitmask (bit i for the activity with id i,
+//  see Mood). Names are resolved through a hash map keyed by their lower case form, and resolving takes no lock,
+//  so the loaders can share the registry from many threads. Only registering a new activity takes a lock.
+//  The registry only interns names for this process: files hold the names their moods use, and readers only
+//  register names read from moods (see JsonReader), so the activities of one file never reach another.
+//  A name is at most MAX_NAME_BYTES long in UTF-8, as the binary format and the journal store its length in a byte.
+public final class ActivityRegistry {
+
+    public static final int MAX_ACTIVITIES = Long.SIZE;     // The number of ids a bitmask can hold.
+    public static final int MAX_NAME_BYTES = 255;           // The longest name, in UTF-8 bytes.
+
+    // The names of the default activities, in the order of their ids.
+    private static final String[] DEFAULT_NAMES = {
+            "Gaming", "Movie/TV", "Friends", "Family", "Party", "Music", "Exercise"
+    };
+
+    private static final ActivityRegistry REGISTRY = new ActivityRegistry();  // The only registry (singleton)
+
+    private final ConcurrentHashMap<String, Activity> activitiesByName; // Each activity, by its lower case name.
+    private volatile Activity[] activitiesById;     // Each activity, by id. Replaced, never changed, on register.
+
+    // MODIFIES: this
+    // EFFECTS: creates a registry holding the default activities.
+    private ActivityRegistry() {
+        activitiesByName = new ConcurrentHashMap<>();
+        activitiesById = new Activity[0];
+        for (String name : DEFAULT_NAMES) {
+            intern(name);
+        }
+    }
+
+    // EFFECTS: returns the registry.
+    public static ActivityRegistry getInstance() {
+        return REGISTRY;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: returns the activity named activityName (ignoring case), registering it as a user-defined
+    //          activity with the next id if there is none. Throws IllegalStateException if there is none and
+    //          MAX_ACTIVITIES activities are registered already, or IllegalArgumentException if there is none and
+    //          activityName is longer than MAX_NAME_BYTES in UTF-8.
+    public Activity intern(String activityName) {
+        Activity activity = activitiesByName.get(key(activityName));
+        return activity != null ? activity : register(activityName);
+    }
+
+    // EFFECTS: returns the activity named activityName (ignoring case), or null if there is none.
+    public Activity find(String activityName) {
+        return activitiesByName.get(key(activityName));
+    }
+
+    // EFFECTS: returns the id of the activity named activityName (ignoring case), or -1 if there is none.
+    public int findId(String activityName) {
+        Activity activity = find(activityName);
+        return activity == null ? -1 : activity.getId();
+    }
+
+    // REQUIRES: 0 <= id < size()
+    // EFFECTS: returns the activity with id.
+    public Activity get(int id) {
+        return activitiesById[id];
+    }
+
+    // EFFECTS: returns the number of activities registered.
+    public int size() {
+        return activitiesById.length;
+    }
+
+    // EFFECTS: returns true if activity is one of the default activities.
+    public boolean isDefault(Activity activity) {
+        return activity.getId() < DEFAULT_NAMES.length;
+    }
+
+    // EFFECTS: returns the activities registered so far, in id order.
+    public List<Activity> getActivities() {
+        return Collections.unmodifiableList(Arrays.asList(activitiesById));
+    }
+
+    // EFFECTS: returns the default activities, in id order.
+    public List<Activity> getDefaultActivities() {
+        return getActivities().subList(0, DEFAULT_NAMES.length);
+    }
+
+    // EFFECTS: returns the activities the user has defined so far, in id order.
+    public List<Activity> getUserActivities() {
+        List<Activity> activities = getActivities();
+        return activities.subList(DEFAULT_NAMES.length, activities.size());
+    }
+
+    // EFFECTS: returns a new list of the activities whose ids are the set bits of mask, in id order.
+    //          Bits of ids that have not been given are ignored.
+    public ArrayList<Activity> getActivities(long mask) {
+        Activity[] activities = activitiesById;
+        long known = activities.length == MAX_ACTIVITIES ? mask : mask & ((1L << activities.length) - 1);
+        ArrayList<Activity> list = new ArrayList<>(Long.bitCount(known));
+        for (long bits = known; bits != 0; bits &= bits - 1) {
+            list.add(activities[Long.numberOfTrailingZeros(bits)]);
+        }
+        return list;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: registers an activity named activityName with the next id, unless another thread just has,
+    //          and returns it. Throws IllegalStateException if MAX_ACTIVITIES activities are registered already,
+    //          or IllegalArgumentException if activityName is longer than MAX_NAME_BYTES in UTF-8.
+    private synchronized Activity register(String activityName) {
+        if (activityName.getBytes(StandardCharsets.UTF_8).length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Activity names are at most " + MAX_NAME_BYTES + " bytes long");
+        }
+        String key = key(activityName);
+        Activity activity = activitiesByName.get(key);
+        if (activity == null) {
+            Activity[] activities = activitiesById;
+            if (activities.length == MAX_ACTIVITIES) {
+                throw new IllegalStateException("No more than " + MAX_ACTIVITIES + " activities can be defined");
+            }
+            activity = new Activity(activityName, activities.length);
+            activities = Arrays.copyOf(activities, activities.length + 1);
+            activities[activity.getId()] = activity;
+            activitiesById = activities;    // Before the name, so an activity found by name is always found by id
+            activitiesByName.put(key, activity);
+        }
+        return activity;
+    }
+
+    // EFFECTS: returns the key of activityName in activitiesByName.
+    private static String key(String activityName) {
+        return activityName.toLowerCase(Locale.ROOT);
+    }
+}
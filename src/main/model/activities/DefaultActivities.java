@@ -1,57 +1,25 @@
 package model.activities;
 
 import java.util.ArrayList;
-import java.util.Locale;
 
 // Represents the default activities that will show when a user edits a mood.
+//  They are the first activities of the ActivityRegistry, and their ids are their positions in activityList.
 public class DefaultActivities {
 
-    private static DefaultActivities defaultActivities; // The only defaultActivities instance (singleton)
+    private static final DefaultActivities DEFAULT_ACTIVITIES = new DefaultActivities(); // The only instance
     private final ArrayList<Activity> activityList;     // The list containing the default activities.
 
     // MODIFIES: this
     // EFFECTS: create DefaultActivities instance
     //          and adds the activities that will appear.
     private DefaultActivities() {
-        activityList = new ArrayList<>();
-        activityList.add(
-                new Activity("Gaming")
-        );
-
-        activityList.add(
-                new Activity("Movie/TV")
-        );
-
-        activityList.add(
-                new Activity("Friends")
-        );
-
-        activityList.add(
-                new Activity("Family")
-        );
-
-        activityList.add(
-                new Activity("Party")
-        );
-
-        activityList.add(
-                new Activity("Music")
-        );
-
-        activityList.add(
-                new Activity("Exercise")
-        );
-
+        activityList = new ArrayList<>(ActivityRegistry.getInstance().getDefaultActivities());
     }
 
-    // MODIFIES: this
-    // EFFECTS: Gets the instance of DefaultActivities, creates it if it does not exit.
-    //          Singleton design.
+    // EFFECTS: Gets the instance of DefaultActivities, created with the class so it is safe to share
+    //          between threads. Singleton design.
     public static DefaultActivities getInstance() {
-        if (defaultActivities == null) {
-            defaultActivities = new DefaultActivities();
-        }
-        return defaultActivities;
+        return DEFAULT_ACTIVITIES;
     }
 
 
@@ -62,15 +30,17 @@ public class DefaultActivities {
     }
 
     // EFFECTS: returns an activity from the defaults with a name that
-    //          matches activityName.
+    //          matches activityName (ignoring case), or null if there is none.
     public Activity getActivity(String activityName) {
-        for (Activity a: activityList) {
-            if (a.getActivityName().toLowerCase(Locale.ROOT)
-                    .equals(activityName.toLowerCase(Locale.ROOT))) {
-                return a;
-            }
-        }
-        return null;
+        Activity activity = ActivityRegistry.getInstance().find(activityName);
+        return activity != null && ActivityRegistry.getInstance().isDefault(activity) ? activity : null;
+    }
+
+    // EFFECTS: returns the position in activityList of the activity with a name
+    //          that matches activityName, or -1 if there is none.
+    public int getActivityIndex(String activityName) {
+        Activity activity = getActivity(activityName);
+        return activity == null ? -1 : activity.getId();
     }
 
 }
@@ -0,0 +1,264 @@
+package persistence;
+
+import model.Day;
+import model.TimelineListener;
+import model.activities.Activity;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Represents an autosave that tracks which Days of a Timeline have changed and saves them in the background.
+//  A burst of changes (such as a slider being dragged) is coalesced into one save once no change has been made
+//  for the quiet period, but no change waits longer than the maximum delay to be saved.
+public class AutosaveScheduler implements TimelineListener {
+
+    public static final long DEFAULT_QUIET_MILLIS = 2000;       // The default quiet period before saving.
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 10000;  // The default longest a change waits.
+
+    private final Target target;                // Saves the changed Days.
+    private final long quietMillis;             // How long to wait after a change for more changes.
+    private final long maxDelayMillis;          // The longest the oldest unsaved change may wait.
+    private final ScheduledExecutorService executor;    // Runs the scheduled saves.
+    private final Object saveLock;              // Held while saving, so target only saves once at a time.
+
+    private Set<Day> dirtyDays;                 // The Days changed since the last save.
+    private int pendingChanges;                 // The number of changes made since the last save.
+    private long firstChangeNanos;              // When the oldest unsaved change was made.
+    private ScheduledFuture<?> scheduledSave;   // The next save, or null if there is nothing to save.
+    private boolean closed;                     // True once close() has been called.
+
+    private long saveCount;                     // The number of successful saves.
+    private long failureCount;                  // The number of saves that threw an IOException.
+    private long lastSaveNanos;                 // How long the last successful save took.
+    private long maxSaveNanos;                  // How long the slowest successful save took.
+    private long totalSaveNanos;                // How long all successful saves took.
+    private long bytesWritten;                  // The number of bytes written by all successful saves.
+
+    // MODIFIES: this
+    // EFFECTS: creates an autosave that saves changed Days through target after quietMillis without changes,
+    //          or maxDelayMillis after the oldest unsaved change, whichever is sooner.
+    public AutosaveScheduler(Target target, long quietMillis, long maxDelayMillis) {
+        this.target = target;
+        this.quietMillis = quietMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        saveLock = new Object();
+        dirtyDays = new LinkedHashSet<>();
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "timeline-autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // MODIFIES: this
+    // EFFECTS: saves every pending change now, on the calling thread.
+    //          Throws IOException if the save fails, in which case the changes stay pending and are retried.
+    public void saveNow() throws IOException {
+        synchronized (saveLock) {
+            Set<Day> days;
+            int changes;
+            synchronized (this) {
+                if (pendingChanges == 0) {
+                    return;
+                }
+                days = dirtyDays;
+                changes = pendingChanges;
+                dirtyDays = new LinkedHashSet<>();
+                pendingChanges = 0;
+                cancelScheduledSave();
+            }
+            save(days, changes);
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: saves every pending change and stops scheduling saves.
+    //          Throws IOException if the final save fails.
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            cancelScheduledSave();
+        }
+        try {
+            saveNow();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /*
+        Tracking changes
+     */
+
+    @Override
+    // MODIFIES: this
+    // EFFECTS: marks day as changed.
+    public void dayCreated(Day day) {
+        markDirty(day);
+    }
+
+    @Override
+    // MODIFIES: this
+    // EFFECTS: marks day as changed.
+    public void sleepHoursChanged(Day day) {
+        markDirty(day);
+    }
+
+    @Override
+    // MODIFIES: this
+    // EFFECTS: marks day as changed.
+    public void moodScoreChanged(Day day, int moodIndex) {
+        markDirty(day);
+    }
+
+    @Override
+    // MODIFIES: this
+    // EFFECTS: marks day as changed.
+    public void activityAdded(Day day, int moodIndex, Activity activity) {
+        markDirty(day);
+    }
+
+    @Override
+    // MODIFIES: this
+    // EFFECTS: marks day as changed.
+    public void activityRemoved(Day day, int moodIndex, String activityName) {
+        markDirty(day);
+    }
+
+    /*
+        Metrics
+     */
+
+    // EFFECTS: returns the number of changes made since the last save.
+    public synchronized int getPendingChanges() {
+        return pendingChanges;
+    }
+
+    // EFFECTS: returns the number of Days changed since the last save.
+    public synchronized int getDirtyDayCount() {
+        return dirtyDays.size();
+    }
+
+    // EFFECTS: returns the number of successful saves.
+    public synchronized long getSaveCount() {
+        return saveCount;
+    }
+
+    // EFFECTS: returns the number of saves that failed.
+    public synchronized long getFailureCount() {
+        return failureCount;
+    }
+
+    // EFFECTS: returns how long the last successful save took, in nanoseconds.
+    public synchronized long getLastSaveNanos() {
+        return lastSaveNanos;
+    }
+
+    // EFFECTS: returns how long the slowest successful save took, in nanoseconds.
+    public synchronized long getMaxSaveNanos() {
+        return maxSaveNanos;
+    }
+
+    // EFFECTS: returns how long successful saves took on average, in nanoseconds (0 if there were none).
+    public synchronized long getAverageSaveNanos() {
+        return saveCount == 0 ? 0 : totalSaveNanos / saveCount;
+    }
+
+    // EFFECTS: returns the number of bytes written by all successful saves.
+    public synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /*
+        Helpers
+     */
+
+    // MODIFIES: this
+    // EFFECTS: adds day to the changed Days and (re)schedules the next save.
+    private synchronized void markDirty(Day day) {
+        if (pendingChanges == 0) {
+            firstChangeNanos = System.nanoTime();
+        }
+        dirtyDays.add(day);
+        pendingChanges++;
+        scheduleSave();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: replaces the scheduled save with one after the quiet period, or sooner if the oldest
+    //          unsaved change would otherwise wait longer than the maximum delay.
+    private synchronized void scheduleSave() {
+        if (closed) {
+            return;
+        }
+        cancelScheduledSave();
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstChangeNanos);
+        long delay = Math.max(0, Math.min(quietMillis, maxDelayMillis - waitedMillis));
+        scheduledSave = executor.schedule(this::saveQuietly, delay, TimeUnit.MILLISECONDS);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: cancels the scheduled save, if there is one.
+    private synchronized void cancelScheduledSave() {
+        if (scheduledSave != null) {
+            scheduledSave.cancel(false);
+            scheduledSave = null;
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: saves days through target and records how long it took. If it fails (or a Day was changed
+    //          while it was being read), days and changes are marked as pending again and a retry is scheduled
+    //          after the quiet period.
+    private void save(Set<Day> days, int changes) throws IOException {
+        long start = System.nanoTime();
+        try {
+            long written = target.save(days);
+            recordSave(System.nanoTime() - start, written);
+        } catch (IOException | ConcurrentModificationException e) {
+            synchronized (this) {
+                failureCount++;
+                days.addAll(dirtyDays);
+                dirtyDays = days;
+                pendingChanges += changes;
+                firstChangeNanos = System.nanoTime();
+                scheduleSave();
+            }
+            throw e;
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: records a save that took nanos and wrote written bytes.
+    private synchronized void recordSave(long nanos, long written) {
+        saveCount++;
+        lastSaveNanos = nanos;
+        maxSaveNanos = Math.max(maxSaveNanos, nanos);
+        totalSaveNanos += nanos;
+        bytesWritten += written;
+    }
+
+    // EFFECTS: runs a scheduled save. A failed save has already been rescheduled, so its error is dropped.
+    private void saveQuietly() {
+        try {
+            saveNow();
+        } catch (IOException e) {
+            // The changes are still pending and the retry is already scheduled.
+        }
+    }
+
+    // Represents where an autosave writes the Days that changed.
+    //  Saves run on a background thread, so a Day may change while it is being saved:
+    //  that change marks it dirty again, and it is saved once more by the next save.
+    public interface Target {
+        // EFFECTS: saves dirtyDays and returns the number of bytes written.
+        long save(Collection<Day> dirtyDays) throws IOException;
+    }
+}
@@ -0,0 +1,165 @@
+package persistence;
+
+import model.DateCode;
+import model.Day;
+import model.Mood;
+import model.Timeline;
+import model.activities.Activity;
+import model.activities.ActivityRegistry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+// Represents a reader that reads a timeline in the binary format (see BinaryWriter) from a specific path.
+//  Opening the file reads it into memory and parses only the header; any single Day can then be fetched by its
+//  record offset without parsing the rest of the file. The file is not mapped, so it is not held open and can
+//  be rewritten (eg. by the next autosave) while a reader is still in use.
+public class BinaryReader {
+
+    private final String path;          // Represents the path to read from.
+    private ByteBuffer records;         // The bytes of the file, null until opened.
+    private Activity[] activities;      // The activity represented by each bitmask bit, null if unknown.
+    private int dataOffset;             // The offset of the first record in the file.
+    private int recordCount;            // The number of records in the file.
+    private ProgressListener progressListener = ProgressListener.NONE; // Told about each Day read.
+
+    // MODIFIES: this
+    // EFFECTS: creates a new BinaryReader instance set at a specific path.
+    public BinaryReader(String path) {
+        this.path = path;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: reads the file at path into memory and reads its header.
+    //          Throws IOException if the file cannot be read or is not a binary timeline.
+    public void open() throws IOException {
+        records = ByteBuffer.wrap(Files.readAllBytes(Paths.get(path)));
+        readHeader();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: sets the listener told about each Day read by read(), and that can cancel it.
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: opens the file if needed and returns a Timeline containing every Day in it.
+    //          Throws InterruptedIOException if the progress listener cancels the read.
+    public Timeline read() throws IOException {
+        if (records == null) {
+            open();
+        }
+        ArrayList<Day> dayList = new ArrayList<>(recordCount);
+        for (int i = 0; i < recordCount; i++) {
+            dayList.add(readDay(i));
+            progressListener.update(i + 1, recordCount);
+        }
+        return new Timeline(dayList);
+    }
+
+    // REQUIRES: open() has been called and 0 <= index < size()
+    // EFFECTS: returns the Day stored in the record at index.
+    public Day readDay(int index) {
+        int offset = dataOffset + index * BinaryWriter.RECORD_SIZE;
+
+        DateCode dc = DateCode.fromEpochDay(records.getInt(offset));
+        int sleep = records.get(offset + 4);
+
+        ArrayList<Mood> moodList = new ArrayList<>();
+        for (int i = 0; i < Day.MAXMOODS; i++) {
+            Mood mood = new Mood();
+            mood.setMoodScore(records.get(offset + 5 + i));
+            addActivities(mood, records.getLong(offset + 5 + Day.MAXMOODS + i * 8));
+            moodList.add(mood);
+        }
+        return new Day(dc, sleep, moodList);
+    }
+
+    // REQUIRES: open() has been called
+    // EFFECTS: returns the Day with DateCode dc by binary searching the sorted records,
+    //          or null if there is no such Day in the file.
+    public Day findDay(DateCode dc) {
+        int epochDay = dc.toEpochDay();
+        int low = 0;
+        int high = recordCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midEpochDay = records.getInt(dataOffset + mid * BinaryWriter.RECORD_SIZE);
+            if (midEpochDay < epochDay) {
+                low = mid + 1;
+            } else if (midEpochDay > epochDay) {
+                high = mid - 1;
+            } else {
+                return readDay(mid);
+            }
+        }
+        return null;
+    }
+
+    // REQUIRES: open() has been called
+    // EFFECTS: returns the number of Day records in the file.
+    public int size() {
+        return recordCount;
+    }
+
+    // MODIFIES: mood
+    // EFFECTS: adds the activity for every set bit in mask to mood. Bits without a name in the header are skipped.
+    private void addActivities(Mood mood, long mask) {
+        for (int i = 0; i < activities.length; i++) {
+            if ((mask & (1L << i)) != 0 && activities[i] != null) {
+                mood.addActivity(activities[i]);
+            }
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: reads the header and resolves the activity names through the ActivityRegistry, registering those
+    //          that are new as user-defined activities.
+    //          Throws IOException if the header is invalid, the file is truncated or there are too many
+    //          activities to register the new ones.
+    private void readHeader() throws IOException {
+        if (records.capacity() < 18 || records.getInt(0) != BinaryWriter.MAGIC) {
+            throw new IOException("Not a binary timeline file: " + path);
+        }
+        if (records.getShort(4) != BinaryWriter.VERSION || records.getShort(6) != BinaryWriter.RECORD_SIZE) {
+            throw new IOException("Unsupported binary timeline version: " + path);
+        }
+        recordCount = records.getInt(8);
+        dataOffset = records.getInt(12);
+        if ((long) dataOffset + (long) recordCount * BinaryWriter.RECORD_SIZE > records.capacity()) {
+            throw new IOException("Binary timeline file is truncated: " + path);
+        }
+        readActivityNames(records.getShort(16));
+    }
+
+    // MODIFIES: this
+    // EFFECTS: reads count activity names following the fixed header fields, which must end at dataOffset.
+    //          Throws IOException if they do not, or a name is new and cannot be registered.
+    private void readActivityNames(int count) throws IOException {
+        activities = new Activity[Math.min(count, BinaryWriter.MAX_ACTIVITIES)];
+        ByteBuffer header = records.duplicate();
+        header.position(18);
+        for (int i = 0; i < activities.length; i++) {
+            int length = header.position() < dataOffset ? header.get() & 0xFF : -1;
+            if (length < 0 || header.position() + length > dataOffset) {
+                throw new IOException("Binary timeline header is damaged: " + path);
+            }
+            byte[] name = new byte[length];
+            header.get(name);
+            String activityName = new String(name, StandardCharsets.UTF_8);
+            try {
+                activities[i] = ActivityRegistry.getInstance().intern(activityName);
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                throw new IOException(e.getMessage() + ", cannot add '" + activityName + "' in " + path);
+            }
+        }
+        if (header.position() != dataOffset) {
+            throw new IOException("Binary timeline header is damaged: " + path);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package persistence;
+
+import model.Day;
+import model.Timeline;
+import model.activities.Activity;
+import model.activities.ActivityRegistry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Represents a writer that writes a timeline to a specific path in the compact binary format.
+//  Layout (big endian):
+//   header:  magic (int), version (short), record size (short), record count (int),
+//            data offset (int), activity count (short), activity names (byte length + UTF-8 bytes each)
+//   records: one fixed-width record per Day, sorted by epoch day:
+//            epoch day (int), sleep (byte), a score byte per mood, an activity bitmask (long) per mood.
+//            Bit i of a bitmask is set if the mood contains the i-th activity name in the header.
+//            The names are only those of the activities the Days written contain, in order of their ids.
+public class BinaryWriter {
+
+    public static final int MAGIC = 0x48494F42;     // "HIOB", identifies a binary timeline file.
+    public static final short VERSION = 1;          // The version of the layout written.
+    public static final int RECORD_SIZE = 4 + 1 + Day.MAXMOODS + Day.MAXMOODS * 8; // Bytes per Day record.
+    public static final int MAX_ACTIVITIES = ActivityRegistry.MAX_ACTIVITIES;   // The activities a bitmask holds.
+
+    private static final int BUFFER_SIZE = 64 * 1024;   // The number of bytes buffered before writing.
+    private static final int[] ALL_IDS = IntStream.range(0, MAX_ACTIVITIES).toArray(); // Packs masks unchanged.
+    private static final String RECORDS_EXTENSION = ".records.tmp";  // The records spooled by writeSorted.
+
+    private final String path;          // Represents the path to write to.
+    private FileChannel channel;        // The channel to the file at path.
+    private ByteBuffer buffer;          // The bytes waiting to be written to channel.
+    private ProgressListener progressListener = ProgressListener.NONE; // Told about each Day written.
+
+    // MODIFIES: this
+    // EFFECTS: creates a new BinaryWriter instance set at a specific path.
+    public BinaryWriter(String path) {
+        this.path = path;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: opens the writer at the specified path, truncating any existing file.
+    //          Throws IOException if file at path cannot be opened.
+    public void open() throws IOException {
+        channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: sets the listener told about each Day written, and that can cancel it.
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: writes every Day in the Timeline to file as binary records.
+    public void write(Timeline tl) throws IOException {
+        write(tl.getDays());
+    }
+
+    // MODIFIES: this
+    // EFFECTS: writes the header and a record for every Day in days, sorted by date.
+    //          Throws InterruptedIOException if the progress listener cancels the write.
+    public void write(Collection<Day> days) throws IOException {
+        List<Day> sortedDays = new ArrayList<>(days);
+        sortedDays.sort(Comparator.comparingInt(d -> d.getDateCode().toEpochDay()));
+        int[] dictionary = dictionaryOf(sortedDays);
+
+        writeHeader(sortedDays.size(), dictionary);
+        for (int i = 0; i < sortedDays.size(); i++) {
+            ensureRemaining(RECORD_SIZE);
+            writeRecord(buffer, sortedDays.get(i), dictionary);
+            progressListener.update(i + 1, sortedDays.size());
+        }
+        flush();
+    }
+
+    // REQUIRES: days are sorted by date, with no two Days of the same date
+    // MODIFIES: this
+    // EFFECTS: writes the same file as write(days), iterating days only once and without holding them: the
+    //          records are spooled to a temporary file next to path as days are iterated, then copied after the
+    //          header (which needs every activity used, so can only be written last) with their bitmasks packed.
+    //          Throws InterruptedIOException if the progress listener cancels the write.
+    public void writeSorted(Collection<Day> days) throws IOException {
+        Path spool = Paths.get(path + RECORDS_EXTENSION);
+        try (FileChannel records = FileChannel.open(spool, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int[] dictionary = dictionaryOf(spoolRecords(records, days));
+            int recordCount = (int) (records.size() / RECORD_SIZE);
+            writeHeader(recordCount, dictionary);
+            copyRecords(records, recordCount, dictionary);
+            flush();
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: flushes and closes the writer at the specified path.
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    // EFFECTS: overwrites the records of days in the existing file at path in place (without opening
+    //          this writer) and returns the number of bytes written. Returns -1, leaving the file unchanged,
+    //          if a Day has no record in the file or an activity that is not in the file's header,
+    //          in which case the whole file has to be written again.
+    //          Throws IOException if the file cannot be read or written.
+    public long update(Collection<Day> days) throws IOException {
+        try (FileChannel fc = FileChannel.open(Paths.get(path), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer fileHeader = readFully(fc, ByteBuffer.allocate(18), 0);
+            if (fileHeader.getInt(0) != MAGIC || fileHeader.getShort(4) != VERSION
+                    || fileHeader.getShort(6) != RECORD_SIZE) {
+                return -1;
+            }
+            int[] dictionary = readDictionary(fc, fileHeader.getShort(16));
+            long[] offsets = new long[days.size()];
+            int i = 0;
+            for (Day d : days) {
+                offsets[i] = containsOnly(d, dictionary)
+                        ? findRecord(fc, fileHeader.getInt(12), fileHeader.getInt(8), d) : -1;
+                if (offsets[i++] < 0) {
+                    return -1;
+                }
+            }
+            return writeRecordsAt(fc, days, offsets, dictionary);
+        }
+    }
+
+    // REQUIRES: every activity of d is in dictionary
+    // EFFECTS: writes a record representing d into buffer at its current position. dictionary holds the id of
+    //          the activity of each bit of the bitmasks (see dictionaryOf).
+    static void writeRecord(ByteBuffer buffer, Day d, int[] dictionary) {
+        buffer.putInt(d.getDateCode().toEpochDay());
+        buffer.put((byte) d.getSleepHours());
+        for (int i = 0; i < Day.MAXMOODS; i++) {
+            buffer.put((byte) d.getMood(i).getMoodScore());
+        }
+        for (int i = 0; i < Day.MAXMOODS; i++) {
+            buffer.putLong(pack(d.getMood(i).getActivityMask(), dictionary));
+        }
+    }
+
+    // EFFECTS: returns the ids of the activities the moods of days contain, in increasing order.
+    static int[] dictionaryOf(Iterable<Day> days) {
+        long used = 0;
+        for (Day d : days) {
+            used |= d.getActivityUnion();
+        }
+        return dictionaryOf(used);
+    }
+
+    // EFFECTS: returns the ids of the activities set in used (a bitmask of activity ids), in increasing order.
+    private static int[] dictionaryOf(long used) {
+        int[] dictionary = new int[Long.bitCount(used)];
+        for (int i = 0; i < dictionary.length; i++, used &= used - 1) {
+            dictionary[i] = Long.numberOfTrailingZeros(used);
+        }
+        return dictionary;
+    }
+
+    // MODIFIES: records
+    // EFFECTS: writes a record for each Day in days to records, with bitmasks of activity ids (not packed yet),
+    //          and returns the union of the activities of the Days.
+    private long spoolRecords(FileChannel records, Collection<Day> days) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+        long used = 0;
+        int done = 0;
+        for (Day d : days) {
+            if (out.remaining() < RECORD_SIZE) {
+                writeAll(records, out);
+            }
+            writeRecord(out, d, ALL_IDS);
+            used |= d.getActivityUnion();
+            progressListener.update(++done, days.size());
+        }
+        writeAll(records, out);
+        return used;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: writes the recordCount spooled records, with their bitmasks packed over dictionary.
+    private void copyRecords(FileChannel records, int recordCount, int[] dictionary) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        for (int i = 0; i < recordCount; i++) {
+            readFully(records, record, (long) i * RECORD_SIZE);
+            for (int m = 0; m < Day.MAXMOODS; m++) {
+                int at = 4 + 1 + Day.MAXMOODS + m * 8;
+                record.putLong(at, pack(record.getLong(at), dictionary));
+            }
+            ensureRemaining(RECORD_SIZE);
+            buffer.put(record);
+        }
+    }
+
+    // MODIFIES: out
+    // EFFECTS: writes the bytes in out to fc at its position, then clears out.
+    private static void writeAll(FileChannel fc, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            fc.write(out);
+        }
+        out.clear();
+    }
+
+    // EFFECTS: returns mask (a bitmask of activity ids, see Mood) with bit i set for each activity id
+    //          dictionary[i] in mask. Activities that are not in dictionary are dropped.
+    static long pack(long mask, int[] dictionary) {
+        long packed = 0;
+        for (int i = 0; i < dictionary.length && mask != 0; i++) {
+            if (dictionary[i] >= 0 && (mask & 1L << dictionary[i]) != 0) {
+                packed |= 1L << i;
+            }
+        }
+        return packed;
+    }
+
+    // EFFECTS: returns true if every activity of d is in dictionary.
+    private static boolean containsOnly(Day d, int[] dictionary) {
+        long known = 0;
+        for (int id : dictionary) {
+            known |= id >= 0 ? 1L << id : 0;
+        }
+        return (d.getActivityUnion() & ~known) == 0;
+    }
+
+    // EFFECTS: reads the count activity names of the header of the file in fc and returns their ids
+    //          (-1 for a name that is not a registered activity, which no Day can contain).
+    private static int[] readDictionary(FileChannel fc, int count) throws IOException {
+        int[] dictionary = new int[Math.min(count, MAX_ACTIVITIES)];
+        ByteBuffer length = ByteBuffer.allocate(1);
+        long position = 18;
+        for (int i = 0; i < dictionary.length; i++) {
+            int size = readFully(fc, length, position).get(0) & 0xFF;
+            ByteBuffer name = readFully(fc, ByteBuffer.allocate(size), position + 1);
+            dictionary[i] = ActivityRegistry.getInstance().findId(StandardCharsets.UTF_8.decode(name).toString());
+            position += 1 + size;
+        }
+        return dictionary;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: writes the header for recordCount records whose bitmasks are over dictionary.
+    private void writeHeader(int recordCount, int[] dictionary) throws IOException {
+        ByteBuffer header = header(recordCount, dictionary);
+        ensureRemaining(header.remaining());
+        buffer.put(header);
+    }
+
+    // EFFECTS: returns the header for recordCount records, including the names of the
+    //          activities of dictionary in bitmask order. Records start right after the header.
+    private static ByteBuffer header(int recordCount, int[] dictionary) {
+        List<byte[]> names = new ArrayList<>();
+        int dataOffset = 4 + 2 + 2 + 4 + 4 + 2;
+        for (int id : dictionary) {
+            Activity activity = ActivityRegistry.getInstance().get(id);
+            byte[] name = activity.getActivityName().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            dataOffset += 1 + name.length;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(dataOffset);
+        header.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_SIZE)
+                .putInt(recordCount).putInt(dataOffset).putShort((short) names.size());
+        for (byte[] name : names) {
+            header.put((byte) name.length).put(name);
+        }
+        header.flip();
+        return header;
+    }
+
+    // EFFECTS: returns the file offset of the record for d by binary searching the recordCount records
+    //          starting at dataOffset in fc, or -1 if there is none.
+    private static long findRecord(FileChannel fc, int dataOffset, int recordCount, Day d) throws IOException {
+        int epochDay = d.getDateCode().toEpochDay();
+        ByteBuffer probe = ByteBuffer.allocate(4);
+        int low = 0;
+        int high = recordCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long offset = dataOffset + (long) mid * RECORD_SIZE;
+            int midEpochDay = readFully(fc, probe, offset).getInt(0);
+            if (midEpochDay == epochDay) {
+                return offset;
+            } else if (midEpochDay < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return -1;
+    }
+
+    // EFFECTS: writes the record for each Day in days at the matching offset in fc and returns the bytes written.
+    private static long writeRecordsAt(FileChannel fc, Collection<Day> days, long[] offsets, int[] dictionary)
+            throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        int i = 0;
+        for (Day d : days) {
+            record.clear();
+            writeRecord(record, d, dictionary);
+            record.flip();
+            long position = offsets[i++];
+            while (record.hasRemaining()) {
+                position += fc.write(record, position);
+            }
+        }
+        return (long) RECORD_SIZE * days.size();
+    }
+
+    // EFFECTS: fills dst from fc starting at position, then flips and returns it.
+    //          Throws IOException if the file ends first.
+    private static ByteBuffer readFully(FileChannel fc, ByteBuffer dst, long position) throws IOException {
+        dst.clear();
+        while (dst.hasRemaining()) {
+            int read = fc.read(dst, position + dst.position());
+            if (read < 0) {
+                throw new IOException("Binary timeline file is truncated");
+            }
+        }
+        dst.flip();
+        return dst;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: writes out the buffer if it has fewer than size bytes remaining.
+    private void ensureRemaining(int size) throws IOException {
+        if (buffer.remaining() < size) {
+            flush();
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: writes all buffered bytes to the channel and clears the buffer.
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
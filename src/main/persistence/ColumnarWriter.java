@@ -0,0 +1,268 @@
+package persistence;
+
+import model.DateCode;
+import model.Day;
+import model.Mood;
+import model.Timeline;
+import model.activities.Activity;
+import model.activities.ActivityRegistry;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+// Represents an exporter that writes a timeline as a directory of column files for analytics tools,
+//  which can map each column straight into an array instead of parsing text.
+//  Layout (little endian, one value per Day, Days sorted by date):
+//   date.i32:         the epoch day of each Day (int32, days since 1970-01-01)
+//   moodN.i8:         the score of the N-th mood (int8, -1 if not set)
+//   sleep.i8:         the hours slept (int8, -1 if not set)
+//   activitiesN.u64:  the activities of the N-th mood, as a bitmask (uint64 words per Day). Bit i of word w is
+//                     set if the mood contains the activity at position w * 64 + i of the manifest's dictionary.
+//   manifest.json:    the format, row count, date range, columns and activity dictionary. Written last,
+//                     so a directory without a manifest is an export that did not finish.
+public class ColumnarWriter {
+
+    public static final String FORMAT = "healthio-columnar";    // Identifies the export in its manifest.
+    public static final int VERSION = 1;                        // The version of the layout written.
+    public static final String MANIFEST = "manifest.json";      // The name of the manifest file.
+
+    private static final int BUFFER_SIZE = 16 * 1024;   // The number of bytes buffered per column before writing.
+
+    private final Path directory;       // The directory the columns and manifest are written to.
+    private DateCode from;              // The first date exported, or null to export every Day.
+    private DateCode to;                // The last date exported, or null to export every Day.
+    private ProgressListener progressListener = ProgressListener.NONE; // Told about each Day written.
+
+    // MODIFIES: this
+    // EFFECTS: creates an exporter that writes to the directory at path.
+    public ColumnarWriter(String path) {
+        this.directory = Paths.get(path);
+    }
+
+    // REQUIRES: from is not after to
+    // MODIFIES: this
+    // EFFECTS: only exports the Days dated from from to to (both included).
+    public void setRange(DateCode from, DateCode to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: sets the listener told about each Day written, and that can cancel the export.
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    // EFFECTS: writes the Days of tl in the range (every Day, if no range is set) and returns how many were written.
+    //          With a DaySource, only the months in the range are read.
+    //          Throws IOException if a column cannot be written,
+    //          or InterruptedIOException if the progress listener cancels the export.
+    public int write(Timeline tl) throws IOException {
+        if (from != null) {
+            return write(tl.getDays(from, to));
+        }
+        List<Day> days = new ArrayList<>(tl.getDays());
+        days.sort(Comparator.comparingInt(d -> d.getDateCode().toEpochDay()));
+        return write(days);
+    }
+
+    // REQUIRES: days are sorted by date, with one Day per date
+    // EFFECTS: writes days as columns followed by the manifest, and returns the number of rows written.
+    //          Throws IOException if a column cannot be written,
+    //          or InterruptedIOException if the progress listener cancels the export.
+    public int write(Collection<Day> days) throws IOException {
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(MANIFEST));
+        int[] ids = BinaryWriter.dictionaryOf(days);
+        List<Activity> dictionary = new ArrayList<>();
+        for (int id : ids) {
+            dictionary.add(ActivityRegistry.getInstance().get(id));
+        }
+        int words = Math.max(1, (dictionary.size() + 63) / 64);
+
+        List<Column> columns = new ArrayList<>();
+        try {
+            openColumns(columns);
+            int rows = 0;
+            for (Day d : days) {
+                writeRow(columns, d, ids, words);
+                progressListener.update(++rows, days.size());
+            }
+            for (Column c : columns) {
+                c.flush();
+            }
+            writeManifest(columns, dictionary, rows, words);
+            return rows;
+        } finally {
+            for (Column c : columns) {
+                c.close();
+            }
+        }
+    }
+
+    // EFFECTS: deletes the columns and manifest of an export at path, and the directory if nothing else is in it.
+    //          Throws IOException if a file cannot be deleted.
+    public static void delete(String path) throws IOException {
+        Path directory = Paths.get(path);
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        Files.deleteIfExists(directory.resolve(MANIFEST));
+        for (String name : columnNames()) {
+            Files.deleteIfExists(directory.resolve(name));
+        }
+        try {
+            Files.deleteIfExists(directory);
+        } catch (DirectoryNotEmptyException e) {
+            // The directory holds files this exporter did not write, so it is left in place.
+        }
+    }
+
+    // MODIFIES: columns
+    // EFFECTS: opens the date, mood, sleep and activity columns (truncating existing files) and adds them to columns.
+    private void openColumns(List<Column> columns) throws IOException {
+        for (String name : columnNames()) {
+            columns.add(new Column(directory.resolve(name)));
+        }
+    }
+
+    // EFFECTS: returns the file names of the columns, in the order their values are written.
+    private static List<String> columnNames() {
+        List<String> names = new ArrayList<>();
+        names.add("date.i32");
+        for (int i = 1; i <= Day.MAXMOODS; i++) {
+            names.add("mood" + i + ".i8");
+        }
+        names.add("sleep.i8");
+        for (int i = 1; i <= Day.MAXMOODS; i++) {
+            names.add("activities" + i + ".u64");
+        }
+        return names;
+    }
+
+    // MODIFIES: columns
+    // EFFECTS: appends the values of d to each column, with bitmasks over the activity ids in dictionary.
+    private static void writeRow(List<Column> columns, Day d, int[] dictionary, int words) throws IOException {
+        int c = 0;
+        columns.get(c++).next(4).putInt(d.getDateCode().toEpochDay());
+        for (int i = 0; i < Day.MAXMOODS; i++) {
+            columns.get(c++).next(1).put((byte) d.getMood(i).getMoodScore());
+        }
+        columns.get(c++).next(1).put((byte) d.getSleepHours());
+        for (int i = 0; i < Day.MAXMOODS; i++) {
+            long[] mask = activityMask(d.getMood(i), dictionary, words);
+            ByteBuffer buffer = columns.get(c++).next(8 * words);
+            for (long word : mask) {
+                buffer.putLong(word);
+            }
+        }
+    }
+
+    // EFFECTS: returns the bitmask (words longs wide) of the activities contained in m, where bit i stands
+    //          for the activity with id dictionary[i]. A dictionary holds at most one word of activities.
+    private static long[] activityMask(Mood m, int[] dictionary, int words) {
+        long[] mask = new long[words];
+        mask[0] = BinaryWriter.pack(m.getActivityMask(), dictionary);
+        return mask;
+    }
+
+    // EFFECTS: writes the manifest describing rows rows of columns, with the activity dictionary of the bitmasks.
+    private void writeManifest(List<Column> columns, List<Activity> dictionary, int rows, int words)
+            throws IOException {
+        JSONObject manifest = new JSONObject();
+        manifest.put("format", FORMAT);
+        manifest.put("version", VERSION);
+        manifest.put("rows", rows);
+        manifest.put("byteOrder", "little-endian");
+        manifest.put("missingValue", -1);
+        if (from != null) {
+            manifest.put("from", from.toString());
+            manifest.put("to", to.toString());
+        }
+
+        JSONArray jsonColumns = new JSONArray();
+        for (Column c : columns) {
+            jsonColumns.put(c.toJson(words));
+        }
+        manifest.put("columns", jsonColumns);
+
+        JSONArray jsonDictionary = new JSONArray();
+        for (Activity a : dictionary) {
+            jsonDictionary.put(a.getActivityName());
+        }
+        manifest.put("activities", jsonDictionary);
+        Files.write(directory.resolve(MANIFEST), manifest.toString(4).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Represents one column file, written through a little endian buffer.
+    private static class Column {
+
+        private final String file;          // The name of the column file.
+        private final FileChannel channel;  // The channel to the column file.
+        private final ByteBuffer buffer;    // The values waiting to be written to channel.
+
+        // EFFECTS: opens the column file at path, truncating any existing file.
+        Column(Path path) throws IOException {
+            file = path.getFileName().toString();
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        // MODIFIES: this
+        // EFFECTS: returns the buffer with room for bytes more bytes, writing it out first if it is too full.
+        ByteBuffer next(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+            return buffer;
+        }
+
+        // MODIFIES: this
+        // EFFECTS: writes the buffered values to the column file.
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        // EFFECTS: closes the column file, dropping values not flushed yet.
+        void close() throws IOException {
+            channel.close();
+        }
+
+        // EFFECTS: returns the manifest entry of this column, in which a bitmask column is words wide.
+        JSONObject toJson(int words) {
+            JSONObject column = new JSONObject();
+            String name = file.substring(0, file.indexOf('.'));
+            column.put("name", name);
+            column.put("file", file);
+            if (file.endsWith(".i32")) {
+                column.put("type", "int32");
+            } else if (file.endsWith(".i8")) {
+                column.put("type", "int8");
+            } else {
+                column.put("type", "uint64");
+                column.put("wordsPerRow", words);
+                column.put("encoding", "activity-bitmask");
+            }
+            return column;
+        }
+    }
+}
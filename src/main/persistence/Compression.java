@@ -0,0 +1,69 @@
+package persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+// Represents how a json or csv file is compressed, chosen by the extension after the format's own
+//  (eg. timeline.json.gz). Data is compressed as it is streamed, so no document is buffered whole.
+public enum Compression {
+    NONE(""),
+    GZIP(".gz"),
+    DEFLATE(".deflate");
+
+    private static final int BUFFER_SIZE = 64 * 1024;  // The bytes buffered by the (de)compressor.
+
+    public final String extension;      // The extension appended to a compressed file (with the dot).
+
+    // MODIFIES: this
+    // EFFECTS: creates a Compression, and assigns it the extension of the files it compresses.
+    Compression(String extension) {
+        this.extension = extension;
+    }
+
+    // EFFECTS: returns the compression whose extension path ends with, or NONE if there is none.
+    public static Compression fromPath(String path) {
+        String lowerPath = path.toLowerCase();
+        for (Compression c : values()) {
+            if (c != NONE && lowerPath.endsWith(c.extension)) {
+                return c;
+            }
+        }
+        return NONE;
+    }
+
+    // EFFECTS: returns path without the extension of its compression, if it has one.
+    public static String stripExtension(String path) {
+        return path.substring(0, path.length() - fromPath(path).extension.length());
+    }
+
+    // EFFECTS: returns a stream that compresses what is written to it into out.
+    public OutputStream compress(OutputStream out) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPOutputStream(out, BUFFER_SIZE);
+            case DEFLATE:
+                return new DeflaterOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+            default:
+                return out;
+        }
+    }
+
+    // EFFECTS: returns a stream that decompresses what is read from in.
+    public InputStream decompress(InputStream in) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            case DEFLATE:
+                return new InflaterInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+            default:
+                return in;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package persistence;
+
+import model.DateCode;
+import model.Day;
+import model.Mood;
+import model.Timeline;
+import model.activities.Activity;
+import model.activities.ActivityRegistry;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.regex.Pattern;
+
+// Represents a reader that imports a timeline from a CSV file in the format written by CsvWriter.
+//  The file is streamed (and decompressed, if it is) a batch of rows at a time, and the batches are
+//  parsed on a ForkJoinPool while the next ones are read. Rows that cannot be parsed are skipped and
+//  reported with their line numbers (see getMalformedRows) instead of failing the whole import.
+public class CsvReader {
+
+    public static final int DEFAULT_BATCH_ROWS = 2048;  // The number of rows parsed by one task.
+
+    private static final int COLUMNS = 6;               // The number of columns in a row.
+    private static final String EMPTY = "x";            // Stands for a mood or sleep value not entered.
+    private static final Pattern DATE = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+
+    private final String path;          // Represents the path to read from.
+    private final ForkJoinPool pool;    // The pool the batches are parsed on.
+    private final int batchRows;        // The number of rows parsed by one task.
+    private final List<MalformedRow> malformedRows;    // The rows skipped by the last read.
+    private ProgressListener progressListener = ProgressListener.NONE; // Told how much of the file is read.
+
+    // MODIFIES: this
+    // EFFECTS: creates a new CsvReader set at a specific path, parsing on the common pool.
+    public CsvReader(String path) {
+        this(path, ForkJoinPool.commonPool(), DEFAULT_BATCH_ROWS);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: creates a new CsvReader set at a specific path, parsing batchRows rows per task on pool.
+    public CsvReader(String path, ForkJoinPool pool, int batchRows) {
+        this.path = path;
+        this.pool = pool;
+        this.batchRows = Math.max(1, batchRows);
+        malformedRows = new ArrayList<>();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: sets the listener told how many bytes of the file have been read, and that can cancel the read.
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: reads the CSV file and returns a Timeline of the Days in its well formed rows.
+    //          Throws IOException if the file cannot be read,
+    //          or InterruptedIOException if the progress listener cancels the read.
+    public Timeline read() throws IOException {
+        return new Timeline(readDays());
+    }
+
+    // MODIFIES: this
+    // EFFECTS: reads the CSV file and returns the Days in its well formed rows, in file order.
+    //          Throws IOException under the same conditions as read().
+    public ArrayList<Day> readDays() throws IOException {
+        malformedRows.clear();
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(
+                     Compression.fromPath(path).decompress(Channels.newInputStream(channel)),
+                     StandardCharsets.UTF_8))) {
+            return readBatches(reader, channel);
+        }
+    }
+
+    // EFFECTS: returns the rows skipped by the last read, in file order.
+    public List<MalformedRow> getMalformedRows() {
+        return Collections.unmodifiableList(malformedRows);
+    }
+
+    /*
+        Reading batches
+     */
+
+    // MODIFIES: this
+    // EFFECTS: reads the rows from reader a batch at a time, submitting each batch to the pool and collecting
+    //          the parsed batches in order. At most a few batches per thread are read ahead of the parsing.
+    private ArrayList<Day> readBatches(BufferedReader reader, FileChannel channel) throws IOException {
+        ArrayList<Day> days = new ArrayList<>();
+        Map<Integer, Integer> firstLines = new HashMap<>();  // The line each epoch day was first read on.
+        Deque<ForkJoinTask<Batch>> pending = new ArrayDeque<>();
+        int maxPending = pool.getParallelism() * 2 + 1;
+        try {
+            for (Batch batch = readBatch(reader, 1, true); batch != null;
+                    batch = readBatch(reader, batch.nextLine, false)) {
+                pending.add(pool.submit(batch::parse));
+                if (pending.size() >= maxPending) {
+                    collect(pending.remove().join(), days, firstLines);
+                }
+                progressListener.update(channel.position(), channel.size());
+            }
+            while (!pending.isEmpty()) {
+                collect(pending.remove().join(), days, firstLines);
+            }
+        } finally {
+            for (ForkJoinTask<Batch> task : pending) {
+                task.cancel(false);
+            }
+        }
+        return days;
+    }
+
+    // EFFECTS: reads up to batchRows rows from reader, the first being on line firstLine, and returns them as
+    //          a batch, or null if there are none left. Skips the header if first is true and the row is one.
+    private Batch readBatch(BufferedReader reader, int firstLine, boolean first) throws IOException {
+        Batch batch = new Batch(firstLine, batchRows);
+        String row;
+        while (batch.rows.size() < batchRows && (row = reader.readLine()) != null) {
+            if (first && row.trim().equals(CsvWriter.HEADER.trim())) {
+                batch.skipRow();
+            } else {
+                batch.addRow(row);
+            }
+            first = false;
+        }
+        return batch.rows.isEmpty() ? null : batch;
+    }
+
+    // MODIFIES: this, days, firstLines
+    // EFFECTS: adds the parsed days and malformed rows of batch. A day whose date was already read is
+    //          reported as malformed, keeping the first one.
+    private void collect(Batch batch, ArrayList<Day> days, Map<Integer, Integer> firstLines) {
+        int next = 0;
+        for (int i = 0; i < batch.days.size(); i++) {
+            int line = batch.dayLines[i];
+            while (next < batch.malformedRows.size() && batch.malformedRows.get(next).lineNumber < line) {
+                malformedRows.add(batch.malformedRows.get(next++));
+            }
+            Day day = batch.days.get(i);
+            Integer firstLine = firstLines.putIfAbsent(day.getDateCode().toEpochDay(), line);
+            if (firstLine == null) {
+                days.add(day);
+            } else {
+                malformedRows.add(new MalformedRow(line, "Duplicate of the date on line " + firstLine));
+            }
+        }
+        malformedRows.addAll(batch.malformedRows.subList(next, batch.malformedRows.size()));
+    }
+
+    /*
+        Parsing rows
+     */
+
+    // EFFECTS: parses a row of the pattern: date, mood1, mood2, sleep-time, mood1-activities, mood2-activities
+    //          and returns the Day it represents. Throws IOException describing the first problem in the row.
+    static Day parseRow(String row) throws IOException {
+        String[] columns = row.split(",", -1);
+        if (columns.length != COLUMNS) {
+            throw new IOException("Expected " + COLUMNS + " columns but found " + columns.length);
+        }
+
+        DateCode dc = parseDate(columns[0].trim());
+        ArrayList<Mood> moodList = new ArrayList<>();
+        for (int i = 0; i < Day.MAXMOODS; i++) {
+            Mood mood = new Mood();
+            mood.setMoodScore(parseValue(columns[1 + i], Mood.MINMOODSCORE, Mood.MAXMOODSCORE, "mood" + (i + 1)));
+            addActivities(mood, columns[4 + i]);
+            moodList.add(mood);
+        }
+        return new Day(dc, parseValue(columns[3], 0, Day.MAXSLEEP, "sleep-time"), moodList);
+    }
+
+    // EFFECTS: returns the DateCode of a valid yyyy-mm-dd date, else throws IOException.
+    private static DateCode parseDate(String date) throws IOException {
+        if (DATE.matcher(date).matches()) {
+            try {
+                return DateCode.parse(date);
+            } catch (DateTimeException e) {
+                // Falls through to the exception below, the date does not exist (eg. 2021-02-30).
+            }
+        }
+        throw new IOException("Invalid date '" + date + "'");
+    }
+
+    // EFFECTS: returns -1 if column is EMPTY, else the integer in column if it is between min and max.
+    //          Throws IOException naming the column otherwise.
+    private static int parseValue(String column, int min, int max, String name) throws IOException {
+        String value = column.trim();
+        if (value.equals(EMPTY)) {
+            return -1;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed >= min && parsed <= max) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Falls through to the exception below, the value is not a number.
+        }
+        throw new IOException("Invalid " + name + " '" + value + "'");
+    }
+
+    // MODIFIES: mood
+    // EFFECTS: adds the activity named by each ';' separated name in column to mood, ignoring repeated names.
+    //          Names resolve to the default activities and to the user-defined ones already in use (eg. by the
+    //          open timeline), so a mistyped name is reported instead of becoming a new activity.
+    //          Throws IOException if a name is not such an activity.
+    private static void addActivities(Mood mood, String column) throws IOException {
+        for (String name : column.split(";")) {
+            String activityName = name.trim();
+            if (activityName.isEmpty()) {
+                continue;
+            }
+            Activity activity = ActivityRegistry.getInstance().find(activityName);
+            if (activity == null) {
+                throw new IOException("Unknown activity '" + activityName + "'");
+            }
+            mood.addActivity(activity);
+        }
+    }
+
+    // Represents a run of consecutive rows of the file, and the Days and malformed rows parsed from it.
+    private static class Batch {
+
+        private final int firstLine;            // The line number of the first row.
+        private int nextLine;                   // The line number after the last row.
+        private final List<String> rows;        // The rows read, null standing for a skipped line.
+        private final ArrayList<Day> days;      // The Days parsed from the rows.
+        private int[] dayLines;                 // The line number of each Day in days.
+        private final List<MalformedRow> malformedRows; // The rows that could not be parsed.
+
+        // EFFECTS: creates an empty batch starting at line firstLine, with room for size rows.
+        Batch(int firstLine, int size) {
+            this.firstLine = firstLine;
+            nextLine = firstLine;
+            rows = new ArrayList<>(size);
+            days = new ArrayList<>(size);
+            malformedRows = new ArrayList<>();
+        }
+
+        // MODIFIES: this
+        // EFFECTS: adds row as the next line.
+        void addRow(String row) {
+            rows.add(row);
+            nextLine++;
+        }
+
+        // MODIFIES: this
+        // EFFECTS: skips the next line (eg. the header).
+        void skipRow() {
+            addRow(null);
+        }
+
+        // MODIFIES: this
+        // EFFECTS: parses every row that is not blank or skipped and returns this.
+        Batch parse() {
+            dayLines = new int[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                String row = rows.get(i);
+                if (row == null || row.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    dayLines[days.size()] = firstLine + i;
+                    days.add(parseRow(row));
+                } catch (IOException e) {
+                    malformedRows.add(new MalformedRow(firstLine + i, e.getMessage()));
+                }
+            }
+            return this;
+        }
+    }
+
+    // Represents a row of the file that could not be imported, and why.
+    public static class MalformedRow {
+
+        private final int lineNumber;   // The line of the file the row is on, starting at 1.
+        private final String message;   // Describes what is wrong with the row.
+
+        // EFFECTS: creates a MalformedRow on lineNumber described by message.
+        public MalformedRow(int lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+
+        // EFFECTS: returns the line of the file the row is on, starting at 1.
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        // EFFECTS: returns what is wrong with the row.
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        // EFFECTS: returns the line number and message, eg. "Line 4: Invalid date '2021-02-30'".
+        public String toString() {
+            return "Line " + lineNumber + ": " + message;
+        }
+    }
+}
@@ -1,19 +1,36 @@
 package persistence;
 
 import model.Day;
+import model.Mood;
 import model.activities.Activity;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Collection;
 
-// Represents a CSV parser that can convert a list of days to a valid CSV string.
+// Represents a CSV exporter that streams a list of days as CSV rows to a file.
+//  Rows are written (and compressed, if the file is) as the days are visited,
+//  so the export never holds the whole CSV in memory.
 public class CsvWriter {
 
+    public static final String HEADER = "date, mood1, mood2, sleep-time, mood1-activities, mood2-activities\n";
+    private static final String SEPARATOR = ", ";           // Separates the columns of a row.
+    private static final char ACTIVITY_SEPARATOR = ';';     // Terminates each activity name in a column.
+
     private final Collection<Day> dayList;   // Contains the list of days to export.
-    private String csvString;                // Contains the valid exported CSV string.
-    private PrintWriter writer;              // The writer object.
+    private String csvString;                // Contains the valid exported CSV string, if generated.
+    private Writer writer;                   // The writer object.
+    private ProgressListener progressListener = ProgressListener.NONE; // Told about each row written.
 
     // MODIFIES: this
     // EFFECTS: creates a new CSV instance with access to the entire dayList.
@@ -22,53 +39,106 @@ public class CsvWriter {
     }
 
     // MODIFIES: this
-    // EFFECTS: generates a CSV string filled with values from Days.
+    // EFFECTS: generates a CSV string filled with values from Days and keeps it in memory.
+    //          Optional, only needed when the CSV is wanted as a string (see getCsvString).
     public void convertListToString() {
-        String string = "date, mood1, mood2, sleep-time, mood1-activities, mood2-activities\n";
+        StringWriter stringWriter = new StringWriter();
+        try {
+            writeRows(stringWriter);
+        } catch (IOException e) {
+            // A StringWriter never throws, so this cannot happen.
+            throw new UncheckedIOException(e);
+        }
+        csvString = stringWriter.toString();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: sets the listener told about each row written by write(), and that can cancel it.
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
 
+    // MODIFIES: this
+    // EFFECTS: streams the header and a row for every Day to the opened file.
+    //          Throws IOException if the rows cannot be written,
+    //          or InterruptedIOException if the progress listener cancels the write.
+    public void write() throws IOException {
+        writer.write(HEADER);
+        int rowsWritten = 0;
         for (Day d : dayList) {
-            string += String.format("%s, %s, %s, %s, ",
-                    d.getDateCode().toString(),
-                    d.getMood(0).getUIMoodString(),
-                    d.getMood(1).getUIMoodString(),
-                    d.getUISleepHours());
-            for (Activity a : d.getMood(0).getActivityList()) {
-                string += String.format("%s;", a.getActivityName());
-            }
-
-            string += ", ";
-
-            for (Activity a : d.getMood(1).getActivityList()) {
-                string += String.format("%s;", a.getActivityName());
-            }
-
-            string += "\n";
+            writeRow(writer, d);
+            progressListener.update(++rowsWritten, dayList.size());
         }
-
-        csvString = string;
     }
 
-    // EFFECTS: desired action: saves the csvString to file at a path.
-    //          temporary action: returns the string to be printed
-    public void write() {
-        writer.print(csvString);
+    // MODIFIES: this
+    // EFFECTS: opens a buffered writer at the specified path, truncating any existing file.
+    //          The file is compressed if its extension is that of a Compression (eg. .csv.gz).
+    //          Throws IOException if file at path cannot be opened.
+    public void open(String path) throws IOException {
+        open(path, Compression.fromPath(path));
     }
 
     // MODIFIES: this
-    // EFFECTS: opens the writer at the specified path.
-    //          Throws FileNotFoundException if file at path cannot be opened.
-    public void open(String path) throws FileNotFoundException {
-        writer = new PrintWriter(new File(path));
+    // EFFECTS: opens a buffered writer at the specified path that compresses with compression,
+    //          truncating any existing file. Throws IOException if file at path cannot be opened.
+    public void open(String path, Compression compression) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        if (compression == Compression.NONE) {
+            writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1));
+        } else {
+            OutputStream out = compression.compress(Channels.newOutputStream(channel));
+            writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        }
     }
 
     // MODIFIES: this
-    // EFFECTS: closes the writer.
-    public void close() {
+    // EFFECTS: flushes and closes the writer.
+    public void close() throws IOException {
         writer.close();
     }
 
-    // EFFECTS: returns the raw csv string representing the dayList
+    // EFFECTS: returns the raw csv string representing the dayList,
+    //          or null if convertListToString has not been called.
     public String getCsvString() {
         return csvString;
     }
+
+    /*
+        Serializing
+     */
+
+    // EFFECTS: writes the header and a row for every Day in dayList to out.
+    private void writeRows(Writer out) throws IOException {
+        out.write(HEADER);
+        for (Day d : dayList) {
+            writeRow(out, d);
+        }
+    }
+
+    // EFFECTS: writes a single row representing d to out, using the following pattern:
+    //          date, mood1, mood2, sleep-time, mood1-activities, mood2-activities
+    private void writeRow(Writer out, Day d) throws IOException {
+        out.write(d.getDateCode().toString());
+        out.write(SEPARATOR);
+        out.write(d.getMood(0).getUIMoodString());
+        out.write(SEPARATOR);
+        out.write(d.getMood(1).getUIMoodString());
+        out.write(SEPARATOR);
+        out.write(d.getUISleepHours());
+        out.write(SEPARATOR);
+        writeActivities(out, d.getMood(0));
+        out.write(SEPARATOR);
+        writeActivities(out, d.getMood(1));
+        out.write('\n');
+    }
+
+    // EFFECTS: writes each activity name in m to out, each followed by ACTIVITY_SEPARATOR.
+    private void writeActivities(Writer out, Mood m) throws IOException {
+        for (Activity a : m.getActivityList()) {
+            out.write(a.getActivityName());
+            out.write(ACTIVITY_SEPARATOR);
+        }
+    }
 }
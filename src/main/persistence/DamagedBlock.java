@@ -0,0 +1,49 @@
+package persistence;
+
+import model.DateCode;
+
+// Represents a month of a saved timeline whose bytes no longer match the checksum recorded when it was written
+//  (eg. because the file was cut short), and so the Days that were lost with it.
+public class DamagedBlock {
+
+    private final int partition;        // The key of the month (eg. 202103).
+    private final DateCode first;       // The date of the first Day stored in the month.
+    private final DateCode last;        // The date of the last Day stored in the month.
+    private final int dayCount;         // The number of Days stored in the month.
+
+    // MODIFIES: this
+    // EFFECTS: creates a damaged block for the month with key partition, which stored dayCount Days
+    //          from first to last.
+    public DamagedBlock(int partition, DateCode first, DateCode last, int dayCount) {
+        this.partition = partition;
+        this.first = first;
+        this.last = last;
+        this.dayCount = dayCount;
+    }
+
+    // EFFECTS: returns the key of the month (eg. 202103).
+    public int getPartition() {
+        return partition;
+    }
+
+    // EFFECTS: returns the date of the first Day lost.
+    public DateCode getFirst() {
+        return first;
+    }
+
+    // EFFECTS: returns the date of the last Day lost.
+    public DateCode getLast() {
+        return last;
+    }
+
+    // EFFECTS: returns the number of Days lost.
+    public int getDayCount() {
+        return dayCount;
+    }
+
+    @Override
+    // EFFECTS: returns the range of dates lost, eg. "2021-03-01 to 2021-03-31 (31 days)".
+    public String toString() {
+        return first + " to " + last + " (" + dayCount + (dayCount == 1 ? " day)" : " days)");
+    }
+}
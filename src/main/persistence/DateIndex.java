@@ -0,0 +1,454 @@
+package persistence;
+
+import model.DateCode;
+import model.DaySource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+// Represents an index file kept next to an uncompressed json timeline (at its path + EXTENSION) that maps the
+//  epoch day of each Day to the bytes of its day object, so single days and months can be read from the
+//  timeline without parsing the rest of it. The index is read into memory and binary searched;
+//  neither it nor the timeline is mapped, so neither file is held open and both can be replaced or deleted
+//  (a mapping holds its file until it is garbage collected, which on Windows keeps it from being replaced).
+//  Layout (big endian):
+//   header:  magic (int), version (short), data size (long), days end (long), days crc (int),
+//            json version of the days (int), entry count (int), block count (int)
+//   entries: one per Day, sorted by epoch day: epoch day (int), offset (long), length (int)
+//   blocks:  one per month, in order: first entry (int), CRC32C of the month's day objects (int)
+//  The index is valid for a timeline of data size bytes whose bytes up to days end (the end of its last day
+//  object) have the CRC32 days crc. If days were appended after days end, only those are scanned to update it.
+//  Each month read through the index is checked against its block checksum (see IndexedJsonSource), and if the
+//  timeline is damaged, the block checksums tell which months can still be read from it (see verify).
+public class DateIndex {
+
+    public static final String EXTENSION = ".idx";  // Appended to the path of the timeline.
+    public static final int MAGIC = 0x48494F58;     // "HIOX", identifies an index file.
+    public static final short VERSION = 2;          // The version of the layout written.
+
+    private static final int HEADER_SIZE = 4 + 2 + 8 + 8 + 4 + 4 + 4 + 4;   // The number of bytes before the entries.
+    private static final int ENTRY_SIZE = 4 + 8 + 4;                        // The number of bytes per entry.
+    private static final int BLOCK_SIZE = 4 + 4;                            // The number of bytes per block.
+
+    private final ByteBuffer index;         // The index file, read into memory (or only in memory, see scan).
+    private final long dataSize;            // The size of the timeline the index was built from.
+    private final int dayVersion;           // The json version the days of the timeline are written in.
+    private final int size;                 // The number of entries.
+    private final int blockCount;           // The number of blocks (months).
+
+    // EFFECTS: creates an index over the index file (or bytes), whose header has been checked.
+    private DateIndex(ByteBuffer index) {
+        this.index = index;
+        dataSize = index.getLong(6);
+        dayVersion = index.getInt(26);
+        size = index.getInt(30);
+        blockCount = index.getInt(34);
+    }
+
+    // EFFECTS: returns the path of the index of the timeline at dataPath.
+    public static String pathOf(String dataPath) {
+        return dataPath + EXTENSION;
+    }
+
+    // EFFECTS: scans the whole timeline at dataPath, writes its index (replacing any there was) and returns it.
+    //          Throws IOException if the timeline cannot be read or is not valid, or the index cannot be written.
+    public static DateIndex build(String dataPath) throws IOException {
+        ByteBuffer data = readData(dataPath);
+        JsonDayScanner scanner = new JsonDayScanner(data);
+        scanner.scan();
+        Entries entries = new Entries(scanner.size());
+        entries.addScanned(scanner);
+        return write(dataPath, data, scanner.daysEnd(), scanner.version(), entries);
+    }
+
+    // EFFECTS: scans the whole timeline at dataPath and returns its index, kept in memory instead of being written
+    //          (eg. for a timeline that is only read once, or in a directory that cannot be written to).
+    //          Throws IOException if the timeline cannot be read or is not valid.
+    public static DateIndex scan(String dataPath) throws IOException {
+        ByteBuffer data = readData(dataPath);
+        JsonDayScanner scanner = new JsonDayScanner(data);
+        scanner.scan();
+        Entries entries = new Entries(scanner.size());
+        entries.addScanned(scanner);
+        return new DateIndex(toBytes(data, scanner.daysEnd(), scanner.version(), entries));
+    }
+
+    // EFFECTS: opens the index of the timeline at dataPath, or returns null if it has none.
+    //          If the timeline has changed since the index was written, the index is updated first: only the days
+    //          appended after the indexed ones are scanned if the rest is unchanged, else it is built again.
+    //          Throws IOException if the timeline or index cannot be read, or the index cannot be updated.
+    public static DateIndex open(String dataPath) throws IOException {
+        Path indexPath = Paths.get(pathOf(dataPath));
+        if (!Files.exists(indexPath)) {
+            return null;
+        }
+        ByteBuffer index = readIndex(indexPath);
+        if (!isValidHeader(index)) {
+            return build(dataPath);
+        }
+
+        ByteBuffer data = readData(dataPath);
+        long daysEnd = index.getLong(14);
+        if (daysEnd > data.limit() || crc(data, (int) daysEnd) != index.getInt(22)) {
+            return build(dataPath);
+        } else if (index.getLong(6) == data.limit()) {
+            return new DateIndex(index);
+        }
+        return append(dataPath, data, new DateIndex(index), (int) daysEnd);
+    }
+
+    // EFFECTS: opens the index of the timeline at dataPath as it was written, without checking it against the
+    //          timeline, or returns null if it has none (or it is not valid). Used to recover what can be read of a
+    //          damaged timeline (see verify). Throws IOException if the index cannot be read.
+    public static DateIndex openUnverified(String dataPath) throws IOException {
+        Path indexPath = Paths.get(pathOf(dataPath));
+        if (!Files.exists(indexPath)) {
+            return null;
+        }
+        ByteBuffer index = readIndex(indexPath);
+        return isValidHeader(index) ? new DateIndex(index) : null;
+    }
+
+    // EFFECTS: returns the size in bytes of the timeline the index was built from.
+    public long getDataSize() {
+        return dataSize;
+    }
+
+    // EFFECTS: returns the json version the days of the timeline are written in.
+    public int getDayVersion() {
+        return dayVersion;
+    }
+
+    // EFFECTS: returns the number of Days in the index.
+    public int size() {
+        return size;
+    }
+
+    // REQUIRES: 0 <= i < size()
+    // EFFECTS: returns the epoch day of the i-th Day, by date.
+    public int epochDayAt(int i) {
+        return index.getInt(HEADER_SIZE + i * ENTRY_SIZE);
+    }
+
+    // REQUIRES: 0 <= i < size()
+    // EFFECTS: returns the offset in the timeline of the day object of the i-th Day, by date.
+    public long offsetAt(int i) {
+        return index.getLong(HEADER_SIZE + i * ENTRY_SIZE + 4);
+    }
+
+    // REQUIRES: 0 <= i < size()
+    // EFFECTS: returns the length in bytes of the day object of the i-th Day, by date.
+    public int lengthAt(int i) {
+        return index.getInt(HEADER_SIZE + i * ENTRY_SIZE + 12);
+    }
+
+    // EFFECTS: returns the position of the Day with DateCode dc by binary search, or -1 if there is none.
+    public int find(DateCode dc) {
+        int epochDay = dc.toEpochDay();
+        int i = lowerBound(epochDay);
+        return i < size && epochDayAt(i) == epochDay ? i : -1;
+    }
+
+    // EFFECTS: returns the position of the first Day on or after epochDay by binary search
+    //          (size() if there is none).
+    public int lowerBound(int epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochDayAt(mid) < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // EFFECTS: returns the CRC32 of the day objects of each month in the timeline at dataPath, by month key
+    //          (eg. 202103), so the months that differ between two versions of a timeline can be found without
+    //          parsing either. Throws IOException if the timeline cannot be read or is shorter than the index.
+    public Map<Integer, Long> partitionChecksums(String dataPath) throws IOException {
+        ByteBuffer data = readData(dataPath);
+        Map<Integer, Long> checksums = new HashMap<>();
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < size; i++) {
+            long end = offsetAt(i) + lengthAt(i);
+            if (end > data.limit()) {
+                throw new IOException("Timeline is shorter than its index: " + dataPath);
+            }
+            ByteBuffer day = data.duplicate();
+            day.limit((int) end).position((int) offsetAt(i));
+            crc.update(day);
+
+            int key = partitionAt(i);
+            if (i + 1 == size || partitionAt(i + 1) != key) {
+                checksums.put(key, crc.getValue());
+                crc.reset();
+            }
+        }
+        return checksums;
+    }
+
+    // REQUIRES: 0 <= i < size()
+    // EFFECTS: returns the month key (eg. 202103) of the i-th Day, by date.
+    public int partitionAt(int i) {
+        return partitionOf(epochDayAt(i));
+    }
+
+    // REQUIRES: i is the position of the first Day of a month
+    // EFFECTS: returns the CRC32C recorded for the day objects of the month starting at the i-th Day.
+    public int blockCrcAt(int i) {
+        int low = 0;
+        int high = blockCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (blockStart(mid) <= i) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return index.getInt(blockOffset(low) + 4);
+    }
+
+    // EFFECTS: checks the day objects of each month of the timeline at dataPath against the CRC32C recorded for
+    //          them when the index was written, on the common ForkJoinPool, and returns the months that do not
+    //          match (or were cut off), by date. Throws IOException if the timeline cannot be read.
+    public List<DamagedBlock> verify(String dataPath) throws IOException {
+        ByteBuffer data = readData(dataPath);
+        return IntStream.range(0, blockCount).parallel()
+                .filter(b -> !isIntact(data, b))
+                .mapToObj(b -> new DamagedBlock(partitionAt(blockStart(b)),
+                        DateCode.fromEpochDay(epochDayAt(blockStart(b))),
+                        DateCode.fromEpochDay(epochDayAt(blockEnd(b) - 1)), blockEnd(b) - blockStart(b)))
+                .collect(Collectors.toList());
+    }
+
+    // EFFECTS: returns true if the day objects of block b all lie within data and have the recorded CRC32C.
+    private boolean isIntact(ByteBuffer data, int b) {
+        Crc32c crc = new Crc32c();
+        for (int i = blockStart(b); i < blockEnd(b); i++) {
+            long end = offsetAt(i) + lengthAt(i);
+            if (end > data.limit()) {
+                return false;
+            }
+            ByteBuffer day = data.duplicate();
+            day.limit((int) end).position((int) offsetAt(i));
+            crc.update(day);
+        }
+        return (int) crc.getValue() == index.getInt(blockOffset(b) + 4);
+    }
+
+    // EFFECTS: returns the offset in the index of block b.
+    private int blockOffset(int b) {
+        return HEADER_SIZE + size * ENTRY_SIZE + b * BLOCK_SIZE;
+    }
+
+    // EFFECTS: returns the position of the first entry of block b.
+    private int blockStart(int b) {
+        return index.getInt(blockOffset(b));
+    }
+
+    // EFFECTS: returns the position after the last entry of block b.
+    private int blockEnd(int b) {
+        return b + 1 < blockCount ? blockStart(b + 1) : size;
+    }
+
+    // EFFECTS: returns the month key (eg. 202103) of epochDay.
+    private static int partitionOf(int epochDay) {
+        return DaySource.partitionOf(DateCode.fromEpochDay(epochDay));
+    }
+
+    /*
+        Building
+     */
+
+    // EFFECTS: scans the days appended to data after daysEnd, writes an index with them and the entries of
+    //          old, and returns it.
+    private static DateIndex append(String dataPath, ByteBuffer data, DateIndex old, int daysEnd)
+            throws IOException {
+        JsonDayScanner scanner = new JsonDayScanner(data);
+        scanner.scanFrom(daysEnd, old.dayVersion);
+        Entries entries = new Entries(old.size + scanner.size());
+        for (int i = 0; i < old.size; i++) {
+            entries.add(old.epochDayAt(i), old.offsetAt(i), old.lengthAt(i));
+        }
+        entries.addScanned(scanner);
+        int newDaysEnd = scanner.size() == 0 ? daysEnd : scanner.daysEnd();
+        return write(dataPath, data, newDaysEnd, old.dayVersion, entries);
+    }
+
+    // EFFECTS: writes the index of entries for data (whose days end at daysEnd) next to dataPath,
+    //          through a temporary file so a reader never sees half an index, and returns it.
+    private static DateIndex write(String dataPath, ByteBuffer data, int daysEnd, int dayVersion, Entries entries)
+            throws IOException {
+        ByteBuffer out = toBytes(data, daysEnd, dayVersion, entries);
+        Path tmp = Paths.get(pathOf(dataPath) + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer written = out.duplicate();
+            while (written.hasRemaining()) {
+                channel.write(written);
+            }
+        }
+        Path indexPath = Paths.get(pathOf(dataPath));
+        Files.move(tmp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new DateIndex(out);
+    }
+
+    // MODIFIES: entries
+    // EFFECTS: sorts entries and returns the bytes of the index of them for data (whose days end at daysEnd).
+    private static ByteBuffer toBytes(ByteBuffer data, int daysEnd, int dayVersion, Entries entries) {
+        entries.sort();
+        List<Integer> blockStarts = new ArrayList<>();
+        for (int i = 0; i < entries.count; i++) {
+            if (i == 0 || partitionOf(entries.epochDays[i]) != partitionOf(entries.epochDays[i - 1])) {
+                blockStarts.add(i);
+            }
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + entries.count * ENTRY_SIZE
+                + blockStarts.size() * BLOCK_SIZE);
+        out.putInt(MAGIC).putShort(VERSION).putLong(data.limit()).putLong(daysEnd)
+                .putInt(crc(data, daysEnd)).putInt(dayVersion).putInt(entries.count).putInt(blockStarts.size());
+        for (int i = 0; i < entries.count; i++) {
+            out.putInt(entries.epochDays[i]).putLong(entries.offsets[i]).putInt(entries.lengths[i]);
+        }
+        for (int b = 0; b < blockStarts.size(); b++) {
+            int to = b + 1 < blockStarts.size() ? blockStarts.get(b + 1) : entries.count;
+            out.putInt(blockStarts.get(b)).putInt(entries.blockCrc(data, blockStarts.get(b), to));
+        }
+        out.flip();
+        return out;
+    }
+
+    // EFFECTS: returns the bytes of the index file at indexPath, read into memory (it is small: 16 bytes a day).
+    private static ByteBuffer readIndex(Path indexPath) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(indexPath));
+    }
+
+    // EFFECTS: returns the bytes of the timeline at dataPath, read into memory.
+    //          Throws IOException if it cannot be read or is too large to index.
+    private static ByteBuffer readData(String dataPath) throws IOException {
+        Path path = Paths.get(dataPath);
+        if (Files.size(path) > Integer.MAX_VALUE - 8) {
+            throw new IOException("Timeline is too large to index: " + dataPath);
+        }
+        return ByteBuffer.wrap(Files.readAllBytes(path));
+    }
+
+    // EFFECTS: returns true if index starts with a header of this layout and is long enough for its entries.
+    private static boolean isValidHeader(ByteBuffer index) {
+        return index.limit() >= HEADER_SIZE && index.getInt(0) == MAGIC && index.getShort(4) == VERSION
+                && index.limit() >= HEADER_SIZE + (long) index.getInt(30) * ENTRY_SIZE
+                + (long) index.getInt(34) * BLOCK_SIZE;
+    }
+
+    // EFFECTS: returns the CRC32 of the first length bytes of data.
+    private static int crc(ByteBuffer data, int length) {
+        ByteBuffer prefix = data.duplicate();
+        prefix.position(0).limit(length);
+        CRC32 crc = new CRC32();
+        crc.update(prefix);
+        return (int) crc.getValue();
+    }
+
+    // Represents the entries of an index being built, in any order until sorted.
+    private static class Entries {
+
+        private int[] epochDays;    // The epoch day of each entry.
+        private long[] offsets;     // The offset of the day object of each entry.
+        private int[] lengths;      // The length of the day object of each entry.
+        private int count;          // The number of entries.
+
+        // EFFECTS: creates an empty list of entries with room for capacity entries.
+        Entries(int capacity) {
+            epochDays = new int[capacity];
+            offsets = new long[capacity];
+            lengths = new int[capacity];
+        }
+
+        // MODIFIES: this
+        // EFFECTS: adds an entry.
+        void add(int epochDay, long offset, int length) {
+            epochDays[count] = epochDay;
+            offsets[count] = offset;
+            lengths[count++] = length;
+        }
+
+        // MODIFIES: this
+        // EFFECTS: adds an entry for every day object found by scanner.
+        //          Throws IOException if a day has no valid id.
+        void addScanned(JsonDayScanner scanner) throws IOException {
+            for (int i = 0; i < scanner.size(); i++) {
+                String id = scanner.readId(i);
+                try {
+                    if (id != null) {
+                        add(DateCode.parseEpochDay(id), scanner.start(i), scanner.end(i) - scanner.start(i));
+                        continue;
+                    }
+                } catch (IndexOutOfBoundsException | NumberFormatException | DateTimeException e) {
+                    // Falls through to the exception below, the id is not a date.
+                }
+                throw new IOException("Day has an invalid id at character " + scanner.start(i));
+            }
+        }
+
+        // EFFECTS: returns the CRC32C of the day objects of entries from up to to in data.
+        int blockCrc(ByteBuffer data, int from, int to) {
+            Crc32c crc = new Crc32c();
+            for (int i = from; i < to; i++) {
+                ByteBuffer day = data.duplicate();
+                day.limit((int) (offsets[i] + lengths[i])).position((int) offsets[i]);
+                crc.update(day);
+            }
+            return (int) crc.getValue();
+        }
+
+        // MODIFIES: this
+        // EFFECTS: sorts the entries by epoch day. Of the entries with the same epoch day, only the one
+        //          latest in the file is kept, as it is the one a Timeline read from the file would keep.
+        void sort() {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> epochDays[a] != epochDays[b]
+                    ? Integer.compare(epochDays[a], epochDays[b]) : Long.compare(offsets[a], offsets[b]));
+
+            int[] sortedDays = new int[count];
+            long[] sortedOffsets = new long[count];
+            int[] sortedLengths = new int[count];
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int e = order[i];
+                if (kept > 0 && sortedDays[kept - 1] == epochDays[e]) {
+                    kept--;
+                }
+                sortedDays[kept] = epochDays[e];
+                sortedOffsets[kept] = offsets[e];
+                sortedLengths[kept++] = lengths[e];
+            }
+            epochDays = sortedDays;
+            offsets = sortedOffsets;
+            lengths = sortedLengths;
+            count = kept;
+        }
+    }
+}
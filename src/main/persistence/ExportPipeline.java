@@ -0,0 +1,318 @@
+package persistence;
+
+import model.DateCode;
+import model.Day;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Represents an export of the same Days to several files (eg. CSV, json and binary) in one pass over them.
+//  Each Day is visited once and handed to every sink through its own bounded queue, and each sink encodes
+//  and writes its file on its own thread, so the export takes about as long as the slowest sink instead of
+//  the sum of them all. A sink that falls behind holds back the pass (the queues are bounded), and every sink
+//  writes each Day as it takes it (the binary one spools its records to a temporary file, as its header can only
+//  be written last), so the Days being exported never take more memory than the queues hold.
+//  The Days must be in date order, as those of Timeline.getDays are.
+public class ExportPipeline {
+
+    public static final int DEFAULT_QUEUE_DAYS = 256;   // The number of Days each sink's queue holds.
+
+    private static final Day END = new Day(new DateCode(1970, 1, 1));       // Queued after the last Day.
+    private static final Day CANCELLED = new Day(new DateCode(1970, 1, 1)); // Queued if the pass stops early.
+
+    private final Collection<Day> days;     // The Days to export.
+    private final int queueDays;            // The number of Days each sink's queue holds.
+    private final List<String> paths;       // The file each sink writes.
+    private final List<Sink> sinks;         // The sinks, in the order they were added.
+    private ProgressListener progressListener = ProgressListener.NONE; // Told about each Day handed out.
+
+    // Represents something that writes the Days it is given to a file, eg. a CsvWriter.
+    interface Sink {
+
+        // EFFECTS: writes days, which can only be iterated once (and throws UncheckedIOException if the
+        //          export is cancelled part way). Throws IOException if the file cannot be written.
+        void write(Collection<Day> days) throws IOException;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: creates an export of days to no files yet.
+    public ExportPipeline(Collection<Day> days) {
+        this(days, DEFAULT_QUEUE_DAYS);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: creates an export of days to no files yet, queueing up to queueDays Days for each sink.
+    public ExportPipeline(Collection<Day> days, int queueDays) {
+        this.days = days;
+        this.queueDays = Math.max(1, queueDays);
+        paths = new ArrayList<>();
+        sinks = new ArrayList<>();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: sets the listener told about each Day handed to the sinks, and that can cancel the export.
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: adds a CSV file at path to the export, compressed as its extension says (see CsvWriter).
+    public void addCsv(String path) {
+        addSink(path, queued -> {
+            CsvWriter writer = new CsvWriter(queued);
+            writer.open(path);
+            try {
+                writer.write();
+            } finally {
+                writer.close();
+            }
+        });
+    }
+
+    // MODIFIES: this
+    // EFFECTS: adds a json timeline at path to the export, compressed as its extension says (see JsonWriter).
+    public void addJson(String path) {
+        addSink(path, queued -> {
+            JsonWriter writer = new JsonWriter(path);
+            writer.open();
+            try {
+                writer.write(queued);
+            } finally {
+                writer.close();
+            }
+        });
+    }
+
+    // MODIFIES: this
+    // EFFECTS: adds a binary timeline at path to the export (see BinaryWriter.writeSorted).
+    public void addBinary(String path) {
+        addSink(path, queued -> {
+            BinaryWriter writer = new BinaryWriter(path);
+            writer.open();
+            try {
+                writer.writeSorted(queued);
+            } finally {
+                writer.close();
+            }
+        });
+    }
+
+    // MODIFIES: this
+    // EFFECTS: adds sink, which writes the file at path, to the export.
+    void addSink(String path, Sink sink) {
+        paths.add(path);
+        sinks.add(sink);
+    }
+
+    // EFFECTS: visits each Day once, handing it to every sink, and waits for the sinks to finish their files.
+    //          If the Days cannot be visited, the progress listener cancels or a sink fails, every file of the
+    //          export is deleted once the sinks have stopped, and the first exception is thrown (an
+    //          InterruptedIOException if cancelled).
+    public void run() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, sinks.size()), r -> {
+            Thread thread = new Thread(r, "export-sink");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<BlockingQueue<Day>> queues = new ArrayList<>();
+            List<Future<Void>> results = new ArrayList<>();
+            for (Sink sink : sinks) {
+                BlockingQueue<Day> queue = new ArrayBlockingQueue<>(queueDays);
+                queues.add(queue);
+                results.add(executor.submit(() -> runSink(sink, new QueuedDays(queue, days.size()))));
+            }
+            IOException failure = handOut(queues);
+            IOException sinkFailure = awaitSinks(results);
+            if (failure != null || sinkFailure != null) {
+                deleteFiles();
+                throw failure != null ? failure : sinkFailure;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // EFFECTS: visits each Day once and puts it on every queue, then ends each queue and returns null.
+    //          If the progress listener cancels or the Days cannot be visited, the queues are cancelled instead
+    //          and the exception is returned.
+    private IOException handOut(List<BlockingQueue<Day>> queues) {
+        Day last = CANCELLED;
+        try {
+            int done = 0;
+            for (Day d : days) {
+                for (BlockingQueue<Day> queue : queues) {
+                    queue.put(d);
+                }
+                progressListener.update(++done, days.size());
+            }
+            last = END;
+            return null;
+        } catch (IOException e) {
+            return e;
+        } catch (UncheckedIOException e) {
+            return e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new InterruptedIOException("Export interrupted");
+        } finally {
+            for (BlockingQueue<Day> queue : queues) {
+                putUninterruptibly(queue, last);
+            }
+        }
+    }
+
+    // MODIFIES: queue
+    // EFFECTS: puts d on queue, waiting for room even if the thread is interrupted (the sink always makes room,
+    //          see runSink), and then restores the interrupt.
+    private static void putUninterruptibly(BlockingQueue<Day> queue, Day d) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(d);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // EFFECTS: runs sink over queued, and then takes what is left of the queue (so handing out never waits on a
+    //          sink that failed). Throws the IOException the sink failed with.
+    private static Void runSink(Sink sink, QueuedDays queued) throws IOException {
+        try {
+            sink.write(queued);
+            return null;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            queued.drain();
+        }
+    }
+
+    // EFFECTS: waits for every sink to finish, then returns the exception of the first that failed (or null).
+    private static IOException awaitSinks(List<Future<Void>> results) {
+        IOException failure = null;
+        for (Future<Void> result : results) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof IOException
+                            ? (IOException) e.getCause() : new IOException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new InterruptedIOException("Export interrupted");
+            }
+        }
+        return failure;
+    }
+
+    // EFFECTS: deletes the files of the export that exist, if it can.
+    private void deleteFiles() {
+        for (String path : paths) {
+            try {
+                Files.deleteIfExists(Paths.get(path));
+            } catch (IOException e) {
+                // Leaving the partial file behind is harmless, it is overwritten by the next export.
+            }
+        }
+    }
+
+    // Represents the Days a sink is given, taken from its queue as they are iterated (so only once).
+    private static class QueuedDays extends AbstractCollection<Day> {
+
+        private final BlockingQueue<Day> queue; // The queue the Days are taken from.
+        private final int size;                 // The number of Days that will be queued.
+        private Day next;                       // The Day taken but not returned yet, or null.
+        private boolean ended;                  // True once END or CANCELLED has been taken.
+
+        // EFFECTS: creates the Days taken from queue, of which there will be size.
+        QueuedDays(BlockingQueue<Day> queue, int size) {
+            this.queue = queue;
+            this.size = size;
+        }
+
+        @Override
+        // EFFECTS: returns the number of Days that will be queued.
+        public int size() {
+            return size;
+        }
+
+        @Override
+        // EFFECTS: returns an iterator taking the Days from the queue, waiting for each to be queued.
+        //          Throws UncheckedIOException if the export is cancelled or the thread interrupted.
+        public Iterator<Day> iterator() {
+            return new Iterator<Day>() {
+                @Override
+                public boolean hasNext() {
+                    if (next == null && !ended) {
+                        next = take();
+                    }
+                    return next != null;
+                }
+
+                @Override
+                public Day next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Day d = next;
+                    next = null;
+                    return d;
+                }
+            };
+        }
+
+        // MODIFIES: this
+        // EFFECTS: takes the next Day from the queue, or returns null at the end.
+        //          Throws UncheckedIOException if the export is cancelled or the thread interrupted.
+        private Day take() {
+            Day d;
+            try {
+                d = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException("Export interrupted"));
+            }
+            ended = d == END || d == CANCELLED;
+            if (d == CANCELLED) {
+                throw new UncheckedIOException(new InterruptedIOException("Export cancelled"));
+            }
+            return ended ? null : d;
+        }
+
+        // MODIFIES: this
+        // EFFECTS: takes and drops the Days left in the queue, until its end.
+        void drain() {
+            while (!ended) {
+                try {
+                    Day d = queue.take();
+                    ended = d == END || d == CANCELLED;
+                } catch (InterruptedException e) {
+                    // Sinks are only interrupted once the pass is over, so nothing is waiting on the queue.
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package persistence;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Represents a background thread that watches a few files of one directory with a WatchService and runs an action
+//  once they have been created, changed or deleted. A burst of changes (such as a save writing a temporary file and
+//  moving it into place) runs the action once, after no change has been seen for the quiet period.
+public class FileWatcher {
+
+    public static final long DEFAULT_QUIET_MILLIS = 250;    // The default quiet period before running the action.
+
+    private final Path directory;           // The directory the files are in.
+    private final Set<String> names;        // The names of the watched files.
+    private final long quietMillis;         // How long to wait after a change for more changes.
+    private final Runnable onChange;        // Run on the watcher thread after the files change.
+    private WatchService watchService;      // The service events are taken from, null if not started.
+
+    // MODIFIES: this
+    // EFFECTS: creates a watcher (not started yet) that runs onChange quietMillis after any file at paths changes.
+    //          Every path must be in the same directory.
+    public FileWatcher(Collection<String> paths, long quietMillis, Runnable onChange) {
+        Path directory = null;
+        names = new HashSet<>();
+        for (String path : paths) {
+            Path file = Paths.get(path).toAbsolutePath().normalize();
+            directory = file.getParent();
+            names.add(file.getFileName().toString());
+        }
+        this.directory = directory;
+        this.quietMillis = quietMillis;
+        this.onChange = onChange;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: starts watching the files on a daemon thread, if not started yet.
+    //          Throws IOException if the directory cannot be watched.
+    public synchronized void start() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        WatchService service = directory.getFileSystem().newWatchService();
+        directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        watchService = service;
+
+        Thread thread = new Thread(() -> watch(service), "timeline-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: stops watching the files. An action already running is left to finish.
+    public synchronized void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                // The service is unusable either way, and its thread stops once it notices.
+            }
+            watchService = null;
+        }
+    }
+
+    // EFFECTS: runs onChange after each burst of changes to the files, until service is closed.
+    private void watch(WatchService service) {
+        try {
+            while (true) {
+                if (isWatchedChange(service.take())) {
+                    WatchKey key;
+                    while ((key = service.poll(quietMillis, TimeUnit.MILLISECONDS)) != null) {
+                        isWatchedChange(key);
+                    }
+                    onChange.run();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // The watcher was closed, so its thread stops.
+        }
+    }
+
+    // MODIFIES: key
+    // EFFECTS: takes the events of key, readies it for more and returns true if any of them could be a change to
+    //          a watched file (events lost to an overflow could be).
+    private boolean isWatchedChange(WatchKey key) {
+        boolean watched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            watched = watched || event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || names.contains(String.valueOf(event.context()));
+        }
+        key.reset();
+        return watched;
+    }
+}
@@ -0,0 +1,181 @@
+package persistence;
+
+import model.DaySource;
+import model.Day;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Represents an uncompressed json timeline read through its DateIndex, so a Timeline can load the months it
+//  visits straight from their day objects instead of parsing the whole file first.
+//  The day objects of each month are checked against the CRC32C of the month in the index as they are read, so
+//  bytes damaged since the index was written are never taken for Days, even where they still parse.
+//  If the file changes (eg. a new snapshot is moved over it), its index is opened (and updated) again,
+//  unless the source is reading what is left of a damaged file (see intactPartitions).
+public class IndexedJsonSource implements DaySource {
+
+    private final String path;          // The path of the json timeline.
+    private final Object fileLock;      // Held by whoever replaces the file at path.
+    private final Set<Integer> skipped; // The keys of the months that are damaged, and so never read.
+    private final boolean damaged;      // True if the file is damaged, so its index is never opened again.
+    private DateIndex index;            // The index of the file at path.
+    private FileTime indexedTime;       // The modification time of the file when index was opened.
+    private Set<Integer> partitions;    // The keys of the months in the index.
+
+    // MODIFIES: this
+    // EFFECTS: creates a source reading the timeline at path through index. Files are only read while holding
+    //          fileLock, so whoever replaces the file (and its index) should hold it while doing so.
+    public IndexedJsonSource(String path, DateIndex index, Object fileLock) throws IOException {
+        this(path, index, fileLock, null);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: creates a source reading the timeline at path through index, without the months in skipped.
+    //          skipped is null if the file is not damaged.
+    private IndexedJsonSource(String path, DateIndex index, Object fileLock, Set<Integer> skipped)
+            throws IOException {
+        this.path = path;
+        this.fileLock = fileLock;
+        this.skipped = skipped == null ? new TreeSet<>() : skipped;
+        damaged = skipped != null;
+        setIndex(index);
+    }
+
+    // EFFECTS: returns a source reading the months of the damaged timeline at path that are not damaged, through
+    //          the index it had before it was damaged (see DateIndex.verify). The damaged months have no Days,
+    //          and the index is never opened again, since the timeline no longer matches it.
+    public static IndexedJsonSource intactPartitions(String path, DateIndex index, Object fileLock,
+                                                     Collection<DamagedBlock> damaged) throws IOException {
+        Set<Integer> skipped = new TreeSet<>();
+        for (DamagedBlock block : damaged) {
+            skipped.add(block.getPartition());
+        }
+        return new IndexedJsonSource(path, index, fileLock, skipped);
+    }
+
+    // EFFECTS: returns the path of the json timeline.
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    // EFFECTS: returns the keys of every month in the index.
+    public synchronized Collection<Integer> partitions() {
+        return new ArrayList<>(partitions);
+    }
+
+    @Override
+    // EFFECTS: returns the Days of the month with key, reading only their day objects from the file.
+    //          Throws UncheckedIOException if the file or its index cannot be read, or the day objects read do not
+    //          match the checksum of the month in the index.
+    public synchronized Collection<Day> loadPartition(int key) throws UncheckedIOException {
+        if (skipped.contains(key)) {
+            return new ArrayList<>();
+        }
+        LocalDate first = LocalDate.of(key / 100, key % 100, 1);
+        try {
+            synchronized (fileLock) {
+                Path file = Paths.get(path);
+                refreshIndex(file);
+                int from = index.lowerBound((int) first.toEpochDay());
+                int to = index.lowerBound((int) first.plusMonths(1).toEpochDay());
+                return readDays(file, from, to);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: opens the index again (updating or building it as needed) if file has changed since it was opened,
+    //          unless the file is damaged.
+    private void refreshIndex(Path file) throws IOException {
+        if (damaged) {
+            return;
+        }
+        if (Files.size(file) != index.getDataSize() || !Files.getLastModifiedTime(file).equals(indexedTime)) {
+            DateIndex reopened = DateIndex.open(path);
+            setIndex(reopened != null ? reopened : DateIndex.build(path));
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: starts reading through index, and finds the months in it.
+    private void setIndex(DateIndex index) throws IOException {
+        this.index = index;
+        indexedTime = Files.getLastModifiedTime(Paths.get(path));
+        partitions = new TreeSet<>();
+        for (int i = 0; i < index.size(); i++) {
+            partitions.add(index.partitionAt(i));
+        }
+        partitions.removeAll(skipped);
+    }
+
+    // EFFECTS: reads and returns the Days of the index entries from up to to.
+    private ArrayList<Day> readDays(Path file, int from, int to) throws IOException {
+        if (from == to) {
+            return new ArrayList<>();
+        }
+        int total = 0;
+        for (int i = from; i < to; i++) {
+            total += index.lengthAt(i) + 1;
+        }
+        ByteBuffer objects = ByteBuffer.allocate(total);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int i = from; i < to; i++) {
+                if (i > from) {
+                    objects.put((byte) ',');
+                }
+                readFully(channel, objects, index.offsetAt(i), index.lengthAt(i));
+            }
+        }
+        objects.flip();
+        checkBlock(objects, from, to);
+        return JsonDayScanner.parseDays(objects, index.getDayVersion());
+    }
+
+    // EFFECTS: checks the day objects of the index entries from up to to (a whole month), read into objects with a
+    //          comma after each, against the CRC32C of their month in the index.
+    //          Throws IOException if they do not match.
+    private void checkBlock(ByteBuffer objects, int from, int to) throws IOException {
+        Crc32c crc = new Crc32c();
+        int position = 0;
+        for (int i = from; i < to; i++) {
+            ByteBuffer day = objects.duplicate();
+            day.limit(position + index.lengthAt(i)).position(position);
+            crc.update(day);
+            position += index.lengthAt(i) + 1;
+        }
+        if ((int) crc.getValue() != index.blockCrcAt(from)) {
+            throw new IOException("Month " + index.partitionAt(from) + " of the timeline does not match its index: "
+                    + path);
+        }
+    }
+
+    // EFFECTS: reads length bytes of channel from position into dst.
+    //          Throws IOException if the file ends first.
+    private void readFully(FileChannel channel, ByteBuffer dst, long position, int length)
+            throws IOException {
+        int end = dst.position() + length;
+        ByteBuffer window = dst.duplicate();
+        window.limit(end);
+        while (window.hasRemaining()) {
+            if (channel.read(window, position + window.position() - dst.position()) < 0) {
+                throw new IOException("Timeline is shorter than its index: " + path);
+            }
+        }
+        dst.position(end);
+    }
+}
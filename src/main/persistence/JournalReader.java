@@ -0,0 +1,129 @@
+package persistence;
+
+import model.DateCode;
+import model.Day;
+import model.Mood;
+import model.Timeline;
+import model.activities.ActivityRegistry;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DateTimeException;
+
+// Represents a reader that replays the changes recorded in a journal (see JournalWriter) onto a Timeline.
+//  Every record is idempotent, so replaying a journal more than once gives the same Timeline.
+//  The journal is read into memory, not mapped, so it can be rotated or deleted as soon as it is replayed.
+public class JournalReader {
+
+    private final String path;      // Represents the path of the journal file.
+
+    // MODIFIES: this
+    // EFFECTS: creates a new JournalReader instance set at a specific path.
+    public JournalReader(String path) {
+        this.path = path;
+    }
+
+    // MODIFIES: tl
+    // EFFECTS: applies every record in the journal to tl and returns the number of records applied.
+    //          Does nothing if there is no journal at path, or it is still empty (nothing has been flushed
+    //          to it since it was opened, eg. by another program). A record cut short at the end of the file
+    //          (the journal was being written when the program stopped) is ignored.
+    //          Throws IOException if the file cannot be read or is not a journal.
+    public int replay(Timeline tl) throws IOException {
+        Path journalPath = Paths.get(path);
+        if (!Files.exists(journalPath)) {
+            return 0;
+        }
+
+        ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(journalPath));
+        if (!records.hasRemaining()) {
+            return 0;
+        }
+        if (records.remaining() < JournalWriter.HEADER_SIZE || records.getInt() != JournalWriter.MAGIC
+                || records.getShort() != JournalWriter.VERSION) {
+            throw new IOException("Not a journal file: " + path);
+        }
+        return replayRecords(records, tl);
+    }
+
+    // MODIFIES: tl
+    // EFFECTS: applies each record remaining in records to tl and returns the number applied.
+    //          Throws IOException if a record does not hold a valid change (eg. the journal is damaged), so the
+    //          records after it are not misread.
+    private int replayRecords(ByteBuffer records, Timeline tl) throws IOException {
+        int count = 0;
+        try {
+            while (records.hasRemaining()) {
+                byte op = records.get();
+                Day day = getOrCreateDay(tl, DateCode.fromEpochDay(records.getInt()));
+                applyRecord(op, records, day);
+                count++;
+            }
+        } catch (BufferUnderflowException e) {
+            // The last record was cut short, so the change it describes never finished being saved.
+        } catch (DateTimeException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Invalid journal record " + count + " in " + path + ": " + e.getMessage());
+        }
+        return count;
+    }
+
+    // MODIFIES: day
+    // EFFECTS: reads the payload of a record with op from records and applies it to day.
+    //          Throws IOException if op is not a known record type.
+    private void applyRecord(byte op, ByteBuffer records, Day day) throws IOException {
+        switch (op) {
+            case JournalWriter.CREATE_DAY:
+                break;
+            case JournalWriter.SLEEP:
+                day.setSleepHours(records.get());
+                break;
+            case JournalWriter.SCORE:
+                Mood mood = day.getMood(records.get());
+                mood.setMoodScore(records.get());
+                break;
+            case JournalWriter.ADD_ACTIVITY:
+            case JournalWriter.REMOVE_ACTIVITY:
+                applyActivityRecord(op == JournalWriter.ADD_ACTIVITY, records, day);
+                break;
+            default:
+                throw new IOException("Unknown journal record type " + op + " in " + path);
+        }
+    }
+
+    // MODIFIES: day
+    // EFFECTS: reads an activity record from records, then adds the activity to (if added is true)
+    //          or removes it from the mood, unless the mood already agrees with the record.
+    //          Throws IOException if the activity is new and cannot be registered.
+    private void applyActivityRecord(boolean added, ByteBuffer records, Day day) throws IOException {
+        Mood mood = day.getMood(records.get());
+        byte[] name = new byte[records.get() & 0xFF];
+        records.get(name);
+        String activityName = new String(name, StandardCharsets.UTF_8);
+
+        if (!added) {
+            mood.removeActivity(activityName);
+        } else if (!mood.containsActivity(activityName)) {
+            try {
+                mood.addActivity(ActivityRegistry.getInstance().intern(activityName));
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                throw new IOException(e.getMessage() + ", cannot add '" + activityName + "' in " + path);
+            }
+        }
+    }
+
+    // MODIFIES: tl
+    // EFFECTS: returns the Day in tl with DateCode dc, adding a new one if there is none.
+    private Day getOrCreateDay(Timeline tl, DateCode dc) {
+        Day day = tl.getDay(dc);
+        if (day == null) {
+            day = new Day(dc);
+            tl.addDay(day);
+        }
+        return day;
+    }
+}
@@ -0,0 +1,191 @@
+package persistence;
+
+import model.Day;
+import model.TimelineListener;
+import model.activities.Activity;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Represents an append-only journal that records every change made to a Timeline as a small binary record.
+//  Layout (big endian): magic (int), version (short), then one record per change:
+//   op (byte), epoch day (int), followed by
+//    SLEEP: sleep (byte) | SCORE: mood index (byte), score (byte) |
+//    ADD_ACTIVITY / REMOVE_ACTIVITY: mood index (byte), name length (byte), name (UTF-8 bytes) |
+//    CREATE_DAY: nothing.
+//  Records are buffered and only reach the disk when the buffer fills or flush() is called.
+public class JournalWriter implements TimelineListener {
+
+    public static final int MAGIC = 0x48494F4A;     // "HIOJ", identifies a journal file.
+    public static final short VERSION = 1;          // The version of the layout written.
+    public static final int HEADER_SIZE = 6;        // The number of bytes before the first record.
+
+    public static final byte CREATE_DAY = 1;
+    public static final byte SLEEP = 2;
+    public static final byte SCORE = 3;
+    public static final byte ADD_ACTIVITY = 4;
+    public static final byte REMOVE_ACTIVITY = 5;
+
+    private static final int BUFFER_SIZE = 4096;    // The number of bytes buffered before writing.
+
+    private final String path;          // Represents the path of the journal file.
+    private FileChannel channel;        // The channel records are appended to.
+    private final ByteBuffer buffer;    // The records waiting to be written to channel.
+    private IOException failure;        // An error from a write made while recording a change, or null.
+    private long bytesWritten;          // The number of bytes written to the file since the last flush.
+    private boolean unflushed;          // True if a change has been recorded since the last flush.
+
+    // MODIFIES: this
+    // EFFECTS: creates a new JournalWriter instance set at a specific path.
+    public JournalWriter(String path) {
+        this.path = path;
+        buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: opens the journal for appending, creating it (with a header) if it does not exist.
+    //          Throws IOException if the file cannot be opened.
+    public synchronized void open() throws IOException {
+        channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (channel.size() == 0) {
+            buffer.putInt(MAGIC).putShort(VERSION);
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: writes all buffered records to the file, forces them to the disk and returns
+    //          the number of bytes written to the file since the last flush.
+    //          Throws IOException if this or any earlier buffered write failed.
+    public synchronized long flush() throws IOException {
+        writeBuffer();
+        channel.force(false);
+        throwFailure();
+        unflushed = false;
+        long written = bytesWritten;
+        bytesWritten = 0;
+        return written;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: flushes and closes the journal.
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: flushes the journal, moves its file to rotatedPath (replacing any file there)
+    //          and starts a new, empty journal at path. Records made after this go to the new journal.
+    public synchronized void rotate(String rotatedPath) throws IOException {
+        close();
+        Files.move(Paths.get(path), Paths.get(rotatedPath), StandardCopyOption.REPLACE_EXISTING);
+        open();
+    }
+
+    // EFFECTS: returns the size of the journal in bytes, including records not yet flushed.
+    public synchronized long size() throws IOException {
+        return channel.size() + buffer.position();
+    }
+
+    // EFFECTS: returns true if a change has been recorded since the last flush.
+    public synchronized boolean hasUnflushedChanges() {
+        return unflushed;
+    }
+
+    /*
+        Recording changes
+     */
+
+    @Override
+    // MODIFIES: this
+    // EFFECTS: records that day was created.
+    public synchronized void dayCreated(Day day) {
+        startRecord(CREATE_DAY, day, 0);
+    }
+
+    @Override
+    // MODIFIES: this
+    // EFFECTS: records the new sleep value of day.
+    public synchronized void sleepHoursChanged(Day day) {
+        startRecord(SLEEP, day, 1);
+        buffer.put((byte) day.getSleepHours());
+    }
+
+    @Override
+    // MODIFIES: this
+    // EFFECTS: records the new score of the mood at moodIndex in day.
+    public synchronized void moodScoreChanged(Day day, int moodIndex) {
+        startRecord(SCORE, day, 2);
+        buffer.put((byte) moodIndex).put((byte) day.getMood(moodIndex).getMoodScore());
+    }
+
+    @Override
+    // MODIFIES: this
+    // EFFECTS: records that activity was added to the mood at moodIndex in day.
+    public synchronized void activityAdded(Day day, int moodIndex, Activity activity) {
+        recordActivity(ADD_ACTIVITY, day, moodIndex, activity.getActivityName());
+    }
+
+    @Override
+    // MODIFIES: this
+    // EFFECTS: records that activityName was removed from the mood at moodIndex in day.
+    public synchronized void activityRemoved(Day day, int moodIndex, String activityName) {
+        recordActivity(REMOVE_ACTIVITY, day, moodIndex, activityName);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: records an activity change with op for the mood at moodIndex in day.
+    private void recordActivity(byte op, Day day, int moodIndex, String activityName) {
+        byte[] name = activityName.getBytes(StandardCharsets.UTF_8);
+        startRecord(op, day, 2 + name.length);
+        buffer.put((byte) moodIndex).put((byte) name.length).put(name);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: makes room for a record with a payloadSize byte payload and writes its op and epoch day.
+    private void startRecord(byte op, Day day, int payloadSize) {
+        if (buffer.remaining() < 5 + payloadSize) {
+            try {
+                writeBuffer();
+            } catch (IOException e) {
+                failure = e;
+                buffer.clear();
+            }
+        }
+        buffer.put(op).putInt(day.getDateCode().toEpochDay());
+        unflushed = true;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: writes the buffered records to the channel and clears the buffer.
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                bytesWritten += channel.write(buffer);
+            }
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: throws and clears the failure from an earlier buffered write, if there was one.
+    private void throwFailure() throws IOException {
+        if (failure != null) {
+            IOException e = failure;
+            failure = null;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package persistence;
+
+import model.Day;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Represents a scan of the bytes of an uncompressed json timeline that finds the bounds of each day object
+//  in its "timeline" array (and the version of the format) without parsing the days themselves.
+//  Brackets inside strings are ignored. Used to split a file for ParallelJsonReader and to build a DateIndex.
+class JsonDayScanner {
+
+    private static final byte[] TIMELINE_KEY = "\"timeline\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] VERSION_KEY = "\"version\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ID_KEY = "\"id\"".getBytes(StandardCharsets.UTF_8);
+
+    private final ByteBuffer bytes;     // The bytes of the document.
+    private int[] starts;               // The offset of the first byte of each day object.
+    private int[] ends;                 // The offset after the last byte of each day object.
+    private int dayCount;               // The number of day objects found.
+    private int version;                // The version of the format the days are written in.
+    private int daysEnd;                // The offset the timeline array can be scanned on from.
+
+    // EFFECTS: creates a scanner over bytes (from index 0 up to its limit) that has not found any days yet.
+    JsonDayScanner(ByteBuffer bytes) {
+        this.bytes = bytes;
+        starts = new int[1024];
+        ends = new int[1024];
+        version = JsonMigrations.FIRST_VERSION;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: records the bounds of every object in the "timeline" array of the top level object,
+    //          and the version if it comes before them (as JsonReader does).
+    //          Throws IOException if the document is not an object or is cut short.
+    void scan() throws IOException {
+        int pos = skipWhitespace(0);
+        if (pos >= bytes.limit() || bytes.get(pos) != '{') {
+            throw new IOException("Expected a timeline object at character " + pos);
+        }
+        pos = skipWhitespace(pos + 1);
+        while (pos < bytes.limit() && bytes.get(pos) == '"') {
+            pos = skipWhitespace(readProperty(pos));
+            if (pos < bytes.limit() && bytes.get(pos) == ',') {
+                pos = skipWhitespace(pos + 1);
+            }
+        }
+        expect(pos, '}');
+    }
+
+    // REQUIRES: pos is just after a day object (or the opening bracket) of the timeline array, and
+    //           version is the version of the document
+    // MODIFIES: this
+    // EFFECTS: records the bounds of the objects in the rest of the timeline array, from pos.
+    //          Throws IOException if the array is cut short.
+    void scanFrom(int pos, int version) throws IOException {
+        this.version = version;
+        pos = skipWhitespace(pos);
+        if (pos < bytes.limit() && bytes.get(pos) == ',') {
+            pos = skipWhitespace(pos + 1);
+        }
+        findDaysInArray(pos);
+    }
+
+    // EFFECTS: returns the number of day objects found.
+    int size() {
+        return dayCount;
+    }
+
+    // EFFECTS: returns the offset of the first byte of the day object at index.
+    int start(int index) {
+        return starts[index];
+    }
+
+    // EFFECTS: returns the offset after the last byte of the day object at index.
+    int end(int index) {
+        return ends[index];
+    }
+
+    // EFFECTS: returns the version of the format the days are written in.
+    int version() {
+        return version;
+    }
+
+    // EFFECTS: returns the offset after the last day object found (or after the opening bracket of an empty
+    //          timeline array), from which days appended to the array can be scanned with scanFrom.
+    int daysEnd() {
+        return daysEnd;
+    }
+
+    // EFFECTS: returns the "id" of the day object at index, or null if it has none.
+    //          Throws IOException if the id is not a string.
+    String readId(int index) throws IOException {
+        int pos = skipWhitespace(starts[index] + 1);
+        while (pos < ends[index] && bytes.get(pos) == '"') {
+            boolean isId = startsWith(pos, ID_KEY);
+            pos = skipWhitespace(skipString(pos));
+            pos = skipWhitespace(expect(pos, ':') + 1);
+            if (isId) {
+                expect(pos, '"');
+                return text(pos + 1, skipString(pos) - 1);
+            }
+            pos = skipWhitespace(skipValue(pos));
+            if (pos < ends[index] && bytes.get(pos) == ',') {
+                pos = skipWhitespace(pos + 1);
+            }
+        }
+        return null;
+    }
+
+    // EFFECTS: parses the days from index first up to last and returns them in file order.
+    ArrayList<Day> parseDays(int first, int last) throws IOException {
+        ByteBuffer chunk = bytes.duplicate();
+        chunk.limit(ends[last - 1]).position(starts[first]);
+        return parseDays(chunk, version);
+    }
+
+    // EFFECTS: parses and returns the days of the comma separated day objects remaining in objects,
+    //          which are written in version.
+    static ArrayList<Day> parseDays(ByteBuffer objects, int version) throws IOException {
+        InputStream in = new SequenceInputStream(new ByteArrayInputStream(new byte[]{'['}),
+                new SequenceInputStream(new ByteBufferInputStream(objects), new ByteArrayInputStream(new byte[]{']'})));
+        return new JsonReader("").readDayArray(new InputStreamReader(in, StandardCharsets.UTF_8), version);
+    }
+
+    /*
+        Scanning
+     */
+
+    // MODIFIES: this
+    // EFFECTS: reads the top level property (name, colon and value) starting at pos and returns the offset after it.
+    //          Records the days of the timeline, and the version if it comes before them.
+    private int readProperty(int pos) throws IOException {
+        boolean isTimeline = startsWith(pos, TIMELINE_KEY);
+        boolean isVersion = startsWith(pos, VERSION_KEY) && dayCount == 0;
+        pos = skipWhitespace(skipString(pos));
+        pos = skipWhitespace(expect(pos, ':') + 1);
+        if (isTimeline) {
+            daysEnd = expect(pos, '[') + 1;
+            return findDaysInArray(skipWhitespace(daysEnd));
+        } else if (isVersion) {
+            return readVersion(pos);
+        }
+        return skipValue(pos);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: reads the version number starting at pos and returns the offset after it.
+    //          Throws IOException if it is not a version that can be read.
+    private int readVersion(int pos) throws IOException {
+        int end = skipValue(pos);
+        try {
+            version = JsonMigrations.checkVersion(Integer.parseInt(text(pos, end)));
+        } catch (NumberFormatException e) {
+            throw new IOException("Expected an int version at character " + pos);
+        }
+        return end;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: records the bounds of each object in the array from pos (at an object or the closing bracket)
+    //          and returns the offset after the array.
+    private int findDaysInArray(int pos) throws IOException {
+        while (pos < bytes.limit() && bytes.get(pos) != ']') {
+            expect(pos, '{');
+            int end = skipValue(pos);
+            addDayBounds(pos, end);
+            daysEnd = end;
+            pos = skipWhitespace(end);
+            if (pos < bytes.limit() && bytes.get(pos) == ',') {
+                pos = skipWhitespace(pos + 1);
+            }
+        }
+        return expect(pos, ']') + 1;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: records a day object from start up to end.
+    private void addDayBounds(int start, int end) {
+        if (dayCount == starts.length) {
+            starts = Arrays.copyOf(starts, dayCount * 2);
+            ends = Arrays.copyOf(ends, dayCount * 2);
+        }
+        starts[dayCount] = start;
+        ends[dayCount++] = end;
+    }
+
+    // EFFECTS: returns the offset after the json value (object, array, string or literal) starting at pos.
+    //          Brackets inside strings are ignored. Throws IOException if the document ends first.
+    private int skipValue(int pos) throws IOException {
+        int depth = 0;
+        do {
+            if (pos >= bytes.limit()) {
+                throw new IOException("Unterminated value at character " + pos);
+            }
+            byte b = bytes.get(pos);
+            if (depth == 0 && (b == ',' || b == '}' || b == ']' || isWhitespace(b))) {
+                return pos;
+            } else if (b == '"') {
+                pos = skipString(pos);
+                continue;
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+            }
+            pos++;
+        } while (depth > 0);
+        return pos;
+    }
+
+    // REQUIRES: the byte at pos is a quote
+    // EFFECTS: returns the offset after the json string starting at pos, skipping escaped quotes.
+    private int skipString(int pos) throws IOException {
+        for (int i = pos + 1; i < bytes.limit(); i++) {
+            byte b = bytes.get(i);
+            if (b == '\\') {
+                i++;
+            } else if (b == '"') {
+                return i + 1;
+            }
+        }
+        throw new IOException("Unterminated string at character " + pos);
+    }
+
+    // EFFECTS: returns the offset of the first non whitespace byte at or after pos.
+    private int skipWhitespace(int pos) {
+        while (pos < bytes.limit() && isWhitespace(bytes.get(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    // EFFECTS: returns pos if the byte there is c, else throws IOException.
+    private int expect(int pos, char c) throws IOException {
+        if (pos >= bytes.limit() || bytes.get(pos) != c) {
+            throw new IOException("Expected '" + c + "' at character " + pos);
+        }
+        return pos;
+    }
+
+    // EFFECTS: returns true if the bytes from pos are prefix.
+    private boolean startsWith(int pos, byte[] prefix) {
+        if (pos + prefix.length > bytes.limit()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes.get(pos + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // EFFECTS: returns the bytes from start up to end decoded as UTF-8.
+    private String text(int start, int end) {
+        byte[] text = new byte[end - start];
+        ByteBuffer value = bytes.duplicate();
+        value.position(start);
+        value.get(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    // EFFECTS: returns true if b is json whitespace.
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    // Represents an input stream over the remaining bytes of a ByteBuffer.
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;    // The bytes to read.
+
+        // EFFECTS: creates a stream reading the remaining bytes of buffer.
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        // EFFECTS: returns the next byte, or -1 at the end of the buffer.
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        // EFFECTS: reads up to len bytes into b at off and returns the number read, or -1 at the end.
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package persistence;
+
+import model.Day;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Represents the versions of the json timeline format and the pipeline upgrading old day objects to the current one.
+//  A file names its version in a "version" property before its "timeline" array; files without one are version 1.
+//  Days of older files are read one at a time as a small tree (see JsonTokenizer.nextValue) and passed through
+//  each migration from their version up, so an old file is never held in memory as a whole.
+//   1: a day may have fewer moods than Day.MAXMOODS (the moods it lacks were never set).
+//   2: every day has Day.MAXMOODS moods.
+//  Both write each activity as an object ({"name": "Music"}), as Activity.toJson does, so a version 2 file can
+//  still be read by readers that skip the "version" property.
+public final class JsonMigrations {
+
+    public static final int FIRST_VERSION = 1;      // The version of files without a "version" property.
+    public static final int CURRENT_VERSION = 2;    // The version written by JsonWriter.
+
+    // The migration upgrading a day object from version i + FIRST_VERSION to the next version, for each i.
+    private static final List<DayMigration> MIGRATIONS = Arrays.asList(
+            JsonMigrations::padMoods
+    );
+
+    // EFFECTS: nothing, there are no instances of this class.
+    private JsonMigrations() {
+    }
+
+    // EFFECTS: returns version if it can be read, else throws IOException.
+    public static int checkVersion(int version) throws IOException {
+        if (version < FIRST_VERSION || version > CURRENT_VERSION) {
+            throw new IOException("Unsupported timeline version " + version
+                    + " (versions " + FIRST_VERSION + " to " + CURRENT_VERSION + " can be read)");
+        }
+        return version;
+    }
+
+    // REQUIRES: FIRST_VERSION <= version <= CURRENT_VERSION
+    // MODIFIES: day
+    // EFFECTS: upgrades a day object read from a file of version to the current version.
+    //          Throws IOException if the day object is not valid for its version.
+    public static void upgrade(Map<String, Object> day, int version) throws IOException {
+        for (int v = version; v < CURRENT_VERSION; v++) {
+            MIGRATIONS.get(v - FIRST_VERSION).migrate(day);
+        }
+    }
+
+    /*
+        Migrations
+     */
+
+    // MODIFIES: day
+    // EFFECTS: 1 -> 2: adds empty moods up to Day.MAXMOODS.
+    private static void padMoods(Map<String, Object> day) throws IOException {
+        List<Object> moods = asArray(day.get("moods"), "moods");
+        while (moods.size() < Day.MAXMOODS) {
+            Map<String, Object> mood = new LinkedHashMap<>();
+            mood.put("score", (long) -1);
+            mood.put("activities", new ArrayList<>());
+            moods.add(mood);
+        }
+        day.put("moods", moods);
+    }
+
+    /*
+        Tree helpers
+     */
+
+    // EFFECTS: returns value as an object, else throws IOException naming what it should be.
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> asObject(Object value, String name) throws IOException {
+        if (value instanceof Map) {
+            return (Map<String, Object>) value;
+        }
+        throw new IOException("Expected " + name + " to be an object");
+    }
+
+    // EFFECTS: returns value as an array (an empty one if value is null), else throws IOException.
+    @SuppressWarnings("unchecked")
+    static List<Object> asArray(Object value, String name) throws IOException {
+        if (value == null) {
+            return new ArrayList<>();
+        } else if (value instanceof List) {
+            return (List<Object>) value;
+        }
+        throw new IOException("Expected " + name + " to be an array");
+    }
+
+    // EFFECTS: returns value as a String, else throws IOException with message.
+    static String asString(Object value, String message) throws IOException {
+        if (value instanceof String) {
+            return (String) value;
+        }
+        throw new IOException(message);
+    }
+
+    // EFFECTS: returns value as an int (or defaultValue if value is null), else throws IOException.
+    static int asInt(Object value, int defaultValue, String name) throws IOException {
+        if (value == null) {
+            return defaultValue;
+        } else if (value instanceof Long && (Long) value == ((Long) value).intValue()) {
+            return ((Long) value).intValue();
+        }
+        throw new IOException("Expected " + name + " to be an int");
+    }
+
+    // Represents a single step of the pipeline, upgrading a day object to the next version.
+    private interface DayMigration {
+        void migrate(Map<String, Object> day) throws IOException;
+    }
+}
@@ -5,120 +5,296 @@ import model.Day;
 import model.Mood;
 import model.Timeline;
 import model.activities.Activity;
-import model.activities.DefaultActivities;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import model.activities.ActivityRegistry;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
 import java.util.ArrayList;
-import java.util.stream.Stream;
+import java.util.Map;
 
 // Represents a reader that reads a timeline from json data at a specific path.
+//  The file is tokenized as a stream (decompressing it on the way if it is compressed),
+//  so Days are built as they are read instead of after the whole document has been loaded.
+//  Days of files written in an older version are upgraded one at a time as they are read (see JsonMigrations),
+//  while current version files are parsed straight into Days.
+//  Activities are resolved through the ActivityRegistry, so names in moods that are not default activities are
+//  read as user-defined activities.
 public class JsonReader {
 
     private String path;            // Represents the path to read from.
-
+    private final Compression compression;  // How the file at path is compressed.
+    private ProgressListener progressListener = ProgressListener.NONE; // Told how much of the file is read.
+    private long fileSize;          // The size of the file being read, in bytes.
+    private FileChannel channel;    // The channel to the file being read.
 
     // MODIFIES: this
-    // EFFECTS: creates a new JsonReader instance set at a specific path.
+    // EFFECTS: creates a new JsonReader instance set at a specific path,
+    //          decompressing the file if its extension is that of a Compression (eg. .json.gz).
     public JsonReader(String path) {
+        this(path, Compression.fromPath(path));
+    }
+
+    // MODIFIES: this
+    // EFFECTS: creates a new JsonReader instance set at a specific path, whose file is compressed with compression.
+    public JsonReader(String path, Compression compression) {
         this.path = path;
+        this.compression = compression;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: sets the listener told about how much of the file has been read after each Day, and that can cancel it.
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
     }
 
     // EFFECTS: reads the json file and returns a Timeline instance that it represents.
-    //          throws IOException if an error occurs when reading from the file.
+    //          throws IOException if an error occurs when reading from the file,
+    //          or if the file is not a valid timeline.
+    //          Throws InterruptedIOException if the progress listener cancels the read.
     public Timeline read() throws IOException {
-        String jsonData = readFile(path);
-        JSONObject jsonObject = new JSONObject(jsonData);
-
-        return parseTimeline(jsonObject);
+        return new Timeline(readDays());
     }
 
-    // CITATION: this method was taken from the CPSC2xx JsonSerializationDemo project.
-    // EFFECTS: returns the string read from the file located at specified path.
-    private String readFile(String path) throws IOException {
-        StringBuilder contentBuilder = new StringBuilder();
+    // EFFECTS: reads the json file and returns the Days in it, without building a Timeline.
+    //          Throws IOException under the same conditions as read().
+    public ArrayList<Day> readDays() throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+             Reader reader = openReader(fileChannel)) {
+            channel = fileChannel;
+            fileSize = channel.size();
+            return parseTimeline(new JsonTokenizer(reader));
+        }
+    }
 
-        try (Stream<String> stream = Files.lines(Paths.get(path), StandardCharsets.UTF_8)) {
-            stream.forEach(s -> contentBuilder.append(s));
+    // REQUIRES: version has been checked by JsonMigrations.checkVersion
+    // EFFECTS: parses and returns the Days of the json array read from reader, written in version.
+    //          Used to parse a chunk of the timeline array on its own (see ParallelJsonReader).
+    ArrayList<Day> readDayArray(Reader reader, int version) throws IOException {
+        JsonTokenizer tokenizer = new JsonTokenizer(reader);
+        DayParser dayParser = dayParser(version);
+        ArrayList<Day> dayList = new ArrayList<>();
+        tokenizer.beginArray();
+        while (tokenizer.hasNext()) {
+            dayList.add(dayParser.parse(tokenizer));
         }
+        tokenizer.endArray();
+        return dayList;
+    }
 
-        return contentBuilder.toString();
+    // EFFECTS: returns a reader decoding (and decompressing, if needed) the contents of fileChannel.
+    private Reader openReader(FileChannel fileChannel) throws IOException {
+        if (compression == Compression.NONE) {
+            return Channels.newReader(fileChannel, StandardCharsets.UTF_8.newDecoder(), -1);
+        }
+        InputStream in = compression.decompress(Channels.newInputStream(fileChannel));
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
     }
 
+    // EFFECTS: returns the Days of the timeline parsed from the tokenizer, in the version named before them
+    //          (or JsonMigrations.FIRST_VERSION if there is none). Unknown properties are skipped.
+    //          Throws IOException if the version cannot be read.
+    private ArrayList<Day> parseTimeline(JsonTokenizer tokenizer) throws IOException {
+        ArrayList<Day> dayList = new ArrayList<>();
+        int version = JsonMigrations.FIRST_VERSION;
+
+        tokenizer.beginObject();
+        while (tokenizer.hasNext()) {
+            switch (tokenizer.nextName()) {
+                case "version":
+                    version = JsonMigrations.checkVersion(tokenizer.nextInt());
+                    break;
+                case "timeline":
+                    addDays(dayList, tokenizer, dayParser(version));
+                    break;
+                default:
+                    tokenizer.skipValue();
+            }
+        }
+        tokenizer.endObject();
 
-    // EFFECTS: returns a new Timeline parsed from the JSON object.
-    private Timeline parseTimeline(JSONObject jsonObject) {
-        JSONArray jsonDayList = jsonObject.getJSONArray("timeline");
+        return dayList;
+    }
 
-        ArrayList<Day> dayList = new ArrayList<>();
-        addDays(dayList, jsonDayList);
+    // MODIFIES: ActivityRegistry
+    // EFFECTS: returns the activity named activityName (see ActivityRegistry.intern).
+    //          Throws IOException if it is new and cannot be registered (there are too many activities, or the
+    //          name is too long).
+    private static Activity intern(String activityName) throws IOException {
+        try {
+            return ActivityRegistry.getInstance().intern(activityName);
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            throw new IOException(e.getMessage() + ", cannot add '" + activityName + "'");
+        }
+    }
 
-        return new Timeline(dayList);
+    // EFFECTS: returns the parser for the days of a file written in version. The version is only checked
+    //          here, so current version files take the direct path without any per day migration checks.
+    private DayParser dayParser(int version) {
+        if (version == JsonMigrations.CURRENT_VERSION) {
+            return this::parseDay;
+        }
+        return tokenizer -> parseOldDay(tokenizer, version);
     }
 
-    // EFFECTS: parses days from the JSON array, and adds them to the dayList instance.
-    private void addDays(ArrayList<Day> dayList, JSONArray jsonDayList) {
-        for (Object json : jsonDayList) {
-            JSONObject day = (JSONObject) json;
-            addDay(dayList, day);
+    // EFFECTS: parses days with dayParser from the JSON array, and adds them to the dayList instance.
+    private void addDays(ArrayList<Day> dayList, JsonTokenizer tokenizer, DayParser dayParser) throws IOException {
+        tokenizer.beginArray();
+        while (tokenizer.hasNext()) {
+            dayList.add(dayParser.parse(tokenizer));
+            // The bytes read from the file (compressed or not) run slightly ahead of parsing
+            progressListener.update(channel.position(), fileSize);
         }
+        tokenizer.endArray();
     }
 
     // EFFECTS: parses a day instance from the JSON object.
-    private void addDay(ArrayList<Day> dayList, JSONObject jsonDay) {
-        int sleep = jsonDay.getInt("sleep");
-        String id = jsonDay.getString("id");
-        JSONArray jsonMoods = jsonDay.getJSONArray("moods");
-
-        DateCode dc = new DateCode(id);
+    //          Throws IOException if the day has no id.
+    private Day parseDay(JsonTokenizer tokenizer) throws IOException {
+        String id = null;
+        int sleep = -1;
         ArrayList<Mood> moodList = new ArrayList<>();
-        addMoods(moodList, jsonMoods);
 
-        dayList.add(new Day(dc, sleep, moodList));
+        tokenizer.beginObject();
+        while (tokenizer.hasNext()) {
+            switch (tokenizer.nextName()) {
+                case "id":
+                    id = tokenizer.nextString();
+                    break;
+                case "sleep":
+                    sleep = tokenizer.nextInt();
+                    break;
+                case "moods":
+                    addMoods(moodList, tokenizer);
+                    break;
+                default:
+                    tokenizer.skipValue();
+            }
+        }
+        tokenizer.endObject();
+
+        if (id == null) {
+            throw new IOException("Day is missing an id at character " + tokenizer.getPosition());
+        }
+        return new Day(parseDateCode(id, tokenizer), sleep, moodList);
+    }
+
+    // EFFECTS: returns the DateCode of the day id, else throws IOException.
+    private static DateCode parseDateCode(String id, JsonTokenizer tokenizer) throws IOException {
+        try {
+            return DateCode.parse(id);
+        } catch (NumberFormatException | DateTimeException e) {
+            throw new IOException("Day has an invalid id '" + id + "' at character " + tokenizer.getPosition());
+        }
     }
 
     // EFFECTS: parses moods from the JSON array, and adds them to the moodList instance.
-    private void addMoods(ArrayList<Mood> moodList, JSONArray jsonMoods) {
-        for (Object json : jsonMoods) {
-            JSONObject mood = (JSONObject) json;
-            addMood(moodList, mood);
+    private void addMoods(ArrayList<Mood> moodList, JsonTokenizer tokenizer) throws IOException {
+        tokenizer.beginArray();
+        while (tokenizer.hasNext()) {
+            moodList.add(parseMood(tokenizer));
         }
+        tokenizer.endArray();
     }
 
     // EFFECTS: parses a mood instance from JSON object.
-    private void addMood(ArrayList<Mood> moodList, JSONObject jsonMood) {
-        int score = jsonMood.getInt("score");
-        JSONArray jsonActivities = jsonMood.getJSONArray("activities");
-
+    private Mood parseMood(JsonTokenizer tokenizer) throws IOException {
         Mood mood = new Mood();
-        mood.setMoodScore(score);
-        addActivities(mood, jsonActivities);
 
-        moodList.add(mood);
+        tokenizer.beginObject();
+        while (tokenizer.hasNext()) {
+            switch (tokenizer.nextName()) {
+                case "score":
+                    mood.setMoodScore(tokenizer.nextInt());
+                    break;
+                case "activities":
+                    addActivities(mood, tokenizer);
+                    break;
+                default:
+                    tokenizer.skipValue();
+            }
+        }
+        tokenizer.endObject();
+
+        return mood;
     }
 
     // EFFECTS: parses activities from the JSON array, and adds them to the mood instance.
-    private void addActivities(Mood mood, JSONArray jsonActivities) {
-        for (Object json : jsonActivities) {
-            JSONObject activity = (JSONObject) json;
-            addActivity(mood, activity);
+    private void addActivities(Mood mood, JsonTokenizer tokenizer) throws IOException {
+        tokenizer.beginArray();
+        while (tokenizer.hasNext()) {
+            addActivity(mood, parseActivityName(tokenizer));
         }
+        tokenizer.endArray();
     }
 
-    // REQUIRES: defaultActivities.getActivity(jsonActivity.getString("name")) is NOT null.
-    // EFFECTS: parses the activity name from JSON object, gets a new instance
-    //          from the default activities, and adds it to the mood instance.
-    private void addActivity(Mood mood, JSONObject jsonActivity) {
-        String activityName = jsonActivity.getString("name");
+    // EFFECTS: parses the name of an activity from JSON object.
+    //          Throws IOException if it has no name.
+    private String parseActivityName(JsonTokenizer tokenizer) throws IOException {
+        String activityName = null;
+
+        tokenizer.beginObject();
+        while (tokenizer.hasNext()) {
+            if (tokenizer.nextName().equals("name")) {
+                activityName = tokenizer.nextString();
+            } else {
+                tokenizer.skipValue();
+            }
+        }
+        tokenizer.endObject();
+
+        if (activityName == null) {
+            throw new IOException("Activity is missing a name at character " + tokenizer.getPosition());
+        }
+        return activityName;
+    }
 
-        Activity activity = DefaultActivities.getInstance()
-                .getActivity(activityName);
+    // EFFECTS: gets the instance named activityName from the ActivityRegistry, and adds it to the mood instance.
+    //          Throws IOException if it is a new activity and there are too many activities to register it.
+    private void addActivity(Mood mood, String activityName) throws IOException {
+        mood.addActivity(intern(activityName));
+    }
+
+    /*
+        Older versions
+     */
+
+    // EFFECTS: parses a day object written in an older version, upgrades it to the current version
+    //          and returns the Day it represents. Throws IOException if the day is not valid for its version.
+    private Day parseOldDay(JsonTokenizer tokenizer, int version) throws IOException {
+        Map<String, Object> day = JsonMigrations.asObject(tokenizer.nextValue(), "day");
+        JsonMigrations.upgrade(day, version);
+
+        ArrayList<Mood> moodList = new ArrayList<>();
+        for (Object mood : JsonMigrations.asArray(day.get("moods"), "moods")) {
+            moodList.add(buildMood(JsonMigrations.asObject(mood, "mood")));
+        }
+        String id = JsonMigrations.asString(day.get("id"),
+                "Day is missing an id at character " + tokenizer.getPosition());
+        return new Day(parseDateCode(id, tokenizer), JsonMigrations.asInt(day.get("sleep"), -1, "sleep"), moodList);
+    }
+
+    // EFFECTS: returns the Mood represented by a mood object of the current version.
+    private Mood buildMood(Map<String, Object> moodObject) throws IOException {
+        Mood mood = new Mood();
+        mood.setMoodScore(JsonMigrations.asInt(moodObject.get("score"), -1, "score"));
+        for (Object activity : JsonMigrations.asArray(moodObject.get("activities"), "activities")) {
+            Object name = JsonMigrations.asObject(activity, "activity").get("name");
+            addActivity(mood, JsonMigrations.asString(name, "Activity is missing a name"));
+        }
+        return mood;
+    }
 
-        mood.addActivity(activity);
+    // Represents a function that parses the next day object of a file.
+    private interface DayParser {
+        Day parse(JsonTokenizer tokenizer) throws IOException;
     }
 
 }
@@ -0,0 +1,464 @@
+package persistence;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Represents a pull-based JSON tokenizer that reads tokens one at a time from a character stream,
+//  without ever building the whole document in memory.
+public class JsonTokenizer {
+
+    // Represents the kinds of tokens that can be pulled from the stream.
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private static final int BUFFER_SIZE = 8192;    // The number of chars read from the stream at once.
+
+    // Scopes that can be on the scope stack.
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5;
+    private static final int NONEMPTY_OBJECT = 6;
+
+    private final Reader reader;                    // The stream tokens are read from.
+    private final char[] buffer;                    // The chars read from the stream but not yet consumed.
+    private int pos;                                // The position of the next char in buffer.
+    private int limit;                              // The number of valid chars in buffer.
+    private long consumed;                          // The number of chars consumed before buffer was filled.
+
+    private int[] stack;                            // The scope stack (document, arrays and objects).
+    private int stackSize;                          // The number of scopes on the stack.
+
+    private Token peeked;                           // The token that has been read but not consumed, or null.
+    private final StringBuilder value;              // The text of a peeked NAME, STRING, NUMBER or BOOLEAN.
+
+    // MODIFIES: this
+    // EFFECTS: creates a new tokenizer reading from reader. The reader is not closed by the tokenizer.
+    public JsonTokenizer(Reader reader) {
+        this.reader = reader;
+        buffer = new char[BUFFER_SIZE];
+        stack = new int[16];
+        stack[stackSize++] = EMPTY_DOCUMENT;
+        value = new StringBuilder();
+    }
+
+    /*
+        Consuming tokens
+     */
+
+    // MODIFIES: this
+    // EFFECTS: consumes the start of an object. Throws IOException if the next token is not one.
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: consumes the end of an object. Throws IOException if the next token is not one.
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        stackSize--;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: consumes the start of an array. Throws IOException if the next token is not one.
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: consumes the end of an array. Throws IOException if the next token is not one.
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        stackSize--;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: returns true if the current array or object has another element.
+    public boolean hasNext() throws IOException {
+        Token t = peek();
+        return t != Token.END_OBJECT && t != Token.END_ARRAY && t != Token.END_DOCUMENT;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: consumes and returns the next property name. Throws IOException if the next token is not one.
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        return value.toString();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: consumes and returns the next string value. Throws IOException if the next token is not one.
+    public String nextString() throws IOException {
+        expect(Token.STRING);
+        return value.toString();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: consumes and returns the next number as an int.
+    //          Throws IOException if the next token is not a number or does not fit in an int.
+    public int nextInt() throws IOException {
+        expect(Token.NUMBER);
+        try {
+            return Integer.parseInt(value.toString());
+        } catch (NumberFormatException e) {
+            throw syntaxError("Expected an int but was " + value);
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: consumes the next value, including all nested arrays and objects.
+    public void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            Token t = peek();
+            if (t == Token.BEGIN_OBJECT || t == Token.BEGIN_ARRAY) {
+                push(t == Token.BEGIN_OBJECT ? EMPTY_OBJECT : EMPTY_ARRAY);
+                depth++;
+            } else if (t == Token.END_OBJECT || t == Token.END_ARRAY) {
+                stackSize--;
+                depth--;
+            } else if (t == Token.END_DOCUMENT) {
+                throw syntaxError("Unexpected end of document");
+            }
+            peeked = null;
+        } while (depth > 0);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: consumes the next value and returns it as a tree of a LinkedHashMap per object, an ArrayList
+    //          per array, and a String, Long or Double, Boolean or null per primitive.
+    //          Throws IOException if the next token does not start a value.
+    public Object nextValue() throws IOException {
+        switch (peek()) {
+            case BEGIN_OBJECT:
+                return nextObject();
+            case BEGIN_ARRAY:
+                return nextArray();
+            case STRING:
+                return nextString();
+            case NUMBER:
+                expect(Token.NUMBER);
+                return parseNumber(value.toString());
+            case BOOLEAN:
+                expect(Token.BOOLEAN);
+                return Boolean.valueOf(value.toString());
+            case NULL:
+                expect(Token.NULL);
+                return null;
+            default:
+                throw syntaxError("Expected a value but was " + peek());
+        }
+    }
+
+    // EFFECTS: returns the number of chars consumed from the stream so far.
+    public long getPosition() {
+        return consumed + pos;
+    }
+
+    /*
+        Reading tokens
+     */
+
+    // MODIFIES: this
+    // EFFECTS: returns the type of the next token without consuming it.
+    public Token peek() throws IOException {
+        if (peeked == null) {
+            peeked = readToken();
+        }
+        return peeked;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: consumes the next token. Throws IOException if it is not of the expected type.
+    private void expect(Token expected) throws IOException {
+        Token t = peek();
+        if (t != expected) {
+            throw syntaxError("Expected " + expected + " but was " + t);
+        }
+        peeked = null;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: reads the next token using the scope at the top of the stack
+    //          to decide which separators are legal before it.
+    private Token readToken() throws IOException {
+        int scope = stack[stackSize - 1];
+        switch (scope) {
+            case EMPTY_ARRAY:
+            case NONEMPTY_ARRAY:
+                return readArrayElement(scope);
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                return readObjectName(scope);
+            case DANGLING_NAME:
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                stack[stackSize - 1] = NONEMPTY_OBJECT;
+                return readValue(nextNonWhitespace());
+            case EMPTY_DOCUMENT:
+                stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+                return readValue(nextNonWhitespace());
+            default:
+                if (nextNonWhitespace() != -1) {
+                    throw syntaxError("Expected end of document");
+                }
+                return Token.END_DOCUMENT;
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: reads the next element of an array, or its end.
+    private Token readArrayElement(int scope) throws IOException {
+        stack[stackSize - 1] = NONEMPTY_ARRAY;
+        int c = nextNonWhitespace();
+        if (c == ']') {
+            return Token.END_ARRAY;
+        }
+        if (scope == NONEMPTY_ARRAY) {
+            if (c != ',') {
+                throw syntaxError("Expected ',' or ']'");
+            }
+            c = nextNonWhitespace();
+        }
+        return readValue(c);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: reads the next property name of an object, or its end.
+    private Token readObjectName(int scope) throws IOException {
+        int c = nextNonWhitespace();
+        if (c == '}') {
+            return Token.END_OBJECT;
+        }
+        if (scope == NONEMPTY_OBJECT) {
+            if (c != ',') {
+                throw syntaxError("Expected ',' or '}'");
+            }
+            c = nextNonWhitespace();
+        }
+        if (c != '"') {
+            throw syntaxError("Expected a name");
+        }
+        stack[stackSize - 1] = DANGLING_NAME;
+        readString();
+        return Token.NAME;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: reads a value starting with the char c.
+    private Token readValue(int c) throws IOException {
+        switch (c) {
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case '"':
+                readString();
+                return Token.STRING;
+            case 't':
+            case 'f':
+                readLiteral((char) c, c == 't' ? "true" : "false");
+                return Token.BOOLEAN;
+            case 'n':
+                readLiteral((char) c, "null");
+                return Token.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    readNumber((char) c);
+                    return Token.NUMBER;
+                }
+                throw syntaxError("Unexpected character");
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: reads the rest of a string (after the opening quote) into value, decoding escapes.
+    private void readString() throws IOException {
+        value.setLength(0);
+        while (true) {
+            int c = nextChar();
+            if (c == '"') {
+                return;
+            } else if (c == '\\') {
+                value.append(readEscape());
+            } else if (c == -1) {
+                throw syntaxError("Unterminated string");
+            } else {
+                value.append((char) c);
+            }
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: reads an escape sequence (after the backslash) and returns the char it represents.
+    private char readEscape() throws IOException {
+        int c = nextChar();
+        switch (c) {
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u':
+                return readUnicodeEscape();
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            default:
+                throw syntaxError("Invalid escape sequence");
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: reads the four hex digits of a unicode escape and returns the char they represent.
+    private char readUnicodeEscape() throws IOException {
+        int result = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(nextChar(), 16);
+            if (digit == -1) {
+                throw syntaxError("Invalid unicode escape");
+            }
+            result = (result << 4) | digit;
+        }
+        return (char) result;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: reads the rest of the literal starting with first, throws IOException if it does not match.
+    private void readLiteral(char first, String literal) throws IOException {
+        value.setLength(0);
+        value.append(first);
+        for (int i = 1; i < literal.length(); i++) {
+            if (nextChar() != literal.charAt(i)) {
+                throw syntaxError("Expected " + literal);
+            }
+        }
+        value.append(literal, 1, literal.length());
+    }
+
+    // MODIFIES: this
+    // EFFECTS: reads the rest of a number starting with first into value.
+    private void readNumber(char first) throws IOException {
+        value.setLength(0);
+        value.append(first);
+        while (true) {
+            if (pos == limit && !fillBuffer()) {
+                return;
+            }
+            char c = buffer[pos];
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                value.append(c);
+                pos++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: consumes the next object and returns its properties in order.
+    private Map<String, Object> nextObject() throws IOException {
+        Map<String, Object> object = new LinkedHashMap<>();
+        beginObject();
+        while (hasNext()) {
+            object.put(nextName(), nextValue());
+        }
+        endObject();
+        return object;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: consumes the next array and returns its elements.
+    private List<Object> nextArray() throws IOException {
+        List<Object> array = new ArrayList<>();
+        beginArray();
+        while (hasNext()) {
+            array.add(nextValue());
+        }
+        endArray();
+        return array;
+    }
+
+    // EFFECTS: returns number as a Long if it is an integer that fits in one, else as a Double.
+    private Object parseNumber(String number) throws IOException {
+        try {
+            return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            // Falls through to parse it as a Double, the number has a fraction or exponent.
+        }
+        try {
+            return Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw syntaxError("Invalid number " + number);
+        }
+    }
+
+    /*
+        Buffer & stack helpers
+     */
+
+    // MODIFIES: this
+    // EFFECTS: returns the next char that is not whitespace, or -1 at the end of the stream.
+    private int nextNonWhitespace() throws IOException {
+        while (true) {
+            int c = nextChar();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: returns the next char in the stream, or -1 at the end of the stream.
+    private int nextChar() throws IOException {
+        if (pos == limit && !fillBuffer()) {
+            return -1;
+        }
+        return buffer[pos++];
+    }
+
+    // MODIFIES: this
+    // EFFECTS: refills the buffer from the stream, returns false if the stream has ended.
+    private boolean fillBuffer() throws IOException {
+        consumed += limit;
+        pos = 0;
+        limit = 0;
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        limit = read;
+        return true;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: pushes a new scope onto the stack, growing it if needed.
+    private void push(int scope) {
+        if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stackSize * 2);
+        }
+        stack[stackSize++] = scope;
+    }
+
+    // EFFECTS: returns an IOException describing a syntax error at the current position.
+    private IOException syntaxError(String message) {
+        return new IOException(message + " at character " + getPosition());
+    }
+}
@@ -1,46 +1,219 @@
 package persistence;
 
-import org.json.JSONObject;
-
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
 
+import model.Day;
+import model.Mood;
 import model.Timeline;
+import model.activities.Activity;
 
-// Represents a writer that writes a timeline as json data to a specific path.
+// Represents a writer that writes a timeline as json data to a specific path,
+//  in the current version of the format (see JsonMigrations).
+//  Days are serialized straight into a buffered channel (through a compressor, if one is used)
+//  as they are visited, so no JSON tree or document string is built in memory.
 public class JsonWriter {
     private static final int TAB = 4;   // The indentation level of the JSON object.
-    private PrintWriter writer;         // The writer object.
+    private Writer writer;              // The writer object.
     private String path;                // Represents the path to write to.
+    private final boolean pretty;       // True if output is indented by TAB, false if compact.
+    private final Compression compression;  // How the file is compressed.
+    private ProgressListener progressListener = ProgressListener.NONE; // Told about each Day written.
+    private int daysWritten;            // The number of Days written by the current write.
+    private int dayCount;               // The number of Days the current write will write.
 
     // MODIFIES: this
-    // EFFECTS: creates a new JsonWriter instance set at a specific path.
+    // EFFECTS: creates a new JsonWriter instance set at a specific path, writing pretty (indented) JSON.
+    //          The file is compressed if its extension is that of a Compression (eg. .json.gz).
     public JsonWriter(String path) {
+        this(path, true);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: creates a new JsonWriter instance set at a specific path, compressed as its extension says.
+    //          Writes indented JSON if pretty is true, else writes compact JSON with no whitespace.
+    public JsonWriter(String path, boolean pretty) {
+        this(path, pretty, Compression.fromPath(path));
+    }
+
+    // MODIFIES: this
+    // EFFECTS: creates a new JsonWriter instance set at a specific path, compressing the file with compression.
+    //          Writes indented JSON if pretty is true, else writes compact JSON with no whitespace.
+    public JsonWriter(String path, boolean pretty, Compression compression) {
         this.path = path;
+        this.pretty = pretty;
+        this.compression = compression;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: opens the writer at the specified path, truncating any existing file.
+    //          Throws IOException if file at path cannot be opened.
+    public void open() throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        if (compression == Compression.NONE) {
+            writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1));
+        } else {
+            OutputStream out = compression.compress(Channels.newOutputStream(channel));
+            writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        }
     }
 
     // MODIFIES: this
-    // EFFECTS: opens the writer at the specified path.
-    //          Throws FileNotFoundException if file at path cannot be opened.
-    public void open() throws FileNotFoundException {
-        writer = new PrintWriter(new File(path));
+    // EFFECTS: sets the listener told about each Day written, and that can cancel it.
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
     }
 
     // MODIFIES: this
-    // EFFECTS: convert Timeline to a json representation and then save to file.
-    public void write(Timeline tl) {
-        JSONObject json = tl.toJson();
-        saveToFile(json.toString(TAB));
+    // EFFECTS: writes every Day in the Timeline to file as json.
+    public void write(Timeline tl) throws IOException {
+        write(tl.getDays());
     }
 
     // MODIFIES: this
-    // EFFECTS: closes the writer at the specified path.
-    public void close() {
+    // EFFECTS: writes every Day in days to file as a json timeline.
+    //          Throws InterruptedIOException if the progress listener cancels the write.
+    public void write(Collection<Day> days) throws IOException {
+        write(days, days.size());
+    }
+
+    // MODIFIES: this
+    // EFFECTS: writes every Day days iterates over to file as a json timeline, visiting each only once,
+    //          so days can be produced as they are written (eg. by a merge). dayCount is the number of Days
+    //          expected, which progress is reported against and the layout assumes; the json is valid either way.
+    //          Throws InterruptedIOException if the progress listener cancels the write.
+    public void write(Iterable<Day> days, int dayCount) throws IOException {
+        daysWritten = 0;
+        this.dayCount = dayCount;
+        writer.write('{');
+        writeString("version");
+        writer.write(pretty ? ": " : ":");
+        writer.write(Integer.toString(JsonMigrations.CURRENT_VERSION));
+        writer.write(pretty ? ", " : ",");
+        writeString("timeline");
+        writer.write(pretty ? ": " : ":");
+        writeArray(days, dayCount, 0, this::writeDay);
+        writer.write('}');
+    }
+
+    // MODIFIES: this
+    // EFFECTS: flushes and closes the writer at the specified path.
+    public void close() throws IOException {
         writer.close();
     }
 
+    /*
+        Serializing
+     */
+
     // MODIFIES: this
-    // EFFECTS: writes the JSON string to file at the specified path.
-    private void saveToFile(String json) {
-        writer.print(json);
+    // EFFECTS: writes a Day as a json object, indented at level.
+    private void writeDay(Day d, int level) throws IOException {
+        writer.write('{');
+        writeName("id", level + 1);
+        writeString(d.getDateCode().toString());
+        writer.write(',');
+        writeName("sleep", level + 1);
+        writer.write(Integer.toString(d.getSleepHours()));
+        writer.write(',');
+        writeName("moods", level + 1);
+        writeArray(d.getMoods(), d.getMoodListLength(), level + 1, this::writeMood);
+        newLine(level);
+        writer.write('}');
+        progressListener.update(++daysWritten, dayCount);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: writes a Mood as a json object, indented at level.
+    private void writeMood(Mood m, int level) throws IOException {
+        writer.write('{');
+        writeName("score", level + 1);
+        writer.write(Integer.toString(m.getMoodScore()));
+        writer.write(',');
+        writeName("activities", level + 1);
+        List<Activity> activities = m.getActivityList();
+        writeArray(activities, activities.size(), level + 1, this::writeActivity);
+        newLine(level);
+        writer.write('}');
+    }
+
+    // MODIFIES: this
+    // EFFECTS: writes an Activity as a single line json object.
+    private void writeActivity(Activity a, int level) throws IOException {
+        writer.write(pretty ? "{\"name\": " : "{\"name\":");
+        writeString(a.getActivityName());
+        writer.write('}');
+    }
+
+    // MODIFIES: this
+    // EFFECTS: writes size elements as a json array indented at level.
+    //          Empty and single element arrays are written on one line.
+    private <T> void writeArray(Iterable<T> elements, int size, int level, ElementWriter<T> elementWriter)
+            throws IOException {
+        writer.write('[');
+        boolean first = true;
+        for (T element : elements) {
+            if (!first) {
+                writer.write(',');
+            }
+            if (size > 1) {
+                newLine(level + 1);
+            }
+            elementWriter.write(element, size > 1 ? level + 1 : level);
+            first = false;
+        }
+        if (size > 1) {
+            newLine(level);
+        }
+        writer.write(']');
+    }
+
+    // MODIFIES: this
+    // EFFECTS: writes a property name on a new line indented at level, followed by a colon.
+    private void writeName(String name, int level) throws IOException {
+        newLine(level);
+        writeString(name);
+        writer.write(pretty ? ": " : ":");
+    }
+
+    // MODIFIES: this
+    // EFFECTS: writes s as a quoted json string, escaping quotes, backslashes and control characters.
+    private void writeString(String s) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < ' ') {
+                writer.write(String.format("\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+
+    // MODIFIES: this
+    // EFFECTS: if pretty, starts a new line indented by TAB spaces per level.
+    private void newLine(int level) throws IOException {
+        if (pretty) {
+            writer.write('\n');
+            for (int i = 0; i < level * TAB; i++) {
+                writer.write(' ');
+            }
+        }
+    }
+
+    // Represents a function that writes a single array element at an indentation level.
+    private interface ElementWriter<T> {
+        void write(T element, int level) throws IOException;
     }
 }
@@ -0,0 +1,145 @@
+package persistence;
+
+import model.Day;
+import model.Timeline;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Represents a reader that reads a large json timeline on several threads.
+//  The file is read into memory (not mapped, so TimelineStore can replace it as soon as it is read) and scanned
+//  once for the bounds of each day object (see JsonDayScanner); chunks of days are then parsed on a ForkJoinPool
+//  and joined back together in file order, so the result is the same as that of JsonReader.
+//  Compressed files are read by a JsonReader instead.
+//  The scan is extra work a JsonReader does not do, so small files, and every file on a single processor, are
+//  read by a JsonReader by default too. Best of 15 reads on a single processor (pool of 1 thread):
+//   500 days (248KB): JsonReader 9.2ms, parallel 6.5ms;   2000 days (994KB): 18.7ms, 20.0ms;
+//   10000 days (4.9MB): 45.6ms, 48.4ms;                    50000 days (24MB): 258ms, 292ms.
+//  Under 1MB a whole read takes a few tens of milliseconds, so there is little for more processors to save.
+public class ParallelJsonReader {
+
+    public static final int DEFAULT_CHUNK_DAYS = 4096;  // The number of days parsed by one task.
+    public static final long DEFAULT_SEQUENTIAL_BELOW = 1024 * 1024;    // The default size read by a JsonReader.
+
+    private final String path;          // Represents the path to read from.
+    private final ForkJoinPool pool;    // The pool the chunks are parsed on.
+    private final int chunkDays;        // The number of days parsed by one task.
+    private final long sequentialBelow; // Files smaller than this (in bytes) are read by a JsonReader instead.
+    private ProgressListener progressListener = ProgressListener.NONE; // Told how many days are parsed.
+
+    private JsonDayScanner scanner;     // The bounds of the day objects in the file.
+
+    // MODIFIES: this
+    // EFFECTS: creates a new ParallelJsonReader set at a specific path, parsing on the common pool.
+    //          Files under DEFAULT_SEQUENTIAL_BELOW bytes, or any file if there is a single processor,
+    //          are read by a JsonReader.
+    public ParallelJsonReader(String path) {
+        this(path, ForkJoinPool.commonPool(), DEFAULT_CHUNK_DAYS,
+                Runtime.getRuntime().availableProcessors() < 2 ? Long.MAX_VALUE : DEFAULT_SEQUENTIAL_BELOW);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: creates a new ParallelJsonReader set at a specific path, parsing chunkDays days per task on pool,
+    //          whatever the size of the file.
+    public ParallelJsonReader(String path, ForkJoinPool pool, int chunkDays) {
+        this(path, pool, chunkDays, 0);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: creates a new ParallelJsonReader set at a specific path, parsing chunkDays days per task on pool.
+    //          Files smaller than sequentialBelow bytes are read by a JsonReader.
+    public ParallelJsonReader(String path, ForkJoinPool pool, int chunkDays, long sequentialBelow) {
+        this.path = path;
+        this.pool = pool;
+        this.chunkDays = Math.max(1, chunkDays);
+        this.sequentialBelow = sequentialBelow;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: sets the listener told how many days have been parsed, and that can cancel the read.
+    //          It is called from the pool's threads.
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    // EFFECTS: reads the json file and returns a Timeline instance that it represents.
+    //          Throws IOException if the file cannot be read or is not a valid timeline.
+    public Timeline read() throws IOException {
+        return new Timeline(readDays());
+    }
+
+    // EFFECTS: reads the json file and returns the Days in it, in file order, without building a Timeline.
+    //          Throws IOException under the same conditions as read().
+    public ArrayList<Day> readDays() throws IOException {
+        Path file = Paths.get(path);
+        long size = Files.size(file);
+        if (Compression.fromPath(path) != Compression.NONE || size > Integer.MAX_VALUE - 8 || size < sequentialBelow) {
+            JsonReader reader = new JsonReader(path);
+            reader.setProgressListener(progressListener);
+            return reader.readDays();
+        }
+        scanner = new JsonDayScanner(ByteBuffer.wrap(Files.readAllBytes(file)));
+        scanner.scan();
+        try {
+            return pool.invoke(new ChunkTask(0, scanner.size(), new AtomicInteger()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /*
+        Parsing chunks
+     */
+
+    // Represents the parsing of the days from index first up to last, split in half until small enough.
+    private class ChunkTask extends RecursiveTask<ArrayList<Day>> {
+
+        private final int first;            // The index of the first day to parse.
+        private final int last;             // The index after the last day to parse.
+        private final AtomicInteger parsed; // The number of days parsed by all tasks so far.
+
+        // EFFECTS: creates a task parsing the days from index first up to last.
+        ChunkTask(int first, int last, AtomicInteger parsed) {
+            this.first = first;
+            this.last = last;
+            this.parsed = parsed;
+        }
+
+        @Override
+        // EFFECTS: parses the days, on this thread if there are few enough, else in two forked halves.
+        //          IOExceptions are rethrown wrapped in an UncheckedIOException.
+        protected ArrayList<Day> compute() {
+            if (last - first <= chunkDays) {
+                return parseLeaf();
+            }
+            int middle = (first + last) >>> 1;
+            ChunkTask right = new ChunkTask(middle, last, parsed);
+            right.fork();
+            ArrayList<Day> days = new ChunkTask(first, middle, parsed).compute();
+            days.addAll(right.join());
+            return days;
+        }
+
+        // EFFECTS: parses the days of this task and reports them as parsed.
+        private ArrayList<Day> parseLeaf() {
+            if (first == last) {
+                return new ArrayList<>();
+            }
+            try {
+                ArrayList<Day> days = scanner.parseDays(first, last);
+                progressListener.update(parsed.addAndGet(days.size()), scanner.size());
+                return days;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package persistence;
+
+import model.DaySource;
+import model.Day;
+import model.Timeline;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Represents a timeline stored as one json file per month, so only the months that are visited are read
+//  and only the months that changed are written. The file at path is a small manifest listing the months;
+//  the month files (yyyy-mm.json, each a json timeline) are kept in the directory path + PARTITION_DIR_SUFFIX.
+public class PartitionedStore implements DaySource {
+
+    public static final String MANIFEST_HEADER = "HealthIO partitioned timeline v1";  // First manifest line.
+    public static final String PARTITION_DIR_SUFFIX = ".months";    // Appended to path for the month files.
+
+    private final String path;              // The path of the manifest.
+    private final Path partitionDir;        // The directory containing a json file per month.
+    private final Set<Integer> partitions;  // The keys of the months stored, as listed in the manifest.
+
+    // MODIFIES: this
+    // EFFECTS: creates a new PartitionedStore with its manifest at path.
+    public PartitionedStore(String path) {
+        this.path = path;
+        partitionDir = Paths.get(path + PARTITION_DIR_SUFFIX);
+        partitions = Collections.synchronizedSet(new TreeSet<>());
+    }
+
+    // MODIFIES: this
+    // EFFECTS: reads the manifest and returns a Timeline that loads its months from this store as needed.
+    //          Throws IOException if the manifest cannot be read or is not a partitioned timeline.
+    public Timeline open() throws IOException {
+        readManifest();
+        return new Timeline(this);
+    }
+
+    // MODIFIES: this, tl
+    // EFFECTS: saves tl to this store (see prepareSave). Throws IOException if a month or the manifest cannot
+    //          be written.
+    public void save(Timeline tl) throws IOException {
+        prepareSave(tl).write();
+    }
+
+    // MODIFIES: this, tl
+    // EFFECTS: takes what saving tl to this store writes, and returns the save that writes it. Called on the
+    //          thread that changes tl, so the save can then be written on another thread while tl changes:
+    //          it holds copies of the Days, and any change made after this call is left unsaved for the next save.
+    //          If tl was opened from a store with this manifest, only the months with unsaved changes are taken
+    //          (and recorded as saved), otherwise every month is taken and tl loads its months from this store
+    //          from then on. The months a failed save does not write are recorded as unsaved again.
+    public Save prepareSave(Timeline tl) {
+        DaySource source = tl.getDaySource();
+        if (source instanceof PartitionedStore && ((PartitionedStore) source).path.equals(path)) {
+            return ((PartitionedStore) source).takeDirtyPartitions(tl);
+        }
+        return takeAllPartitions(tl);
+    }
+
+    // EFFECTS: returns the path of the manifest.
+    public String getPath() {
+        return path;
+    }
+
+    /*
+        DaySource
+     */
+
+    @Override
+    // EFFECTS: returns the keys of every month stored.
+    public Collection<Integer> partitions() {
+        synchronized (partitions) {
+            return new ArrayList<>(partitions);
+        }
+    }
+
+    @Override
+    // EFFECTS: reads and returns the Days of the month with key (none if it is not stored).
+    //          Throws UncheckedIOException if the month file cannot be read.
+    public Collection<Day> loadPartition(int key) {
+        if (!partitions.contains(key)) {
+            return Collections.emptyList();
+        }
+        try {
+            return new JsonReader(partitionFile(key).toString()).readDays();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+        Helpers
+     */
+
+    // MODIFIES: tl
+    // EFFECTS: returns the save of copies of the Days in the months of tl with unsaved changes, and records
+    //          those months as saved. A month that is not loaded is never written, as tl does not hold its Days.
+    private Save takeDirtyPartitions(Timeline tl) {
+        Map<Integer, List<Day>> months = new TreeMap<>();
+        for (int key : tl.getDirtyPartitions()) {
+            if (tl.isPartitionLoaded(key)) {
+                months.put(key, copyOf(tl.getPartitionDays(key)));
+            }
+            tl.markPartitionClean(key);
+        }
+        return new Save(tl, months);
+    }
+
+    // MODIFIES: this, tl
+    // EFFECTS: returns the save of copies of every Day of tl, grouped by month, replacing the months stored,
+    //          and makes tl load its months from this store.
+    private Save takeAllPartitions(Timeline tl) {
+        Map<Integer, List<Day>> months = new TreeMap<>();
+        for (Day d : tl.getDays()) {
+            months.computeIfAbsent(DaySource.partitionOf(d.getDateCode()), k -> new ArrayList<>()).add(d.copy());
+        }
+        partitions.clear();
+        tl.setDaySource(this);
+        return new Save(tl, months);
+    }
+
+    // EFFECTS: returns a list of copies of days.
+    private static List<Day> copyOf(List<Day> days) {
+        List<Day> copies = new ArrayList<>(days.size());
+        for (Day d : days) {
+            copies.add(d.copy());
+        }
+        return copies;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: writes days as the month file for key (through a temporary file, so it is never half written)
+    //          and adds key to the months stored.
+    private void writePartition(int key, List<Day> days) throws IOException {
+        Path file = partitionFile(key);
+        Path tmp = Paths.get(file + ".tmp");
+        JsonWriter writer = new JsonWriter(tmp.toString(), false);
+        writer.open();
+        try {
+            writer.write(days);
+        } finally {
+            writer.close();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        partitions.add(key);
+    }
+
+    // EFFECTS: writes the manifest: the header line, then the key of each month stored on its own line.
+    private void writeManifest() throws IOException {
+        Path tmp = Paths.get(path + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            writer.write(MANIFEST_HEADER);
+            writer.newLine();
+            for (int key : partitions()) {
+                writer.write(Integer.toString(key));
+                writer.newLine();
+            }
+        }
+        Files.move(tmp, Paths.get(path), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: reads the keys of the months stored from the manifest.
+    private void readManifest() throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(MANIFEST_HEADER)) {
+            throw new IOException("Not a partitioned timeline: " + path);
+        }
+        partitions.clear();
+        try {
+            for (String line : lines.subList(1, lines.size())) {
+                if (!line.trim().isEmpty()) {
+                    partitions.add(Integer.parseInt(line.trim()));
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid month in partitioned timeline: " + path, e);
+        }
+    }
+
+    // EFFECTS: returns the path of the month file for key (yyyy-mm.json).
+    private Path partitionFile(int key) {
+        return partitionDir.resolve(String.format("%04d-%02d.json", key / 100, key % 100));
+    }
+
+    /*
+        Saves
+     */
+
+    // Represents the months of a timeline taken to be saved to this store (see prepareSave), written by write()
+    //  on any thread.
+    public class Save {
+
+        private final Timeline tl;                      // The timeline the months were taken from.
+        private final Map<Integer, List<Day>> months;   // Copies of the Days of each month to write, by key.
+
+        // EFFECTS: creates the save of months, taken from tl.
+        private Save(Timeline tl, Map<Integer, List<Day>> months) {
+            this.tl = tl;
+            this.months = months;
+        }
+
+        // MODIFIES: PartitionedStore.this, tl
+        // EFFECTS: writes each month, then the manifest. If one cannot be written, records it and the months
+        //          after it as unsaved in tl (so the next save writes them) and throws IOException.
+        public void write() throws IOException {
+            Set<Integer> unwritten = new TreeSet<>(months.keySet());
+            try {
+                Files.createDirectories(partitionDir);
+                for (Map.Entry<Integer, List<Day>> month : months.entrySet()) {
+                    writePartition(month.getKey(), month.getValue());
+                    unwritten.remove(month.getKey());
+                }
+                writeManifest();
+            } catch (IOException e) {
+                for (int key : unwritten) {
+                    tl.markPartitionDirty(key);
+                }
+                throw e;
+            }
+        }
+    }
+}
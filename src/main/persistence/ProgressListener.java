@@ -0,0 +1,22 @@
+package persistence;
+
+import java.io.InterruptedIOException;
+
+// Represents something that is told how far a long read or write has got, and that can cancel it.
+public interface ProgressListener {
+
+    // A listener that ignores progress and never cancels.
+    ProgressListener NONE = (done, total) -> true;
+
+    // EFFECTS: called as the work progresses, with done out of total units processed.
+    //          Returns false to cancel the work.
+    boolean progress(long done, long total);
+
+    // EFFECTS: reports done out of total units processed.
+    //          Throws InterruptedIOException if the listener cancelled the work.
+    default void update(long done, long total) throws InterruptedIOException {
+        if (!progress(done, total)) {
+            throw new InterruptedIOException("Cancelled after " + done + " of " + total);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package persistence;
+
+import model.Day;
+import model.Mood;
+import model.activities.Activity;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.IntUnaryOperator;
+
+// Represents a merge of two saved json timelines into a new one, in one pass over both in date order.
+//  Days only one timeline has are kept as they are. For a date both have, each value set (not -1) in the newer
+//  timeline wins, a value only set in the older one is kept, and the activities of each mood are combined.
+//  An uncompressed timeline is read a month at a time, in date order, through a DateIndex scanned from its
+//  bytes, and the merged Days are written as they are produced, so neither timeline is held in memory.
+//  A compressed timeline cannot be read out of order, so its Days are read and sorted first.
+public class TimelineMerger {
+
+    private final String olderPath;     // The path of the timeline whose values lose conflicts.
+    private final String newerPath;     // The path of the timeline whose values win conflicts.
+    private ProgressListener progressListener = ProgressListener.NONE; // Told about each Day written.
+    private int mergedDays;             // The number of Days written by the last merge.
+    private int sharedDays;             // The number of dates both timelines had in the last merge.
+
+    // MODIFIES: this
+    // EFFECTS: creates a merger of the json timelines at olderPath and newerPath.
+    public TimelineMerger(String olderPath, String newerPath) {
+        this.olderPath = olderPath;
+        this.newerPath = newerPath;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: sets the listener told about each Day written, and that can cancel the merge.
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: writes the merged timeline to outputPath, compressed as its extension says.
+    //          Throws IOException if either timeline cannot be read or the output cannot be written,
+    //          or InterruptedIOException if the progress listener cancels the merge.
+    public void merge(String outputPath) throws IOException {
+        merge(outputPath, Compression.fromPath(outputPath));
+    }
+
+    // MODIFIES: this
+    // EFFECTS: same as merge(outputPath), compressing the output with compression.
+    public void merge(String outputPath, Compression compression) throws IOException {
+        SortedDays older = new SortedDays(olderPath);
+        SortedDays newer = new SortedDays(newerPath);
+        MergedDays merged = new MergedDays(older, newer);
+
+        JsonWriter writer = new JsonWriter(outputPath, true, compression);
+        writer.setProgressListener(progressListener);
+        writer.open();
+        try {
+            writer.write(() -> merged, mergedSize(older, newer));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            writer.close();
+        }
+        mergedDays = merged.count;
+        sharedDays = merged.shared;
+    }
+
+    // EFFECTS: returns the number of Days written by the last merge.
+    public int getMergedDays() {
+        return mergedDays;
+    }
+
+    // EFFECTS: returns the number of dates both timelines had in the last merge.
+    public int getSharedDays() {
+        return sharedDays;
+    }
+
+    // EFFECTS: returns the number of Days a merge of older and newer writes: the number of dates either has,
+    //          counting the dates both have once. Found from their sorted dates, without reading any Day.
+    private static int mergedSize(SortedDays older, SortedDays newer) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < older.size() && j < newer.size()) {
+            int olderDay = older.epochDayAt(i);
+            int newerDay = newer.epochDayAt(j);
+            i += olderDay <= newerDay ? 1 : 0;
+            j += newerDay <= olderDay ? 1 : 0;
+            count++;
+        }
+        return count + (older.size() - i) + (newer.size() - j);
+    }
+
+    // REQUIRES: older and newer have the same DateCode
+    // EFFECTS: returns a new Day with the values of newer, except for the values not set (-1) in newer,
+    //          which are those of older. The activities of each mood are those of both, newer's first.
+    static Day mergeDays(Day older, Day newer) {
+        ArrayList<Mood> moods = new ArrayList<>();
+        int moodCount = Math.max(Day.MAXMOODS, Math.max(older.getMoodListLength(), newer.getMoodListLength()));
+        for (int i = 0; i < moodCount; i++) {
+            Mood olderMood = i < older.getMoodListLength() ? older.getMood(i) : new Mood();
+            Mood newerMood = i < newer.getMoodListLength() ? newer.getMood(i) : new Mood();
+            Mood mood = new Mood();
+            mood.setMoodScore(preferSet(olderMood.getMoodScore(), newerMood.getMoodScore()));
+            addMissingActivities(mood, newerMood);
+            addMissingActivities(mood, olderMood);
+            moods.add(mood);
+        }
+        return new Day(newer.getDateCode(), preferSet(older.getSleepHours(), newer.getSleepHours()), moods);
+    }
+
+    // EFFECTS: returns newer if it is set (not -1), else older.
+    private static int preferSet(int older, int newer) {
+        return newer != -1 ? newer : older;
+    }
+
+    // MODIFIES: mood
+    // EFFECTS: adds the activities of from that mood does not contain yet.
+    private static void addMissingActivities(Mood mood, Mood from) {
+        for (Activity a : from.getActivityList()) {
+            if (!mood.containsActivity(a.getActivityName())) {
+                mood.addActivity(a);
+            }
+        }
+    }
+
+    // Represents the Days of a saved json timeline, visited once in date order (with one Day per date).
+    //  Throws UncheckedIOException if the timeline cannot be read part way.
+    private static class SortedDays implements Iterator<Day> {
+
+        private final IndexedJsonSource source; // Reads the months of an uncompressed timeline, or null.
+        private final Iterator<Integer> months; // The months of source not read yet.
+        private final int size;                 // The number of Days in the timeline.
+        private final IntUnaryOperator dates;   // The epoch day of the i-th Day, by date.
+        private Iterator<Day> days;             // The Days of the current month (or the whole timeline).
+
+        // EFFECTS: opens the timeline at path, scanning its index if it is uncompressed, else reading its Days.
+        //          Throws IOException if it cannot be read.
+        SortedDays(String path) throws IOException {
+            if (Compression.fromPath(path) == Compression.NONE) {
+                DateIndex index = DateIndex.scan(path);
+                source = new IndexedJsonSource(path, index, new Object());
+                months = source.partitions().iterator();
+                size = index.size();
+                dates = index::epochDayAt;
+                days = Collections.emptyIterator();
+            } else {
+                List<Day> sorted = sortedDays(new JsonReader(path).readDays());
+                source = null;
+                months = Collections.emptyIterator();
+                size = sorted.size();
+                dates = i -> sorted.get(i).getDateCode().toEpochDay();
+                days = sorted.iterator();
+            }
+        }
+
+        // EFFECTS: returns the number of Days in the timeline.
+        int size() {
+            return size;
+        }
+
+        // REQUIRES: 0 <= i < size()
+        // EFFECTS: returns the epoch day of the i-th Day of the timeline, by date.
+        int epochDayAt(int i) {
+            return dates.applyAsInt(i);
+        }
+
+        @Override
+        // EFFECTS: returns true if there is a Day left, reading the next month if needed.
+        public boolean hasNext() {
+            while (!days.hasNext() && months.hasNext()) {
+                days = source.loadPartition(months.next()).iterator();
+            }
+            return days.hasNext();
+        }
+
+        @Override
+        // EFFECTS: returns the next Day by date.
+        public Day next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return days.next();
+        }
+
+        // EFFECTS: returns days sorted by date, keeping the last of the Days with the same date
+        //          (as a Timeline read from them would).
+        private static List<Day> sortedDays(List<Day> days) {
+            Map<Integer, Day> byDate = new LinkedHashMap<>();
+            for (Day d : days) {
+                byDate.put(d.getDateCode().toEpochDay(), d);
+            }
+            List<Day> sorted = new ArrayList<>(byDate.values());
+            sorted.sort(Comparator.comparingInt(d -> d.getDateCode().toEpochDay()));
+            return sorted;
+        }
+    }
+
+    // Represents the Days of two sorted timelines merged in date order, produced one at a time.
+    private static class MergedDays implements Iterator<Day> {
+
+        private final SortedDays older;     // The timeline whose values lose conflicts.
+        private final SortedDays newer;     // The timeline whose values win conflicts.
+        private Day nextOlder;              // The first Day of older not merged yet, or null if none are left.
+        private Day nextNewer;              // The first Day of newer not merged yet, or null if none are left.
+        private int count;                  // The number of Days produced.
+        private int shared;                 // The number of dates both timelines had.
+
+        // EFFECTS: creates a merge of older and newer, starting at their first Days.
+        MergedDays(SortedDays older, SortedDays newer) {
+            this.older = older;
+            this.newer = newer;
+            nextOlder = older.hasNext() ? older.next() : null;
+            nextNewer = newer.hasNext() ? newer.next() : null;
+        }
+
+        @Override
+        // EFFECTS: returns true if either timeline has a Day left.
+        public boolean hasNext() {
+            return nextOlder != null || nextNewer != null;
+        }
+
+        @Override
+        // MODIFIES: this
+        // EFFECTS: returns the Day with the earliest date left, merged if both timelines have that date.
+        public Day next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int olderDay = nextOlder == null ? Integer.MAX_VALUE : nextOlder.getDateCode().toEpochDay();
+            int newerDay = nextNewer == null ? Integer.MAX_VALUE : nextNewer.getDateCode().toEpochDay();
+            Day d;
+            if (olderDay < newerDay) {
+                d = nextOlder;
+                nextOlder = older.hasNext() ? older.next() : null;
+            } else if (newerDay < olderDay) {
+                d = nextNewer;
+                nextNewer = newer.hasNext() ? newer.next() : null;
+            } else {
+                d = mergeDays(nextOlder, nextNewer);
+                shared++;
+                nextOlder = older.hasNext() ? older.next() : null;
+                nextNewer = newer.hasNext() ? newer.next() : null;
+            }
+            count++;
+            return d;
+        }
+    }
+}
@@ -0,0 +1,622 @@
+package persistence;
+
+import model.DateCode;
+import model.Day;
+import model.Timeline;
+import model.TimelineListener;
+import model.activities.Activity;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Represents a timeline saved as a json snapshot plus an append-only journal of the changes made since.
+//  Saving only has to flush the journal, and a background compactor periodically folds the journal
+//  into a new snapshot, without touching the live Timeline.
+//  An uncompressed snapshot can have a DateIndex next to it, in which case it is loaded a month at a time,
+//  and changes other programs make to the files can be read back a month at a time (see readChangedDays).
+//  The store remembers the state of the files after each of its own writes, so its watcher (see watch) only
+//  reacts to the changes other programs make.
+//  If such a snapshot is damaged (eg. cut short), the months whose checksums in the index still match are
+//  recovered on load, and the damaged months are reported (see getDamagedBlocks).
+public class TimelineStore {
+
+    public static final String JOURNAL_EXTENSION = ".journal";          // Appended to the snapshot path.
+    public static final String COMPACTING_EXTENSION = ".compacting";    // The journal being folded in.
+    public static final String DAMAGED_EXTENSION = ".damaged";          // Where a damaged snapshot is kept.
+    public static final long COMPACTION_THRESHOLD = 64 * 1024;          // The journal size worth compacting.
+
+    private final String snapshotPath;      // The path of the json snapshot.
+    private final String journalPath;       // The path of the journal of changes since the snapshot.
+    private final String compactingPath;    // The path of a journal that is being folded into the snapshot.
+
+    private Timeline timeline;              // The timeline changes are recorded from, null if not attached.
+    private JournalWriter journal;          // The journal changes are recorded to, null if not attached.
+    private ScheduledExecutorService compactor; // Runs the periodic compaction, null if not started.
+    private final Object fileLock;          // Held while the snapshot or journal files are read or replaced.
+    private final Object snapshotLock;      // Held while the snapshot is moved into place or read lazily.
+    private volatile boolean indexed;       // True if a DateIndex is written next to each snapshot.
+    private Map<Integer, Long> snapshotChecksums;   // The checksum of each month of the snapshot last read, or null.
+    private List<DamagedBlock> damagedBlocks = new ArrayList<>();   // The months the last load could not recover.
+    private List<Object> knownFiles;        // The attributes of the files when last written or read here, or null.
+    private boolean externalChange;         // True if the files changed before a write here and were not read since.
+    private final TimelineListener localChanges = new LocalChangeTracker(); // Records the Days changed locally.
+    private final Set<DateCode> unflushedDays = new HashSet<>();    // The Days changed since the last flush.
+    private final Set<DateCode> newerDays = new HashSet<>();    // The Days changed since the files were last read,
+                                                                // or not flushed when they were.
+
+    // MODIFIES: this
+    // EFFECTS: creates a new TimelineStore for the snapshot at snapshotPath.
+    public TimelineStore(String snapshotPath) {
+        this.snapshotPath = snapshotPath;
+        journalPath = snapshotPath + JOURNAL_EXTENSION;
+        compactingPath = journalPath + COMPACTING_EXTENSION;
+        fileLock = new Object();
+        snapshotLock = new Object();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: sets whether a DateIndex is written next to each (uncompressed) snapshot, so the next load only
+    //          reads the months that are visited. An index that already exists is kept up to date either way.
+    public void setIndexed(boolean indexed) {
+        this.indexed = indexed;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: reads the snapshot (or creates and saves a new Timeline if there is none), replays the journals
+    //          on top of it, starts recording its changes and returns it.
+    //          Throws IOException if the snapshot or journals cannot be read.
+    public Timeline load() throws IOException {
+        return load(ProgressListener.NONE);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: same as load(), telling progressListener how much of the snapshot has been read.
+    //          A snapshot that cannot be read is recovered from its index if it has one (see recover).
+    //          Throws InterruptedIOException (before anything is recorded) if progressListener cancels.
+    public Timeline load(ProgressListener progressListener) throws IOException {
+        synchronized (fileLock) {
+            boolean hasSnapshot = Files.exists(Paths.get(snapshotPath));
+            damagedBlocks = new ArrayList<>();
+            DateIndex index;
+            Timeline tl;
+            try {
+                index = openIndex();
+                tl = readSnapshotAndJournals(index, progressListener);
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                tl = recover(e);
+                index = openIndex();
+            } catch (UncheckedIOException e) {
+                tl = recover(e.getCause());
+                index = openIndex();
+            }
+            if (!hasSnapshot) {
+                writeSnapshot(tl, ProgressListener.NONE);
+                index = openIndex();
+            }
+            snapshotChecksums = indexed ? readChecksums(index) : null;
+            synchronized (this) {
+                attach(tl);
+                filesRead();
+            }
+            return tl;
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: overwrites the snapshot with tl, discards the journals and starts recording tl's changes.
+    //          Throws IOException if the snapshot cannot be written.
+    public void reset(Timeline tl) throws IOException {
+        reset(tl, ProgressListener.NONE);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: same as reset(tl), telling progressListener about each Day written to the snapshot.
+    //          Throws InterruptedIOException if progressListener cancels, leaving the old snapshot in place.
+    public void reset(Timeline tl, ProgressListener progressListener) throws IOException {
+        synchronized (fileLock) {
+            synchronized (this) {
+                detach();
+                writeSnapshot(tl, progressListener);
+                Files.deleteIfExists(Paths.get(journalPath));
+                Files.deleteIfExists(Paths.get(compactingPath));
+                attach(tl);
+                filesRead();
+            }
+            snapshotChecksums = indexed ? readChecksums(openIndex()) : null;
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: returns the Days saved in the files (the snapshot with the journals replayed) in every month that
+    //          may have changed since the timeline was loaded or reset, or since the last call: the months whose
+    //          day objects in the snapshot have a different checksum (found through the DateIndex, without
+    //          parsing the others) and the months with journaled changes. If the snapshot has no index, or the
+    //          checksums are not known yet, every Day is returned.
+    //          Throws IOException if the files cannot be read.
+    public List<Day> readChangedDays() throws IOException {
+        synchronized (fileLock) {
+            synchronized (this) {
+                newerDays.clear();
+                newerDays.addAll(unflushedDays);
+                filesRead();
+            }
+            if (!Files.exists(Paths.get(snapshotPath))) {
+                return new ArrayList<>();
+            }
+            DateIndex index = openIndex();
+            Map<Integer, Long> previous = snapshotChecksums;
+            snapshotChecksums = readChecksums(index);
+            if (index == null || previous == null) {
+                return new ArrayList<>(readSnapshotAndJournals(null, ProgressListener.NONE).getDays());
+            }
+            return readPartitions(index, changedPartitions(previous, snapshotChecksums));
+        }
+    }
+
+    // MODIFIES: this, tl
+    // EFFECTS: merges days (see readChangedDays) into tl in place without journaling them, since they are saved
+    //          already, and returns the DateCodes of the Days that changed. If tl is recorded here, the Days
+    //          changed in tl since the files were last read (or not flushed when they were) are left as they are,
+    //          as their values in days are older than the local changes.
+    public synchronized Set<DateCode> mergeChanges(Timeline tl, Collection<Day> days) {
+        boolean recording = isRecording(tl);
+        if (!recording) {
+            return tl.mergeDays(days);
+        }
+        List<Day> older = new ArrayList<>();
+        for (Day d : days) {
+            if (!newerDays.contains(d.getDateCode())) {
+                older.add(d);
+            }
+        }
+        tl.removeListener(journal);
+        tl.removeListener(localChanges);
+        try {
+            return tl.mergeDays(older);
+        } finally {
+            tl.addListener(journal);
+            tl.addListener(localChanges);
+        }
+    }
+
+    // EFFECTS: returns a watcher (not started yet) that runs onChange after another program changes the snapshot
+    //          or journals (eg. saves to them). Changes this store makes itself are ignored (see hasExternalChanges).
+    public FileWatcher watch(Runnable onChange) {
+        return new FileWatcher(Arrays.asList(snapshotPath, journalPath, compactingPath),
+                FileWatcher.DEFAULT_QUIET_MILLIS, () -> {
+                    boolean external = true;
+                    try {
+                        external = hasExternalChanges();
+                    } catch (IOException e) {
+                        // The files cannot be checked, so they are read as if another program changed them.
+                    }
+                    if (external) {
+                        onChange.run();
+                    }
+                });
+    }
+
+    // EFFECTS: returns true if the files may have been changed by another program since this store last wrote or
+    //          read them: their size, modification time or file key differs from those after that write or read,
+    //          or they had already changed when this store wrote them.
+    //          Throws IOException if the files cannot be checked.
+    public synchronized boolean hasExternalChanges() throws IOException {
+        return externalChange || !fileAttributes().equals(knownFiles);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: forces every change recorded so far to the disk and returns the number of bytes
+    //          appended to the journal since the last flush.
+    //          Throws IOException if the journal cannot be written.
+    public synchronized long flush() throws IOException {
+        if (journal == null) {
+            return 0;
+        }
+        beforeWrite();
+        long written = journal.flush();
+        unflushedDays.clear();
+        afterWrite();
+        return written;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: folds the journal into a new snapshot. The journal is first moved aside, so changes
+    //          recorded while the snapshot is rebuilt go to a new journal. If the program stops part way,
+    //          the moved journal is replayed again on the next load.
+    //          Throws IOException if the snapshot cannot be rebuilt.
+    public void compact() throws IOException {
+        synchronized (fileLock) {
+            synchronized (this) {
+                beforeWrite();
+                if (journal != null && !Files.exists(Paths.get(compactingPath))) {
+                    journal.rotate(compactingPath);
+                    unflushedDays.clear();
+                }
+            }
+            Timeline folded = readSnapshotAndJournal(compactingPath, ProgressListener.NONE);
+            writeSnapshot(folded, ProgressListener.NONE);
+            Files.deleteIfExists(Paths.get(compactingPath));
+            afterWrite();
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: merges the json timeline at otherPath into the snapshot (see TimelineMerger), values from whichever
+    //          of the two was modified last winning conflicts, then loads, starts recording and returns the merged
+    //          timeline. The journals are folded into the snapshot first.
+    //          Throws IOException if either timeline cannot be read or the merge cannot be written, in which case
+    //          the snapshot is left as it was, or InterruptedIOException if progressListener cancels.
+    public Timeline merge(String otherPath, ProgressListener progressListener) throws IOException {
+        synchronized (fileLock) {
+            boolean otherIsNewer = Files.getLastModifiedTime(Paths.get(otherPath)).compareTo(lastModified()) > 0;
+            compact();
+            Path tmp = Paths.get(snapshotPath + ".tmp");
+            TimelineMerger merger = otherIsNewer
+                    ? new TimelineMerger(snapshotPath, otherPath)
+                    : new TimelineMerger(otherPath, snapshotPath);
+            merger.setProgressListener(progressListener);
+            try {
+                merger.merge(tmp.toString(), Compression.fromPath(snapshotPath));
+            } catch (IOException e) {
+                Files.deleteIfExists(tmp);
+                throw e;
+            }
+            moveSnapshot(tmp);
+            return load(progressListener);
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: starts a background thread that compacts the journal every period (in unit)
+    //          once it has grown past COMPACTION_THRESHOLD.
+    public synchronized void startCompactor(long period, TimeUnit unit) {
+        if (compactor != null) {
+            return;
+        }
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "timeline-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactIfNeeded, period, period, unit);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: stops the compactor, stops recording changes and flushes and closes the journal.
+    public synchronized void close() throws IOException {
+        if (compactor != null) {
+            compactor.shutdown();
+            compactor = null;
+        }
+        beforeWrite();
+        detach();
+        afterWrite();
+    }
+
+    // EFFECTS: returns true if the changes made to tl are being recorded by this store.
+    public synchronized boolean isRecording(Timeline tl) {
+        return journal != null && timeline == tl;
+    }
+
+    // EFFECTS: returns the months of the snapshot that were damaged when it was last loaded, by date, whose Days
+    //          (apart from journaled changes to them) were lost. Empty if the snapshot was intact.
+    public List<DamagedBlock> getDamagedBlocks() {
+        return new ArrayList<>(damagedBlocks);
+    }
+
+    // EFFECTS: returns the path of the json snapshot.
+    public String getPath() {
+        return snapshotPath;
+    }
+
+    /*
+        Helpers
+     */
+
+    // EFFECTS: compacts the journal if it has grown past COMPACTION_THRESHOLD.
+    //          Errors are left for the next attempt, since the journal still holds every change.
+    private void compactIfNeeded() {
+        try {
+            long size;
+            synchronized (this) {
+                size = journal == null ? 0 : journal.size();
+            }
+            if (size > COMPACTION_THRESHOLD) {
+                compact();
+            }
+        } catch (IOException e) {
+            // The journal still holds every change, so compaction is simply retried next period.
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: opens the journal and registers it, and the tracker of local changes, as listeners on tl.
+    private void attach(Timeline tl) throws IOException {
+        detach();
+        journal = new JournalWriter(journalPath);
+        journal.open();
+        timeline = tl;
+        timeline.addListener(journal);
+        timeline.addListener(localChanges);
+        unflushedDays.clear();
+        newerDays.clear();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: unregisters the journal from the timeline and closes it, if attached.
+    private void detach() throws IOException {
+        if (journal != null) {
+            timeline.removeListener(journal);
+            timeline.removeListener(localChanges);
+            journal.close();
+            journal = null;
+            timeline = null;
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: records that the files are about to be written here. If they have changed since this store last
+    //          wrote or read them, that change is kept pending, as the write would hide it from the watcher.
+    private synchronized void beforeWrite() throws IOException {
+        if (knownFiles != null && !fileAttributes().equals(knownFiles)) {
+            externalChange = true;
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: records the attributes of the files just written here, so the watcher ignores that write.
+    private synchronized void afterWrite() throws IOException {
+        knownFiles = fileAttributes();
+    }
+
+    // MODIFIES: this
+    // EFFECTS: records the attributes of the files about to be read (or just loaded) here, clearing any pending
+    //          change, as the read reflects it.
+    private synchronized void filesRead() throws IOException {
+        knownFiles = fileAttributes();
+        externalChange = false;
+    }
+
+    // EFFECTS: returns the size, modification time and file key of the snapshot and of each journal,
+    //          or null in place of those of a file that does not exist.
+    private List<Object> fileAttributes() throws IOException {
+        List<Object> attributes = new ArrayList<>();
+        for (String path : new String[]{snapshotPath, journalPath, compactingPath}) {
+            try {
+                BasicFileAttributes a = Files.readAttributes(Paths.get(path), BasicFileAttributes.class);
+                attributes.addAll(Arrays.asList(a.size(), a.lastModifiedTime(), a.fileKey()));
+            } catch (NoSuchFileException e) {
+                attributes.add(null);
+            }
+        }
+        return attributes;
+    }
+
+    // EFFECTS: returns the DateIndex of the snapshot (building it if indexed is set and there is none yet),
+    //          or null if the snapshot is missing, compressed or has no index.
+    private DateIndex openIndex() throws IOException {
+        if (Compression.fromPath(snapshotPath) != Compression.NONE || !Files.exists(Paths.get(snapshotPath))) {
+            return null;
+        }
+        DateIndex index = DateIndex.open(snapshotPath);
+        return index == null && indexed ? DateIndex.build(snapshotPath) : index;
+    }
+
+    // MODIFIES: this
+    // EFFECTS: recovers a snapshot that cannot be read: checks each month of it against the checksum in the index
+    //          it had before it was damaged (see DateIndex.verify), replays the journals onto the intact months and
+    //          writes them as a new snapshot, keeping the damaged one at snapshotPath + DAMAGED_EXTENSION.
+    //          Records the damaged months (none if only the bytes between day objects were damaged) and returns
+    //          the new snapshot. Throws cause if the snapshot has no index, as there is nothing to recover from.
+    private Timeline recover(IOException cause) throws IOException {
+        boolean uncompressed = Compression.fromPath(snapshotPath) == Compression.NONE;
+        DateIndex index = uncompressed ? DateIndex.openUnverified(snapshotPath) : null;
+        if (index == null) {
+            throw cause;
+        }
+        List<DamagedBlock> damaged = index.verify(snapshotPath);
+
+        Timeline tl = new Timeline(IndexedJsonSource.intactPartitions(snapshotPath, index, snapshotLock, damaged));
+        replayJournals(tl);
+        Files.copy(Paths.get(snapshotPath), Paths.get(snapshotPath + DAMAGED_EXTENSION),
+                StandardCopyOption.REPLACE_EXISTING);
+        writeSnapshot(tl, ProgressListener.NONE);
+        Files.deleteIfExists(Paths.get(journalPath));
+        Files.deleteIfExists(Paths.get(compactingPath));
+        damagedBlocks = damaged;
+        return readSnapshotAndJournals(openIndex(), ProgressListener.NONE);
+    }
+
+    // EFFECTS: returns the checksum of each month of the snapshot through index, or null if index is null.
+    private Map<Integer, Long> readChecksums(DateIndex index) throws IOException {
+        return index == null ? null : index.partitionChecksums(snapshotPath);
+    }
+
+    // EFFECTS: returns the keys of the months whose checksum differs between previous and current.
+    private static Set<Integer> changedPartitions(Map<Integer, Long> previous, Map<Integer, Long> current) {
+        Set<Integer> changed = new TreeSet<>(previous.keySet());
+        changed.addAll(current.keySet());
+        changed.removeIf(key -> Objects.equals(previous.get(key), current.get(key)));
+        return changed;
+    }
+
+    // EFFECTS: returns the snapshot with the compacting journal and then the journal replayed on top.
+    //          The snapshot is opened lazily through index if it is not null, so only the months the journals
+    //          change are read.
+    private Timeline readSnapshotAndJournals(DateIndex index, ProgressListener progressListener)
+            throws IOException {
+        Timeline tl = index != null
+                ? new Timeline(new IndexedJsonSource(snapshotPath, index, snapshotLock))
+                : readSnapshot(progressListener);
+        replayJournals(tl);
+        return tl;
+    }
+
+    // MODIFIES: tl
+    // EFFECTS: replays the compacting journal and then the journal onto tl.
+    private void replayJournals(Timeline tl) throws IOException {
+        try {
+            new JournalReader(compactingPath).replay(tl);
+            new JournalReader(journalPath).replay(tl);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // MODIFIES: partitions
+    // EFFECTS: returns the Days of the months with keys in partitions and of the months with journaled changes,
+    //          reading only those months of the snapshot through index.
+    private List<Day> readPartitions(DateIndex index, Set<Integer> partitions) throws IOException {
+        Timeline saved = new Timeline(new IndexedJsonSource(snapshotPath, index, snapshotLock));
+        for (int key : saved.getDirtyPartitions()) {
+            saved.markPartitionClean(key);
+        }
+        replayJournals(saved);
+        partitions.addAll(saved.getDirtyPartitions());
+
+        List<Day> days = new ArrayList<>();
+        try {
+            for (int key : partitions) {
+                saved.getDay(new DateCode(key / 100, key % 100, 1));
+                days.addAll(saved.getPartitionDays(key));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return days;
+    }
+
+    // EFFECTS: returns the snapshot (or a new Timeline if there is none) with the journal at path replayed.
+    private Timeline readSnapshotAndJournal(String path, ProgressListener progressListener) throws IOException {
+        Timeline tl = readSnapshot(progressListener);
+        new JournalReader(path).replay(tl);
+        return tl;
+    }
+
+    // EFFECTS: returns the whole snapshot, or a new Timeline if there is none.
+    private Timeline readSnapshot(ProgressListener progressListener) throws IOException {
+        Timeline tl = new Timeline();
+        Path snapshot = Paths.get(snapshotPath);
+        if (Files.exists(snapshot)) {
+            ParallelJsonReader reader = new ParallelJsonReader(snapshotPath);   // Small ones are read sequentially
+            reader.setProgressListener(progressListener);
+            tl = reader.read();
+        }
+        return tl;
+    }
+
+    // EFFECTS: writes tl to a temporary file and then moves it over the snapshot,
+    //          so the snapshot is never left half written (or overwritten by a cancelled write).
+    private void writeSnapshot(Timeline tl, ProgressListener progressListener) throws IOException {
+        Path tmp = Paths.get(snapshotPath + ".tmp");
+        JsonWriter writer = new JsonWriter(tmp.toString(), true, Compression.fromPath(snapshotPath));
+        writer.setProgressListener(progressListener);
+        writer.open();
+        try {
+            writer.write(tl);
+        } catch (IOException e) {
+            writer.close();
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        writer.close();
+        moveSnapshot(tmp);
+    }
+
+    // EFFECTS: moves the new snapshot at tmp over the snapshot, and writes its index (see writeIndex).
+    private void moveSnapshot(Path tmp) throws IOException {
+        synchronized (snapshotLock) {
+            Files.move(tmp, Paths.get(snapshotPath), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            writeIndex();
+        }
+    }
+
+    // EFFECTS: returns the last time the snapshot or either journal was modified (the epoch if none exist).
+    private FileTime lastModified() throws IOException {
+        FileTime last = FileTime.fromMillis(0);
+        for (String path : new String[]{snapshotPath, journalPath, compactingPath}) {
+            Path file = Paths.get(path);
+            if (Files.exists(file) && Files.getLastModifiedTime(file).compareTo(last) > 0) {
+                last = Files.getLastModifiedTime(file);
+            }
+        }
+        return last;
+    }
+
+    // EFFECTS: writes the DateIndex of the snapshot if indexed is set or it already has one (and is uncompressed).
+    //          If it cannot be written, any old index is deleted, so the next load reads the whole snapshot.
+    private void writeIndex() throws IOException {
+        Path indexPath = Paths.get(DateIndex.pathOf(snapshotPath));
+        boolean wanted = indexed || Files.exists(indexPath);
+        if (!wanted || Compression.fromPath(snapshotPath) != Compression.NONE) {
+            return;
+        }
+        try {
+            DateIndex.build(snapshotPath);
+        } catch (IOException e) {
+            Files.deleteIfExists(indexPath);
+        }
+    }
+
+    // Represents the listener recording which Days of the timeline are changed locally, so that Days read back
+    //  from the files never replace newer local changes (see mergeChanges).
+    private class LocalChangeTracker implements TimelineListener {
+
+        @Override
+        public void dayCreated(Day day) {
+            changed(day);
+        }
+
+        @Override
+        public void sleepHoursChanged(Day day) {
+            changed(day);
+        }
+
+        @Override
+        public void moodScoreChanged(Day day, int moodIndex) {
+            changed(day);
+        }
+
+        @Override
+        public void activityAdded(Day day, int moodIndex, Activity activity) {
+            changed(day);
+        }
+
+        @Override
+        public void activityRemoved(Day day, int moodIndex, String activityName) {
+            changed(day);
+        }
+
+        // MODIFIES: TimelineStore.this
+        // EFFECTS: records day as changed since the last flush and since the files were last read.
+        private void changed(Day day) {
+            synchronized (TimelineStore.this) {
+                unflushedDays.add(day.getDateCode());
+                newerDays.add(day.getDateCode());
+            }
+        }
+    }
+}
@@ -1,11 +1,25 @@
 package ui;
 
 import com.formdev.flatlaf.*;
+import persistence.BinaryReader;
+import persistence.BinaryWriter;
+import persistence.ColumnarWriter;
+import persistence.Compression;
+import persistence.DamagedBlock;
+import persistence.ExportPipeline;
+import persistence.CsvReader;
 import persistence.CsvWriter;
+import persistence.FileWatcher;
+import persistence.PartitionedStore;
+import persistence.ProgressListener;
+import model.DateCode;
+import model.Day;
 import model.Timeline;
-import persistence.JsonReader;
-import persistence.JsonWriter;
+import persistence.AutosaveScheduler;
+import persistence.TimelineStore;
+import ui.components.IOTask;
 import ui.components.MenuBar;
+import ui.enums.FileFormat;
 import ui.panels.LongDatePanel;
 import ui.panels.MainPanel;
 import ui.panels.StatsPanel;
@@ -14,15 +28,36 @@ import ui.panels.NavigationPanel;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 // Represents the runnable root JFrame containing all sub panels & the timeline.
 public class HealthIO extends JFrame {
 
     public static final String PROJECT_NAME = "HealthIO";   // Contains the static application name
     public static final Dimension PREFERRED_SIZE = new Dimension(800, 525); // The size of the window
+    public static final long COMPACTION_PERIOD_MINUTES = 1;   // How often the journal is checked for compaction
+    public static final int MAX_LISTED_ROWS = 10;             // The malformed rows listed after a CSV import
 
     protected Timeline timeline;                        // Timeline for storing Days and moving around.
+    private volatile TimelineStore store;               // The json file + journal recording timeline, or null.
+    private final ExecutorService ioExecutor;           // Runs saves, loads and exports one at a time.
+    private AutosaveScheduler autosave;                 // Saves timeline's changes to the last file used, or null.
+    private boolean busy;                               // True while IO runs (see setBusy). Event thread only.
+    private FileWatcher watcher;                        // Merges changes other programs make to store, or null.
 
     protected CurrentDatePanel currentDatePanel;        // Panel for showing current date and moving around.
     protected NavigationPanel navigationPanel;          // Panel for changing between CardLayout panels.
@@ -35,9 +70,20 @@ public class HealthIO extends JFrame {
     public HealthIO() {
         super(PROJECT_NAME);
         timeline = new Timeline();
+        ioExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "timeline-io");
+            thread.setDaemon(true);
+            return thread;
+        });
 
         initJFrame();
         initPanels();
+
+        // Flush the journal however the program exits.
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stopAutosave();
+            replaceStore(null);
+        }));
     }
 
     // MODIFIES: this
@@ -47,6 +93,18 @@ public class HealthIO extends JFrame {
         setBackground(new java.awt.Color(50, 50, 50));
         setPreferredSize(PREFERRED_SIZE);
         setResizable(false);
+
+        // Glass pane shown by setBusy: its mouse listener swallows clicks meant for the window.
+        JPanel glassPane = new JPanel();
+        glassPane.setOpaque(false);
+        glassPane.addMouseListener(new MouseAdapter() {});
+        glassPane.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        setGlassPane(glassPane);
+
+        // While busy, key events meant for the window (eg. arrow keys on a focused slider, or menu shortcuts)
+        //  are dropped before they are dispatched. Those meant for dialogs, like the progress dialog, are not.
+        KeyboardFocusManager.getCurrentKeyboardFocusManager().addKeyEventDispatcher(e ->
+                busy && e.getComponent() != null && SwingUtilities.getRoot(e.getComponent()) == this);
     }
 
     // MODIFIES: this
@@ -146,58 +204,418 @@ public class HealthIO extends JFrame {
         IO methods
      */
 
-    // EFFECTS: saves the Timeline instance to a file located at path.
+    // EFFECTS: saves the Timeline instance to a file located at path on the IO thread,
+    //  in the binary or partitioned (a file per month) format if path has its extension, else as json.
+    //  Saving a partitioned timeline to the file it was loaded from only writes the months that changed,
+    //  taken (copied) on the event thread before the save starts.
+    //  A json file is then kept up to date by journaling each change next to it,
+    //  so saving to the same json file again only has to flush that journal.
     //  Shows a message dialog informing the user of a success or failure.
     public void saveTimeline(String path) {
-        try {
-            JsonWriter jsonWriter = new JsonWriter(path);
-            jsonWriter.open();
-            jsonWriter.write(timeline);
-            jsonWriter.close();
-            showMessageDialog("Successfully saved to file.");
-        } catch (IOException e) {
-            showMessageDialog("Unable to write to file.");
-        }
+        PartitionedStore.Save partitionedSave = FileFormat.PARTITIONED.matches(path)
+                ? new PartitionedStore(path).prepareSave(timeline) : null;
+        new IOTask<TimelineStore>(this, "Saving to " + path, pl -> writeTimeline(path, partitionedSave, pl),
+                newStore -> {
+                    stopAutosave();
+                    replaceStore(newStore);
+                    startAutosave(path);
+                    showMessageDialog("Successfully saved to file.");
+                }, "Unable to write to file.").start(ioExecutor);
     }
 
-    // EFFECTS: loads the Timeline instance from a file located at path.
+    // EFFECTS: loads the Timeline instance from a file located at path on the IO thread,
+    //  in the binary or partitioned format if path has its extension, else as json
+    //  (replaying the changes journaled since it was last saved).
+    //  A partitioned timeline (or an uncompressed json one with a date index) only reads each month once
+    //  navigation reaches it.
+    //  The loaded Timeline replaces the current one on the event thread, then the panels are redrawn.
     //  Shows a message dialog informing the user of a success or failure.
     public void loadTimeline(String path) {
-        try {
-            JsonReader jsonReader = new JsonReader(path);
-            timeline = jsonReader.read();
-            showMessageDialog("Successfully loaded from file.");
-        } catch (IOException e) {
-            showMessageDialog("Unable to load from file.");
+        boolean json = !FileFormat.BINARY.matches(path) && !FileFormat.PARTITIONED.matches(path);
+        TimelineStore newStore = json ? newTimelineStore(path) : null;
+        new IOTask<Timeline>(this, "Loading " + path, pl -> readTimeline(path, newStore, pl),
+                tl -> {
+                    stopAutosave();
+                    timeline = tl;
+                    replaceStore(newStore);
+                    startAutosave(path);
+                    drawPanels();
+                    showMessageDialog(loadMessage(newStore));
+                }, "Unable to load from file.").start(ioExecutor);
+    }
+
+    // EFFECTS: returns the message shown after a load through newStore (null if the file is not json),
+    //  listing the dates that were lost if the file was damaged.
+    private static String loadMessage(TimelineStore newStore) {
+        if (newStore == null || newStore.getDamagedBlocks().isEmpty()) {
+            return "Successfully loaded from file.";
+        }
+        StringBuilder message = new StringBuilder("The file was damaged. Everything else was recovered, "
+                + "but these dates were lost:");
+        for (DamagedBlock block : newStore.getDamagedBlocks()) {
+            message.append("\n").append(block);
+        }
+        message.append("\nThe damaged file was kept at ").append(newStore.getPath())
+                .append(TimelineStore.DAMAGED_EXTENSION).append('.');
+        return message.toString();
+    }
+
+    // EFFECTS: merges the json timeline located at path into the json file the timeline is saved to, on the
+    //  IO thread (see TimelineStore.merge), then replaces the timeline with the merged one and redraws the panels.
+    //  Dates in both keep the values of the file modified last, falling back on the other's where a value is not
+    //  set, and the activities of both. Shows a message dialog informing the user of a success or failure,
+    //  or asking them to save to a json file first if the timeline is not saved to one.
+    public void mergeTimeline(String path) {
+        TimelineStore mergeStore = store;
+        if (mergeStore == null || !mergeStore.isRecording(timeline)) {
+            showMessageDialog("Save the timeline to a json file before merging another into it.");
+            return;
         }
+        new IOTask<Timeline>(this, "Merging " + path, pl -> mergeStore.merge(path, pl),
+                tl -> {
+                    stopAutosave();
+                    timeline = tl;
+                    startAutosave(mergeStore.getPath());
+                    drawPanels();
+                    showMessageDialog("Successfully merged " + path + ".");
+                }, "Unable to merge the file.").start(ioExecutor);
     }
 
-    // EFFECTS: gets a CSVWriter object from timeline, generates the csv string
-    //  and then write the string to a file located at path.
+    // EFFECTS: reads a Timeline from the CSV file located at path on the IO thread, skipping malformed rows.
+    //  The imported Timeline replaces the current one on the event thread, then the panels are redrawn.
+    //  It is not tied to any file until it is saved.
+    //  Shows a message dialog informing the user of a success (listing any skipped rows) or failure.
+    public void importTimelineFromCSV(String path) {
+        CsvReader importCSV = new CsvReader(path);
+        new IOTask<Timeline>(this, "Importing " + path, pl -> {
+            importCSV.setProgressListener(pl);
+            return importCSV.read();
+        }, tl -> {
+            stopAutosave();
+            timeline = tl;
+            replaceStore(null);
+            drawPanels();
+            showMessageDialog(importMessage(importCSV.getMalformedRows()));
+        }, "Unable to import from file.").start(ioExecutor);
+    }
+
+    // EFFECTS: returns the message shown after a CSV import that skipped malformedRows,
+    //  listing the first MAX_LISTED_ROWS of them.
+    private static String importMessage(List<CsvReader.MalformedRow> malformedRows) {
+        StringBuilder message = new StringBuilder("Successfully imported from CSV.");
+        if (!malformedRows.isEmpty()) {
+            message.append("\nSkipped ").append(malformedRows.size()).append(" malformed row(s):");
+        }
+        for (int i = 0; i < Math.min(malformedRows.size(), MAX_LISTED_ROWS); i++) {
+            message.append("\n").append(malformedRows.get(i));
+        }
+        if (malformedRows.size() > MAX_LISTED_ROWS) {
+            message.append("\n...");
+        }
+        return message.toString();
+    }
+
+    // EFFECTS: gets a CSVWriter object from timeline and streams
+    //  the csv rows to a file located at path on the IO thread.
     //  Shows a message dialog informing the user of a success or failure.
     public void exportTimelineAsCSV(String path) {
         CsvWriter exportCSV = timeline.getCsvWriter();
-        exportCSV.convertListToString();
+        new IOTask<Void>(this, "Exporting to " + path, pl -> {
+            exportCSV.setProgressListener(pl);
+            try {
+                exportCSV.open(path);
+                try {
+                    exportCSV.write();
+                } finally {
+                    exportCSV.close();
+                }
+            } catch (InterruptedIOException e) {
+                deletePartialFile(path);
+                throw e;
+            }
+            return null;
+        }, v -> showMessageDialog("Successfully exported to CSV."), "Unable to export to file.")
+                .start(ioExecutor);
+    }
+
+    // EFFECTS: exports every Day of timeline in a single pass on the IO thread (see ExportPipeline): as json to
+    //  path, and as CSV and binary next to it (path with the .csv and .hio extensions, the CSV compressed like the
+    //  json). Shows a message dialog informing the user of a success or failure.
+    public void exportTimelineToAllFormats(String path) {
+        String compression = path.substring(Compression.stripExtension(path).length());
+        String base = Compression.stripExtension(path);
+        base = base.substring(0, base.length() - FileFormat.JSON.extension.length() - 1);
+        ExportPipeline pipeline = new ExportPipeline(timeline.getDays());
+        pipeline.addJson(path);
+        pipeline.addCsv(base + "." + FileFormat.CSV.extension + compression);
+        pipeline.addBinary(base + "." + FileFormat.BINARY.extension);
+        new IOTask<Void>(this, "Exporting to " + base, pl -> {
+            pipeline.setProgressListener(pl);
+            pipeline.run();
+            return null;
+        }, v -> showMessageDialog("Successfully exported to json, CSV and binary."), "Unable to export to file.")
+                .start(ioExecutor);
+    }
 
+    // EFFECTS: writes every Day of timeline as column files in the directory at path on the IO thread
+    //  (see ColumnarWriter). A cancelled export deletes the files it wrote.
+    //  Shows a message dialog informing the user of a success or failure.
+    public void exportTimelineAsColumns(String path) {
+        List<Day> days = new ArrayList<>(timeline.getDays());
+        days.sort(Comparator.comparingInt(d -> d.getDateCode().toEpochDay()));
+        ColumnarWriter exportColumns = new ColumnarWriter(path);
+        new IOTask<Void>(this, "Exporting to " + path, pl -> {
+            exportColumns.setProgressListener(pl);
+            try {
+                exportColumns.write(days);
+            } catch (InterruptedIOException e) {
+                ColumnarWriter.delete(path);
+                throw e;
+            }
+            return null;
+        }, v -> showMessageDialog("Successfully exported columns."), "Unable to export to file.")
+                .start(ioExecutor);
+    }
+
+    // EFFECTS: writes timeline to path (see saveTimeline), or writes partitionedSave if it is not null,
+    //  reporting progress to progressListener. Returns the store that should record timeline's changes afterwards.
+    private TimelineStore writeTimeline(String path, PartitionedStore.Save partitionedSave,
+            ProgressListener progressListener) throws IOException {
+        TimelineStore current = store;
+        if (FileFormat.BINARY.matches(path)) {
+            writeBinary(path, progressListener);
+            return current;
+        } else if (partitionedSave != null) {
+            partitionedSave.write();
+            return current;
+        } else if (current != null && current.getPath().equals(path) && current.isRecording(timeline)) {
+            current.flush();
+            return current;
+        }
+        TimelineStore newStore = newTimelineStore(path);
+        newStore.reset(timeline, progressListener);
+        return newStore;
+    }
+
+    // EFFECTS: returns a new store for the json file at path, which keeps a date index next to the file
+    //  so loading it again only reads the months that are visited.
+    private TimelineStore newTimelineStore(String path) {
+        TimelineStore store = new TimelineStore(path);
+        store.setIndexed(true);
+        return store;
+    }
+
+    // EFFECTS: writes timeline to path in the binary format, reporting progress to progressListener.
+    //  A cancelled write deletes the partly written file.
+    private void writeBinary(String path, ProgressListener progressListener) throws IOException {
+        BinaryWriter binaryWriter = new BinaryWriter(path);
+        binaryWriter.setProgressListener(progressListener);
         try {
-            exportCSV.open(path);
-            exportCSV.write();
-            exportCSV.close();
-            showMessageDialog("Successfully exported to CSV.");
+            binaryWriter.open();
+            try {
+                binaryWriter.write(timeline);
+            } finally {
+                binaryWriter.close();
+            }
+        } catch (InterruptedIOException e) {
+            deletePartialFile(path);
+            throw e;
+        }
+    }
+
+    // EFFECTS: deletes the file a cancelled write left at path, if it can.
+    private void deletePartialFile(String path) {
+        try {
+            Files.deleteIfExists(Paths.get(path));
         } catch (IOException e) {
-            showMessageDialog("Unable to export to file.");
+            // Leaving the partial file behind is harmless, it is overwritten by the next write.
+        }
+    }
+
+    // EFFECTS: reads the timeline at path through newStore, or as a binary file if newStore is null,
+    //  reporting progress to progressListener.
+    private Timeline readTimeline(String path, TimelineStore newStore, ProgressListener progressListener)
+            throws IOException {
+        if (newStore != null) {
+            return newStore.load(progressListener);
+        } else if (FileFormat.PARTITIONED.matches(path)) {
+            return new PartitionedStore(path).open();
         }
+        BinaryReader binaryReader = new BinaryReader(path);
+        binaryReader.setProgressListener(progressListener);
+        return binaryReader.read();
+    }
 
+    // MODIFIES: this
+    // EFFECTS: while busy, shows a wait cursor and ignores mouse and keyboard input to the window
+    //  (including the menu bar), and holds back changes made by other programs (see mergeExternalChanges),
+    //  so the timeline does not change while IO reads it on the IO thread.
+    public void setBusy(boolean busy) {
+        this.busy = busy;
+        getGlassPane().setVisible(busy);
     }
 
     // MODIFIES: this
     // EFFECTS: Creates a new timeline and overwrites the existing one.
     //  Redraws all the panels to update them.
     public void resetTimeline() {
+        stopAutosave();
         timeline = new Timeline();
+        replaceStore(null);
         drawPanels();
     }
 
+    // MODIFIES: this
+    // EFFECTS: closes the current store (flushing its journal) and starts the compactor and file watcher
+    //  of newStore, which may be null if the timeline is not being journaled to a file.
+    private synchronized void replaceStore(TimelineStore newStore) {
+        if (store != null && store != newStore) {
+            stopWatching();
+            try {
+                store.close();
+            } catch (IOException e) {
+                System.err.println("Unable to save recent changes to: " + store.getPath());
+            }
+        }
+        store = newStore;
+        if (store != null) {
+            store.startCompactor(COMPACTION_PERIOD_MINUTES, TimeUnit.MINUTES);
+            if (watcher == null) {
+                startWatching(store);
+            }
+        }
+    }
+
+    /*
+        Watching for changes made by other programs
+     */
+
+    // MODIFIES: this
+    // EFFECTS: starts watching the files of watchedStore, so that changes other programs make to them
+    //  (eg. HealthIOcli run from a script) are merged into the timeline without reloading it.
+    //  If the files cannot be watched, the timeline simply stops picking up those changes.
+    private void startWatching(TimelineStore watchedStore) {
+        stopWatching();
+        watcher = watchedStore.watch(() -> ioExecutor.execute(() -> readExternalChanges(watchedStore)));
+        try {
+            watcher.start();
+        } catch (IOException e) {
+            System.err.println("Unable to watch for changes to: " + watchedStore.getPath());
+            watcher = null;
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: stops watching the files of the store, if they are being watched.
+    private void stopWatching() {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+
+    // EFFECTS: reads the Days of watchedStore in the months that changed on disk (on the IO thread),
+    //  then merges them into the timeline on the event thread.
+    private void readExternalChanges(TimelineStore watchedStore) {
+        try {
+            List<Day> days = watchedStore.readChangedDays();
+            SwingUtilities.invokeLater(() -> mergeExternalChanges(watchedStore, days));
+        } catch (IOException e) {
+            System.err.println("Unable to read changes to: " + watchedStore.getPath());
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: merges days into the timeline in place, if watchedStore still records it, and redraws only
+    //  the panels showing a Day that changed: the stats and mood panels if the selected day changed,
+    //  and the week panel if a day of the selected week changed.
+    //  While busy, the merge is queued behind the running IO instead, and tried again once it is done.
+    private void mergeExternalChanges(TimelineStore watchedStore, List<Day> days) {
+        if (busy) {
+            ioExecutor.execute(() -> SwingUtilities.invokeLater(() -> mergeExternalChanges(watchedStore, days)));
+            return;
+        }
+        if (store != watchedStore || !watchedStore.isRecording(timeline)) {
+            return;
+        }
+        Set<DateCode> changed = watchedStore.mergeChanges(timeline, days);
+        if (changed.isEmpty()) {
+            return;
+        }
+        if (changed.contains(timeline.getSelectedDateCode())) {
+            statsPanel.drawPanel();
+            mainPanel.drawMoodPanels();
+        }
+        int weekStart = timeline.findDateCodeEndOfWeek(true).toEpochDay();
+        int weekEnd = timeline.findDateCodeEndOfWeek(false).toEpochDay();
+        for (DateCode dc : changed) {
+            if (dc.toEpochDay() >= weekStart && dc.toEpochDay() <= weekEnd) {
+                mainPanel.getWeekPanel().drawPanel();
+                return;
+            }
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: starts autosaving the changes made to timeline to the file at path,
+    //  by flushing the journal of a json file or by updating the changed records of a binary file.
+    //  Partitioned timelines are not autosaved, since saving one loads months into the live timeline.
+    private synchronized void startAutosave(String path) {
+        if (FileFormat.PARTITIONED.matches(path)) {
+            return;
+        }
+        TimelineStore autosaveStore = store;
+        AutosaveScheduler.Target target = FileFormat.BINARY.matches(path)
+                ? days -> autosaveBinary(path, days)
+                : days -> autosaveStore.flush();
+        autosave = new AutosaveScheduler(target, AutosaveScheduler.DEFAULT_QUIET_MILLIS,
+                AutosaveScheduler.DEFAULT_MAX_DELAY_MILLIS);
+        timeline.addListener(autosave);
+    }
+
+    // MODIFIES: this
+    // EFFECTS: saves any changes still waiting to be autosaved and stops autosaving timeline.
+    private synchronized void stopAutosave() {
+        if (autosave != null) {
+            timeline.removeListener(autosave);
+            try {
+                autosave.close();
+            } catch (IOException e) {
+                System.err.println("Unable to autosave recent changes.");
+            }
+            autosave = null;
+        }
+    }
+
+    // EFFECTS: writes the changed days to the binary file at path in place and returns the bytes written.
+    //  If a day is not in the file yet, the file is written again from its own records and days,
+    //  so the live timeline is never read off the event thread.
+    private static long autosaveBinary(String path, Collection<Day> days) throws IOException {
+        BinaryWriter binaryWriter = new BinaryWriter(path);
+        long written = binaryWriter.update(days);
+        if (written >= 0) {
+            return written;
+        }
+
+        BinaryReader binaryReader = new BinaryReader(path);
+        binaryReader.open();
+        Map<DateCode, Day> merged = new HashMap<>();
+        for (int i = 0; i < binaryReader.size(); i++) {
+            Day d = binaryReader.readDay(i);
+            merged.put(d.getDateCode(), d);
+        }
+        for (Day d : days) {
+            merged.put(d.getDateCode(), d);
+        }
+        binaryWriter.open();
+        try {
+            binaryWriter.write(merged.values());
+        } finally {
+            binaryWriter.close();
+        }
+        return Files.size(Paths.get(path));
+    }
+
     // EFFECTS: Helper method. Shows a JOptionPane message dialog with specified message.
     private void showMessageDialog(String message) {
         JOptionPane.showMessageDialog(this, message);
@@ -3,17 +3,18 @@ package ui.cli;
 import model.Mood;
 import model.Timeline;
 import model.activities.Activity;
-import model.activities.DefaultActivities;
+import model.activities.ActivityRegistry;
+import persistence.AutosaveScheduler;
 import persistence.CsvWriter;
-import persistence.JsonReader;
-import persistence.JsonWriter;
+import persistence.ProgressListener;
+import persistence.TimelineStore;
 import ui.cli.enums.*;
 import ui.cli.views.*;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 
 // The main Window that controls when displaying views and handling commands, when running from the CLI.
 public class HealthIOcli {
@@ -25,17 +26,20 @@ public class HealthIOcli {
     private Timeline timeline;                              // Timeline for storing Days and moving around.
     private Window currentWindow;                           // The currently selected window (combination of views).
 
-    private JsonWriter jsonWriter;                          // The json writer to save timeline to file.
-    private JsonReader jsonReader;                          // The json reader to read timeline from file.
+    private TimelineStore store;                            // The snapshot and journal the timeline is saved to.
+    private AutosaveScheduler autosave;                     // Flushes the journal shortly after each change.
 
     // MODIFIES: this
-    // EFFECTS: creates a new Timeline and sets the current window to the Summary View.
+    // EFFECTS: loads the Timeline saved at JSONSTORE (replaying any changes journaled since it was saved),
+    //          starts the background compactor and autosave and sets the current window to the Summary View.
     public HealthIOcli() {
-        timeline = new Timeline();
         currentWindow = Window.MAIN;
 
-        jsonWriter = new JsonWriter(JSONSTORE);
-        jsonReader = new JsonReader(JSONSTORE);
+        store = new TimelineStore(JSONSTORE);
+        autosave = new AutosaveScheduler(days -> store.flush(), AutosaveScheduler.DEFAULT_QUIET_MILLIS,
+                AutosaveScheduler.DEFAULT_MAX_DELAY_MILLIS);
+        loadTimeline();
+        store.startCompactor(1, TimeUnit.MINUTES);
 
         runHealthIO();
     }
@@ -108,6 +112,7 @@ public class HealthIOcli {
         actions.add(Actions.EDITSTATS);
         actions.add(Actions.SAVE);
         actions.add(Actions.LOAD);
+        actions.add(Actions.MERGE);
         actions.add(Actions.DELETE);
         actions.add(Actions.EDITSTATS);
         actions.add(Actions.EXPORT);
@@ -179,6 +184,10 @@ public class HealthIOcli {
             message += "Press l to load from file.\n";
         }
 
+        if (availableActions.contains(Actions.MERGE)) {
+            message += "Press m to merge another timeline file into this one.\n";
+        }
+
         if (availableActions.contains(Actions.DELETE)) {
             message += "Press d to delete to file.\n";
         }
@@ -304,7 +313,7 @@ public class HealthIOcli {
         String[] activitiesList = activities.split(",");
 
         for (String s : activitiesList) {
-            Activity newActivity = DefaultActivities.getInstance().getActivity(s);
+            Activity newActivity = ActivityRegistry.getInstance().find(s);
 
             if (newActivity == null) {
                 System.out.println("You entered an invalid activity, try again.");
@@ -332,6 +341,8 @@ public class HealthIOcli {
             saveTimeline();
         } else if (availableActions.contains(Actions.LOAD) && s.equals("l")) {
             loadTimeline();
+        } else if (availableActions.contains(Actions.MERGE) && s.equals("m")) {
+            handleMerge();
         } else if (availableActions.contains(Actions.DELETE) && s.equals("d")) {
             deleteTimeline();
         }
@@ -341,11 +352,10 @@ public class HealthIOcli {
         Persistence
      */
 
-    // EFFECTS: gets a new CSV object from timeline, generates the csv string
-    //          and then prints the result to a file at CSVSTORE.
+    // EFFECTS: gets a new CSV object from timeline and streams
+    //          the csv rows to a file at CSVSTORE.
     private void saveToCSV() {
         CsvWriter exportCSV = timeline.getCsvWriter();
-        exportCSV.convertListToString();
         try {
             exportCSV.open(CSVSTORE);
             exportCSV.write();
@@ -358,41 +368,74 @@ public class HealthIOcli {
     }
 
     // EFFECTS: saves the Timeline instance to a file at JSONSTORE.
+    //          Since every change is journaled, this only flushes the journal,
+    //          unless the timeline is not being recorded (it could not be loaded) and a full save is needed.
     private void saveTimeline() {
         try {
-            jsonWriter.open();
-            jsonWriter.write(timeline);
-            jsonWriter.close();
+            if (store.isRecording(timeline)) {
+                store.flush();
+            } else {
+                store.reset(timeline);
+            }
             System.out.println("Saved timeline to: " + JSONSTORE);
-        } catch (FileNotFoundException f) {
+        } catch (IOException e) {
             System.out.println("Unable to write to file: " + JSONSTORE);
         }
     }
 
-    // EFFECTS: loads the Timeline instance from a file at JSONSTORE.
+    // MODIFIES: this
+    // EFFECTS: loads the Timeline instance from a file at JSONSTORE, replaying its journal.
+    //          Creates a new timeline if the file cannot be read.
     private void loadTimeline() {
         try {
-            timeline = jsonReader.read();
+            setTimeline(store.load());
             System.out.println("Loaded timeline from: " + JSONSTORE);
         } catch (IOException e) {
             System.out.println("Unable to read from file: " + JSONSTORE);
+            if (timeline == null) {
+                setTimeline(new Timeline());
+            }
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: prompts the user for the path of a json timeline and merges it into the file at JSONSTORE
+    //          (see TimelineStore.merge), then continues with the merged timeline.
+    private void handleMerge() {
+        Scanner in = new Scanner(System.in);
+        System.out.println("Please enter the path of the timeline file to merge: ");
+        String path = in.nextLine().trim();
+        try {
+            setTimeline(store.merge(path, ProgressListener.NONE));
+            System.out.println("Merged " + path + " into: " + JSONSTORE);
+        } catch (IOException e) {
+            System.out.println("Unable to merge " + path + " into: " + JSONSTORE);
         }
     }
 
     // MODIFIES: this
-    // EFFECTS: saves a blank string to a file at JSONSTORE,
-    //          and creates a new timeline instance.
+    // EFFECTS: creates a new timeline instance, and overwrites the file at JSONSTORE
+    //          (and its journal) with it.
     private void deleteTimeline() {
         try {
-            jsonWriter.open();
-            jsonWriter.close();
-            timeline = new Timeline();
+            setTimeline(new Timeline());
+            store.reset(timeline);
             System.out.println("Deleted timeline at: " + JSONSTORE + "\nand created new one.");
-        } catch (FileNotFoundException f) {
+        } catch (IOException e) {
             System.out.println("Unable to delete timeline at: " + JSONSTORE);
         }
     }
 
+    // MODIFIES: this
+    // EFFECTS: replaces the timeline, moving the autosave over to the new one.
+    private void setTimeline(Timeline tl) {
+        if (timeline != null) {
+            timeline.removeListener(autosave);
+        }
+        timeline = tl;
+        timeline.addListener(autosave);
+    }
+
     public static void main(String[] args) {
         new HealthIOcli();
     }
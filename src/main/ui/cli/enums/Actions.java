@@ -10,6 +10,7 @@ public enum Actions {
     UPDATESLEEPVALUE,
     SAVE,
     LOAD,
+    MERGE,
     DELETE,
     EXPORT,
     BACK
@@ -2,7 +2,7 @@ package ui.cli.views;
 
 import model.Mood;
 import model.activities.Activity;
-import model.activities.DefaultActivities;
+import model.activities.ActivityRegistry;
 
 // The View that displays all available activities, and if they are currently selected.
 public class ActivitiesView implements View {
@@ -22,14 +22,14 @@ public class ActivitiesView implements View {
     }
 
     // EFFECTS: returns a string containing the header + footer of the view,
-    //          as well as the dynamically generated list of activities from DefaultActivities.
+    //          as well as the dynamically generated list of activities from the ActivityRegistry.
     private String drawActivitiesPanel() {
         String panelString = "|               Activities               |\n"
                            + "|                                        |\n";
 
         int activityCounter = 3;
         panelString += "|    ";
-        for (Activity a : DefaultActivities.getInstance().getActivityList()) {
+        for (Activity a : ActivityRegistry.getInstance().getActivities()) {
             if (activityCounter == 0) {
                 activityCounter = 3;
                 panelString += "|\n|     ";
@@ -1,11 +1,12 @@
 package ui.components;
 
 import ui.HealthIO;
+import ui.enums.FileFormat;
 import ui.enums.IOOperation;
 import ui.sound.AlertSound;
 
 import javax.swing.*;
-import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.filechooser.FileFilter;
 import java.awt.event.ActionListener;
 import java.io.File;
 
@@ -16,16 +17,28 @@ public abstract class AbstractFileChooser extends JFileChooser {
 
     // MODIFIES: this
     // EFFECTS: defines an abstract constructor which initializes the JFileChooser and
-    //  sets the FileChooser operation and JSON file extension filter.
+    //  sets the FileChooser operation and a file extension filter for each format it supports.
+    //  The operation's default format is selected.
     public AbstractFileChooser(IOOperation operation) {
         super();
 
         this.operation = operation;
 
         setAcceptAllFileFilterUsed(false);
-        setFileFilter(
-                new FileNameExtensionFilter("JSON files", "json")
-        );
+        for (FileFormat format : operation.getFormats()) {
+            addChoosableFileFilter(new FormatFileFilter(format));
+        }
+        setFileFilter(getChoosableFileFilters()[0]);
+    }
+
+    // EFFECTS: returns the format of the file extension filter the user has selected.
+    public FileFormat getSelectedFormat() {
+        for (FileFormat format : operation.getFormats()) {
+            if (format.description.equals(getFileFilter().getDescription())) {
+                return format;
+            }
+        }
+        return operation.getFormats()[0];
     }
 
     // EFFECTS: Configures the specific FileChooser.
@@ -44,7 +57,8 @@ public abstract class AbstractFileChooser extends JFileChooser {
     //  and handle response. Else, carry on as normal.
     public void approveSelection() {
         File f = getSelectedFile();
-        if (f.exists() && (operation == IOOperation.SAVE || operation == IOOperation.EXPORT)) {
+        if (f.exists() && (operation == IOOperation.SAVE || operation == IOOperation.EXPORT
+                || operation == IOOperation.EXPORT_ALL)) {
             new AlertSound().play();
 
             int result = JOptionPane.showConfirmDialog(this, "This file exists, overwrite?",
@@ -63,4 +77,27 @@ public abstract class AbstractFileChooser extends JFileChooser {
         }
         super.approveSelection();
     }
+
+    // Represents a file filter showing directories and the files of a FileFormat (including compressed ones).
+    private static class FormatFileFilter extends FileFilter {
+
+        private final FileFormat format;    // The format of the files shown.
+
+        // EFFECTS: creates a filter showing the files of format.
+        FormatFileFilter(FileFormat format) {
+            this.format = format;
+        }
+
+        @Override
+        // EFFECTS: returns true if f is a directory or a file of the format.
+        public boolean accept(File f) {
+            return f.isDirectory() || format.matches(f.getName());
+        }
+
+        @Override
+        // EFFECTS: returns the description of the format.
+        public String getDescription() {
+            return format.description;
+        }
+    }
 }
@@ -0,0 +1,26 @@
+package ui.components;
+
+import ui.enums.IOOperation;
+
+import javax.swing.*;
+
+// Represents a FileChooser window to select the json file to export Timeline to, with a CSV and a binary
+//  copy next to it.
+public class ExportAllFileChooser extends AbstractFileChooser {
+
+    // MODIFIES: this
+    // EFFECTS: create a FileChooser with custom parameters through
+    //  the AbstractFileChooser class (which filters to json files).
+    public ExportAllFileChooser() {
+        super(IOOperation.EXPORT_ALL);
+        initComponent();
+    }
+
+    @Override
+    // MODIFIES: this
+    // EFFECTS: Sets the FileChooser as a save window and sets the title of the window.
+    protected void initComponent() {
+        setDialogTitle("Export timeline to all formats");
+        setDialogType(JFileChooser.SAVE_DIALOG);
+    }
+}
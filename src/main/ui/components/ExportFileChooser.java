@@ -3,20 +3,15 @@ package ui.components;
 import ui.enums.IOOperation;
 
 import javax.swing.*;
-import javax.swing.filechooser.FileNameExtensionFilter;
 
 // Represents a FileChooser window to select where to export Timeline as CSV.
 public class ExportFileChooser extends AbstractFileChooser {
 
     // MODIFIES: this
     // EFFECTS: create a FileChooser with custom parameters through
-    //  the AbstractFileChooser class. Override the FileFilter to csv files.
+    //  the AbstractFileChooser class (which filters to csv files).
     public ExportFileChooser() {
         super(IOOperation.EXPORT);
-        setFileFilter(
-                new FileNameExtensionFilter("CSV files", "csv")
-        );
-
         initComponent();
     }
 
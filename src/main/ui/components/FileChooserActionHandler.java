@@ -1,6 +1,7 @@
 package ui.components;
 
 import ui.HealthIO;
+import ui.enums.FileFormat;
 import ui.enums.IOOperation;
 
 import javax.swing.*;
@@ -35,44 +36,37 @@ public class FileChooserActionHandler implements ActionListener {
     }
 
     // MODIFIES: healthIO
-    // EFFECTS: Helper function. Handles exporting and saving/loading then redraws UI.
-    //  If exporting: handle the export then short circuit.
-    //  If saving/loading: handle the save/load
+    // EFFECTS: Helper function. Starts the export, save, load, merge or CSV import in the background.
+    //  (a load or import redraws the UI itself once the new timeline is in place)
     private void handleSelection() {
         File selectedFile = fileChooser.getSelectedFile();
-        String path = selectedFile.getAbsolutePath();
+        String path = ensureExtension(selectedFile.getAbsolutePath());
 
-        if (fileChooser.operation == IOOperation.EXPORT) {
-            handleExport(path);
-            return;
-        }
-
-        handleSaveAndLoad(path);
-        healthIO.drawPanels();
-    }
-
-    // MODIFIES: healthIO
-    // EFFECTS: Helper function. Ensures path ends with '.json'
-    //  and calls necessary Timeline IO function.
-    private void handleSaveAndLoad(String path) {
-        if (!path.endsWith(".json")) {
-            path += ".json";
-        }
-
-        if (fileChooser.operation == IOOperation.LOAD) {
+        if (fileChooser.operation == IOOperation.EXPORT && FileFormat.COLUMNAR.matches(path)) {
+            healthIO.exportTimelineAsColumns(path);
+        } else if (fileChooser.operation == IOOperation.EXPORT) {
+            healthIO.exportTimelineAsCSV(path);
+        } else if (fileChooser.operation == IOOperation.EXPORT_ALL) {
+            healthIO.exportTimelineToAllFormats(path);
+        } else if (fileChooser.operation == IOOperation.LOAD && FileFormat.CSV.matches(path)) {
+            healthIO.importTimelineFromCSV(path);
+        } else if (fileChooser.operation == IOOperation.LOAD) {
             healthIO.loadTimeline(path);
+        } else if (fileChooser.operation == IOOperation.MERGE) {
+            healthIO.mergeTimeline(path);
         } else {
             healthIO.saveTimeline(path);
         }
     }
 
-    // MODIFIES: healthIO
-    // EFFECTS: Helper function. Ensures path ends with '.csv'
-    //  and calls export Timeline IO function.
-    private void handleExport(String path) {
-        if (!path.endsWith(".csv")) {
-            path += ".csv";
+    // EFFECTS: Helper function. Returns path unchanged if it ends with the extension of a format
+    //  the operation supports, else returns path with the selected format's extension appended.
+    private String ensureExtension(String path) {
+        for (FileFormat format : fileChooser.operation.getFormats()) {
+            if (format.matches(path)) {
+                return path;
+            }
         }
-        healthIO.exportTimelineAsCSV(path);
+        return path + "." + fileChooser.getSelectedFormat().extension;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,99 @@
+package ui.components;
+
+import persistence.ProgressListener;
+import ui.HealthIO;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+// Represents a save, load or export that runs on a background thread while the window stays responsive.
+//  A non-modal progress dialog (only shown if the task is slow) reports how far it has got and lets the
+//  user cancel it. The window ignores input until the task is done, so the timeline cannot change under it.
+public class IOTask<T> extends SwingWorker<T, Void> implements ProgressListener {
+
+    private static final int MAX_PROGRESS = 100;        // The progress of a finished task.
+    private static final int POLL_MILLIS = 100;         // How often the progress dialog is updated.
+
+    private final HealthIO healthIO;                    // The root JFrame object
+    private final Work<T> work;                         // The IO to run in the background.
+    private final Consumer<T> onSuccess;                // Given the result on the event thread when done.
+    private final String failureMessage;                // Shown if the work throws an IOException.
+    private final ProgressMonitor monitor;              // The progress dialog, with a cancel button.
+    private final Timer poller;                         // Copies progress to monitor and checks for cancel.
+    private volatile boolean cancelRequested;           // True once the user has pressed cancel.
+
+    // MODIFIES: this
+    // EFFECTS: creates a task that runs work, describing it with note in the progress dialog.
+    //  When done, onSuccess is given the result, or failureMessage is shown if work failed.
+    public IOTask(HealthIO ui, String note, Work<T> work, Consumer<T> onSuccess, String failureMessage) {
+        this.healthIO = ui;
+        this.work = work;
+        this.onSuccess = onSuccess;
+        this.failureMessage = failureMessage;
+
+        monitor = new ProgressMonitor(ui, note, null, 0, MAX_PROGRESS);
+        poller = new Timer(POLL_MILLIS, e -> updateMonitor());
+    }
+
+    // MODIFIES: this, healthIO
+    // EFFECTS: blocks input to the window and runs the task on executor.
+    public void start(Executor executor) {
+        healthIO.setBusy(true);
+        poller.start();
+        executor.execute(this);
+    }
+
+    @Override
+    // EFFECTS: runs the work, reporting progress through this.
+    protected T doInBackground() throws IOException {
+        return work.run(this);
+    }
+
+    @Override
+    // MODIFIES: this
+    // EFFECTS: records done out of total as the progress of the task (in percent).
+    //  Returns false once the user has cancelled.
+    public boolean progress(long done, long total) {
+        if (total > 0) {
+            setProgress((int) Math.min(MAX_PROGRESS, done * MAX_PROGRESS / total));
+        }
+        return !cancelRequested;
+    }
+
+    @Override
+    // MODIFIES: this, healthIO
+    // EFFECTS: closes the progress dialog and unblocks the window, then hands the result to onSuccess.
+    //  Tells the user if the work was cancelled or failed instead.
+    protected void done() {
+        poller.stop();
+        monitor.close();
+        healthIO.setBusy(false);
+
+        try {
+            onSuccess.accept(get());
+        } catch (ExecutionException e) {
+            boolean cancelled = e.getCause() instanceof InterruptedIOException;
+            JOptionPane.showMessageDialog(healthIO, cancelled ? "Cancelled." : failureMessage);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // MODIFIES: this
+    // EFFECTS: shows the current progress in the dialog and notes if the user pressed cancel.
+    private void updateMonitor() {
+        monitor.setProgress(getProgress());
+        if (monitor.isCanceled()) {
+            cancelRequested = true;
+        }
+    }
+
+    // Represents IO that reports its progress to a listener and produces a result.
+    public interface Work<T> {
+        T run(ProgressListener progressListener) throws IOException;
+    }
+}
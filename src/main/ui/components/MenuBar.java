@@ -26,8 +26,8 @@ public class MenuBar extends JMenuBar {
         add(generateFileMenu());
     }
 
-    // EFFECTS: Helper method. Creates a new JMenu, adds Save, Load, Export, Reset & Exit buttons;
-    //  with their respective action listener. Returns the created JMenu object.
+    // EFFECTS: Helper method. Creates a new JMenu, adds Save, Load, Merge, Export, Export all formats,
+    //  Reset & Exit buttons; with their respective action listener. Returns the created JMenu object.
     private JMenu generateFileMenu() {
         JMenu jmenu = new JMenu();
         jmenu.setText("File");
@@ -38,9 +38,15 @@ public class MenuBar extends JMenuBar {
         jmenu.add(generateButton("Load",
                 new LoadFileChooser().generateActionListener(healthIO)));
 
+        jmenu.add(generateButton("Merge",
+                new MergeFileChooser().generateActionListener(healthIO)));
+
         jmenu.add(generateButton("Export",
                 new ExportFileChooser().generateActionListener(healthIO)));
 
+        jmenu.add(generateButton("Export all formats",
+                new ExportAllFileChooser().generateActionListener(healthIO)));
+
         jmenu.add(new JSeparator());
 
         jmenu.add(generateButton("Reset",
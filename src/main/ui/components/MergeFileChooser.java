@@ -0,0 +1,26 @@
+package ui.components;
+
+import ui.enums.IOOperation;
+
+import javax.swing.*;
+
+// Represents a FileChooser window to select a saved timeline (json file) to merge into the current one.
+public class MergeFileChooser extends AbstractFileChooser {
+
+    // MODIFIES: this
+    // EFFECTS: create a FileChooser with custom parameters through
+    //  the AbstractFileChooser class.
+    public MergeFileChooser() {
+        super(IOOperation.MERGE);
+        initComponent();
+    }
+
+    @Override
+    // MODIFIES: this
+    // EFFECTS: Sets the FileChooser as an open window and sets the title of the window.
+    protected void initComponent() {
+        setDialogTitle("Merge timeline file");
+        setDialogType(JFileChooser.OPEN_DIALOG);
+    }
+
+}
@@ -0,0 +1,46 @@
+package ui.enums;
+
+import persistence.Compression;
+
+// Represents a file format the user can pick in a FileChooser, with its description and file extension.
+//  Compressible formats also match their extension followed by a compression's (eg. .json.gz).
+public enum FileFormat {
+    JSON("JSON files (.json, .json.gz)", "json", true),
+    BINARY("HealthIO binary files", "hio", false),
+    PARTITIONED("HealthIO timelines split by month", "hiop", false),
+    CSV("CSV files (.csv, .csv.gz)", "csv", true),
+    COLUMNAR("Columns for analytics tools", "hioc", false);
+
+    public final String description;
+    public final String extension;
+    public final boolean compressible;
+
+    // MODIFIES: this
+    // EFFECTS: creates a FileFormat, and assigns it its description, extension (without the dot)
+    //  and whether its files can be compressed.
+    FileFormat(String description, String extension, boolean compressible) {
+        this.description = description;
+        this.extension = extension;
+        this.compressible = compressible;
+    }
+
+    // EFFECTS: returns true if path ends with this format's extension
+    //  (optionally followed by a compression's extension, if the format is compressible).
+    public boolean matches(String path) {
+        String lowerPath = path.toLowerCase();
+        if (compressible) {
+            lowerPath = Compression.stripExtension(lowerPath);
+        }
+        return lowerPath.endsWith("." + extension);
+    }
+
+    // EFFECTS: returns the format whose extension path ends with, or null if there is none.
+    public static FileFormat fromPath(String path) {
+        for (FileFormat format : values()) {
+            if (format.matches(path)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -1,16 +1,26 @@
 package ui.enums;
 
-// Represents an FileChooser IO operation the user can take and its string representation.
+// Represents an FileChooser IO operation the user can take, its string representation
+//  and the file formats it supports (the first being the default).
 public enum IOOperation {
-    SAVE("Save"),
-    LOAD("Load"),
-    EXPORT("Export");
+    SAVE("Save", FileFormat.JSON, FileFormat.BINARY, FileFormat.PARTITIONED),
+    LOAD("Load", FileFormat.JSON, FileFormat.BINARY, FileFormat.PARTITIONED, FileFormat.CSV),
+    EXPORT("Export", FileFormat.CSV, FileFormat.COLUMNAR),
+    EXPORT_ALL("Export", FileFormat.JSON),
+    MERGE("Merge", FileFormat.JSON);
 
     public final String shortName;
+    private final FileFormat[] formats;
 
     // MODIFIES: this
-    // EFFECTS: creates an IOOperation, and assigns it its string representation.
-    IOOperation(String label) {
+    // EFFECTS: creates an IOOperation, and assigns it its string representation and supported formats.
+    IOOperation(String label, FileFormat... formats) {
         this.shortName = label;
+        this.formats = formats;
+    }
+
+    // EFFECTS: returns the file formats supported by this operation, default first.
+    public FileFormat[] getFormats() {
+        return formats.clone();
     }
 }
@@ -41,4 +41,11 @@ public class MainPanel extends AbstractPanel {
     public WeekPanel getWeekPanel() {
         return weekPanel;
     }
+
+    // MODIFIES: this
+    // EFFECTS: redraws both mood panels (eg. after the selected day was changed by another program).
+    public void drawMoodPanels() {
+        mood1Panel.drawPanel();
+        mood2Panel.drawPanel();
+    }
 }
@@ -3,7 +3,7 @@ package ui.panels;
 import model.Mood;
 import model.Timeline;
 import model.activities.Activity;
-import model.activities.DefaultActivities;
+import model.activities.ActivityRegistry;
 import ui.HealthIO;
 
 import javax.swing.*;
@@ -13,6 +13,7 @@ import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.List;
 
 // Represents a panel displaying the values of a mood & selected activities.
 public class MoodPanel extends AbstractPanel implements Drawable {
@@ -21,6 +22,7 @@ public class MoodPanel extends AbstractPanel implements Drawable {
     private JList<String> activitiesList;   // The JList displaying the available/selected activities.
 
     private final int selectedMoodIndex;    // Which mood value this panel is responsible for (0 or 1).
+    private boolean drawing;                // True while drawPanel selects the activities of the mood.
 
     // MODIFIES: this
     // EFFECTS: create a JPanel with custom parameters through the AbstractPanel class.
@@ -57,14 +59,22 @@ public class MoodPanel extends AbstractPanel implements Drawable {
     @Override
     // MODIFIES: this
     // EFFECTS: Sets the mood slider's position to the mood value of the currently selected date.
-    //  Highlights the activities in the mood.
+    //  Rebuilds the activity list if activities have been registered since (eg. by loading a file),
+    //  and highlights the activities in the mood without changing them.
     public void drawPanel() {
         Timeline tl = healthIO.getTimeline();
         Mood mood = tl.getDay().getMood(selectedMoodIndex);
         moodSlider.setValue(mood.getMoodScore());
 
-        int[] selectedIndices = determineSelectedIndices(mood);
-        activitiesList.setSelectedIndices(selectedIndices);
+        drawing = true;     // Changing the model or selection here must not change the mood
+        try {
+            if (activitiesList.getModel().getSize() != ActivityRegistry.getInstance().size()) {
+                activitiesList.setModel(new ActivityListModel());
+            }
+            activitiesList.setSelectedIndices(determineSelectedIndices(mood));
+        } finally {
+            drawing = false;
+        }
     }
 
     // EFFECTS: Helper method. Creates a new JSlider, initializes the
@@ -103,9 +113,10 @@ public class MoodPanel extends AbstractPanel implements Drawable {
         ActivityListModel model = (ActivityListModel) activitiesList.getModel();
 
         ArrayList<Integer> builderList = new ArrayList<>();
+        long moodActivities = m.getActivityMask();
 
         for (int i = 0; i < model.getSize(); i++) {
-            if (m.containsActivity(model.getElementAt(i))) {
+            if ((moodActivities & model.getMaskAt(i)) != 0) {
                 builderList.add(i);
             }
         }
@@ -144,24 +155,33 @@ public class MoodPanel extends AbstractPanel implements Drawable {
         }
     }
 
-    // Represents a JList model containing all Activities in DefaultActivities
+    // Represents a JList model containing all Activities in the ActivityRegistry
     private static class ActivityListModel extends AbstractListModel<String> {
 
-        String[] activityStringList;        // All string representations of the DefaultActivities
+        String[] activityStringList;        // All string representations of the registered Activities
+        long[] activityMasks;               // The bit of each of the registered Activities (see Activity.getMask)
 
         // MODIFIES: this
         // EFFECTS: creates a new Model and adds all the string
-        //  representations of the DefaultActivities to the model's String list.
+        //  representations of the registered Activities (default and user-defined) to the model's String list.
         public ActivityListModel() {
             ArrayList<String> builderList = new ArrayList<>();
+            List<Activity> activities = ActivityRegistry.getInstance().getActivities();
+            activityMasks = new long[activities.size()];
 
-            for (Activity a : DefaultActivities.getInstance().getActivityList()) {
+            for (Activity a : activities) {
+                activityMasks[builderList.size()] = a.getMask();
                 builderList.add(a.getActivityName());
             }
 
             activityStringList = builderList.toArray(new String[0]);
         }
 
+        // EFFECTS: returns the bit of the activity at the specified index in the String list.
+        public long getMaskAt(int index) {
+            return activityMasks[index];
+        }
+
 
         @Override
         // EFFECTS: returns the size of the String list
@@ -181,40 +201,32 @@ public class MoodPanel extends AbstractPanel implements Drawable {
 
         @Override
         // MODIFIES: healthIO.timeline
-        // EFFECTS: If user is finished selecting items, gets the selected mood,
-        //  calls a helper function to delete all activities in mood and add changed values.
-        //  (Since JList selected all activities in mood when created, a change will
-        //   include all old activities, so we can remove all and re-add them.)
+        // EFFECTS: If user is finished selecting items (and the selection is not drawPanel showing the mood),
+        //  gets the selected mood and makes the activities in the JList match the selection.
+        //  Activities the JList does not show are left in the mood.
         public void valueChanged(ListSelectionEvent e) {
-            if (!e.getValueIsAdjusting()) {
+            if (!e.getValueIsAdjusting() && !drawing) {
                 Mood selectedMood = healthIO.getTimeline()
                         .getDay().getMood(selectedMoodIndex);
 
-                deleteAllActivitiesInAssignedMood(selectedMood);
-                addSelectedActivitiesToMood(selectedMood);
+                applySelectionToMood(selectedMood);
             }
         }
 
         // MODIFIES: healthIO.timeline
-        // EFFECTS: Deletes all activities in the current mood by name.
-        private void deleteAllActivitiesInAssignedMood(Mood m) {
-            ArrayList<String> currentActivityListNames = new ArrayList<>();
-            m.getActivityList().forEach(activity ->
-                    currentActivityListNames.add(activity.getActivityName()));
-
-            currentActivityListNames.forEach(m::removeActivity);
-        }
-
-        // MODIFIES: healthIO.timeline
-        // EFFECTS: Adds all selected JList items (Activity String names)
-        //  to the selected mood through DefaultActivities by name.
-        private void addSelectedActivitiesToMood(Mood m) {
+        // EFFECTS: Adds each selected JList item (Activity String name) that is not in the mood, and removes
+        //  each unselected one that is, through the ActivityRegistry by name.
+        private void applySelectionToMood(Mood m) {
             ActivityListModel activityListModel = (ActivityListModel) activitiesList.getModel();
-            int[] selectedIndices = activitiesList.getSelectedIndices();
 
-            for (int i : selectedIndices) {
-                m.addActivity(DefaultActivities.getInstance()
-                        .getActivity(activityListModel.getElementAt(i)));
+            for (int i = 0; i < activityListModel.getSize(); i++) {
+                String activityName = activityListModel.getElementAt(i);
+                boolean selected = activitiesList.isSelectedIndex(i);
+                if (selected && !m.containsActivity(activityName)) {
+                    m.addActivity(ActivityRegistry.getInstance().find(activityName));
+                } else if (!selected && m.containsActivity(activityName)) {
+                    m.removeActivity(activityName);
+                }
             }
         }
     }
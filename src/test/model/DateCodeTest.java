@@ -4,6 +4,9 @@ import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
 public class DateCodeTest {
 
     DateCode d1;
@@ -91,4 +94,84 @@ public class DateCodeTest {
         assertEquals("11/10", d3.getDateAndMonth());
     }
 
+    @Test
+    void testEpochDay() {
+        assertEquals(0, new DateCode(1970, 1, 1).toEpochDay());
+        assertEquals(18293, d1.toEpochDay());
+        assertEquals(d1, DateCode.fromEpochDay(d1.toEpochDay()));
+        assertEquals(d2, DateCode.fromEpochDay(d2.toEpochDay()));
+        assertEquals(new DateCode(1969, 12, 31), DateCode.fromEpochDay(-1));
+    }
+
+    @Test
+    void testEpochDayMatchesLocalDate() {
+        for (long day = -200000; day <= 200000; day += 7) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            DateCode dc = DateCode.fromEpochDay(day);
+            assertEquals(date.getYear(), dc.getYear());
+            assertEquals(date.getMonthValue(), dc.getMonth());
+            assertEquals(date.getDayOfMonth(), dc.getDate());
+            assertEquals(day, DateCode.of(date.getYear(), date.getMonthValue(), date.getDayOfMonth()).toEpochDay());
+            assertEquals(dc, DateCode.parse(dc.toString()));
+        }
+    }
+
+    @Test
+    void testParse() {
+        assertEquals(d1, DateCode.parse("2020-02-01"));
+        assertEquals(d1, new DateCode("2020-02-01"));
+        assertEquals(d2, DateCode.parse("2021-6-5"));
+        assertEquals(18293, DateCode.parseEpochDay("2020-02-01"));
+        assertEquals(new DateCode(-44, 3, 15), DateCode.parse("-44-03-15"));
+        assertSame(DateCode.parse("2020-02-01"), DateCode.of(2020, 2, 1));
+        assertSame(DateCode.of(2020, 2, 1), DateCode.fromEpochDay(18293));
+    }
+
+    @Test
+    void testParseInvalid() {
+        for (String s : new String[]{"", "2020", "2020-02", "2020-02-01-01", "2020--01", "2020-0a-01", "-",
+                "2020-02-01 ", "12345678901-01-01"}) {
+            assertThrows(NumberFormatException.class, () -> DateCode.parse(s), s);
+        }
+        assertThrows(DateTimeException.class, () -> DateCode.parse("2021-02-29"));
+        assertThrows(DateTimeException.class, () -> DateCode.parse("2021-13-01"));
+        assertThrows(DateTimeException.class, () -> new DateCode("2021-04-31"));
+        assertThrows(DateTimeException.class, () -> new DateCode(2021, 0, 1));
+        assertThrows(DateTimeException.class, () -> DateCode.of(2021, 1, 0));
+        assertThrows(DateTimeException.class, () -> DateCode.fromEpochDay(Long.MAX_VALUE));
+        assertEquals(29, DateCode.parse("2000-02-29").getDate());
+    }
+
+    @Test
+    void testPlusDays() {
+        assertEquals(new DateCode(2020, 3, 1), new DateCode(2020, 2, 29).plusDays(1));
+        assertEquals(new DateCode(2021, 3, 1), new DateCode(2021, 2, 28).plusDays(1));
+        assertEquals(new DateCode(2021, 1, 1), new DateCode(2020, 12, 31).plusDays(1));
+        assertEquals(new DateCode(2020, 12, 31), new DateCode(2021, 1, 1).plusDays(-1));
+        assertEquals(new DateCode(2021, 2, 1), d1.plusDays(366));
+        assertSame(DateCode.of(2020, 2, 1), d1.plusDays(0));
+        assertEquals(new DateCode(2020, 3, 7), d1.plusWeeks(5));
+        assertEquals(new DateCode(2020, 1, 25), d1.plusWeeks(-1));
+    }
+
+    @Test
+    void testDayOfWeek() {
+        assertEquals(5, new DateCode(1970, 1, 1).dayOfWeek());
+        assertEquals(DateCode.SUNDAY, new DateCode(2021, 10, 17).dayOfWeek());
+        assertEquals(DateCode.SATURDAY, new DateCode(2021, 10, 16).dayOfWeek());
+        assertEquals(DateCode.SATURDAY, new DateCode(1969, 12, 27).dayOfWeek());
+        assertEquals(new DateCode(2021, 10, 17), new DateCode(2021, 10, 23).weekStart());
+        assertEquals(new DateCode(2021, 10, 17), new DateCode(2021, 10, 17).weekStart());
+        assertEquals(new DateCode(1969, 12, 28), new DateCode(1970, 1, 1).weekStart());
+    }
+
+    @Test
+    void testCompareToAndHashCode() {
+        assertTrue(d1.compareTo(d2) < 0);
+        assertTrue(d2.compareTo(d1) > 0);
+        assertEquals(0, d1.compareTo(d3));
+        assertEquals(d1.hashCode(), d3.hashCode());
+        assertNotEquals(d1.hashCode(), d2.hashCode());
+    }
+
 }
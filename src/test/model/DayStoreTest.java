@@ -0,0 +1,204 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import model.activities.Activity;
+import model.activities.DefaultActivities;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class DayStoreTest {
+
+    DayStore store;
+    Activity music;
+    Activity exercise;
+
+    @BeforeEach
+    void createStore() {
+        store = new DayStore();
+        music = DefaultActivities.getInstance().getActivity("Music");
+        exercise = DefaultActivities.getInstance().getActivity("Exercise");
+    }
+
+    @Test
+    void testPutAttachesDay() {
+        Day d = new Day(DateCode.fromEpochDay(100));
+        d.setSleepHours(7);
+        d.getMood(1).setMoodScore(4);
+        d.getMood(1).addActivity(music);
+        assertNull(store.put(d));
+
+        assertEquals(1, store.size());
+        assertTrue(store.hasDay(100));
+        assertFalse(store.hasDay(101));
+        assertEquals(7, store.getSleepHours(100));
+        assertEquals(4, store.getMoodScore(100, 1));
+        assertEquals(-1, store.getMoodScore(100, 0));
+        assertEquals(music.getMask(), store.getActivityMask(100, 1));
+
+        // The Day put is now a view of its row
+        d.setSleepHours(8);
+        d.getMood(0).addActivity(exercise);
+        assertEquals(8, store.getSleepHours(100));
+        assertTrue(store.get(100).getMood(0).containsActivity("Exercise"));
+        d.getMood(1).removeActivity("Music");
+        assertEquals(0, store.getActivityMask(100, 1));
+        assertEquals(0, d.getMood(1).getActivityListLength());
+    }
+
+    @Test
+    void testViews() {
+        store.put(new Day(DateCode.fromEpochDay(5)));
+        Day view = store.get(5);
+        view.getMood(0).setMoodScore(3);
+        view.getMood(0).addActivity(music);
+        view.getMood(0).addActivity(exercise);
+
+        Day other = store.get(5);
+        assertNotSame(view, other);
+        assertEquals(3, other.getMood(0).getMoodScore());
+        assertEquals(Arrays.asList(music, exercise), other.getMood(0).getActivityList());
+        assertEquals(2, other.getMood(0).getActivityListLength());
+        assertEquals("3", other.getMood(0).getUIMoodString());
+        assertEquals("x", other.getUISleepHours());
+        assertEquals(view.toJson().toString(), other.toJson().toString());
+        assertNull(store.get(6));
+    }
+
+    @Test
+    void testGrowsBothWays() {
+        for (int epochDay = 1000; epochDay >= 0; epochDay -= 3) {
+            Day d = new Day(DateCode.fromEpochDay(epochDay));
+            d.setSleepHours(epochDay % 17);
+            store.put(d);
+        }
+        for (int epochDay = 1001; epochDay < 3000; epochDay += 3) {
+            Day d = new Day(DateCode.fromEpochDay(epochDay));
+            d.setSleepHours(epochDay % 17);
+            store.put(d);
+        }
+        int previous = Integer.MIN_VALUE;
+        int count = 0;
+        for (Day d : store) {
+            int epochDay = d.getDateCode().toEpochDay();
+            assertTrue(epochDay > previous);
+            assertEquals(epochDay % 17, d.getSleepHours());
+            previous = epochDay;
+            count++;
+        }
+        assertEquals(store.size(), count);
+        assertEquals(1001, store.size());
+    }
+
+    @Test
+    void testFloorCeilingAndBetween() {
+        for (int epochDay : new int[]{-3, 4, 8, 20}) {
+            store.put(new Day(DateCode.fromEpochDay(epochDay)));
+        }
+        assertNull(store.floor(-4));
+        assertEquals(4, store.floor(7).getDateCode().toEpochDay());
+        assertEquals(20, store.floor(Integer.MAX_VALUE).getDateCode().toEpochDay());
+        assertEquals(-3, store.ceiling(Integer.MIN_VALUE).getDateCode().toEpochDay());
+        assertEquals(8, store.ceiling(5).getDateCode().toEpochDay());
+        assertNull(store.ceiling(21));
+        assertEquals(2, store.between(0, 10).length);
+
+        store.removeBetween(0, 10);
+        assertEquals(2, store.size());
+        assertNull(store.get(4));
+        assertEquals(-3, store.floor(19).getDateCode().toEpochDay());
+        assertTrue(store.removeIf(d -> d.getDateCode().toEpochDay() < 0));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void testFloorCeilingSparse() {
+        // Days on either side of the boundaries of the bitmap words (64 rows) and summary words (4096 rows)
+        int[] dates = {3, 63, 64, 4095, 4096, 4160, 70000, 300000};
+        for (int epochDay : dates) {
+            store.put(new Day(DateCode.fromEpochDay(epochDay)));
+        }
+        store.removeBetween(4100, 4200);
+        dates = new int[]{3, 63, 64, 4095, 4096, 70000, 300000};
+        for (int epochDay = -1; epochDay <= 300001; epochDay += epochDay < 5000 ? 1 : 997) {
+            assertEquals(expectedFloor(dates, epochDay), epochDayOf(store.floor(epochDay)));
+            assertEquals(expectedCeiling(dates, epochDay), epochDayOf(store.ceiling(epochDay)));
+        }
+        assertEquals(300000, epochDayOf(store.floor(300001)));
+        int count = 0;
+        for (Day d : store) {
+            assertEquals(dates[count++], d.getDateCode().toEpochDay());
+        }
+        assertEquals(dates.length, count);
+        assertEquals(4, store.between(64, 70000).length);
+    }
+
+    // EFFECTS: returns the latest of dates on or before epochDay, or -1 if there is none.
+    private static int expectedFloor(int[] dates, int epochDay) {
+        return Arrays.stream(dates).filter(d -> d <= epochDay).max().orElse(-1);
+    }
+
+    // EFFECTS: returns the earliest of dates on or after epochDay, or -1 if there is none.
+    private static int expectedCeiling(int[] dates, int epochDay) {
+        return Arrays.stream(dates).filter(d -> d >= epochDay).min().orElse(-1);
+    }
+
+    // EFFECTS: returns the epoch day of d, or -1 if d is null.
+    private static int epochDayOf(Day d) {
+        return d == null ? -1 : d.getDateCode().toEpochDay();
+    }
+
+    @Test
+    void testReplaceReturnsCopy() {
+        Day first = new Day(DateCode.fromEpochDay(10));
+        first.setSleepHours(5);
+        first.getMood(0).addActivity(music);
+        store.put(first);
+        Day replaced = store.put(new Day(DateCode.fromEpochDay(10)));
+        assertEquals(5, replaced.getSleepHours());
+        assertTrue(replaced.getMood(0).containsActivity("Music"));
+        assertEquals(-1, store.getSleepHours(10));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void testRemovedViewReadsEmpty() {
+        Day d = new Day(DateCode.fromEpochDay(10));
+        d.setSleepHours(5);
+        store.put(d);
+        store.removeBetween(10, 10);
+        assertEquals(-1, d.getSleepHours());
+        d.setSleepHours(6);
+        assertFalse(store.hasDay(10));
+        assertEquals(-1, d.getSleepHours());
+    }
+
+    @Test
+    void testCannotStore() {
+        Day tooLong = new Day(DateCode.fromEpochDay(1));
+        tooLong.setSleepHours(200);
+        assertThrows(IllegalArgumentException.class, () -> store.put(tooLong));
+
+        ArrayList<Mood> moods = new ArrayList<>(Arrays.asList(new Mood(), new Mood(), new Mood()));
+        assertThrows(IllegalArgumentException.class, () -> store.put(new Day(DateCode.fromEpochDay(1), -1, moods)));
+        assertEquals(0, store.size());
+
+        store.put(new Day(DateCode.fromEpochDay(0)));
+        assertThrows(IllegalArgumentException.class,
+                () -> store.put(new Day(DateCode.fromEpochDay(DayStore.MAX_SPAN))));
+    }
+
+    @Test
+    void testStoreAnyActivity() {
+        Activity knitting = new Activity("Knitting");
+        Day d = new Day(DateCode.fromEpochDay(1));
+        d.getMood(0).addActivity(knitting);
+        store.put(d);
+        assertEquals(knitting.getMask(), store.getActivityMask(1, 0));
+        assertTrue(store.get(1).getMood(0).containsActivity("knitting"));
+        assertEquals(Arrays.asList(knitting), store.get(1).getMood(0).getActivityList());
+    }
+}
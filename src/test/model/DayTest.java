@@ -1,6 +1,8 @@
 package model;
 
 import static org.junit.jupiter.api.Assertions.*;
+
+import model.activities.Activity;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -14,6 +16,19 @@ class DayTest {
         day = new Day(new DateCode(2021, 2, 11));
     }
 
+    @Test
+    void testActivityUnionAndIntersection() {
+        assertEquals(0, day.getActivityUnion());
+        assertEquals(0, day.getActivityIntersection());
+        Activity a1 = new Activity("test1");
+        Activity a2 = new Activity("test2");
+        day.getMood(0).addActivity(a1);
+        day.getMood(0).addActivity(a2);
+        day.getMood(1).addActivity(a2);
+        assertEquals(a1.getMask() | a2.getMask(), day.getActivityUnion());
+        assertEquals(a2.getMask(), day.getActivityIntersection());
+    }
+
     @Test
     void testInit() {
         assertEquals(2, day.getMoodListLength());
@@ -97,4 +97,24 @@ public class MoodTest {
         assertTrue(m1.containsActivity("test2"));
     }
 
+    @Test
+    void testActivityMask() {
+        Activity a1 = new Activity("test1");
+        m1.addActivity(a1);
+        m1.addActivity(new Activity("TEST1"));
+        assertEquals(1, m1.getActivityListLength());
+        assertEquals(a1.getMask(), m1.getActivityMask());
+        assertTrue(m1.containsActivity("Test1"));
+        assertFalse(m1.containsActivity("never used"));
+
+        m2.addActivity(new Activity("test2"));
+        m2.addActivity(a1);
+        assertTrue(m1.copyFrom(m2));
+        assertEquals(m2.getActivityMask(), m1.getActivityMask());
+        assertFalse(m1.copyFrom(m2));
+        m1.removeActivity("TEST1");
+        assertFalse(m1.containsActivity("test1"));
+        assertTrue(m1.containsActivity("test2"));
+    }
+
 }
@@ -0,0 +1,129 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class SortedDayIndexTest {
+
+    SortedDayIndex index;
+
+    @BeforeEach
+    void createIndex() {
+        index = new SortedDayIndex();
+    }
+
+    @Test
+    void testEmpty() {
+        assertEquals(0, index.size());
+        assertNull(index.get(0));
+        assertNull(index.floor(0));
+        assertNull(index.ceiling(0));
+        assertEquals(0, index.between(-10, 10).length);
+        assertThrows(NoSuchElementException.class, () -> index.iterator().next());
+    }
+
+    @Test
+    void testPutKeepsDateOrder() {
+        index.put(day(10));
+        index.put(day(11));
+        index.put(day(9));      // Before the first, as createDayOneDayBack adds
+        index.put(day(5));
+        index.put(day(7));
+        assertEquals(5, index.size());
+        assertEquals(epochDays(5, 7, 9, 10, 11), epochDaysOf(index));
+
+        Day replacement = day(7);
+        assertNotNull(index.put(replacement));
+        assertSame(replacement, index.get(7));
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    void testFloorAndCeiling() {
+        for (int epochDay : new int[]{-3, 4, 8, 20}) {
+            index.put(day(epochDay));
+        }
+        assertNull(index.floor(-4));
+        assertEquals(-3, index.floor(-3).getDateCode().toEpochDay());
+        assertEquals(4, index.floor(7).getDateCode().toEpochDay());
+        assertEquals(20, index.floor(100).getDateCode().toEpochDay());
+        assertEquals(-3, index.ceiling(-100).getDateCode().toEpochDay());
+        assertEquals(8, index.ceiling(5).getDateCode().toEpochDay());
+        assertEquals(20, index.ceiling(20).getDateCode().toEpochDay());
+        assertNull(index.ceiling(21));
+    }
+
+    @Test
+    void testBetweenAndRemoveBetween() {
+        for (int epochDay = 0; epochDay < 60; epochDay += 2) {
+            index.put(day(epochDay));
+        }
+        assertEquals(5, index.between(9, 18).length);
+        assertEquals(10, index.between(10, 18)[0].getDateCode().toEpochDay());
+        assertEquals(0, index.between(11, 11).length);
+        assertEquals(30, index.between(Integer.MIN_VALUE, Integer.MAX_VALUE).length);
+
+        index.removeBetween(10, 19);
+        assertEquals(25, index.size());
+        assertNull(index.get(10));
+        assertEquals(8, index.floor(19).getDateCode().toEpochDay());
+        assertEquals(20, index.ceiling(9).getDateCode().toEpochDay());
+
+        assertTrue(index.removeIf(d -> d.getDateCode().toEpochDay() % 4 == 0));
+        assertFalse(index.removeIf(d -> d.getDateCode().toEpochDay() % 4 == 0));
+        assertEquals(epochDays(2, 6, 22, 26, 30, 34, 38, 42, 46, 50, 54, 58), epochDaysOf(index));
+    }
+
+    @Test
+    void testMatchesTreeMap() {
+        Random random = new Random(7);
+        TreeMap<Integer, Day> expected = new TreeMap<>();
+        for (int i = 0; i < 5000; i++) {
+            int epochDay = random.nextInt(2000) - 1000;
+            Day d = day(epochDay);
+            assertEquals(expected.put(epochDay, d), index.put(d));
+            int probe = random.nextInt(2200) - 1100;
+            assertEquals(valueOf(expected.floorEntry(probe)), index.floor(probe));
+            assertEquals(valueOf(expected.ceilingEntry(probe)), index.ceiling(probe));
+        }
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(index));
+    }
+
+    // EFFECTS: returns a Day epochDay days after the epoch.
+    private static Day day(int epochDay) {
+        return new Day(DateCode.fromEpochDay(epochDay));
+    }
+
+    // EFFECTS: returns the value of entry, or null if there is none.
+    private static Day valueOf(Map.Entry<Integer, Day> entry) {
+        return entry == null ? null : entry.getValue();
+    }
+
+    // EFFECTS: returns the epoch days as a list.
+    private static List<Integer> epochDays(int... epochDays) {
+        List<Integer> list = new ArrayList<>();
+        for (int epochDay : epochDays) {
+            list.add(epochDay);
+        }
+        return list;
+    }
+
+    // EFFECTS: returns the epoch days of the Days of index, in the order it iterates them.
+    private static List<Integer> epochDaysOf(SortedDayIndex index) {
+        List<Integer> list = new ArrayList<>();
+        for (Iterator<Day> it = index.iterator(); it.hasNext(); ) {
+            list.add(it.next().getDateCode().toEpochDay());
+        }
+        return list;
+    }
+}
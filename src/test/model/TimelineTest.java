@@ -2,6 +2,8 @@ package model;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import model.activities.Activity;
+import model.activities.DefaultActivities;
 import model.persistence.CsvWriterTest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -209,6 +211,152 @@ public class TimelineTest {
         assertTrue(tl.contains(dateCodeOneDayForward));
     }
 
+    @Test
+    void testGoToAndGoForwardWeeks() {
+        DateCode today = tl.getSelectedDateCode();
+        DateCode target = new DateCode(2021, 3, 3);  // A Wednesday
+        tl.goTo(target);
+        assertEquals(target, tl.getSelectedDateCode());
+        assertEquals("Wednesday", tl.getDayOfWeek());
+        assertEquals(new DateCode(2021, 2, 28), tl.findDateCodeEndOfWeek(true));
+        assertEquals(new DateCode(2021, 3, 6), tl.findDateCodeEndOfWeek(false));
+
+        tl.goForwardWeeks(-2);
+        assertEquals(new DateCode(2021, 2, 17), tl.getSelectedDateCode());
+        tl.goForwardWeeks(52);
+        assertEquals(new DateCode(2022, 2, 16), tl.getSelectedDateCode());
+        assertEquals(7, tl.getAllDaysInCurrentWeek().size());
+
+        tl.goTo(today);
+        assertTrue(tl.contains(tl.getSelectedDateCode()));
+    }
+
+    @Test
+    void testDaysInDateOrder() {
+        tl.createDayOneDayBack();
+        tl.goTo(new DateCode(2021, 3, 3));
+        tl.createDayOneDayForward();
+        tl.createDayOneDayBack();
+        List<Day> days = new ArrayList<>(tl.getDays());
+        for (int i = 1; i < days.size(); i++) {
+            assertTrue(days.get(i - 1).getDateCode().compareTo(days.get(i).getDateCode()) < 0);
+        }
+        assertEquals(new DateCode(2021, 3, 2), days.get(0).getDateCode());
+        assertEquals(days.subList(2, 5), tl.getDays(days.get(2).getDateCode(), days.get(4).getDateCode()));
+    }
+
+    @Test
+    void testRange() {
+        tl.goTo(new DateCode(2021, 2, 27));
+        tl.createDayOneDayForward();
+        tl.goTo(new DateCode(2021, 3, 2));
+        tl.createDayOneDayForward();
+        tl.addDay(new Day(new DateCode(2021, 3, 1)));
+
+        DayRange range = tl.range(new DateCode(2021, 2, 28), new DateCode(2021, 3, 3));
+        assertEquals(4, range.getLength());
+        List<DateCode> dates = new ArrayList<>();
+        for (Day d : range) {
+            dates.add(d.getDateCode());
+        }
+        assertEquals(Arrays.asList(new DateCode(2021, 2, 28), new DateCode(2021, 3, 1),
+                new DateCode(2021, 3, 3)), dates);
+
+        List<Day> all = new ArrayList<>();
+        range.forEachDate((dc, d) -> all.add(d));
+        assertEquals(4, all.size());
+        assertNull(all.get(2));
+        assertSame(tl.getDay(new DateCode(2021, 3, 3)), all.get(3));
+        assertNull(range.getDay(new DateCode(2021, 3, 2)));
+        assertNull(range.getDay(new DateCode(2021, 3, 4)));
+        assertFalse(range.contains(new DateCode(2021, 2, 27)));
+
+        // A view, which sees Days added later
+        tl.addDay(new Day(new DateCode(2021, 3, 2)));
+        assertNotNull(range.getDay(new DateCode(2021, 3, 2)));
+        assertEquals(4, countDays(range));
+        assertFalse(tl.range(new DateCode(2021, 3, 3), new DateCode(2021, 2, 28)).iterator().hasNext());
+        assertEquals(0, tl.range(new DateCode(2021, 3, 3), new DateCode(2021, 2, 28)).getLength());
+    }
+
+    @Test
+    void testRangeActivities() {
+        Activity music = DefaultActivities.getInstance().getActivity("Music");
+        Activity gaming = DefaultActivities.getInstance().getActivity("Gaming");
+        tl.addDay(new Day(new DateCode(2021, 3, 1)));
+        tl.addDay(new Day(new DateCode(2021, 3, 2)));
+        tl.getDay(new DateCode(2021, 3, 1)).getMood(0).addActivity(music);
+        tl.getDay(new DateCode(2021, 3, 1)).getMood(1).addActivity(gaming);
+        tl.getDay(new DateCode(2021, 3, 2)).getMood(1).addActivity(music);
+
+        DayRange range = tl.range(new DateCode(2021, 2, 20), new DateCode(2021, 3, 5));
+        assertEquals(music.getMask() | gaming.getMask(), range.getActivityUnion());
+        assertEquals(music.getMask(), range.getActivityIntersection());
+        assertEquals(0, tl.range(new DateCode(2021, 2, 20), new DateCode(2021, 2, 21)).getActivityIntersection());
+    }
+
+    @Test
+    void testRangeChangedWhileIterating() {
+        DayRange range = tl.range(tl.getSelectedDateCode(), tl.getDateCodeOneDayForward());
+        Iterator<Day> it = range.iterator();
+        it.next();
+        tl.createDayOneDayBack();
+        assertThrows(ConcurrentModificationException.class, it::hasNext);
+        assertThrows(NoSuchElementException.class, () -> tl.range(new DateCode(2000, 1, 1),
+                new DateCode(2000, 1, 1)).iterator().next());
+    }
+
+    @Test
+    void testGetDayOnOrBeforeAndAfter() {
+        DateCode today = tl.getSelectedDateCode();
+        assertSame(tl.getDay(), tl.getDayOnOrBefore(today));
+        assertSame(tl.getDay(), tl.getDayOnOrAfter(today.plusDays(-30)));
+        assertSame(tl.getDay(today.plusDays(1)), tl.getDayOnOrBefore(today.plusDays(30)));
+        assertNull(tl.getDayOnOrBefore(today.plusDays(-1)));
+        assertNull(tl.getDayOnOrAfter(today.plusDays(2)));
+    }
+
+    @Test
+    void testPeeksDoNotMove() {
+        DateCode selected = tl.getSelectedDateCode();
+        tl.getDateCodeOneDayBack();
+        tl.getDateCodeOneDayForward();
+        tl.findDateCodeEndOfWeek(true);
+        tl.findDateCodeEndOfWeek(false);
+        tl.getAllDaysInCurrentWeek();
+        assertEquals(selected, tl.getSelectedDateCode());
+        assertEquals(selected.plusDays(1), tl.getDateCodeOneDayForward());
+        assertEquals(selected.plusDays(-1), tl.getDateCodeOneDayBack());
+    }
+
+    @Test
+    void testColumnarTimeline() {
+        List<Day> days = new ArrayList<>();
+        Day day = new Day(new DateCode(2021, 3, 1));
+        day.setSleepHours(9);
+        days.add(day);
+        Timeline tl = new Timeline(new DayStore(days));
+        assertEquals(2, tl.getDayListLength());
+        assertNotNull(tl.getDay());
+        assertEquals(9, tl.getDay(new DateCode(2021, 3, 1)).getSleepHours());
+
+        List<String> events = new ArrayList<>();
+        tl.addListener(new TimelineListenerAdapter(events));
+        tl.getDay().setSleepHours(3);
+        tl.getDay().getMood(1).addActivity(DefaultActivities.getInstance().getActivity("Music"));
+        assertEquals(Arrays.asList("sleep", "added"), events);
+        assertEquals(3, tl.getDay().getSleepHours());
+
+        tl.goTo(new DateCode(2021, 3, 1));
+        tl.createDayOneDayBack();
+        List<Day> range = new ArrayList<>();
+        tl.range(new DateCode(2021, 2, 1), new DateCode(2021, 3, 31)).forEach(range::add);
+        assertEquals(2, range.size());
+        assertEquals(new DateCode(2021, 2, 28), range.get(0).getDateCode());
+        assertSame(null, tl.getAllDaysInCurrentWeek().get(6));
+        assertEquals(9, tl.getAllDaysInCurrentWeek().get(1).getSleepHours());
+    }
+
     @Test
     void testGetDayOfWeek() {
         String[] days = {"Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday"};
@@ -219,4 +367,72 @@ public class TimelineTest {
         assertEquals(dow.getDisplayName(TextStyle.FULL, Locale.ENGLISH), tl.getDayOfWeek());
     }
 
+    @Test
+    void testMergeDays() {
+        Day today = tl.getDay();
+        today.getMood(0).addActivity(DefaultActivities.getInstance().getActivity("Music"));
+        List<String> events = new ArrayList<>();
+        tl.addListener(new TimelineListenerAdapter(events));
+
+        Day changed = new Day(tl.getSelectedDateCode());
+        changed.setSleepHours(7);
+        changed.getMood(1).setMoodScore(4);
+        changed.getMood(1).addActivity(DefaultActivities.getInstance().getActivity("Exercise"));
+        Day unchanged = new Day(tl.getDateCodeOneDayForward());
+        Day added = new Day(tl.getDateCodeOneDayBack());
+
+        Set<DateCode> merged = tl.mergeDays(Arrays.asList(changed, unchanged, added));
+        assertEquals(new HashSet<>(Arrays.asList(changed.getDateCode(), added.getDateCode())), merged);
+        assertSame(today, tl.getDay());
+        assertEquals(7, today.getSleepHours());
+        assertEquals(4, today.getMood(1).getMoodScore());
+        assertFalse(today.getMood(0).containsActivity("Music"));
+        assertTrue(today.getMood(1).containsActivity("Exercise"));
+        assertTrue(tl.contains(added.getDateCode()));
+        assertEquals(Arrays.asList("sleep", "removed", "score", "added", "created"), events);
+    }
+
+    // Records the kind of each change a Timeline reports, in order.
+    private static class TimelineListenerAdapter implements TimelineListener {
+
+        private final List<String> events;  // The kinds of the changes reported.
+
+        TimelineListenerAdapter(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void dayCreated(Day day) {
+            events.add("created");
+        }
+
+        @Override
+        public void sleepHoursChanged(Day day) {
+            events.add("sleep");
+        }
+
+        @Override
+        public void moodScoreChanged(Day day, int moodIndex) {
+            events.add("score");
+        }
+
+        @Override
+        public void activityAdded(Day day, int moodIndex, Activity activity) {
+            events.add("added");
+        }
+
+        @Override
+        public void activityRemoved(Day day, int moodIndex, String activityName) {
+            events.add("removed");
+        }
+    }
+
+    // EFFECTS: returns the number of Days in range.
+    private static int countDays(DayRange range) {
+        int count = 0;
+        for (Day ignored : range) {
+            count++;
+        }
+        return count;
+    }
 }
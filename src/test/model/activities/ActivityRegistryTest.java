@@ -0,0 +1,78 @@
+package model.activities;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ActivityRegistryTest {
+
+    ActivityRegistry registry = ActivityRegistry.getInstance();
+
+    @Test
+    void testDefaults() {
+        assertEquals(DefaultActivities.getInstance().getActivityList(), registry.getDefaultActivities());
+        assertSame(DefaultActivities.getInstance().getActivity("Music"), registry.find("MUSIC"));
+        assertEquals(5, registry.findId("music"));
+        assertSame(registry.get(5), registry.intern("Music"));
+        assertTrue(registry.isDefault(registry.get(0)));
+        assertEquals(-1, registry.findId("Never seen before"));
+        assertNull(registry.find("Never seen before"));
+    }
+
+    @Test
+    void testUserDefined() {
+        Activity knitting = registry.intern("Knitting");
+        assertTrue(knitting.getId() >= registry.getDefaultActivities().size());
+        assertFalse(registry.isDefault(knitting));
+        assertTrue(registry.getUserActivities().contains(knitting));
+        assertSame(knitting, registry.intern("KNITTING"));
+        assertSame(knitting, registry.get(knitting.getId()));
+        assertEquals(knitting.getId(), new Activity("knitting").getId());
+        assertNull(DefaultActivities.getInstance().getActivity("Knitting"));
+
+        assertEquals(Arrays.asList(registry.get(0), knitting), registry.getActivities(1L | knitting.getMask()));
+        assertEquals(registry.size(), registry.getActivities().size());
+    }
+
+    @Test
+    void testNameTooLong() {
+        char[] name = new char[ActivityRegistry.MAX_NAME_BYTES / 2 + 1];
+        Arrays.fill(name, '\u00e9');     // Two bytes each in UTF-8
+        try {
+            registry.intern(new String(name));
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // Caught exception properly
+        }
+        assertNull(registry.find(new String(name)));
+        Arrays.fill(name, 'e');
+        assertEquals(name.length, registry.intern(new String(name)).getActivityName().length());
+    }
+
+    @Test
+    void testInternFromManyThreads() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Activity>> interned = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                String name = i % 2 == 0 ? "Rowing" : "ROWING";
+                interned.add(pool.submit(() -> registry.intern(name)));
+            }
+            Activity rowing = interned.get(0).get();
+            assertSame(rowing, registry.find("rowing"));
+            for (Future<Activity> f : interned) {
+                assertSame(rowing, f.get());
+            }
+            assertEquals(1, registry.getActivities(-1L).stream().filter(rowing::equals).count());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
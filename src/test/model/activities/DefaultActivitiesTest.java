@@ -26,4 +26,11 @@ public class DefaultActivitiesTest {
         assertNull(da.getActivity("Something"));
     }
 
+    @Test
+    void testGetActivityIndex() {
+        assertEquals(0, da.getActivityIndex("Gaming"));
+        assertEquals(5, da.getActivityIndex("music"));
+        assertEquals(-1, da.getActivityIndex("Something"));
+    }
+
 }
@@ -0,0 +1,125 @@
+package model.persistence;
+
+import model.DateCode;
+import model.Day;
+import model.Timeline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import persistence.AutosaveScheduler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AutosaveSchedulerTest {
+
+    private List<Collection<Day>> saves;
+    private boolean failing;
+    private Timeline timeline;
+    private AutosaveScheduler autosave;
+
+    @BeforeEach
+    void runBefore() {
+        saves = new ArrayList<>();
+        failing = false;
+        timeline = new Timeline();
+    }
+
+    @AfterEach
+    void runAfter() throws IOException {
+        failing = false;
+        autosave.close();
+    }
+
+    @Test
+    void testBurstCoalescedIntoOneSave() throws InterruptedException {
+        start(50, 5000);
+        Day day = timeline.getDay();
+        for (int i = 1; i <= 10; i++) {
+            day.setSleepHours(i);
+        }
+        assertEquals(10, autosave.getPendingChanges());
+        assertEquals(1, autosave.getDirtyDayCount());
+
+        waitForSaves(1);
+        assertEquals(1, saves.size());
+        assertTrue(saves.get(0).contains(day));
+        assertEquals(0, autosave.getPendingChanges());
+        assertEquals(1, autosave.getSaveCount());
+        assertEquals(10, autosave.getBytesWritten());
+    }
+
+    @Test
+    void testSaveBoundedByMaxDelay() throws InterruptedException {
+        start(5000, 100);
+        timeline.getDay().setSleepHours(3);
+        waitForSaves(1);
+        assertEquals(1, autosave.getSaveCount());
+        assertTrue(autosave.getMaxSaveNanos() >= autosave.getAverageSaveNanos());
+    }
+
+    @Test
+    void testSaveNow() throws IOException {
+        start(5000, 5000);
+        autosave.saveNow();
+        assertEquals(0, saves.size());
+
+        timeline.getDay().getMood(0).setMoodScore(3);
+        timeline.addDay(new Day(new DateCode("2021-03-05")));
+        autosave.saveNow();
+        assertEquals(1, saves.size());
+        assertEquals(2, saves.get(0).size());
+        assertEquals(0, autosave.getDirtyDayCount());
+    }
+
+    @Test
+    void testFailedSaveStaysPending() {
+        start(5000, 5000);
+        failing = true;
+        timeline.getDay().setSleepHours(3);
+        try {
+            autosave.saveNow();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Threw exception properly
+        }
+        assertEquals(1, autosave.getFailureCount());
+        assertEquals(1, autosave.getPendingChanges());
+        assertEquals(0, autosave.getSaveCount());
+    }
+
+    @Test
+    void testUnchangedValueNotTracked() {
+        start(5000, 5000);
+        Day day = timeline.getDay();
+        day.setSleepHours(day.getSleepHours());
+        day.getMood(0).setMoodScore(day.getMood(0).getMoodScore());
+        assertEquals(0, autosave.getPendingChanges());
+    }
+
+    // MODIFIES: this
+    // EFFECTS: starts an autosave of timeline that records each save (writing a byte per day saved).
+    private void start(long quietMillis, long maxDelayMillis) {
+        autosave = new AutosaveScheduler(days -> {
+            if (failing) {
+                throw new IOException("Disk full");
+            }
+            synchronized (saves) {
+                saves.add(new ArrayList<>(days));
+            }
+            return 10 * days.size();
+        }, quietMillis, maxDelayMillis);
+        timeline.addListener(autosave);
+    }
+
+    // EFFECTS: waits up to a few seconds for count saves to have been made.
+    private void waitForSaves(int count) throws InterruptedException {
+        for (int i = 0; i < 300 && autosave.getSaveCount() < count; i++) {
+            Thread.sleep(10);
+        }
+    }
+}
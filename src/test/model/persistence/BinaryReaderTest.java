@@ -0,0 +1,102 @@
+package model.persistence;
+
+import model.DateCode;
+import model.Day;
+import model.Timeline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import persistence.BinaryReader;
+import persistence.BinaryWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryReaderTest extends JsonTest {
+
+    private static final String PATH = "./data/testReaderGeneralTimeline.hio";
+
+    @BeforeEach
+    void writeGeneralTimeline() throws IOException {
+        BinaryWriter bw = new BinaryWriter(PATH);
+        bw.open();
+        bw.write(generateGeneralTimeline());
+        bw.close();
+    }
+
+    @Test
+    void testReaderNoFileAtPath() {
+        try {
+            new BinaryReader("./data/noFileHere.hio").read();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Caught exception properly
+        }
+    }
+
+    @Test
+    void testReaderNotBinaryFile() {
+        try {
+            new BinaryReader("./data/testReaderGeneralTimeline.json").read();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Caught exception properly
+        }
+    }
+
+    @Test
+    void testReaderDamagedHeader() throws IOException {
+        byte[] bytes = Files.readAllBytes(Paths.get(PATH));
+        bytes[18] = (byte) 0xFF;    // The length of the first activity name, now running past the header
+        Files.write(Paths.get(PATH), bytes);
+        try {
+            new BinaryReader(PATH).read();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Caught exception properly
+        }
+    }
+
+    @Test
+    void testFindDay() {
+        try {
+            BinaryReader br = new BinaryReader(PATH);
+            br.open();
+
+            Day day = br.findDay(new DateCode("2021-03-07"));
+            assertEquals(8, day.getSleepHours());
+            assertEquals(4, day.getMood(0).getMoodScore());
+            assertEquals(1, day.getMood(1).getMoodScore());
+            assertTrue(day.getMood(0).containsActivity("Exercise"));
+            assertTrue(day.getMood(1).containsActivity("Movie/TV"));
+            assertEquals(3, day.getMood(0).getActivityListLength());
+
+            assertNull(br.findDay(new DateCode("2021-03-08")));
+            assertNull(br.findDay(new DateCode("1999-01-01")));
+        } catch (IOException e) {
+            fail("IOException should not have been thrown");
+        }
+    }
+
+    @Test
+    void testFileRewrittenAfterOpen() throws IOException {
+        BinaryReader br = new BinaryReader(PATH);
+        br.open();
+        Files.write(Paths.get(PATH), new byte[0]);      // Eg. the next autosave truncating it to write it again
+        Files.delete(Paths.get(PATH));
+
+        assertEquals(8, br.findDay(new DateCode("2021-03-07")).getSleepHours());
+    }
+
+    @Test
+    void testReaderGeneralTimeline() {
+        try {
+            Timeline tl = new BinaryReader(PATH).read();
+            ensureTimelinesAreEqual(generateGeneralTimeline(), tl, true, true);
+        } catch (IOException e) {
+            fail("IOException should not have been thrown");
+        }
+    }
+}
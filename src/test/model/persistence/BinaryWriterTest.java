@@ -0,0 +1,171 @@
+package model.persistence;
+
+import model.DateCode;
+import model.Day;
+import model.Timeline;
+import model.activities.Activity;
+import model.activities.DefaultActivities;
+import org.junit.jupiter.api.Test;
+import persistence.BinaryReader;
+import persistence.BinaryWriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryWriterTest extends JsonTest {
+
+    @Test
+    void testWriterDefaultTimeline() {
+        try {
+            Timeline tl = new Timeline();
+            BinaryWriter bw = new BinaryWriter("./data/testWriterDefaultTimeline.hio");
+            bw.open();
+            bw.write(tl);
+            bw.close();
+
+            BinaryReader br = new BinaryReader("./data/testWriterDefaultTimeline.hio");
+            Timeline loadedTimeline = br.read();
+
+            ensureTimelinesAreEqual(tl, loadedTimeline, false, false);
+            assertEquals(tl.getDayListLength(), br.size());
+        } catch (IOException e) {
+            fail("IOException should not have been thrown");
+        }
+    }
+
+    @Test
+    void testWriteSortedMatchesWrite() throws IOException {
+        Timeline generalTimeline = generateGeneralTimeline();
+        BinaryWriter bw = new BinaryWriter("./data/testWriterGeneralTimeline.hio");
+        bw.open();
+        bw.write(generalTimeline);
+        bw.close();
+
+        Collection<Day> days = generalTimeline.getDays();
+        Collection<Day> iteratedOnce = new AbstractCollection<Day>() {
+            private boolean iterated;
+
+            @Override
+            public Iterator<Day> iterator() {
+                assertFalse(iterated);
+                iterated = true;
+                return days.iterator();
+            }
+
+            @Override
+            public int size() {
+                return days.size();
+            }
+        };
+        bw = new BinaryWriter("./data/testWriterSortedTimeline.hio");
+        bw.open();
+        bw.writeSorted(iteratedOnce);
+        bw.close();
+
+        assertArrayEquals(Files.readAllBytes(Paths.get("./data/testWriterGeneralTimeline.hio")),
+                Files.readAllBytes(Paths.get("./data/testWriterSortedTimeline.hio")));
+        assertFalse(Files.exists(Paths.get("./data/testWriterSortedTimeline.hio.records.tmp")));
+        Files.delete(Paths.get("./data/testWriterSortedTimeline.hio"));
+    }
+
+    @Test
+    void testWriterGeneralTimeline() {
+        try {
+            Timeline generalTimeline = generateGeneralTimeline();
+
+            BinaryWriter bw = new BinaryWriter("./data/testWriterGeneralTimeline.hio");
+            bw.open();
+            bw.write(generalTimeline);
+            bw.close();
+
+            BinaryReader br = new BinaryReader("./data/testWriterGeneralTimeline.hio");
+            Timeline loadedTimeline = br.read();
+
+            ensureTimelinesAreEqual(generalTimeline, loadedTimeline, false, true);
+            assertEquals(generalTimeline.getDayListLength(), loadedTimeline.getDayListLength());
+        } catch (IOException e) {
+            fail("IOException should not have been thrown");
+        }
+    }
+
+    @Test
+    void testWriterSortsRecords() {
+        try {
+            Timeline generalTimeline = generateGeneralTimeline();
+
+            BinaryWriter bw = new BinaryWriter("./data/testWriterGeneralTimeline.hio");
+            bw.open();
+            bw.write(generalTimeline);
+            bw.close();
+
+            BinaryReader br = new BinaryReader("./data/testWriterGeneralTimeline.hio");
+            br.open();
+            for (int i = 1; i < br.size(); i++) {
+                assertTrue(br.readDay(i - 1).getDateCode().toEpochDay()
+                        < br.readDay(i).getDateCode().toEpochDay());
+            }
+            assertEquals(new DateCode("2021-03-05"), br.readDay(0).getDateCode());
+        } catch (IOException e) {
+            fail("IOException should not have been thrown");
+        }
+    }
+
+    @Test
+    void testUpdateInPlace() {
+        try {
+            Timeline tl = generateGeneralTimeline();
+            BinaryWriter bw = new BinaryWriter("./data/testWriterUpdateTimeline.hio");
+            bw.open();
+            bw.write(tl);
+            bw.close();
+
+            Day changed = tl.getDay(new DateCode("2021-03-06"));
+            changed.setSleepHours(7);
+            changed.getMood(1).removeActivity("Gaming");
+            assertEquals(BinaryWriter.RECORD_SIZE, bw.update(Collections.singletonList(changed)));
+            ensureTimelinesAreEqual(tl, new BinaryReader("./data/testWriterUpdateTimeline.hio").read(), true, true);
+
+            // A Day without a record cannot be updated in place
+            Day added = new Day(new DateCode("2021-04-01"));
+            assertEquals(-1, bw.update(Arrays.asList(changed, added)));
+            assertNull(new BinaryReader("./data/testWriterUpdateTimeline.hio").read()
+                    .getDay(new DateCode("2021-04-01")));
+        } catch (IOException e) {
+            fail("IOException should not have been thrown");
+        }
+    }
+
+    @Test
+    void testHeaderHoldsOnlyUsedActivities() throws IOException {
+        Timeline tl = generateGeneralTimeline();
+        Day day = tl.getDay(new DateCode("2021-03-06"));
+        day.getMood(0).addActivity(new Activity("Origami"));
+        BinaryWriter bw = new BinaryWriter("./data/testWriterActivitiesTimeline.hio");
+        bw.open();
+        bw.write(tl);
+        bw.close();
+
+        String header = new String(Files.readAllBytes(Paths.get("./data/testWriterActivitiesTimeline.hio")),
+                StandardCharsets.ISO_8859_1);
+        assertTrue(header.contains("Origami"));
+        assertFalse(header.contains("Family"));
+        ensureTimelinesAreEqual(tl, new BinaryReader("./data/testWriterActivitiesTimeline.hio").read(), true, true);
+
+        // A Day with an activity that is not in the header cannot be updated in place
+        day.getMood(1).addActivity(DefaultActivities.getInstance().getActivity("Family"));
+        assertEquals(-1, bw.update(Collections.singletonList(day)));
+        day.getMood(1).removeActivity("Family");
+        day.getMood(1).addActivity(new Activity("ORIGAMI"));
+        assertEquals(BinaryWriter.RECORD_SIZE, bw.update(Collections.singletonList(day)));
+        ensureTimelinesAreEqual(tl, new BinaryReader("./data/testWriterActivitiesTimeline.hio").read(), true, true);
+    }
+}
@@ -0,0 +1,161 @@
+package model.persistence;
+
+import model.DateCode;
+import model.Day;
+import model.Timeline;
+import model.activities.DefaultActivities;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import persistence.ColumnarWriter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarWriterTest extends JsonTest {
+
+    private static final String PATH = "./data/testColumnarExport.hioc";
+
+    @BeforeEach
+    void runBefore() throws IOException {
+        ColumnarWriter.delete(PATH);
+    }
+
+    @AfterEach
+    void runAfter() throws IOException {
+        ColumnarWriter.delete(PATH);
+    }
+
+    @Test
+    void testWriteColumns() throws IOException {
+        Day first = day("2021-03-01", 7, 3, "Gaming", "Exercise");
+        first.getMood(1).setMoodScore(2);
+        first.getMood(1).addActivity(DefaultActivities.getInstance().getActivity("Music"));
+        Day second = day("2021-03-02", -1, -1);
+
+        assertEquals(2, new ColumnarWriter(PATH).write(Arrays.asList(first, second)));
+
+        ByteBuffer dates = column("date.i32");
+        assertEquals(8, dates.remaining());
+        assertEquals(new DateCode("2021-03-01").toEpochDay(), dates.getInt());
+        assertEquals(new DateCode("2021-03-02").toEpochDay(), dates.getInt());
+        assertArrayEquals(new byte[]{7, -1}, column("sleep.i8").array());
+        assertArrayEquals(new byte[]{3, -1}, column("mood1.i8").array());
+        assertArrayEquals(new byte[]{2, -1}, column("mood2.i8").array());
+
+        // Only the activities the Days contain are in the dictionary, in order of their ids
+        List<Object> dictionary = manifest().getJSONArray("activities").toList();
+        assertEquals(Arrays.asList("Gaming", "Music", "Exercise"), dictionary);
+        ByteBuffer activities = column("activities1.u64");
+        assertEquals(1L << dictionary.indexOf("Gaming") | 1L << dictionary.indexOf("Exercise"), activities.getLong());
+        assertEquals(0L, activities.getLong());
+        assertEquals(1L << dictionary.indexOf("Music"), column("activities2.u64").getLong());
+    }
+
+    @Test
+    void testManifest() throws IOException {
+        new ColumnarWriter(PATH).write(Arrays.asList(day("2021-03-01", 7, 3, "Music")));
+
+        JSONObject manifest = manifest();
+        assertEquals(ColumnarWriter.FORMAT, manifest.getString("format"));
+        assertEquals(1, manifest.getInt("rows"));
+        assertEquals("little-endian", manifest.getString("byteOrder"));
+        assertFalse(manifest.has("from"));
+
+        JSONArray columns = manifest.getJSONArray("columns");
+        assertEquals(6, columns.length());
+        assertEquals("date", columns.getJSONObject(0).getString("name"));
+        assertEquals("int32", columns.getJSONObject(0).getString("type"));
+        assertEquals(1, columns.getJSONObject(5).getInt("wordsPerRow"));
+
+        JSONArray dictionary = manifest.getJSONArray("activities");
+        assertEquals(1, dictionary.length());
+        assertEquals("Music", dictionary.getString(0));
+    }
+
+    @Test
+    void testWriteRange() throws IOException {
+        ArrayList<Day> days = new ArrayList<>();
+        for (String date : new String[]{"2021-01-31", "2021-02-01", "2021-02-15", "2021-03-01", "2021-03-02"}) {
+            days.add(day(date, 5, 1));
+        }
+        Timeline tl = new Timeline(days);
+
+        ColumnarWriter writer = new ColumnarWriter(PATH);
+        writer.setRange(new DateCode("2021-02-01"), new DateCode("2021-03-01"));
+        assertEquals(3, writer.write(tl));
+
+        ByteBuffer dates = column("date.i32");
+        assertEquals(new DateCode("2021-02-01").toEpochDay(), dates.getInt());
+        assertEquals(new DateCode("2021-02-15").toEpochDay(), dates.getInt());
+        assertEquals(new DateCode("2021-03-01").toEpochDay(), dates.getInt());
+        assertFalse(dates.hasRemaining());
+        assertEquals("2021-02-01", manifest().getString("from"));
+        assertEquals("2021-03-01", manifest().getString("to"));
+    }
+
+    @Test
+    void testWriteWholeTimelineSorted() throws IOException {
+        Timeline tl = generateGeneralTimeline();
+        assertEquals(tl.getDays().size(), new ColumnarWriter(PATH).write(tl));
+
+        ByteBuffer dates = column("date.i32");
+        int previous = Integer.MIN_VALUE;
+        while (dates.hasRemaining()) {
+            int epochDay = dates.getInt();
+            assertTrue(epochDay > previous);
+            previous = epochDay;
+        }
+    }
+
+    @Test
+    void testCancelledWriteHasNoManifest() throws IOException {
+        ColumnarWriter writer = new ColumnarWriter(PATH);
+        writer.write(Arrays.asList(day("2021-03-01", 7, 3)));
+        writer.setProgressListener((done, total) -> done < 2);
+        try {
+            writer.write(Arrays.asList(day("2021-03-01", 7, 3), day("2021-03-02", 7, 3)));
+            fail("Expected InterruptedIOException");
+        } catch (InterruptedIOException e) {
+            // Caught exception properly
+        }
+        assertFalse(Files.exists(Paths.get(PATH, ColumnarWriter.MANIFEST)));
+
+        ColumnarWriter.delete(PATH);
+        assertFalse(Files.exists(Paths.get(PATH)));
+    }
+
+    // EFFECTS: returns a Day on date with sleep hours, the first mood's score and its activities.
+    private Day day(String date, int sleep, int score, String... activities) {
+        Day day = new Day(new DateCode(date));
+        day.setSleepHours(sleep);
+        day.getMood(0).setMoodScore(score);
+        for (String name : activities) {
+            day.getMood(0).addActivity(DefaultActivities.getInstance().getActivity(name));
+        }
+        return day;
+    }
+
+    // EFFECTS: returns the bytes of the column file called name, read as little endian values.
+    private ByteBuffer column(String name) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(Paths.get(PATH, name))).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // EFFECTS: returns the manifest of the export.
+    private JSONObject manifest() throws IOException {
+        return new JSONObject(new String(Files.readAllBytes(Paths.get(PATH, ColumnarWriter.MANIFEST)),
+                StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,174 @@
+package model.persistence;
+
+import model.DateCode;
+import model.Day;
+import model.Timeline;
+import model.activities.ActivityRegistry;
+import model.activities.DefaultActivities;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import persistence.CsvReader;
+import persistence.CsvWriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvReaderTest {
+
+    private static final String PATH = "./data/testCsvReader.csv";
+
+    ForkJoinPool pool;
+
+    @BeforeEach
+    void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    void deleteFiles() throws IOException {
+        pool.shutdown();
+        Files.deleteIfExists(Paths.get(PATH));
+        Files.deleteIfExists(Paths.get(PATH + ".gz"));
+    }
+
+    @Test
+    void testReaderNoFileAtPath() {
+        try {
+            new CsvReader("./data/noFileHere.csv").read();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Caught exception properly
+        }
+    }
+
+    @Test
+    void testUserDefinedActivityInUse() throws IOException {
+        assertNotNull(ActivityRegistry.getInstance().intern("Fencing")); // As a timeline using it does
+        writeRows("2021-03-05, 1, 1, 1, fencing;Music, ", "2021-03-06, 1, 1, 1, Fencng, ");
+
+        CsvReader reader = new CsvReader(PATH, pool, 2);
+        ArrayList<Day> days = reader.readDays();
+        assertEquals(1, days.size());
+        assertTrue(days.get(0).getMood(0).containsActivity("Fencing"));
+        assertEquals("Unknown activity 'Fencng'", reader.getMalformedRows().get(0).getMessage());
+        assertNull(ActivityRegistry.getInstance().find("Fencng"));
+    }
+
+    @Test
+    void testReadWrittenFile() throws IOException {
+        ArrayList<Day> written = writeDays(PATH, 300);
+
+        for (int batchRows : new int[]{1, 7, 1000}) {
+            CsvReader reader = new CsvReader(PATH, pool, batchRows);
+            ArrayList<Day> read = reader.readDays();
+            assertTrue(reader.getMalformedRows().isEmpty());
+            assertSameCsv(written, read);
+        }
+    }
+
+    @Test
+    void testReadCompressedFile() throws IOException {
+        ArrayList<Day> written = writeDays(PATH + ".gz", 50);
+        assertSameCsv(written, new CsvReader(PATH + ".gz", pool, 8).readDays());
+    }
+
+    @Test
+    void testReadBuildsTimeline() throws IOException {
+        writeRows("2021-03-05, 4, x, 10, Music;, ",
+                "2021-03-06, x, 2, x, , Gaming;Movie/TV;");
+
+        Timeline tl = new CsvReader(PATH, pool, 1).read();
+        Day d1 = tl.getDay(new DateCode("2021-03-05"));
+        Day d2 = tl.getDay(new DateCode("2021-03-06"));
+        assertEquals(10, d1.getSleepHours());
+        assertEquals(4, d1.getMood(0).getMoodScore());
+        assertEquals(-1, d1.getMood(1).getMoodScore());
+        assertTrue(d1.getMood(0).containsActivity("Music"));
+        assertEquals(-1, d2.getSleepHours());
+        assertEquals(2, d2.getMood(1).getActivityListLength());
+        assertNotNull(tl.getDay());
+    }
+
+    @Test
+    void testMalformedRowsReportedWithLineNumbers() throws IOException {
+        writeRows("2021-03-05, 4, x, 10, , ",
+                "2021-03-06, 4, x, 10",
+                "2021-02-30, 4, x, 10, , ",
+                "2021-03-07, 9, x, 10, , ",
+                "",
+                "2021-03-08, 1, 2, abc, , ",
+                "2021-03-09, 1, 2, 3, Skydiving;, ",
+                "2021-03-05, 1, 1, 1, , ",
+                "2021-03-10, 1, 1, 1, Music;music;, ");
+
+        CsvReader reader = new CsvReader(PATH, pool, 2);
+        ArrayList<Day> days = reader.readDays();
+        List<CsvReader.MalformedRow> malformed = reader.getMalformedRows();
+
+        assertEquals(2, days.size());
+        assertEquals(10, days.get(0).getSleepHours());
+        assertEquals(1, days.get(1).getMood(0).getActivityListLength());
+
+        int[] lines = {3, 4, 5, 7, 8, 9};
+        assertEquals(lines.length, malformed.size());
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(lines[i], malformed.get(i).getLineNumber());
+        }
+        assertEquals("Line 4: Invalid date '2021-02-30'", malformed.get(1).toString());
+        assertEquals("Duplicate of the date on line 2", malformed.get(5).getMessage());
+    }
+
+    @Test
+    void testReadFileWithoutHeader() throws IOException {
+        Files.write(Paths.get(PATH), "2021-03-05, 4, x, 10, , \n2021-03-06, 3, x, 8, , \n"
+                .getBytes(StandardCharsets.UTF_8));
+
+        CsvReader reader = new CsvReader(PATH, pool, 1);
+        assertEquals(2, reader.readDays().size());
+        assertTrue(reader.getMalformedRows().isEmpty());
+    }
+
+    // EFFECTS: writes count consecutive days with varied values to path with a CsvWriter and returns them.
+    private ArrayList<Day> writeDays(String path, int count) throws IOException {
+        ArrayList<Day> days = new ArrayList<>();
+        DateCode dc = new DateCode("2020-01-01");
+        for (int i = 0; i < count; i++) {
+            Day day = new Day(dc);
+            day.setSleepHours(i % 3 == 0 ? -1 : i % Day.MAXSLEEP);
+            day.getMood(0).setMoodScore(1 + i % 5);
+            day.getMood(1).addActivity(DefaultActivities.getInstance().getActivityList()
+                    .get(i % DefaultActivities.getInstance().getActivityList().size()));
+            days.add(day);
+            dc = DateCode.fromEpochDay(dc.toEpochDay() + 1);
+        }
+
+        CsvWriter writer = new CsvWriter(days);
+        writer.open(path);
+        writer.write();
+        writer.close();
+        return days;
+    }
+
+    // EFFECTS: writes the CSV header followed by rows to PATH.
+    private void writeRows(String... rows) throws IOException {
+        Files.write(Paths.get(PATH), (CsvWriter.HEADER + String.join("\n", rows) + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    // EFFECTS: asserts that read exports to the same CSV as expected.
+    private void assertSameCsv(ArrayList<Day> expected, ArrayList<Day> read) {
+        CsvWriter expectedCsv = new CsvWriter(expected);
+        CsvWriter readCsv = new CsvWriter(read);
+        expectedCsv.convertListToString();
+        readCsv.convertListToString();
+        assertEquals(expectedCsv.getCsvString(), readCsv.getCsvString());
+    }
+}
@@ -9,9 +9,16 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import persistence.CsvWriter;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.zip.GZIPInputStream;
 
 public class CsvWriterTest {
 
@@ -44,6 +51,52 @@ public class CsvWriterTest {
         assertTrue(new File("./data/timeline-test.csv").exists());
     }
 
+    @Test
+    void testStreamedFileMatchesString() {
+        dayList.get(0).setSleepHours(7);
+        dayList.get(1).getMood(1).addActivity(
+                DefaultActivities.getInstance().getActivity("Music"));
+
+        try {
+            csv.open("./data/timeline-stream-test.csv");
+            csv.write();
+            csv.close();
+
+            assertNull(csv.getCsvString());
+            csv.convertListToString();
+
+            String written = new String(Files.readAllBytes(Paths.get("./data/timeline-stream-test.csv")),
+                    StandardCharsets.UTF_8);
+            assertEquals(csv.getCsvString(), written);
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
+    @Test
+    void testCompressedFileMatchesString() {
+        dayList.get(1).getMood(0).addActivity(
+                DefaultActivities.getInstance().getActivity("Music"));
+
+        try {
+            csv.open("./data/timeline-stream-test.csv.gz");
+            csv.write();
+            csv.close();
+            csv.convertListToString();
+
+            try (InputStream in = new GZIPInputStream(new FileInputStream("./data/timeline-stream-test.csv.gz"))) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[1024];
+                for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                    out.write(buffer, 0, n);
+                }
+                assertEquals(csv.getCsvString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
     @Test
     void testConvertListToStringNoActivities() {
         csv.convertListToString();
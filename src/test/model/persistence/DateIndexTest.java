@@ -0,0 +1,329 @@
+package model.persistence;
+
+import model.DateCode;
+import model.Day;
+import model.Timeline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import persistence.Crc32c;
+import persistence.DamagedBlock;
+import persistence.DateIndex;
+import persistence.IndexedJsonSource;
+import persistence.JsonReader;
+import persistence.JsonWriter;
+import persistence.TimelineStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DateIndexTest extends JsonTest {
+
+    private static final String PATH = "./data/testIndexedTimeline.json";
+    private static final String INDEX = DateIndex.pathOf(PATH);
+
+    @BeforeEach
+    void runBefore() throws IOException {
+        deleteFiles();
+    }
+
+    @AfterEach
+    void runAfter() throws IOException {
+        deleteFiles();
+    }
+
+    @Test
+    void testBuildAndFind() throws IOException {
+        writeDays(PATH, 400);
+        DateIndex index = DateIndex.build(PATH);
+
+        assertTrue(Files.exists(Paths.get(INDEX)));
+        assertEquals(400, index.size());
+        assertEquals(Files.size(Paths.get(PATH)), index.getDataSize());
+        int first = new DateCode("2020-01-01").toEpochDay();
+        assertEquals(0, index.find(new DateCode("2020-01-01")));
+        assertEquals(31, index.find(new DateCode("2020-02-01")));
+        assertEquals(-1, index.find(new DateCode("2019-12-31")));
+        assertEquals(0, index.lowerBound(first - 10));
+        assertEquals(400, index.lowerBound(first + 400));
+        for (int i = 1; i < index.size(); i++) {
+            assertEquals(index.epochDayAt(i - 1) + 1, index.epochDayAt(i));
+        }
+    }
+
+    @Test
+    void testIndexFileNotHeldOpen() throws IOException {
+        writeDays(PATH, 40);
+        DateIndex.build(PATH);
+        DateIndex index = DateIndex.open(PATH);
+        byte[] overwritten = new byte[(int) Files.size(Paths.get(INDEX))];
+
+        Files.write(Paths.get(INDEX), overwritten);     // Seen by a mapped index, not by one read into memory
+        Files.delete(Paths.get(INDEX));
+        assertEquals(40, index.size());
+        assertEquals(31, index.find(new DateCode("2020-02-01")));
+        assertEquals(DateIndex.build(PATH).epochDayAt(39), index.epochDayAt(39));
+    }
+
+    @Test
+    void testOpenWithoutIndex() throws IOException {
+        writeDays(PATH, 10);
+        assertNull(DateIndex.open(PATH));
+    }
+
+    @Test
+    void testBuildInvalidTimeline() throws IOException {
+        String json = "{\"timeline\": [{\"id\": \"2021-02-30\", \"moods\": []}]}";
+        Files.write(Paths.get(PATH), json.getBytes(StandardCharsets.UTF_8));
+        try {
+            DateIndex.build(PATH);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Caught exception properly
+        }
+    }
+
+    @Test
+    void testDuplicateDatesKeepLast() throws IOException {
+        String json = "{\"version\": 2, \"timeline\": ["
+                + "{\"id\": \"2021-03-05\", \"sleep\": 3, \"moods\": []},"
+                + "{\"id\": \"2021-03-04\", \"sleep\": 4, \"moods\": []},"
+                + "{\"id\": \"2021-03-05\", \"sleep\": 5, \"moods\": []}]}";
+        Files.write(Paths.get(PATH), json.getBytes(StandardCharsets.UTF_8));
+        DateIndex index = DateIndex.build(PATH);
+
+        assertEquals(2, index.size());
+        Timeline tl = new Timeline(new IndexedJsonSource(PATH, index, new Object()));
+        assertEquals(4, tl.getDay(new DateCode("2021-03-04")).getSleepHours());
+        assertEquals(5, tl.getDay(new DateCode("2021-03-05")).getSleepHours());
+    }
+
+    @Test
+    void testLazyTimelineMatchesReader() throws IOException {
+        writeDays(PATH, 400);
+        Timeline tl = new Timeline(new IndexedJsonSource(PATH, DateIndex.build(PATH), new Object()));
+        Timeline expected = new JsonReader(PATH).read();
+
+        for (Day day : new JsonReader(PATH).readDays()) {
+            Day lazy = tl.getDay(day.getDateCode());
+            assertNotNull(lazy);
+            assertEquals(day.getSleepHours(), lazy.getSleepHours());
+            assertEquals(day.getMood(0).getMoodScore(), lazy.getMood(0).getMoodScore());
+        }
+        assertEquals(expected.getDays().size(), tl.getDays().size());
+    }
+
+    @Test
+    void testOpenAppendedDays() throws IOException {
+        writeDays(PATH, 40);
+        DateIndex.build(PATH);
+        appendDay(PATH, "{\"id\": \"2019-06-01\", \"sleep\": 7, \"moods\": []}");
+
+        DateIndex index = DateIndex.open(PATH);
+        assertEquals(41, index.size());
+        assertEquals(Files.size(Paths.get(PATH)), index.getDataSize());
+        assertEquals(0, index.find(new DateCode("2019-06-01")));
+        Timeline tl = new Timeline(new IndexedJsonSource(PATH, index, new Object()));
+        assertEquals(7, tl.getDay(new DateCode("2019-06-01")).getSleepHours());
+
+        // Opening an index that is up to date leaves it as it is
+        assertEquals(41, DateIndex.open(PATH).size());
+    }
+
+    @Test
+    void testOpenChangedTimeline() throws IOException {
+        writeDays(PATH, 40);
+        DateIndex.build(PATH);
+        writeDays(PATH, 20);
+
+        assertEquals(20, DateIndex.open(PATH).size());
+
+        Files.write(Paths.get(INDEX), new byte[]{1, 2, 3});
+        assertEquals(20, DateIndex.open(PATH).size());
+    }
+
+    @Test
+    void testSourceReopensReplacedTimeline() throws IOException {
+        writeDays(PATH, 40);
+        Timeline tl = new Timeline(new IndexedJsonSource(PATH, DateIndex.build(PATH), new Object()));
+        appendDay(PATH, "{\"id\": \"2019-06-01\", \"sleep\": 7, \"moods\": []}");
+
+        assertEquals(7, tl.getDay(new DateCode("2019-06-01")).getSleepHours());
+        assertNotNull(tl.getDay(new DateCode("2020-01-01")));
+    }
+
+    @Test
+    void testStoreLoadsIndexedSnapshot() throws IOException {
+        Timeline tl = generateGeneralTimeline();
+        TimelineStore store = new TimelineStore(PATH);
+        store.setIndexed(true);
+        store.reset(tl);
+        store.close();
+        assertTrue(Files.exists(Paths.get(INDEX)));
+
+        TimelineStore reloaded = new TimelineStore(PATH);
+        Timeline loaded = reloaded.load();
+        assertTrue(loaded.getDaySource() instanceof IndexedJsonSource);
+        ensureTimelinesAreEqual(tl, loaded, true, true);
+
+        // An existing index is kept up to date by compaction
+        loaded.getDay(new DateCode("2021-03-05")).setSleepHours(11);
+        reloaded.compact();
+        reloaded.close();
+        assertEquals(Files.size(Paths.get(PATH)), DateIndex.open(PATH).getDataSize());
+        assertEquals(11, new TimelineStore(PATH).load().getDay(new DateCode("2021-03-05")).getSleepHours());
+    }
+
+    @Test
+    void testCrc32c() {
+        Crc32c crc = new Crc32c();
+        byte[] check = "123456789".getBytes(StandardCharsets.US_ASCII);
+        crc.update(check, 0, check.length);
+        assertEquals(0xE3069283L, crc.getValue());
+
+        crc.reset();
+        for (byte b : check) {
+            crc.update(b);
+        }
+        assertEquals(0xE3069283L, crc.getValue());
+        assertEquals(0x8A9136AA, Crc32c.of(ByteBuffer.wrap(new byte[32])));
+    }
+
+    @Test
+    void testVerify() throws IOException {
+        writeDays(PATH, 400);
+        DateIndex index = DateIndex.build(PATH);
+        assertTrue(index.verify(PATH).isEmpty());
+
+        // Damages a day object in March 2020, and cuts off the file in the middle of November 2020
+        byte[] json = Files.readAllBytes(Paths.get(PATH));
+        int march = index.find(new DateCode("2020-03-10"));
+        json[(int) index.offsetAt(march) + 2] = 'X';
+        long cut = index.offsetAt(index.find(new DateCode("2020-11-15")));
+        Files.write(Paths.get(PATH), Arrays.copyOf(json, (int) cut));
+
+        List<DamagedBlock> damaged = index.verify(PATH);
+        List<Integer> months = new ArrayList<>();
+        for (DamagedBlock block : damaged) {
+            months.add(block.getPartition());
+        }
+        assertEquals(Arrays.asList(202003, 202011, 202012, 202101, 202102), months);
+        assertEquals("2020-03-01", damaged.get(0).getFirst().toString());
+        assertEquals("2020-03-31", damaged.get(0).getLast().toString());
+        assertEquals(31, damaged.get(0).getDayCount());
+        assertEquals("2021-02-03", damaged.get(4).getLast().toString());
+    }
+
+    @Test
+    void testSourceChecksMonthsAsRead() throws IOException {
+        writeDays(PATH, 400);
+        DateIndex index = DateIndex.build(PATH);
+        Timeline tl = new Timeline(new IndexedJsonSource(PATH, index, new Object()));
+
+        // Damages the sleep of 2020-03-10 so the day object still parses, keeping the size and modification time
+        byte[] json = Files.readAllBytes(Paths.get(PATH));
+        int march = index.find(new DateCode("2020-03-10"));
+        String day = new String(json, (int) index.offsetAt(march), index.lengthAt(march), StandardCharsets.UTF_8);
+        int sleep = (int) index.offsetAt(march) + day.indexOf("\"sleep\": ") + "\"sleep\": ".length();
+        json[sleep] = (byte) (json[sleep] == '1' ? '2' : '1');
+        FileTime modified = Files.getLastModifiedTime(Paths.get(PATH));
+        Files.write(Paths.get(PATH), json);
+        Files.setLastModifiedTime(Paths.get(PATH), modified);
+
+        assertNotNull(tl.getDay(new DateCode("2020-04-10")));
+        try {
+            tl.getDay(new DateCode("2020-03-01"));
+            fail("Expected UncheckedIOException");
+        } catch (UncheckedIOException e) {
+            // Caught exception properly
+        }
+    }
+
+    @Test
+    void testStoreRecoversDamagedSnapshot() throws IOException {
+        writeDays(PATH, 400);
+        TimelineStore store = new TimelineStore(PATH);
+        store.setIndexed(true);
+        store.load().getDay(new DateCode("2020-12-25")).setSleepHours(12);
+        store.close();
+        long cut = DateIndex.open(PATH).offsetAt(DateIndex.open(PATH).find(new DateCode("2020-11-15")));
+        try (FileChannel channel = FileChannel.open(Paths.get(PATH), StandardOpenOption.WRITE)) {
+            channel.truncate(cut);
+        }
+
+        TimelineStore recovering = new TimelineStore(PATH);
+        Timeline tl = recovering.load();
+        recovering.close();
+        assertEquals(4, recovering.getDamagedBlocks().size());
+        assertEquals(202011, recovering.getDamagedBlocks().get(0).getPartition());
+        assertTrue(Files.exists(Paths.get(PATH + TimelineStore.DAMAGED_EXTENSION)));
+
+        // The intact months and the journaled change to a damaged month are kept
+        assertEquals(10 % 13, tl.getDay(new DateCode("2020-01-11")).getSleepHours());
+        assertEquals(12, tl.getDay(new DateCode("2020-12-25")).getSleepHours());
+        assertNull(tl.getDay(new DateCode("2020-11-01")));
+
+        // The recovered snapshot is whole again
+        assertEquals(12, new JsonReader(PATH).read().getDay(new DateCode("2020-12-25")).getSleepHours());
+        assertTrue(DateIndex.open(PATH).verify(PATH).isEmpty());
+    }
+
+    @Test
+    void testStoreCannotRecoverWithoutIndex() throws IOException {
+        writeDays(PATH, 40);
+        Files.write(Paths.get(PATH), Arrays.copyOf(Files.readAllBytes(Paths.get(PATH)), 100));
+        try {
+            new TimelineStore(PATH).load();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Caught exception properly
+        }
+    }
+
+    // EFFECTS: writes a timeline of count consecutive days from 2020-01-01 with varied values to path.
+    private void writeDays(String path, int count) throws IOException {
+        ArrayList<Day> days = new ArrayList<>();
+        DateCode dc = new DateCode("2020-01-01");
+        for (int i = 0; i < count; i++) {
+            Day day = new Day(dc);
+            day.setSleepHours(i % 13);
+            day.getMood(0).setMoodScore(i % 5);
+            days.add(day);
+            dc = DateCode.fromEpochDay(dc.toEpochDay() + 1);
+        }
+
+        JsonWriter writer = new JsonWriter(path, true);
+        writer.open();
+        writer.write(days);
+        writer.close();
+    }
+
+    // EFFECTS: rewrites the timeline at path with dayObject appended to the end of its timeline array.
+    private void appendDay(String path, String dayObject) throws IOException {
+        String json = new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+        int end = json.lastIndexOf(']');
+        json = json.substring(0, end) + "," + dayObject + json.substring(end);
+        Files.write(Paths.get(path), json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // EFFECTS: deletes the files the tests write.
+    private void deleteFiles() throws IOException {
+        for (String suffix : new String[]{"", DateIndex.EXTENSION, TimelineStore.DAMAGED_EXTENSION,
+                TimelineStore.JOURNAL_EXTENSION,
+                TimelineStore.JOURNAL_EXTENSION + TimelineStore.COMPACTING_EXTENSION}) {
+            Files.deleteIfExists(Paths.get(PATH + suffix));
+        }
+    }
+}
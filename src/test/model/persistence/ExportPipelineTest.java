@@ -0,0 +1,133 @@
+package model.persistence;
+
+import model.DateCode;
+import model.Day;
+import model.Timeline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import persistence.BinaryReader;
+import persistence.CsvWriter;
+import persistence.ExportPipeline;
+import persistence.JsonReader;
+import persistence.JsonWriter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExportPipelineTest extends JsonTest {
+
+    private static final String CSV = "./data/testExportPipeline.csv";
+    private static final String JSON = "./data/testExportPipeline.json";
+    private static final String BINARY = "./data/testExportPipeline.hio";
+    private static final String EXPECTED = "./data/testExportPipelineExpected";
+
+    @BeforeEach
+    void runBefore() throws IOException {
+        deleteFiles();
+    }
+
+    @AfterEach
+    void runAfter() throws IOException {
+        deleteFiles();
+    }
+
+    @Test
+    void testExportMatchesSingleWriters() throws IOException {
+        List<Day> days = generateDays(2000);
+        ExportPipeline pipeline = new ExportPipeline(days, 16);
+        pipeline.addCsv(CSV);
+        pipeline.addJson(JSON);
+        pipeline.addBinary(BINARY);
+        pipeline.run();
+
+        CsvWriter csvWriter = new CsvWriter(days);
+        csvWriter.open(EXPECTED + ".csv");
+        csvWriter.write();
+        csvWriter.close();
+        JsonWriter jsonWriter = new JsonWriter(EXPECTED + ".json");
+        jsonWriter.open();
+        jsonWriter.write(days);
+        jsonWriter.close();
+
+        assertArrayEquals(Files.readAllBytes(Paths.get(EXPECTED + ".csv")), Files.readAllBytes(Paths.get(CSV)));
+        assertArrayEquals(Files.readAllBytes(Paths.get(EXPECTED + ".json")), Files.readAllBytes(Paths.get(JSON)));
+        Timeline binary = new BinaryReader(BINARY).read();
+        Timeline json = new JsonReader(JSON).read();
+        for (Day d : days) {
+            assertEquals(d.getSleepHours(), binary.getDay(d.getDateCode()).getSleepHours());
+            assertEquals(d.getMood(1).getMoodScore(), json.getDay(d.getDateCode()).getMood(1).getMoodScore());
+        }
+    }
+
+    @Test
+    void testExportGeneralTimeline() throws IOException {
+        Timeline tl = generateGeneralTimeline();
+        ExportPipeline pipeline = new ExportPipeline(tl.getDays());
+        pipeline.addJson(JSON + ".gz");
+        pipeline.addBinary(BINARY);
+        pipeline.run();
+
+        ensureTimelinesAreEqual(tl, new JsonReader(JSON + ".gz").read(), true, true);
+        ensureTimelinesAreEqual(tl, new BinaryReader(BINARY).read(), false, true);
+    }
+
+    @Test
+    void testCancelledExportDeletesFiles() {
+        ExportPipeline pipeline = new ExportPipeline(generateDays(2000), 4);
+        pipeline.addCsv(CSV);
+        pipeline.addJson(JSON);
+        pipeline.setProgressListener((done, total) -> done < 500);
+        try {
+            pipeline.run();
+            fail("Expected InterruptedIOException");
+        } catch (InterruptedIOException e) {
+            // Caught exception properly
+        } catch (IOException e) {
+            fail("Expected InterruptedIOException");
+        }
+        assertFalse(Files.exists(Paths.get(CSV)));
+        assertFalse(Files.exists(Paths.get(JSON)));
+    }
+
+    @Test
+    void testFailedSinkDeletesFiles() {
+        ExportPipeline pipeline = new ExportPipeline(generateDays(2000), 4);
+        pipeline.addCsv(CSV);
+        pipeline.addJson("./data/missingDirectory/testExportPipeline.json");
+        try {
+            pipeline.run();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Caught exception properly
+        }
+        assertFalse(Files.exists(Paths.get(CSV)));
+    }
+
+    // EFFECTS: returns count consecutive Days from 2015-01-01 with varied values.
+    private List<Day> generateDays(int count) {
+        List<Day> days = new ArrayList<>();
+        DateCode dc = new DateCode("2015-01-01");
+        for (int i = 0; i < count; i++) {
+            Day day = new Day(dc);
+            day.setSleepHours(i % 13);
+            day.getMood(1).setMoodScore(i % 5);
+            days.add(day);
+            dc = DateCode.fromEpochDay(dc.toEpochDay() + 1);
+        }
+        return days;
+    }
+
+    // EFFECTS: deletes the files the tests write.
+    private void deleteFiles() throws IOException {
+        for (String path : new String[]{CSV, JSON, JSON + ".gz", BINARY, EXPECTED + ".csv", EXPECTED + ".json"}) {
+            Files.deleteIfExists(Paths.get(path));
+        }
+    }
+}
@@ -3,16 +3,23 @@ package model.persistence;
 import model.DateCode;
 import model.Day;
 import model.Timeline;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import persistence.JsonMigrations;
 import persistence.JsonReader;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class JsonReaderTest extends JsonTest {
 
+    private static final String PATH = "./data/testReaderVersionedTimeline.json";
+
     @Test
     void testReaderNoFileAtPath() {
         JsonReader jr = new JsonReader("./data/noFileHere.json");
@@ -24,6 +31,17 @@ public class JsonReaderTest extends JsonTest {
         }
     }
 
+    @Test
+    void testReaderTruncatedFile() {
+        JsonReader jr = new JsonReader("./data/testReaderTruncatedTimeline.json");
+        try {
+            jr.read();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Caught exception properly
+        }
+    }
+
     @Test
     void testReaderDefaultTimeline() {
         JsonReader jr = new JsonReader("./data/testReaderDefaultTimeline.json");
@@ -77,4 +95,55 @@ public class JsonReaderTest extends JsonTest {
         }
     }
 
+    @Test
+    void testReaderMigratesVersionOneDays() throws IOException {
+        // Version 1 files have no version, activity objects and may have fewer than Day.MAXMOODS moods
+        String json = "{\"timeline\": [{\"sleep\": 6, \"moods\": [{\"score\": 3, \"activities\": "
+                + "[{\"name\": \"Music\"}, {\"name\": \"Gaming\", \"extra\": 1}]}], \"id\": \"2021-03-05\"}]}";
+        Files.write(Paths.get(PATH), json.getBytes(StandardCharsets.UTF_8));
+
+        Day day = new JsonReader(PATH).read().getDay(new DateCode("2021-03-05"));
+        assertEquals(6, day.getSleepHours());
+        assertEquals(Day.MAXMOODS, day.getMoodListLength());
+        assertEquals(3, day.getMood(0).getMoodScore());
+        assertTrue(day.getMood(0).containsActivity("Gaming"));
+        assertEquals(-1, day.getMood(1).getMoodScore());
+        assertEquals(0, day.getMood(1).getActivityListLength());
+    }
+
+    @Test
+    void testReaderCurrentVersion() throws IOException {
+        String json = "{\"version\": " + JsonMigrations.CURRENT_VERSION + ","
+                + " \"timeline\": [{\"id\": \"2021-03-05\", \"sleep\": 2,"
+                + " \"moods\": [{\"score\": 1, \"activities\": [{\"name\": \"Music\"},"
+                + " {\"name\": \"Unknown\"}]},"
+                + " {\"score\": 5, \"activities\": []}]}]}";
+        Files.write(Paths.get(PATH), json.getBytes(StandardCharsets.UTF_8));
+
+        Day day = new JsonReader(PATH).read().getDay(new DateCode("2021-03-05"));
+        assertEquals(2, day.getSleepHours());
+        assertEquals(2, day.getMood(0).getActivityListLength());
+        assertTrue(day.getMood(0).containsActivity("Music"));
+        assertTrue(day.getMood(0).containsActivity("Unknown"));
+        assertEquals(5, day.getMood(1).getMoodScore());
+    }
+
+    @Test
+    void testReaderUnsupportedVersion() throws IOException {
+        for (int version : new int[]{0, JsonMigrations.CURRENT_VERSION + 1}) {
+            Files.write(Paths.get(PATH), ("{\"version\": " + version + ", \"timeline\": []}")
+                    .getBytes(StandardCharsets.UTF_8));
+            try {
+                new JsonReader(PATH).read();
+                fail("Expected IOException");
+            } catch (IOException e) {
+                // Caught exception properly
+            }
+        }
+    }
+
+    @AfterEach
+    void deleteFiles() throws IOException {
+        Files.deleteIfExists(Paths.get(PATH));
+    }
 }
@@ -0,0 +1,109 @@
+package model.persistence;
+
+import org.junit.jupiter.api.Test;
+import persistence.JsonTokenizer;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonTokenizerTest {
+
+    private JsonTokenizer tokenizer(String json) {
+        return new JsonTokenizer(new StringReader(json));
+    }
+
+    @Test
+    void testReadObject() throws IOException {
+        JsonTokenizer t = tokenizer("{\"id\": \"2021-03-05\", \"sleep\": -1, \"moods\": [1, 2]}");
+
+        t.beginObject();
+        assertEquals("id", t.nextName());
+        assertEquals("2021-03-05", t.nextString());
+        assertEquals("sleep", t.nextName());
+        assertEquals(-1, t.nextInt());
+        assertEquals("moods", t.nextName());
+        t.beginArray();
+        assertTrue(t.hasNext());
+        assertEquals(1, t.nextInt());
+        assertEquals(2, t.nextInt());
+        assertFalse(t.hasNext());
+        t.endArray();
+        assertFalse(t.hasNext());
+        t.endObject();
+        assertEquals(JsonTokenizer.Token.END_DOCUMENT, t.peek());
+    }
+
+    @Test
+    void testEscapedString() throws IOException {
+        JsonTokenizer t = tokenizer("[\"Movie\\/TV \\\"x\\\" \\u0041\\n\"]");
+
+        t.beginArray();
+        assertEquals("Movie/TV \"x\" A\n", t.nextString());
+        t.endArray();
+    }
+
+    @Test
+    void testSkipValue() throws IOException {
+        JsonTokenizer t = tokenizer("{\"skip\": {\"a\": [1, {\"b\": null}], \"c\": true}, \"keep\": 4}");
+
+        t.beginObject();
+        assertEquals("skip", t.nextName());
+        t.skipValue();
+        assertEquals("keep", t.nextName());
+        assertEquals(4, t.nextInt());
+        t.endObject();
+    }
+
+    @Test
+    void testMalformedInput() {
+        try {
+            JsonTokenizer t = tokenizer("{\"id\" \"2021-03-05\"}");
+            t.beginObject();
+            t.nextName();
+            t.nextString();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Caught exception properly
+        }
+
+        try {
+            JsonTokenizer t = tokenizer("[1, 2");
+            t.beginArray();
+            t.nextInt();
+            t.nextInt();
+            t.endArray();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Caught exception properly
+        }
+    }
+
+    @Test
+    void testWrongTokenType() {
+        try {
+            JsonTokenizer t = tokenizer("[\"four\"]");
+            t.beginArray();
+            t.nextInt();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Caught exception properly
+        }
+    }
+
+    @Test
+    void testNextValueTree() throws IOException {
+        JsonTokenizer t = tokenizer("{\"a\": [1, -2.5, \"x\", true, null], \"b\": {\"c\": {}}, \"d\": 3}");
+
+        Map<?, ?> tree = (Map<?, ?>) t.nextValue();
+        assertEquals(Arrays.asList(1L, -2.5, "x", true, null), tree.get("a"));
+        assertEquals(new LinkedHashMap<>(), ((Map<?, ?>) tree.get("b")).get("c"));
+        assertEquals(Arrays.asList("a", "b", "d"), new ArrayList<>(tree.keySet()));
+        assertEquals(JsonTokenizer.Token.END_DOCUMENT, t.peek());
+    }
+}
@@ -2,11 +2,18 @@ package model.persistence;
 
 import model.Timeline;
 import model.activities.DefaultActivities;
+import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
+import persistence.Compression;
+import persistence.JsonMigrations;
 import persistence.JsonReader;
 import persistence.JsonWriter;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -75,4 +82,95 @@ public class JsonWriterTest extends JsonTest {
         }
     }
 
+    @Test
+    void testWriterCompactTimeline() {
+        try {
+            Timeline generalTimeline = generateGeneralTimeline();
+
+            // Save and load compact JSON
+            JsonWriter jw = new JsonWriter("./data/testWriterCompactTimeline.json", false);
+            jw.open();
+            jw.write(generalTimeline);
+            jw.close();
+
+            String json = new String(Files.readAllBytes(Paths.get("./data/testWriterCompactTimeline.json")),
+                    StandardCharsets.UTF_8);
+            assertFalse(json.contains(" "));
+            assertFalse(json.contains("\n"));
+            assertTrue(json.startsWith("{\"version\":" + JsonMigrations.CURRENT_VERSION + ",\"timeline\":["));
+            assertTrue(json.contains("\"activities\":[{\"name\":\"Gaming\"}]"));
+            // The document written is the one toJson represents
+            assertTrue(new JSONObject(json).similar(generalTimeline.toJson()));
+
+            JsonReader jr = new JsonReader("./data/testWriterCompactTimeline.json");
+            Timeline loadedTimeline = jr.read();
+
+            ensureTimelinesAreEqual(generalTimeline, loadedTimeline, false, true);
+
+        } catch (IOException e) {
+            fail("IOException should not have been thrown");
+        }
+    }
+
+
+    @Test
+    void testWriterProgressAndCancel() {
+        long[] last = new long[2];
+        try {
+            JsonWriter jw = new JsonWriter("./data/testWriterProgressTimeline.json");
+            jw.setProgressListener((done, total) -> {
+                last[0] = done;
+                last[1] = total;
+                return true;
+            });
+            Timeline tl = generateGeneralTimeline();
+            jw.open();
+            jw.write(tl);
+            jw.close();
+            assertEquals(tl.getDays().size(), last[0]);
+            assertEquals(tl.getDays().size(), last[1]);
+        } catch (IOException e) {
+            fail("Exception should not have been thrown");
+        }
+
+        try {
+            JsonWriter jw = new JsonWriter("./data/testWriterProgressTimeline.json");
+            jw.setProgressListener((done, total) -> done < 2);
+            jw.open();
+            jw.write(generateGeneralTimeline());
+            fail("Expected InterruptedIOException");
+        } catch (InterruptedIOException e) {
+            // Cancelled properly
+        } catch (IOException e) {
+            fail("Only InterruptedIOException should have been thrown");
+        }
+    }
+
+    @Test
+    void testWriterCompressedTimeline() {
+        try {
+            Timeline tl = generateGeneralTimeline();
+            for (String path : new String[]{"./data/testWriterCompressedTimeline.json.gz",
+                    "./data/testWriterCompressedTimeline.json.deflate"}) {
+                JsonWriter jw = new JsonWriter(path);
+                jw.open();
+                jw.write(tl);
+                jw.close();
+
+                ensureTimelinesAreEqual(tl, new JsonReader(path).read(), true, true);
+                long uncompressedSize = Files.size(Paths.get("./data/testWriterGeneralTimeline.json"));
+                assertTrue(Files.size(Paths.get(path)) < uncompressedSize);
+            }
+
+            // An explicit compression overrides the extension
+            JsonWriter jw = new JsonWriter("./data/testWriterCompressedTimeline.dat", true, Compression.GZIP);
+            jw.open();
+            jw.write(tl);
+            jw.close();
+            ensureTimelinesAreEqual(tl, new JsonReader("./data/testWriterCompressedTimeline.dat",
+                    Compression.GZIP).read(), true, true);
+        } catch (IOException e) {
+            fail("Exception should not have been thrown");
+        }
+    }
 }
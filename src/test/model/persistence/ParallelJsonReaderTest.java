@@ -0,0 +1,190 @@
+package model.persistence;
+
+import model.DateCode;
+import model.Day;
+import model.Mood;
+import model.Timeline;
+import model.activities.Activity;
+import model.activities.DefaultActivities;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import persistence.Compression;
+import persistence.JsonReader;
+import persistence.JsonWriter;
+import persistence.ParallelJsonReader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelJsonReaderTest extends JsonTest {
+
+    private static final String PATH = "./data/testParallelTimeline.json";
+
+    ForkJoinPool pool;
+
+    @BeforeEach
+    void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    void deleteFiles() throws IOException {
+        pool.shutdown();
+        Files.deleteIfExists(Paths.get(PATH));
+        Files.deleteIfExists(Paths.get(PATH + ".gz"));
+    }
+
+    @Test
+    void testReaderGeneralTimeline() {
+        try {
+            Timeline tl = new ParallelJsonReader("./data/testReaderGeneralTimeline.json", pool, 1).read();
+            ensureTimelinesAreEqual(generateGeneralTimeline(), tl, true, true);
+        } catch (IOException e) {
+            fail("IOException should not have been thrown");
+        }
+    }
+
+    @Test
+    void testReaderMatchesSequentialReader() throws IOException {
+        writeLargeTimeline(PATH, Compression.NONE);
+
+        ArrayList<Day> expected = new JsonReader(PATH).readDays();
+        for (int chunkDays : new int[]{1, 7, 1000}) {
+            assertSameDays(expected, new ParallelJsonReader(PATH, pool, chunkDays).readDays());
+        }
+    }
+
+    @Test
+    void testReaderBracesInStrings() throws IOException {
+        String json = "{\"note\": \"}{[\", \"timeline\": [\n"
+                + "{\"id\": \"2021-03-05\", \"sleep\": 3, \"x\": \"\\\"}\", \"moods\": []},\n"
+                + "{\"x\": {\"y\": [\"]\"]}, \"id\": \"2021-03-06\", \"sleep\": 5, \"moods\": []}\n"
+                + "], \"after\": [1, 2]}";
+        Files.write(Paths.get(PATH), json.getBytes(StandardCharsets.UTF_8));
+
+        ArrayList<Day> days = new ParallelJsonReader(PATH, pool, 1).readDays();
+        assertSameDays(new JsonReader(PATH).readDays(), days);
+        assertEquals(2, days.size());
+        assertEquals(5, days.get(1).getSleepHours());
+    }
+
+    @Test
+    void testReaderVersions() throws IOException {
+        String day = "{\"id\": \"2021-03-05\", \"sleep\": 3, \"moods\": [{\"score\": 2, \"activities\": [%s]}]}";
+        String[] documents = {
+            "{\"timeline\": [" + String.format(day, "{\"name\": \"Music\"}") + "]}",
+            "{\"version\": 2, \"timeline\": [" + String.format(day, "{\"name\": \"Music\"}") + "]}",
+            "{\"timeline\": [" + String.format(day, "{\"name\": \"Music\"}") + "], \"version\": 2}"
+        };
+        for (String json : documents) {
+            Files.write(Paths.get(PATH), json.getBytes(StandardCharsets.UTF_8));
+            ArrayList<Day> days = new ParallelJsonReader(PATH, pool, 1).readDays();
+            assertSameDays(new JsonReader(PATH).readDays(), days);
+            assertTrue(days.get(0).getMood(0).containsActivity("Music"));
+        }
+
+        Files.write(Paths.get(PATH), "{\"version\": 99, \"timeline\": []}".getBytes(StandardCharsets.UTF_8));
+        try {
+            new ParallelJsonReader(PATH, pool, 1).readDays();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Caught exception properly
+        }
+    }
+
+    @Test
+    void testReaderTruncatedFile() {
+        try {
+            new ParallelJsonReader("./data/testReaderTruncatedTimeline.json", pool, 1).read();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Caught exception properly
+        }
+    }
+
+    @Test
+    void testReaderInvalidDay() throws IOException {
+        String json = "{\"timeline\": [{\"id\": \"2021-03-05\", \"moods\": [{\"activities\": [{}]}]}]}";
+        Files.write(Paths.get(PATH), json.getBytes(StandardCharsets.UTF_8));
+        try {
+            new ParallelJsonReader(PATH, pool, 1).read();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Caught exception properly
+        }
+    }
+
+    @Test
+    void testReaderSequentialBelowSize() throws IOException {
+        writeLargeTimeline(PATH, Compression.NONE);
+        long size = Files.size(Paths.get(PATH));
+        List<Long> totals = Collections.synchronizedList(new ArrayList<>());
+        ParallelJsonReader reader = new ParallelJsonReader(PATH, pool, 7, size + 1);
+        reader.setProgressListener((done, total) -> totals.add(total));
+
+        // A JsonReader reports its progress in bytes, where the parallel reader reports it in days
+        assertSameDays(new JsonReader(PATH).readDays(), reader.readDays());
+        assertEquals(size, (long) totals.get(totals.size() - 1));
+
+        totals.clear();
+        reader = new ParallelJsonReader(PATH, pool, 7, size);
+        reader.setProgressListener((done, total) -> totals.add(total));
+        assertEquals(500, reader.readDays().size());
+        assertEquals(500, (long) totals.get(0));
+    }
+
+    @Test
+    void testReaderCompressedFile() throws IOException {
+        writeLargeTimeline(PATH + ".gz", Compression.GZIP);
+
+        assertSameDays(new JsonReader(PATH + ".gz").readDays(),
+                new ParallelJsonReader(PATH + ".gz", pool, 7).readDays());
+    }
+
+    // EFFECTS: writes a timeline of 500 days with varied values to path.
+    private void writeLargeTimeline(String path, Compression compression) throws IOException {
+        ArrayList<Day> days = new ArrayList<>();
+        ArrayList<Activity> activities = DefaultActivities.getInstance().getActivityList();
+        DateCode dc = new DateCode("2020-01-01");
+        for (int i = 0; i < 500; i++) {
+            Day day = new Day(dc);
+            day.setSleepHours(i % 13);
+            day.getMood(0).setMoodScore(i % 5);
+            day.getMood(1).addActivity(activities.get(i % activities.size()));
+            days.add(day);
+            dc = DateCode.fromEpochDay(dc.toEpochDay() + 1);
+        }
+
+        JsonWriter writer = new JsonWriter(path, true, compression);
+        writer.open();
+        writer.write(days);
+        writer.close();
+    }
+
+    // EFFECTS: asserts that actual holds the same days as expected, in the same order.
+    private void assertSameDays(ArrayList<Day> expected, ArrayList<Day> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Day e = expected.get(i);
+            Day a = actual.get(i);
+            assertEquals(e.getDateCode().toString(), a.getDateCode().toString());
+            assertEquals(e.getSleepHours(), a.getSleepHours());
+            assertEquals(e.getMoodListLength(), a.getMoodListLength());
+            for (int m = 0; m < e.getMoodListLength(); m++) {
+                Mood em = e.getMood(m);
+                Mood am = a.getMood(m);
+                assertEquals(em.getMoodScore(), am.getMoodScore());
+                assertEquals(em.getActivityListLength(), am.getActivityListLength());
+            }
+        }
+    }
+}
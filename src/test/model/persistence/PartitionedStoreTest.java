@@ -0,0 +1,227 @@
+package model.persistence;
+
+import model.DateCode;
+import model.Day;
+import model.DaySource;
+import model.Timeline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import persistence.PartitionedStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionedStoreTest extends JsonTest {
+
+    private static final String PATH = "./data/testPartitionedTimeline.hiop";
+    private static final Path MONTHS = Paths.get(PATH + PartitionedStore.PARTITION_DIR_SUFFIX);
+
+    @BeforeEach
+    void runBefore() throws IOException {
+        deleteFiles();
+    }
+
+    @AfterEach
+    void runAfter() throws IOException {
+        deleteFiles();
+    }
+
+    @Test
+    void testSaveAndOpen() {
+        try {
+            Timeline tl = generateGeneralTimeline();
+            tl.addDay(new Day(new DateCode("2021-04-02")));
+            new PartitionedStore(PATH).save(tl);
+            assertTrue(Files.exists(MONTHS.resolve("2021-03.json")));
+            assertTrue(Files.exists(MONTHS.resolve("2021-04.json")));
+            assertTrue(tl.getDirtyPartitions().isEmpty());
+
+            Timeline opened = new PartitionedStore(PATH).open();
+            // Only the month of today is read when opening
+            int todayPartition = DaySource.partitionOf(tl.getSelectedDateCode());
+            assertEquals(tl.getPartitionDays(todayPartition).size(), opened.getDayListLength());
+            ensureTimelinesAreEqual(tl, opened, true, true);
+            assertNotNull(opened.getDay(new DateCode("2021-04-02")));
+            assertEquals(tl.getDays().size(), opened.getDays().size());
+        } catch (IOException e) {
+            fail("IOException should not have been thrown");
+        }
+    }
+
+    @Test
+    void testSaveOnlyDirtyPartitions() {
+        try {
+            Timeline tl = generateGeneralTimeline();
+            tl.addDay(new Day(new DateCode("2021-04-02")));
+            new PartitionedStore(PATH).save(tl);
+
+            Timeline opened = new PartitionedStore(PATH).open();
+            new PartitionedStore(PATH).save(opened); // Writes today's new day only
+            opened.getDay(new DateCode("2021-03-06")).setSleepHours(1);
+            assertEquals(1, opened.getDirtyPartitions().size());
+            assertTrue(opened.getDirtyPartitions().contains(202103));
+
+            Files.delete(MONTHS.resolve("2021-04.json")); // Not rewritten by an incremental save
+            new PartitionedStore(PATH).save(opened);
+            assertFalse(Files.exists(MONTHS.resolve("2021-04.json")));
+            assertEquals(1, new PartitionedStore(PATH).open().getDay(new DateCode("2021-03-06")).getSleepHours());
+        } catch (IOException e) {
+            fail("IOException should not have been thrown");
+        }
+    }
+
+    @Test
+    void testChangeDuringSaveStaysUnsaved() throws IOException {
+        Timeline tl = generateGeneralTimeline();
+        new PartitionedStore(PATH).save(tl);
+        Timeline opened = new PartitionedStore(PATH).open();
+        new PartitionedStore(PATH).save(opened);
+
+        opened.getDay(new DateCode("2021-03-05")).setSleepHours(1);
+        PartitionedStore.Save save = new PartitionedStore(PATH).prepareSave(opened);
+        opened.getDay(new DateCode("2021-03-06")).setSleepHours(2);   // While the save is being written
+        save.write();
+        assertTrue(opened.getDirtyPartitions().contains(202103));
+        Timeline saved = new PartitionedStore(PATH).open();
+        assertEquals(1, saved.getDay(new DateCode("2021-03-05")).getSleepHours());
+        assertEquals(tl.getDay(new DateCode("2021-03-06")).getSleepHours(),
+                saved.getDay(new DateCode("2021-03-06")).getSleepHours());
+
+        new PartitionedStore(PATH).save(opened);
+        assertEquals(2, new PartitionedStore(PATH).open().getDay(new DateCode("2021-03-06")).getSleepHours());
+    }
+
+    @Test
+    void testFailedSaveKeepsMonthsUnsaved() throws IOException {
+        new PartitionedStore(PATH).save(generateGeneralTimeline());
+        Timeline opened = new PartitionedStore(PATH).open();
+        new PartitionedStore(PATH).save(opened);
+        opened.getDay(new DateCode("2021-03-05")).setSleepHours(1);
+
+        Files.createDirectories(MONTHS.resolve("2021-03.json.tmp"));  // The month cannot be written
+        try {
+            new PartitionedStore(PATH).save(opened);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Caught exception properly
+        }
+        assertTrue(opened.getDirtyPartitions().contains(202103));
+
+        Files.delete(MONTHS.resolve("2021-03.json.tmp"));
+        new PartitionedStore(PATH).save(opened);
+        assertEquals(1, new PartitionedStore(PATH).open().getDay(new DateCode("2021-03-05")).getSleepHours());
+    }
+
+    @Test
+    void testEvictsCleanPartitions() {
+        try {
+            Timeline tl = generateGeneralTimeline();
+            tl.addDay(new Day(new DateCode("2021-04-02")));
+            tl.addDay(new Day(new DateCode("2021-05-02")));
+            new PartitionedStore(PATH).save(tl);
+
+            Timeline opened = new PartitionedStore(PATH).open();
+            new PartitionedStore(PATH).save(opened);
+            opened.setPartitionBudget(1);
+            int loaded = opened.getDayListLength();
+            opened.getDay(new DateCode("2021-03-05"));
+            opened.getDay(new DateCode("2021-04-02"));
+            opened.getDay(new DateCode("2021-05-02"));
+            // Only the last month visited is kept, as well as the selected week (today)
+            assertEquals(loaded + 1, opened.getDayListLength());
+
+            // A month with unsaved changes is never dropped
+            opened.getDay(new DateCode("2021-03-05")).setSleepHours(2);
+            opened.getDay(new DateCode("2021-04-02"));
+            assertEquals(3, opened.getPartitionDays(202103).size());
+            assertEquals(0, opened.getPartitionDays(202105).size());
+        } catch (IOException e) {
+            fail("IOException should not have been thrown");
+        }
+    }
+
+    @Test
+    void testEditOfEvictedDayKeepsMonthFile() {
+        try {
+            Timeline tl = generateGeneralTimeline();
+            tl.addDay(new Day(new DateCode("2021-04-02")));
+            tl.addDay(new Day(new DateCode("2021-05-02")));
+            new PartitionedStore(PATH).save(tl);
+
+            Timeline opened = new PartitionedStore(PATH).open();
+            new PartitionedStore(PATH).save(opened);
+            opened.setPartitionBudget(1);
+            Day held = opened.getDay(new DateCode("2021-04-02"));
+            opened.getDay(new DateCode("2021-05-02"));
+            assertFalse(opened.isPartitionLoaded(202104));
+
+            held.setSleepHours(3); // Through a reference kept to a Day that was dropped
+            assertFalse(opened.getDirtyPartitions().contains(202104));
+            new PartitionedStore(PATH).save(opened);
+            assertNotNull(new PartitionedStore(PATH).open().getDay(new DateCode("2021-04-02")));
+        } catch (IOException e) {
+            fail("IOException should not have been thrown");
+        }
+    }
+
+    @Test
+    void testDayOnOrBeforeAndAfterLoadMonths() {
+        try {
+            Timeline tl = generateGeneralTimeline();
+            tl.addDay(new Day(new DateCode("2021-05-02")));
+            new PartitionedStore(PATH).save(tl);
+
+            Timeline opened = new PartitionedStore(PATH).open();
+            DateCode lastOfMarch = tl.getDayOnOrBefore(new DateCode("2021-04-30")).getDateCode();
+            assertEquals(3, lastOfMarch.getMonth());
+            assertEquals(lastOfMarch, opened.getDayOnOrBefore(new DateCode("2021-04-30")).getDateCode());
+            assertEquals(new DateCode("2021-05-02"), opened.getDayOnOrAfter(lastOfMarch.plusDays(1)).getDateCode());
+            assertEquals(tl.getDays().iterator().next().getDateCode(),
+                    opened.getDayOnOrAfter(new DateCode("2000-01-01")).getDateCode());
+            assertNull(opened.getDayOnOrBefore(new DateCode("2000-01-01")));
+
+            // A range loads its months as it reaches them
+            opened.setPartitionBudget(1);
+            int count = 0;
+            for (Day d : opened.range(new DateCode("2021-01-01"), new DateCode("2021-05-31"))) {
+                assertTrue(d.getDateCode().getMonth() == 3 || d.getDateCode().getMonth() == 5);
+                count++;
+            }
+            assertEquals(tl.getDays(new DateCode("2021-01-01"), new DateCode("2021-05-31")).size(), count);
+        } catch (IOException e) {
+            fail("IOException should not have been thrown");
+        }
+    }
+
+    @Test
+    void testOpenNotPartitioned() {
+        try {
+            new PartitionedStore("./data/testReaderGeneralTimeline.json").open();
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Caught exception properly
+        }
+    }
+
+    @Test
+    void testPartitionOf() {
+        assertEquals(202103, DaySource.partitionOf(new DateCode("2021-03-05")));
+    }
+
+    // EFFECTS: deletes the manifest and month files written by the tests.
+    private void deleteFiles() throws IOException {
+        Files.deleteIfExists(Paths.get(PATH));
+        if (Files.exists(MONTHS)) {
+            try (Stream<Path> files = Files.walk(MONTHS)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package model.persistence;
+
+import model.DateCode;
+import model.Day;
+import model.Timeline;
+import model.activities.DefaultActivities;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import persistence.JsonReader;
+import persistence.JsonWriter;
+import persistence.ProgressListener;
+import persistence.TimelineMerger;
+import persistence.TimelineStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimelineMergerTest extends JsonTest {
+
+    private static final String OLDER = "./data/testMergeOlder.json";
+    private static final String NEWER = "./data/testMergeNewer.json";
+    private static final String OUTPUT = "./data/testMergeOutput.json";
+
+    @BeforeEach
+    void runBefore() throws IOException {
+        deleteFiles();
+    }
+
+    @AfterEach
+    void runAfter() throws IOException {
+        deleteFiles();
+    }
+
+    @Test
+    void testMerge() throws IOException {
+        writeDays(OLDER, Arrays.asList(
+                day("2021-03-07", 6, 2, "Music"), day("2021-03-01", 8, 3, "Exercise"), day("2021-03-05", -1, 1)));
+        writeDays(NEWER, Arrays.asList(
+                day("2021-03-05", 7, -1, "Music"), day("2021-03-07", -1, 4, "Exercise"), day("2021-02-10", 5, 5)));
+
+        TimelineMerger merger = new TimelineMerger(OLDER, NEWER);
+        List<Long> totals = new ArrayList<>();
+        merger.setProgressListener((done, total) -> totals.add(total));
+        merger.merge(OUTPUT);
+        assertEquals(4, merger.getMergedDays());
+        assertEquals(2, merger.getSharedDays());
+        assertEquals(Arrays.asList(4L, 4L, 4L, 4L), totals);   // Shared dates are only counted once
+
+        ArrayList<Day> days = new JsonReader(OUTPUT).readDays();
+        List<String> dates = new ArrayList<>();
+        for (Day d : days) {
+            dates.add(d.getDateCode().toString());
+        }
+        assertEquals(Arrays.asList("2021-02-10", "2021-03-01", "2021-03-05", "2021-03-07"), dates);
+
+        Day shared = days.get(2);
+        assertEquals(7, shared.getSleepHours());
+        assertEquals(1, shared.getMood(0).getMoodScore());
+        assertTrue(shared.getMood(0).containsActivity("Music"));
+
+        shared = days.get(3);
+        assertEquals(6, shared.getSleepHours());
+        assertEquals(4, shared.getMood(0).getMoodScore());
+        assertTrue(shared.getMood(0).containsActivity("Music"));
+        assertTrue(shared.getMood(0).containsActivity("Exercise"));
+        assertEquals(2, shared.getMood(0).getActivityListLength());
+    }
+
+    @Test
+    void testMergeCompressed() throws IOException {
+        writeDays(OLDER + ".gz", Arrays.asList(day("2021-03-07", 6, 2), day("2021-03-01", 8, 3)));
+        writeDays(NEWER, Arrays.asList(day("2021-03-07", 9, -1)));
+
+        new TimelineMerger(OLDER + ".gz", NEWER).merge(OUTPUT + ".gz");
+        ArrayList<Day> days = new JsonReader(OUTPUT + ".gz").readDays();
+        assertEquals(2, days.size());
+        assertEquals(9, days.get(1).getSleepHours());
+        assertEquals(2, days.get(1).getMood(0).getMoodScore());
+    }
+
+    @Test
+    void testMergeMissingFile() throws IOException {
+        writeDays(OLDER, Arrays.asList(day("2021-03-07", 6, 2)));
+        try {
+            new TimelineMerger(OLDER, NEWER).merge(OUTPUT);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Caught exception properly
+        }
+    }
+
+    @Test
+    void testStoreMerge() throws IOException {
+        TimelineStore store = new TimelineStore(OUTPUT);
+        Timeline tl = generateGeneralTimeline();
+        store.reset(tl);
+        tl.getDay(new DateCode("2021-03-05")).setSleepHours(2);
+        store.flush();
+        writeDays(NEWER, Arrays.asList(day("2021-03-05", 9, -1), day("2020-12-25", 4, 4)));
+        Files.setLastModifiedTime(Paths.get(NEWER), FileTime.fromMillis(System.currentTimeMillis() + 60000));
+
+        Timeline merged = store.merge(NEWER, ProgressListener.NONE);
+        assertTrue(store.isRecording(merged));
+        store.close();
+        assertEquals(9, merged.getDay(new DateCode("2021-03-05")).getSleepHours());
+        assertEquals(4, merged.getDay(new DateCode("2020-12-25")).getSleepHours());
+        assertEquals(tl.getDay(new DateCode("2021-03-06")).getSleepHours(),
+                merged.getDay(new DateCode("2021-03-06")).getSleepHours());
+
+        // The file modified last wins conflicts
+        Files.setLastModifiedTime(Paths.get(NEWER), FileTime.fromMillis(0));
+        writeDays(OLDER, Arrays.asList(day("2021-03-05", 1, -1)));
+        Files.setLastModifiedTime(Paths.get(OLDER), FileTime.fromMillis(0));
+        merged = store.merge(OLDER, ProgressListener.NONE);
+        store.close();
+        assertEquals(9, merged.getDay(new DateCode("2021-03-05")).getSleepHours());
+    }
+
+    // EFFECTS: returns a Day on date with sleep hours, the first mood's score and its activities.
+    private Day day(String date, int sleep, int score, String... activities) {
+        Day day = new Day(new DateCode(date));
+        day.setSleepHours(sleep);
+        day.getMood(0).setMoodScore(score);
+        for (String name : activities) {
+            day.getMood(0).addActivity(DefaultActivities.getInstance().getActivity(name));
+        }
+        return day;
+    }
+
+    // EFFECTS: writes days to path as a json timeline.
+    private void writeDays(String path, List<Day> days) throws IOException {
+        JsonWriter writer = new JsonWriter(path);
+        writer.open();
+        writer.write(days);
+        writer.close();
+    }
+
+    // EFFECTS: deletes the files the tests write.
+    private void deleteFiles() throws IOException {
+        for (String path : new String[]{OLDER, NEWER, OUTPUT}) {
+            for (String suffix : new String[]{"", ".gz", ".idx", TimelineStore.JOURNAL_EXTENSION,
+                    TimelineStore.JOURNAL_EXTENSION + TimelineStore.COMPACTING_EXTENSION}) {
+                Files.deleteIfExists(Paths.get(path + suffix));
+            }
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package model.persistence;
+
+import model.DateCode;
+import model.Day;
+import model.DaySource;
+import model.Timeline;
+import model.activities.DefaultActivities;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import persistence.DateIndex;
+import persistence.FileWatcher;
+import persistence.JournalReader;
+import persistence.JournalWriter;
+import persistence.JsonReader;
+import persistence.TimelineStore;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimelineStoreTest extends JsonTest {
+
+    private static final String PATH = "./data/testStoreTimeline.json";
+    private static final String JOURNAL = PATH + TimelineStore.JOURNAL_EXTENSION;
+
+    private TimelineStore store;
+
+    @BeforeEach
+    void runBefore() throws IOException {
+        deleteFiles();
+        store = new TimelineStore(PATH);
+    }
+
+    @AfterEach
+    void runAfter() throws IOException {
+        store.close();
+        deleteFiles();
+    }
+
+    @Test
+    void testLoadNoSnapshot() {
+        try {
+            Timeline tl = store.load();
+            assertEquals(new Timeline().getDays().size(), tl.getDays().size());
+            assertTrue(Files.exists(Paths.get(PATH)));
+            assertTrue(store.isRecording(tl));
+            assertFalse(store.isRecording(new Timeline()));
+        } catch (IOException e) {
+            fail("IOException should not have been thrown");
+        }
+    }
+
+    @Test
+    void testChangesReplayedOnLoad() {
+        try {
+            Timeline tl = generateGeneralTimeline();
+            store.reset(tl);
+            makeChanges(tl);
+            store.close();
+
+            // The snapshot has not been rewritten, only the journal
+            ensureTimelinesAreEqual(generateGeneralTimeline(), new JsonReader(PATH).read(), true, true);
+
+            Timeline loaded = new TimelineStore(PATH).load();
+            ensureTimelinesAreEqual(tl, loaded, true, true);
+        } catch (IOException e) {
+            fail("IOException should not have been thrown");
+        }
+    }
+
+    @Test
+    void testCompact() {
+        try {
+            Timeline tl = generateGeneralTimeline();
+            store.reset(tl);
+            makeChanges(tl);
+            store.compact();
+
+            ensureTimelinesAreEqual(tl, new JsonReader(PATH).read(), true, true);
+            assertFalse(Files.exists(Paths.get(JOURNAL + TimelineStore.COMPACTING_EXTENSION)));
+
+            // Changes after compaction still reach the new journal
+            tl.getDay(new DateCode("2021-03-05")).setSleepHours(3);
+            store.close();
+            assertEquals(3, new TimelineStore(PATH).load().getDay(new DateCode("2021-03-05")).getSleepHours());
+        } catch (IOException e) {
+            fail("IOException should not have been thrown");
+        }
+    }
+
+    @Test
+    void testTornRecordIgnored() {
+        try {
+            Timeline tl = generateGeneralTimeline();
+            store.reset(tl);
+            tl.getDay(new DateCode("2021-03-05")).setSleepHours(2);
+            tl.getDay(new DateCode("2021-03-06")).setSleepHours(6);
+            store.close();
+
+            // Cut the last record short, as if the program stopped while writing it
+            try (RandomAccessFile file = new RandomAccessFile(JOURNAL, "rw")) {
+                file.setLength(file.length() - 1);
+            }
+            Timeline replayed = generateGeneralTimeline();
+            assertEquals(1, new JournalReader(JOURNAL).replay(replayed));
+            assertEquals(2, replayed.getDay(new DateCode("2021-03-05")).getSleepHours());
+            assertEquals(4, replayed.getDay(new DateCode("2021-03-06")).getSleepHours());
+        } catch (IOException e) {
+            fail("IOException should not have been thrown");
+        }
+    }
+
+    @Test
+    void testCancelledResetKeepsSnapshot() {
+        try {
+            store.reset(generateGeneralTimeline());
+            Timeline other = new Timeline();
+            try {
+                store.reset(other, (done, total) -> false);
+                fail("Expected InterruptedIOException");
+            } catch (InterruptedIOException e) {
+                // Cancelled properly
+            }
+            assertFalse(store.isRecording(other));
+            assertFalse(Files.exists(Paths.get(PATH + ".tmp")));
+            ensureTimelinesAreEqual(generateGeneralTimeline(), new TimelineStore(PATH).load(), true, true);
+        } catch (IOException e) {
+            fail("IOException should not have been thrown");
+        }
+    }
+
+    @Test
+    void testReplayNotJournal() {
+        try {
+            new JournalReader("./data/testReaderGeneralTimeline.json").replay(new Timeline());
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Caught exception properly
+        }
+    }
+
+    @Test
+    void testReplayDamagedRecord() throws IOException {
+        ByteBuffer journal = ByteBuffer.allocate(JournalWriter.HEADER_SIZE + 6);
+        journal.putInt(JournalWriter.MAGIC).putShort(JournalWriter.VERSION);
+        journal.put(JournalWriter.SLEEP).putInt(Integer.MAX_VALUE).put((byte) 8);   // Not a valid epoch day
+        Files.write(Paths.get(JOURNAL), journal.array());
+        try {
+            new JournalReader(JOURNAL).replay(new Timeline());
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // Caught exception properly
+        }
+    }
+
+    @Test
+    void testReadChangedDays() throws IOException {
+        store.setIndexed(true);
+        Timeline tl = generateGeneralTimeline();
+        tl.addDay(new Day(new DateCode("2020-06-01")));
+        store.reset(tl);
+        store.flush();
+        assertTrue(store.mergeChanges(tl, store.readChangedDays()).isEmpty());
+
+        // Another program journals changes to March, then folds them into the snapshot
+        TimelineStore other = new TimelineStore(PATH);
+        Timeline otherTl = other.load();
+        makeChanges(otherTl);
+        other.flush();
+        List<Day> changed = store.readChangedDays();
+        assertTrue(changed.stream().allMatch(d -> DaySource.partitionOf(d.getDateCode()) == 202103));
+        assertEquals(new HashSet<>(Arrays.asList(new DateCode("2021-03-06"), new DateCode("2021-03-07"),
+                new DateCode("2021-03-09"))), store.mergeChanges(tl, changed));
+        ensureTimelinesAreEqual(otherTl, tl, true, true);
+
+        otherTl.getDay(new DateCode("2020-06-01")).setSleepHours(9);
+        other.flush();
+        other.compact();
+        other.close();
+        changed = store.readChangedDays();
+        assertTrue(changed.stream().noneMatch(d -> DaySource.partitionOf(d.getDateCode()) == 202102));
+        assertEquals(Collections.singleton(new DateCode("2020-06-01")), store.mergeChanges(tl, changed));
+        assertEquals(9, tl.getDay(new DateCode("2020-06-01")).getSleepHours());
+
+        // Merged changes are saved already, so they are not journaled again
+        assertEquals(0, store.flush());
+    }
+
+    @Test
+    void testMergeChangesKeepsNewerLocalChanges() throws IOException {
+        Timeline tl = generateGeneralTimeline();
+        store.reset(tl);
+        tl.getDay(new DateCode("2021-03-05")).setSleepHours(3);   // Not flushed when the files are read
+        store.readChangedDays();
+        tl.getDay(new DateCode("2021-03-06")).setSleepHours(1);   // Flushed after the files are read
+        store.flush();
+
+        List<Day> saved = Arrays.asList(new Day(new DateCode("2021-03-05")), new Day(new DateCode("2021-03-06")),
+                new Day(new DateCode("2021-03-07")));
+        for (Day d : saved) {
+            d.setSleepHours(8);
+        }
+        assertEquals(Collections.singleton(new DateCode("2021-03-07")), store.mergeChanges(tl, saved));
+        assertEquals(3, tl.getDay(new DateCode("2021-03-05")).getSleepHours());
+        assertEquals(1, tl.getDay(new DateCode("2021-03-06")).getSleepHours());
+
+        // Once read again after the flush, the files are newer than the local changes
+        store.readChangedDays();
+        assertEquals(2, store.mergeChanges(tl, saved).size());
+        assertEquals(8, tl.getDay(new DateCode("2021-03-05")).getSleepHours());
+    }
+
+    @Test
+    void testWatch() throws IOException, InterruptedException {
+        Timeline tl = store.load();
+        CountDownLatch changed = new CountDownLatch(1);
+        FileWatcher watcher = store.watch(changed::countDown);
+        watcher.start();
+        try {
+            // The store's own saves are not taken for changes made by another program
+            tl.getDay().setSleepHours(4);
+            store.flush();
+            store.compact();
+            assertFalse(store.hasExternalChanges());
+            assertFalse(changed.await(1, TimeUnit.SECONDS));
+
+            TimelineStore other = new TimelineStore(PATH);
+            other.load().getDay().setSleepHours(5);
+            other.close();
+            assertTrue(store.hasExternalChanges());
+            assertTrue(changed.await(10, TimeUnit.SECONDS));
+        } finally {
+            watcher.close();
+        }
+    }
+
+    @Test
+    void testChangeBeforeOwnWriteStaysPending() throws IOException {
+        Timeline tl = store.load();
+        Files.setLastModifiedTime(Paths.get(PATH), FileTime.fromMillis(0));  // As another program saving
+
+        tl.getDay().setSleepHours(4);
+        store.flush();  // Hides the other program's change from the file attributes
+        assertTrue(store.hasExternalChanges());
+        store.readChangedDays();
+        assertFalse(store.hasExternalChanges());
+    }
+
+    // MODIFIES: tl
+    // EFFECTS: makes one change of every kind to tl.
+    private void makeChanges(Timeline tl) {
+        Day day = tl.getDay(new DateCode("2021-03-06"));
+        day.setSleepHours(5);
+        day.getMood(0).setMoodScore(2);
+        day.getMood(1).addActivity(DefaultActivities.getInstance().getActivity("Exercise"));
+        tl.getDay(new DateCode("2021-03-07")).getMood(0).removeActivity("Exercise");
+        tl.addDay(new Day(new DateCode("2021-03-09")));
+    }
+
+    // EFFECTS: deletes the files a store at PATH may have created.
+    private void deleteFiles() throws IOException {
+        Files.deleteIfExists(Paths.get(PATH));
+        Files.deleteIfExists(Paths.get(DateIndex.pathOf(PATH)));
+        Files.deleteIfExists(Paths.get(JOURNAL));
+        Files.deleteIfExists(Paths.get(JOURNAL + TimelineStore.COMPACTING_EXTENSION));
+    }
+}